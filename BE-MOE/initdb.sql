@@ -131,7 +131,8 @@ CREATE TABLE products(
 	updated_by BIGINT,
 	create_at DATETIME,
 	update_at DATETIME,
-	is_deleted BIT DEFAULT 0
+	is_deleted BIT DEFAULT 0,
+	INDEX idx_products_deleted_update_at (is_deleted, update_at)
 );
 
 CREATE TABLE sizes(
@@ -175,6 +176,39 @@ CREATE TABLE product_details(
 	status ENUM('ACTIVE', 'INACTIVE')
 );
 
+-- Storefront read model, maintained by ProductListingService
+CREATE TABLE product_listing(
+	product_id BIGINT PRIMARY KEY,
+	name VARCHAR(200),
+	status ENUM('ACTIVE', 'INACTIVE'),
+	is_deleted BIT DEFAULT 0,
+	category_id INT,
+	brand_id INT,
+	material_id INT,
+	total_stock BIGINT DEFAULT 0,
+	retail_price DECIMAL(15, 0),
+	min_price DECIMAL(15, 0),
+	max_price DECIMAL(15, 0),
+	image_url VARCHAR(255),
+	sold_count BIGINT DEFAULT 0,
+	create_at DATETIME,
+	update_at DATETIME,
+	INDEX idx_product_listing_update_at (status, is_deleted, update_at),
+	INDEX idx_product_listing_create_at (status, is_deleted, create_at),
+	INDEX idx_product_listing_sold_count (status, is_deleted, sold_count),
+	INDEX idx_product_listing_min_price (status, is_deleted, min_price),
+	INDEX idx_product_listing_max_price (status, is_deleted, max_price),
+	INDEX idx_product_listing_category (category_id),
+	INDEX idx_product_listing_brand (brand_id),
+	INDEX idx_product_listing_material (material_id)
+);
+
+-- Last flash-sale ledger entry written back to product_details, maintained by FlashSaleInventory
+CREATE TABLE flash_sale_ledger_offset(
+	id TINYINT PRIMARY KEY,
+	applied_seq BIGINT NOT NULL DEFAULT 0
+);
+
 -- Coupons
 CREATE TABLE coupons (
   id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -274,6 +308,8 @@ CREATE TABLE bill (
   create_at DATETIME DEFAULT CURRENT_TIMESTAMP,
   update_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   is_deleted BIT DEFAULT 0,
+  INDEX idx_bill_status_create_at (bill_status_id, create_at),
+  INDEX idx_bill_customer_create_at (customer_id, create_at),
   FOREIGN KEY (customer_id) REFERENCES customers(id),
   FOREIGN KEY (coupon_id) REFERENCES coupons(id),
   FOREIGN KEY (bill_status_id) REFERENCES bill_status(id)
@@ -293,6 +329,32 @@ CREATE TABLE bill_detail (
   FOREIGN KEY (bill_id) REFERENCES bill(id) ON DELETE CASCADE
 );
 
+CREATE TABLE product_sales (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  bill_id BIGINT,
+  product_id BIGINT,
+  quantity INT,
+  sold_at DATETIME,
+  INDEX idx_product_sales_bill (bill_id),
+  INDEX idx_product_sales_sold_at (sold_at, product_id),
+  FOREIGN KEY (bill_id) REFERENCES bill(id) ON DELETE CASCADE,
+  FOREIGN KEY (product_id) REFERENCES products(id)
+);
+
+-- One row per bill that used a coupon, maintained by CouponRedemptionService
+CREATE TABLE coupon_redemptions (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  coupon_id BIGINT NOT NULL,
+  customer_id BIGINT,
+  bill_id BIGINT NOT NULL,
+  redeemed_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE INDEX uk_coupon_redemptions_bill (bill_id),
+  INDEX idx_coupon_redemptions_customer (customer_id, coupon_id),
+  FOREIGN KEY (coupon_id) REFERENCES coupons(id) ON DELETE CASCADE,
+  FOREIGN KEY (customer_id) REFERENCES customers(id),
+  FOREIGN KEY (bill_id) REFERENCES bill(id) ON DELETE CASCADE
+);
+
 CREATE TABLE bill_status_detail (
   id BIGINT AUTO_INCREMENT PRIMARY KEY,
   bill_id BIGINT,
@@ -1032,6 +1094,8 @@ INSERT INTO product_details (product_id, retail_price, size_id, color_id, quanti
 (50, 249000, 4, 4, 45, 'ACTIVE'),
 (50, 249000, 5, 5, 45, 'ACTIVE');
 
+INSERT INTO flash_sale_ledger_offset (id, applied_seq) VALUES (1, 0);
+
 -- promotions
 INSERT INTO promotions (name, code, percent, start_date, end_date, note, created_by, updated_by, create_at, update_at, is_deleted)
 VALUES 
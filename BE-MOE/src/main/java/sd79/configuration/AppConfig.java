@@ -24,8 +24,6 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 
 import static org.springframework.security.config.http.SessionCreationPolicy.STATELESS;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.client.RestTemplate;
@@ -38,6 +36,8 @@ import lombok.RequiredArgsConstructor;
 import static sd79.configuration.Endpoints.ADMIN_ENDPOINTS;
 
 import sd79.service.UserService;
+import sd79.service.catalog.CatalogVersion;
+import sd79.service.security.BoundedPasswordEncoder;
 
 @Configuration
 @EnableWebSecurity
@@ -50,9 +50,23 @@ public class AppConfig {
 
     private final UserService userService;
 
+    private final CatalogVersion catalogVersion;
+
     @Value("${spring.cors.url}")
     private String allowOrigin;
 
+    @Value("${security.password.strength:0}")
+    private int passwordStrength;
+
+    @Value("${security.password.target-ms:250}")
+    private long passwordTargetMillis;
+
+    @Value("${security.password.threads:0}")
+    private int passwordThreads;
+
+    @Value("${security.password.queue-capacity:64}")
+    private int passwordQueueCapacity;
+
     @Bean
     public FilterRegistrationBean<CorsFilter> corsFilter() {
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -68,8 +82,20 @@ public class AppConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public FilterRegistrationBean<CatalogETagFilter> catalogETagFilter() {
+        FilterRegistrationBean<CatalogETagFilter> bean = new FilterRegistrationBean<>(new CatalogETagFilter(this.catalogVersion));
+        bean.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return bean;
+    }
+
+    /**
+     * A strength of 0 is picked at startup from the target hash time
+     */
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder() {
+        int strength = this.passwordStrength > 0 ? this.passwordStrength : BoundedPasswordEncoder.calibrate(this.passwordTargetMillis);
+        int threads = this.passwordThreads > 0 ? this.passwordThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(strength, threads, this.passwordQueueCapacity);
     }
 
     @Bean
@@ -18,5 +18,7 @@ public class Endpoints {
             "/api/*/customer/**",
             "/api/*/employee/**",
             "/api/*/promotion/**",
+            "/api/*/support/**",
+            "/api/*/bill/export",
     };
 }
@@ -7,6 +7,7 @@
 package sd79.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
@@ -18,6 +19,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,10 +28,13 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import sd79.dto.response.ExceptionResponse;
+import sd79.enums.AuthMode;
 import sd79.exception.AuthenticationExceptionCustom;
 import sd79.service.JwtService;
 import sd79.service.TokenService;
 import sd79.service.UserService;
+import sd79.service.security.PrincipalCache;
+import sd79.service.security.TokenVersionService;
 
 import java.io.IOException;
 import java.util.Date;
@@ -47,6 +52,13 @@ public class PreFilter extends OncePerRequestFilter {
 
     private final TokenService tokenService;
 
+    private final PrincipalCache principalCache;
+
+    private final TokenVersionService tokenVersionService;
+
+    @Value("${security.auth.mode:SESSION}")
+    private AuthMode authMode;
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authorization = request.getHeader(AUTHORIZATION);
@@ -56,13 +68,17 @@ public class PreFilter extends OncePerRequestFilter {
         }
         final String token = authorization.substring("Bearer ".length());
         try {
-            final String username = this.jwtService.extractUsername(token, ACCESS_TOKEN);
-            if (this.tokenService.getToken(username) == null) {
+            // Parsing verifies signature and expiry, the claims are not parsed a second time
+            final Claims claims = this.jwtService.extractClaims(token, ACCESS_TOKEN);
+            final String username = claims.getSubject();
+            // Stateless tokens are checked against the in-memory revocations only, sessions also need the Redis session
+            if (!this.tokenVersionService.isCurrent(username, TokenVersionService.versionOf(claims), claims.getIssuedAt())
+                    || (this.authMode == AuthMode.SESSION && !this.tokenService.isActive(username))) {
                 throw new AuthenticationExceptionCustom("Authentication failed");
             }
             if (StringUtils.isNotEmpty(username) & SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userService.userDetailsService().loadUserByUsername(username);
-                if (this.jwtService.isValid(token, ACCESS_TOKEN, userDetails)) {
+                UserDetails userDetails = this.principalCache.get(username, this.userService.userDetailsService()::loadUserByUsername);
+                if (username.equals(userDetails.getUsername())) {
                     SecurityContext context = SecurityContextHolder.createEmptyContext();
                     UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
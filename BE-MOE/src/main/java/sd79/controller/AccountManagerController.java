@@ -46,8 +46,7 @@ public class AccountManagerController {
     }
     @PostMapping("/upload")
     public ResponseData<?> uploadFile(@Valid @ModelAttribute AccountImageReq request) {
-        this.accountManagerService.updateImageAccInfo(request);
-        return new ResponseData<>(HttpStatus.CREATED.value(), "Successfully added customer images");
+        return new ResponseData<>(HttpStatus.ACCEPTED.value(), "Customer image is being uploaded", this.accountManagerService.updateImageAccInfo(request));
     }
 
 }
@@ -2,6 +2,7 @@ package sd79.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -27,6 +28,7 @@ import sd79.dto.response.clients.invoices.InvoiceResponse;
 import sd79.model.BillStatusDetail;
 import sd79.model.Customer;
 import sd79.service.*;
+import sd79.service.export.ExportFormat;
 
 import java.util.List;
 import java.util.Optional;
@@ -50,6 +52,12 @@ public class BillController {
         return new ResponseData<>(HttpStatus.OK.value(), "Lấy thông tin hóa đơn thành công", this.billService.getAllBill());
     }
 
+    @Operation(summary = "Xuất danh sách hóa đơn", description = "Xuất toàn bộ hóa đơn dạng NDJSON hoặc CSV")
+    @GetMapping("/export")
+    public void exportBills(@RequestParam(defaultValue = "NDJSON") ExportFormat format, HttpServletResponse response) {
+        this.billService.exportBills(format, response);
+    }
+
     @Operation(summary = "Lấy thông tin hóa đơn chi tiết", description = "Lấy thông tin hóa đơn chi tiết")
     @GetMapping("/getBillDetail/{id}")
     public ResponseData<?> getBillDetail(@PathVariable Long id) {
@@ -24,7 +24,9 @@ import sd79.service.BrandService;
 import sd79.service.CategoryService;
 import sd79.service.CouponService;
 import sd79.service.MaterialService;
+import sd79.service.catalog.CatalogCache;
 import sd79.service.clients.ClientService;
+import sd79.service.products.SalesRankingService;
 
 
 @Slf4j
@@ -45,22 +47,24 @@ public class ClientController {
 
     private final MaterialService materialService;
 
+    private final CatalogCache catalogCache;
+
     @Operation(
             summary = "Get all product listings",
             description = "Get the entire product list (updating search and pagination functions)"
     )
     @GetMapping
     public ResponseData<?> getAllProducts(@RequestParam(required = false, defaultValue = "0") Integer page) {
-        return new ResponseData<>(HttpStatus.OK.value(), "Successfully retrieved product list", this.clientService.getExploreOurProducts(page));
+        return new ResponseData<>(HttpStatus.OK.value(), "Successfully retrieved product list", this.catalogCache.get(CatalogCache.Region.PRODUCTS, "explore:" + page, () -> this.clientService.getExploreOurProducts(page)));
     }
 
     @Operation(
             summary = "Top 5 Best Selling Products",
-            description = "Get Top 5 Best Selling Products"
+            description = "Get Top 5 Best Selling Products by quantity sold in completed bills, all time or over the last 30 / 7 days"
     )
     @GetMapping("/best-selling-products")
-    public ResponseData<?> getBestSellingProduct() {
-        return new ResponseData<>(HttpStatus.OK.value(), "Successfully 5 best selling product", this.clientService.getBestSellingProducts());
+    public ResponseData<?> getBestSellingProduct(@RequestParam(required = false, defaultValue = "ALL_TIME") SalesRankingService.Window window) {
+        return new ResponseData<>(HttpStatus.OK.value(), "Successfully 5 best selling product", this.catalogCache.get(CatalogCache.Region.PRODUCTS, "best-selling:" + window, () -> this.clientService.getBestSellingProducts(window)));
     }
 
     @Operation(
@@ -176,11 +180,24 @@ public class ClientController {
 
     @GetMapping("/filters")
     public ResponseData<?> filters(ProductRequests.ParamFilters paramFilters) {
-        return new ResponseData<>(HttpStatus.OK.value(), "Get products Successfully", this.clientService.productFilters(paramFilters));
+        String key = paramFilters.cacheKey();
+        if (key == null) {
+            return new ResponseData<>(HttpStatus.OK.value(), "Get products Successfully", this.clientService.productFilters(paramFilters));
+        }
+        return new ResponseData<>(HttpStatus.OK.value(), "Get products Successfully", this.catalogCache.get(CatalogCache.Region.PRODUCTS, "filters:" + key, () -> this.clientService.productFilters(paramFilters)));
     }
 
     @GetMapping("/search-base")
     public ResponseData<?> searchBase(@RequestParam(required = false, defaultValue = "") String keyword) {
         return new ResponseData<>(HttpStatus.OK.value(), "Get products Successfully", this.clientService.searchBase(keyword));
     }
+
+    @Operation(
+            summary = "Product facets",
+            description = "Count matching products for every category, brand, material, color, size and price bucket of the filter"
+    )
+    @GetMapping("/facets")
+    public ResponseData<?> facets(ProductRequests.ParamFilters paramFilters) {
+        return new ResponseData<>(HttpStatus.OK.value(), "Get facets Successfully", this.clientService.productFacets(paramFilters));
+    }
 }
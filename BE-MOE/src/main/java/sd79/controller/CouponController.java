@@ -20,7 +20,6 @@ import sd79.exception.InvalidDataException;
 import sd79.model.Coupon;
 import sd79.model.Customer;
 import sd79.service.CouponService;
-import sd79.utils.CloudinaryUtils;
 
 import java.util.List;
 
@@ -32,7 +31,6 @@ public class CouponController {
 
     private static final Logger log = LoggerFactory.getLogger(CouponController.class);
     private final CouponService couponService;
-    private final CloudinaryUtils cloudinaryUpload;
 
     // Lấy danh sách phiếu giảm giá
     @Operation(
@@ -112,8 +110,7 @@ public class CouponController {
     // Tải hình ảnh phiếu giảm giá lên
     @PostMapping("/upload")
     public ResponseData<?> uploadFile(@ModelAttribute CouponImageReq request) {
-        this.couponService.storeCouponImages(request);
-        return new ResponseData<>(HttpStatus.CREATED.value(), "Thêm hình ảnh phiếu giảm giá thành công");
+        return new ResponseData<>(HttpStatus.ACCEPTED.value(), "Đang tải hình ảnh phiếu giảm giá lên", this.couponService.storeCouponImages(request));
     }
 
     // Xóa hình ảnh coupon
@@ -2,6 +2,7 @@ package sd79.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ import sd79.enums.Gender;
 import sd79.enums.ProductStatus;
 import sd79.model.Customer;
 import sd79.service.CustomerService;
+import sd79.service.export.ExportFormat;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -55,6 +57,15 @@ public class CustomerController {
         return new ResponseData<>(HttpStatus.OK.value(), "List of customers (paginated)", customers);
     }
 
+    @Operation(
+            summary = "Export Customers",
+            description = "Stream every customer as NDJSON or CSV"
+    )
+    @GetMapping("/export")
+    public void exportCustomers(@RequestParam(defaultValue = "NDJSON") ExportFormat format, HttpServletResponse response) {
+        this.customerService.exportCustomers(format, response);
+    }
+
     @PatchMapping("/change-isLocked/{id}/{isLocked}")
     public ResponseData<?> setUserLocked(@Min(1) @PathVariable("id") long id, @PathVariable("isLocked") Boolean isLocked) {
         this.customerService.setUserLocked(id, isLocked);
@@ -155,7 +166,6 @@ public class CustomerController {
     )
     @PostMapping("/upload")
     public ResponseData<?> uploadFile(@Valid @ModelAttribute ProductImageReq request) {
-        this.customerService.updateImage(request);
-        return new ResponseData<>(HttpStatus.CREATED.value(), "Successfully added customer images");
+        return new ResponseData<>(HttpStatus.ACCEPTED.value(), "Customer image is being uploaded", this.customerService.updateImage(request));
     }
 }
@@ -19,6 +19,7 @@ import sd79.dto.response.ResponseData;
 import sd79.exception.EntityNotFoundException;
 import sd79.repositories.PositionsRepository;
 import sd79.service.EmployeeService;
+import sd79.service.security.BoundedPasswordEncoder;
 
 import java.util.List;
 
@@ -33,6 +34,8 @@ public class EmployeeController {
 
     private final PositionsRepository positionsRepository;
 
+    private final BoundedPasswordEncoder passwordEncoder;
+
     @Operation(
             summary = "Get Employee",
             description = "Get all employee from database"
@@ -108,8 +111,7 @@ public class EmployeeController {
     )
     @PostMapping("/upload")
     public ResponseData<?> uploadFile(@Valid @ModelAttribute EmployeeImageReq request) {
-        this.employeeService.updateImage(request);
-        return new ResponseData<>(HttpStatus.CREATED.value(), "");
+        return new ResponseData<>(HttpStatus.ACCEPTED.value(), "", this.employeeService.updateImage(request));
     }
 
     @PatchMapping("/change-isLocked/{id}/{isLocked}")
@@ -146,5 +148,12 @@ public class EmployeeController {
         return new ResponseData<>(HttpStatus.ACCEPTED.value(), "Sửa thành công");
     }
 
-
+    @Operation(
+            summary = "Password hashing metrics",
+            description = "Strength, pool usage, queue depth, rejections and hash time of the bounded BCrypt executor"
+    )
+    @GetMapping("/password-hashing-metrics")
+    public ResponseData<?> getPasswordHashingMetrics() {
+        return new ResponseData<>(HttpStatus.OK.value(), "Password hashing metrics", this.passwordEncoder.getMetrics());
+    }
 }
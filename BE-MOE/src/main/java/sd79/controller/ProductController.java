@@ -21,6 +21,9 @@ import sd79.dto.requests.common.ProductParamFilter;
 import sd79.dto.response.ResponseData;
 import sd79.enums.ProductStatus;
 import sd79.service.ProductService;
+import sd79.service.catalog.CatalogCache;
+import sd79.service.products.CoPurchaseRecommender;
+import sd79.service.products.FlashSaleInventory;
 
 import java.util.List;
 
@@ -34,6 +37,12 @@ public class ProductController {
 
     private final ProductService productService;
 
+    private final CoPurchaseRecommender coPurchaseRecommender;
+
+    private final CatalogCache catalogCache;
+
+    private final FlashSaleInventory flashSaleInventory;
+
     @Operation(
             summary = "Get all product listings",
             description = "Get the entire product list (updating search and pagination functions)"
@@ -63,12 +72,11 @@ public class ProductController {
 
     @Operation(
             summary = "Upload image",
-            description = "Upload the image to cloudinary and return the url to save to the database"
+            description = "Spool the images and upload them in the background, progress is published to /topic/uploads/{uploadId}"
     )
     @PostMapping("/upload")
     public ResponseData<?> uploadFile(@Valid @ModelAttribute ProductImageReq request) {
-        this.productService.storeProductImages(request);
-        return new ResponseData<>(HttpStatus.CREATED.value(), "Successfully added product images");
+        return new ResponseData<>(HttpStatus.ACCEPTED.value(), "Product images are being uploaded", this.productService.storeProductImages(request));
     }
 
     @Operation(
@@ -177,5 +185,50 @@ public class ProductController {
     public ResponseData<?> getProductDetails(ProductParamFilter2 param) {
         return new ResponseData<>(HttpStatus.OK.value(), "Successfully retrieved product list", this.productService.getAllProductDetails(param));
     }
+
+    @Operation(
+            summary = "Recommendation metrics",
+            description = "Size of the co-purchase model and the measured cost of computing related items per product view"
+    )
+    @GetMapping("/recommendation-metrics")
+    public ResponseData<?> getRecommendationMetrics() {
+        return new ResponseData<>(HttpStatus.OK.value(), "Recommendation metrics", this.coPurchaseRecommender.getMetrics());
+    }
+
+    @Operation(
+            summary = "Catalog cache metrics",
+            description = "Local and redis hits, misses, evictions and invalidations of the public catalog response cache"
+    )
+    @GetMapping("/catalog-cache-metrics")
+    public ResponseData<?> getCatalogCacheMetrics() {
+        return new ResponseData<>(HttpStatus.OK.value(), "Catalog cache metrics", this.catalogCache.getMetrics());
+    }
+
+    @Operation(
+            summary = "Start flash sale",
+            description = "Move the stock of a product detail into a redis counter taken by checkouts"
+    )
+    @PostMapping("/flash-sale/{productDetailId}")
+    public ResponseData<?> enableFlashSale(@PathVariable Long productDetailId) {
+        return new ResponseData<>(HttpStatus.OK.value(), "Flash sale started", this.flashSaleInventory.enable(productDetailId));
+    }
+
+    @Operation(
+            summary = "Stop flash sale",
+            description = "Write the flash sale ledger back and return the product detail stock to the database"
+    )
+    @DeleteMapping("/flash-sale/{productDetailId}")
+    public ResponseData<?> disableFlashSale(@PathVariable Long productDetailId) {
+        this.flashSaleInventory.disable(productDetailId);
+        return new ResponseData<>(HttpStatus.OK.value(), "Flash sale stopped");
+    }
+
+    @Operation(
+            summary = "Flash sale metrics",
+            description = "Counters on sale, ledger entries waiting and written back to the database"
+    )
+    @GetMapping("/flash-sale-metrics")
+    public ResponseData<?> getFlashSaleMetrics() {
+        return new ResponseData<>(HttpStatus.OK.value(), "Flash sale metrics", this.flashSaleInventory.getMetrics());
+    }
 }
-    
\ No newline at end of file
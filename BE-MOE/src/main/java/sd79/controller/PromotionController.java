@@ -1,6 +1,7 @@
 package sd79.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -17,6 +18,8 @@ import sd79.dto.response.PromotionResponse;
 import sd79.dto.response.ResponseData;
 import sd79.exception.InvalidDataException;
 import sd79.service.PromotionService;
+import sd79.service.export.ExportFormat;
+import sd79.service.promotions.ActivePromotionIndex;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -33,6 +36,8 @@ import java.util.Map;
 public class PromotionController {
     private final PromotionService promotionService;
 
+    private final ActivePromotionIndex activePromotionIndex;
+
     @Operation(
             summary = "Get Promotion",
             description = "Get all coupon from database"
@@ -58,6 +63,24 @@ public class PromotionController {
         return new ResponseData<>(HttpStatus.OK.value(), "List promotion", this.promotionService.getAllPromotionDetail());
     }
 
+    @Operation(
+            summary = "Export Promotion",
+            description = "Stream every promotion as NDJSON or CSV"
+    )
+    @GetMapping("/export")
+    public void exportPromotion(@RequestParam(defaultValue = "NDJSON") ExportFormat format, HttpServletResponse response) {
+        this.promotionService.exportPromotions(format, response);
+    }
+
+    @Operation(
+            summary = "Export Promotion Detail",
+            description = "Stream every promotion detail as NDJSON or CSV"
+    )
+    @GetMapping("/promotion-details/export")
+    public void exportPromotionDetail(@RequestParam(defaultValue = "NDJSON") ExportFormat format, HttpServletResponse response) {
+        this.promotionService.exportPromotionDetails(format, response);
+    }
+
     @Operation(
             summary = "Create New Promotion",
             description = "Add a new promotion into database"
@@ -87,6 +110,15 @@ public class PromotionController {
         return new ResponseData<>(HttpStatus.OK.value(), "Promotion deleted successfully");
     }
 
+    @Operation(
+            summary = "Active promotion index metrics",
+            description = "Hit, miss and rebuild counters of the in-memory active promotion index"
+    )
+    @GetMapping("/index-metrics")
+    public ResponseData<?> getIndexMetrics() {
+        return new ResponseData<>(HttpStatus.OK.value(), "Promotion index metrics", this.activePromotionIndex.getMetrics());
+    }
+
     @GetMapping("/detail/{id}")
     public ResponseData<?> getPromotionId(@PathVariable Integer id) {
         return new ResponseData<>(HttpStatus.OK.value(), "Promotion details", promotionService.getPromotionId(id));
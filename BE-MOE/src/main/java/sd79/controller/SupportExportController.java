@@ -0,0 +1,24 @@
+package sd79.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import sd79.service.SupportService;
+import sd79.service.export.ExportFormat;
+
+// Tải xuất yêu cầu hỗ trợ, chỉ dành cho ADMIN (nằm ngoài /client nên không thuộc WHITE_LIST)
+@RestController
+@RequestMapping("api/${api.version}/support")
+@RequiredArgsConstructor
+public class SupportExportController {
+
+    private final SupportService supportService;
+
+    @GetMapping("/export")
+    public void exportSupport(@RequestParam(defaultValue = "NDJSON") ExportFormat format, HttpServletResponse response) {
+        supportService.exportSupportRequests(format, response);
+    }
+}
@@ -27,4 +27,8 @@ public class BillListParamFilter {
 
     private BigDecimal maxTotal ;
 
+    private String cursor;
+
+    private Boolean count;
+
 }
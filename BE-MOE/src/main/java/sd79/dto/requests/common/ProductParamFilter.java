@@ -21,4 +21,6 @@ public class ProductParamFilter {
     private String brand;
     private String material;
     private String origin;
+    private String cursor;
+    private Boolean count;
 }
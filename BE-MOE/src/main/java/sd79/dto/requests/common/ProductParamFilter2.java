@@ -23,4 +23,6 @@ public class ProductParamFilter2 {
     private String origin;
     private String color;
     private String size;
+    private String cursor;
+    private Boolean count;
 }
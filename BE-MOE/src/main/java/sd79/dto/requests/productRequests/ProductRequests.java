@@ -11,10 +11,20 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
 
 @Component
 public abstract class ProductRequests {
 
+    private static final int MAX_CACHED_IDS = 10;
+
+    private static final int MAX_CACHED_PAGE = 10;
+
+    private static final int MAX_CACHED_PAGE_SIZE = 50;
+
+    private static final int MAX_CACHED_KEYWORD = 50;
+
     @Getter
     @Setter
     @Builder
@@ -31,11 +41,58 @@ public abstract class ProductRequests {
 
         private List<Integer> materialIds;
 
+        private List<Integer> colorIds;
+
+        private List<Integer> sizeIds;
+
         private BigDecimal minPrice;
 
         private BigDecimal maxPrice;
 
         private SortBy sortBy;
+
+        private String cursor;
+
+        private Boolean count;
+
+        /**
+         * Canonical cache key of the filter: ids sorted and deduplicated, keyword trimmed and lower-cased. Null when the
+         * shape is not worth caching: cursor pages, deep pages, long keywords or more than a few ids per attribute
+         */
+        public String cacheKey() {
+            if (this.cursor != null && !this.cursor.isBlank()) {
+                return null;
+            }
+            String keyword = this.keyword != null && !this.keyword.isEmpty() ? "k" + this.keyword.trim().toLowerCase(Locale.ROOT) : "-";
+            int page = this.pageNo != null ? this.pageNo : 1;
+            int size = this.pageSize != null ? this.pageSize : 5;
+            if (keyword.length() > MAX_CACHED_KEYWORD + 1 || page > MAX_CACHED_PAGE || size > MAX_CACHED_PAGE_SIZE) {
+                return null;
+            }
+            String categories = idsKey(this.categoryIds);
+            String brands = idsKey(this.brandIds);
+            String materials = idsKey(this.materialIds);
+            String colors = idsKey(this.colorIds);
+            String sizes = idsKey(this.sizeIds);
+            if (categories == null || brands == null || materials == null || colors == null || sizes == null) {
+                return null;
+            }
+            return String.join("|", String.valueOf(page), String.valueOf(size), keyword, categories, brands, materials,
+                    colors, sizes, priceKey(this.minPrice), priceKey(this.maxPrice),
+                    String.valueOf(this.sortBy), String.valueOf(this.count));
+        }
+
+        private static String idsKey(List<Integer> ids) {
+            if (ids == null) {
+                return "-";
+            }
+            List<Integer> sorted = ids.stream().distinct().sorted().toList();
+            return sorted.size() > MAX_CACHED_IDS ? null : sorted.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+
+        private static String priceKey(BigDecimal price) {
+            return price != null ? price.stripTrailingZeros().toPlainString() : "";
+        }
     }
 
     public enum SortBy {
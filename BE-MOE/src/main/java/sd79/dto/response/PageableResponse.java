@@ -18,4 +18,5 @@ public class PageableResponse {
     private int totalPages;
     private int pageNumber;
     private Object content;
+    private String nextCursor;
 }
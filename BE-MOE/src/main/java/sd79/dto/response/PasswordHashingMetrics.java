@@ -0,0 +1,34 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class PasswordHashingMetrics {
+    private int strength;
+
+    private int threads;
+
+    private int activeThreads;
+
+    private int queueDepth;
+
+    private int queueCapacity;
+
+    private long encodes;
+
+    private long matches;
+
+    private long rejected;
+
+    private double averageHashMillis;
+
+    private double maxHashMillis;
+}
@@ -30,6 +30,10 @@ public abstract class InvoiceResponse {
         private Integer status;
 
         private Long userId;
+
+        private String cursor;
+
+        private Boolean count;
     }
 
     @Builder
@@ -0,0 +1,46 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.clients.product;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public abstract class FacetResponse {
+
+    @Builder
+    @Getter
+    public static class Result {
+        private long total;
+
+        private List<Count> categories;
+
+        private List<Count> brands;
+
+        private List<Count> materials;
+
+        private List<Count> colors;
+
+        private List<Count> sizes;
+
+        private List<Count> prices;
+    }
+
+    @Builder
+    @Getter
+    public static class Count {
+        private Integer id; // attribute id, or bucket index for prices
+
+        private long count;
+
+        private BigDecimal minPrice;
+
+        private BigDecimal maxPrice;
+    }
+}
@@ -16,17 +16,23 @@ import java.math.BigDecimal;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 public abstract class ProductResponse {
 
     @Getter
-    @Builder
+    @Builder(toBuilder = true)
     public static class Product {
 
         private Long productId;
 
         private String imageUrl;
 
+        /**
+         * Resized copies of imageUrl keyed by variant (thumb, small, medium)
+         */
+        private Map<String, String> thumbnails;
+
         private String name;
 
         private BigDecimal retailPrice;
@@ -44,9 +50,10 @@ public abstract class ProductResponse {
         private Date expiredDate;
 
 
-        public Product(Long productId, String imageUrl, String name, BigDecimal retailPrice, BigDecimal discountPrice, float rate, long rateCount, Integer percent, Date expiredDate) {
+        public Product(Long productId, String imageUrl, Map<String, String> thumbnails, String name, BigDecimal retailPrice, BigDecimal discountPrice, float rate, long rateCount, Integer percent, Date expiredDate) {
             this.productId = productId;
             this.imageUrl = imageUrl;
+            this.thumbnails = thumbnails;
             this.name = name;
             this.retailPrice = retailPrice;
             this.discountPrice = discountPrice;
@@ -58,12 +65,17 @@ public abstract class ProductResponse {
     }
 
     @Getter
-    @Builder
+    @Builder(toBuilder = true)
     public static class ProductDetail {
         private Long productId;
 
         private List<String> imageUrl;
 
+        /**
+         * Resized copies of each imageUrl, in the same order
+         */
+        private List<Map<String, String>> imageVariants;
+
         private String name;
 
         private BigDecimal retailPrice;
@@ -0,0 +1,25 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.images;
+
+import lombok.Builder;
+import lombok.Getter;
+import sd79.dto.response.productResponse.ImageResponse;
+import sd79.enums.UploadStatus;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class UploadProgress {
+    private String uploadId;
+    private UploadStatus status;
+    private int total;
+    private int uploaded;
+    private int failed;
+    private List<ImageResponse> images;
+}
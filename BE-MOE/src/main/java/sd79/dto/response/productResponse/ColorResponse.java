@@ -17,14 +17,20 @@ public class ColorResponse {
     private Integer id;
     private String name;
     private String hex_code;
+    private Long productCount;
     private String createdBy;
     private Date createdAt;
     private Date updatedAt;
 
     public ColorResponse(Integer id, String name, String hex_code, String createdBy, Date createdAt, Date updatedAt) {
+        this(id, name, hex_code, null, createdBy, createdAt, updatedAt);
+    }
+
+    public ColorResponse(Integer id, String name, String hex_code, Long productCount, String createdBy, Date createdAt, Date updatedAt) {
         this.id = id;
         this.name = name;
         this.hex_code = hex_code;
+        this.productCount = productCount;
         this.createdBy = createdBy;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
@@ -0,0 +1,30 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.productResponse;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@Builder
+public class FlashSaleMetrics {
+    private boolean enabled;
+
+    private Map<Long, Long> stock;
+
+    private long pendingEntries;
+
+    private long appliedEntries;
+
+    private long appliedBatches;
+
+    private long failedBatches;
+
+    private long appliedSequence;
+}
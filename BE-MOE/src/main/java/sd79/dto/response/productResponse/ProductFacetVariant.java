@@ -0,0 +1,24 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.productResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class ProductFacetVariant {
+    private final Long productId;
+
+    private final Integer colorId;
+
+    private final Integer sizeId;
+
+    private final BigDecimal retailPrice;
+}
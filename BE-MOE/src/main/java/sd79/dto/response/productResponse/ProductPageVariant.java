@@ -0,0 +1,39 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.productResponse;
+
+import lombok.Getter;
+import sd79.enums.ProductStatus;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Getter
+public class ProductPageVariant {
+    private final Long id;
+
+    private final BigDecimal retailPrice;
+
+    private final Integer quantity;
+
+    private final ProductStatus status;
+
+    private final SizeResponse size;
+
+    private final ColorResponse color;
+
+    public ProductPageVariant(Long id, BigDecimal retailPrice, Integer quantity, ProductStatus status,
+                              Integer sizeId, String sizeName, float length, float width, float sleeve, String sizeCreatedBy, Date sizeCreateAt, Date sizeUpdateAt,
+                              Integer colorId, String colorName, String hexColorCode, String colorCreatedBy, Date colorCreateAt, Date colorUpdateAt) {
+        this.id = id;
+        this.retailPrice = retailPrice;
+        this.quantity = quantity;
+        this.status = status;
+        this.size = new SizeResponse(sizeId, sizeName, length, width, sleeve, sizeCreatedBy, sizeCreateAt, sizeUpdateAt);
+        this.color = new ColorResponse(colorId, colorName, hexColorCode, colorCreatedBy, colorCreateAt, colorUpdateAt);
+    }
+}
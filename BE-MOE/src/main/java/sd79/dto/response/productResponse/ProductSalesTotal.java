@@ -0,0 +1,21 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.productResponse;
+
+import lombok.Getter;
+
+@Getter
+public class ProductSalesTotal {
+    private final Long productId;
+
+    private final long quantity;
+
+    public ProductSalesTotal(Long productId, Long quantity) {
+        this.productId = productId;
+        this.quantity = quantity != null ? quantity : 0;
+    }
+}
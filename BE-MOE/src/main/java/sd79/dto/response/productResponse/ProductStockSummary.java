@@ -0,0 +1,26 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.productResponse;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+public class ProductStockSummary {
+    private final long totalStock;
+
+    private final BigDecimal minPrice;
+
+    private final BigDecimal maxPrice;
+
+    public ProductStockSummary(Long totalStock, BigDecimal minPrice, BigDecimal maxPrice) {
+        this.totalStock = totalStock != null ? totalStock : 0;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.productResponse;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@Builder
+public class RecommendationMetrics {
+    private int products;
+
+    private long pairs;
+
+    private long views;
+
+    private long fallbacks;
+
+    private long averageNanosPerView;
+
+    private long maxNanosPerView;
+
+    private long lastRebuildMillis;
+
+    private Date lastRebuildAt;
+}
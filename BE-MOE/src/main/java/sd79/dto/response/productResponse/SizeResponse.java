@@ -19,16 +19,22 @@ public class SizeResponse {
     private float length;
     private float width;
     private float sleeve;
+    private Long productCount;
     private String createdBy;
     private Date createdAt;
     private Date updatedAt;
 
     public SizeResponse(Integer id, String name, float length, float width, float sleeve, String createdBy, Date createdAt, Date updatedAt) {
+        this(id, name, length, width, sleeve, null, createdBy, createdAt, updatedAt);
+    }
+
+    public SizeResponse(Integer id, String name, float length, float width, float sleeve, Long productCount, String createdBy, Date createdAt, Date updatedAt) {
         this.id = id;
         this.name = name;
         this.length = length;
         this.width = width;
         this.sleeve = sleeve;
+        this.productCount = productCount;
         this.createdBy = createdBy;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
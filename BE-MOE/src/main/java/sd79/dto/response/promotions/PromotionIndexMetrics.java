@@ -0,0 +1,34 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.promotions;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@Builder
+public class PromotionIndexMetrics {
+    private int activeProducts;
+
+    private int scheduledWindows;
+
+    private long hits;
+
+    private long misses;
+
+    private long rebuilds;
+
+    private long flips;
+
+    private long lastRebuildMillis;
+
+    private Date lastRebuildAt;
+
+    private Date nextFlipAt;
+}
@@ -0,0 +1,47 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.promotions;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Getter
+public class PromotionPrice {
+
+    private final Long productId;
+
+    private final Integer percent;
+
+    private final Date expiredDate;
+
+    public PromotionPrice(Long productId, Integer percent, Date expiredDate) {
+        this.productId = productId;
+        this.percent = percent;
+        this.expiredDate = expiredDate;
+    }
+
+    public static PromotionPrice none(Long productId) {
+        return new PromotionPrice(productId, null, null);
+    }
+
+    public boolean isActive() {
+        return this.percent != null;
+    }
+
+    /**
+     * Retail price after the active promotion, or the retail price itself when no promotion applies
+     * @param retailPrice
+     */
+    public BigDecimal apply(BigDecimal retailPrice) {
+        BigDecimal discountPercent = this.percent != null
+                ? BigDecimal.valueOf(this.percent).divide(BigDecimal.valueOf(100))
+                : BigDecimal.ZERO;
+        return retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.dto.response.promotions;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+public class PromotionWindow {
+
+    private final Long productId;
+
+    private final Integer percent;
+
+    private final Date startDate;
+
+    private final Date endDate;
+
+    public PromotionWindow(Long productId, Integer percent, Date startDate, Date endDate) {
+        this.productId = productId;
+        this.percent = percent;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+}
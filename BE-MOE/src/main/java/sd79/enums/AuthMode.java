@@ -0,0 +1,16 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.enums;
+
+/**
+ * How an access token is honoured: SESSION also requires the user's session stored in Redis, STATELESS trusts the
+ * signature and the token version alone
+ */
+public enum AuthMode {
+    SESSION,
+    STATELESS,
+}
@@ -0,0 +1,15 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.enums;
+
+public enum UploadStatus {
+    QUEUED,
+    UPLOADING,
+    COMPLETED,
+    PARTIAL,
+    FAILED,
+}
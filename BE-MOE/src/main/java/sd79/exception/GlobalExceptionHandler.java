@@ -99,6 +99,18 @@ public class GlobalExceptionHandler {
         return response;
     }
 
+    @ExceptionHandler({TooManyRequestsException.class})
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ExceptionResponse handleTooManyRequests(Exception ex, WebRequest request) {
+        ExceptionResponse response = new ExceptionResponse();
+        response.setTimestamp(new Date());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setPath(request.getDescription(false).replace("uri=", ""));
+        response.setError("Too many requests");
+        response.setMessage(ex.getMessage());
+        return response;
+    }
+
     @ExceptionHandler({NotAllowedDeleteEntityException.class})
     @ResponseStatus(HttpStatus.NOT_ACCEPTABLE)
     public ExceptionResponse handleEntityNotAccept(Exception ex, WebRequest request) {
@@ -0,0 +1,25 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Some lines of an order could not be taken from stock, none of them were
+ */
+@Getter
+public class InsufficientStockException extends InvalidDataException {
+
+    private final List<Long> productDetailIds;
+
+    public InsufficientStockException(String message, List<Long> productDetailIds) {
+        super(message);
+        this.productDetailIds = productDetailIds;
+    }
+}
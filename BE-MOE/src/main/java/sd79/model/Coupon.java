@@ -45,7 +45,8 @@ public class Coupon extends AbstractEntity<Long> implements Serializable {
     @Column(name = "quantity")
     private Integer quantity;
 
-    @Column(name = "usage_count")
+    // Only CouponRedemptionService changes it, with an in-place update; saving a stale entity must not undo that
+    @Column(name = "usage_count", updatable = false)
     private Integer usageCount;
 
     @Column(name = "conditions", precision = 15)
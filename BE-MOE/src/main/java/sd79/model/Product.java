@@ -9,6 +9,7 @@ package sd79.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.ColumnDefault;
 import sd79.enums.ProductStatus;
 
@@ -20,6 +21,12 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = "products")
+@NamedEntityGraph(name = "Product.page", attributeNodes = {
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("brand"),
+        @NamedAttributeNode("material"),
+        @NamedAttributeNode("productImages")
+})
 public class Product  extends AbstractEntity<Long> implements Serializable {
 
     @Column(name = "name", length = 200)
@@ -48,10 +55,12 @@ public class Product  extends AbstractEntity<Long> implements Serializable {
     @Column(name = "origin", length = 30)
     private String origin;
 
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "product")
     private List<ProductDetail> productDetails = new ArrayList<>();
 
 
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "product")
     private List<ProductImage> productImages = new ArrayList<>();
 
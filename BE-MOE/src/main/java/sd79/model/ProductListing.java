@@ -0,0 +1,73 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import sd79.enums.ProductStatus;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Read model of the storefront product cards, kept in sync by {@link sd79.service.products.ProductListingService}
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "product_listing")
+public class ProductListing {
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "name", length = 200)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private ProductStatus status;
+
+    @Column(name = "is_deleted")
+    private Boolean isDeleted;
+
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    @Column(name = "brand_id")
+    private Integer brandId;
+
+    @Column(name = "material_id")
+    private Integer materialId;
+
+    @Column(name = "total_stock")
+    private Long totalStock;
+
+    @Column(name = "retail_price", precision = 15)
+    private BigDecimal retailPrice;
+
+    @Column(name = "min_price", precision = 15)
+    private BigDecimal minPrice;
+
+    @Column(name = "max_price", precision = 15)
+    private BigDecimal maxPrice;
+
+    @Column(name = "image_url")
+    private String imageUrl;
+
+    @Column(name = "sold_count")
+    private Long soldCount;
+
+    @Column(name = "create_at")
+    private Date createAt;
+
+    @Column(name = "update_at")
+    private Date updateAt;
+}
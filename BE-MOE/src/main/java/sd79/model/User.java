@@ -13,6 +13,7 @@ import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import sd79.service.security.PrincipalCacheListener;
 
 import java.io.Serializable;
 import java.util.Collection;
@@ -24,6 +25,7 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = "users")
+@EntityListeners(PrincipalCacheListener.class)
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
@@ -6,23 +6,20 @@
  */
 package sd79.model.redis_model;
 
-import jakarta.persistence.Id;
 import lombok.*;
-import org.springframework.data.redis.core.RedisHash;
-import org.springframework.data.redis.core.index.Indexed;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
 
-@RedisHash("cart")
+/**
+ * A cart line, stored by {@link sd79.repositories.CartStore}
+ */
 @Setter
 @Getter
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class Cart implements Serializable {
-    @Id
-    @Indexed
     private String id;
 
     private String imageUrl;
@@ -37,6 +34,5 @@ public class Cart implements Serializable {
 
     private int quantity;
 
-    @Indexed
     private String username;
 }
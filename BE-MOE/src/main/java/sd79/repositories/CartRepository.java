@@ -1,21 +0,0 @@
-/*
- * Author: Nong Hoang Vu || JavaTech
- * Facebook:https://facebook.com/NongHoangVu04
- * Github: https://github.com/JavaTech04
- * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
- */
-package sd79.repositories;
-
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.stereotype.Repository;
-import sd79.model.redis_model.Cart;
-
-import java.util.List;
-import java.util.Optional;
-
-@Repository
-public interface CartRepository extends CrudRepository<Cart, String> {
-    List<Cart> findByUsername(String username);
-
-    Optional<Cart> findByIdAndUsername(String id, String username);
-}
@@ -0,0 +1,147 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+import sd79.model.redis_model.Cart;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Carts in Redis, one hash per user (carts:{username}) with one field per product detail id holding the line as a
+ * compact JSON array. Reading a cart is a single HGETALL, every write is pipelined together with the TTL refresh, so an
+ * abandoned cart expires as a whole
+ */
+@Slf4j
+@Repository
+public class CartStore {
+
+    private static final String KEY_PREFIX = "carts:";
+
+    private static final TypeReference<List<Object>> LINE = new TypeReference<>() {
+    };
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final long ttlSeconds;
+
+    public CartStore(StringRedisTemplate redisTemplate,
+                     ObjectMapper objectMapper,
+                     @Value("${cart.ttl-days:30}") long ttlDays) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlSeconds = Duration.ofDays(ttlDays).toSeconds();
+    }
+
+    public List<Cart> findByUsername(String username) {
+        String key = KEY_PREFIX + username;
+        List<Object> results = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.hGetAll(key);
+            redis.expire(key, this.ttlSeconds);
+            return null;
+        });
+        @SuppressWarnings("unchecked")
+        Map<String, String> fields = results.isEmpty() || results.getFirst() == null ? Map.of() : (Map<String, String>) results.getFirst();
+        List<Cart> carts = new ArrayList<>(fields.size());
+        fields.forEach((id, line) -> decode(username, id, line).ifPresent(carts::add));
+        carts.sort(Comparator.comparing(Cart::getId));
+        return carts;
+    }
+
+    public Optional<Cart> findByIdAndUsername(String id, String username) {
+        Object line = this.redisTemplate.opsForHash().get(KEY_PREFIX + username, id);
+        return line == null ? Optional.empty() : decode(username, id, line.toString());
+    }
+
+    public void save(Cart cart) {
+        saveAll(cart.getUsername(), List.of(cart));
+    }
+
+    public void saveAll(String username, Collection<Cart> carts) {
+        if (carts.isEmpty()) {
+            return;
+        }
+        String key = KEY_PREFIX + username;
+        Map<String, String> lines = new LinkedHashMap<>();
+        carts.forEach(cart -> lines.put(cart.getId(), encode(cart)));
+        this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.hMSet(key, lines);
+            redis.expire(key, this.ttlSeconds);
+            return null;
+        });
+    }
+
+    /**
+     * Writes the lines only where the cart has no line for the product yet, for migrating without overwriting
+     */
+    public void saveAllIfAbsent(String username, Collection<Cart> carts) {
+        String key = KEY_PREFIX + username;
+        this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            carts.forEach(cart -> redis.hSetNX(key, cart.getId(), encode(cart)));
+            redis.expire(key, this.ttlSeconds);
+            return null;
+        });
+    }
+
+    public void delete(String username, String... ids) {
+        if (ids.length > 0) {
+            this.redisTemplate.opsForHash().delete(KEY_PREFIX + username, (Object[]) ids);
+        }
+    }
+
+    private String encode(Cart cart) {
+        try {
+            // Prices as strings, a JSON number would come back as a double
+            return this.objectMapper.writeValueAsString(Arrays.asList(cart.getQuantity(), toText(cart.getRetailPrice()),
+                    toText(cart.getSellPrice()), cart.getImageUrl(), cart.getOrigin(), cart.getName()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cart line can not be encoded", e);
+        }
+    }
+
+    private Optional<Cart> decode(String username, String id, String line) {
+        try {
+            List<Object> values = this.objectMapper.readValue(line, LINE);
+            return Optional.of(Cart.builder()
+                    .id(id)
+                    .quantity(((Number) values.get(0)).intValue())
+                    .retailPrice(toDecimal(values.get(1)))
+                    .sellPrice(toDecimal(values.get(2)))
+                    .imageUrl((String) values.get(3))
+                    .origin((String) values.get(4))
+                    .name((String) values.get(5))
+                    .username(username)
+                    .build());
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Cart line {} of {} skipped: {}", id, username, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static String toText(BigDecimal value) {
+        return value == null ? null : value.toPlainString();
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        return value == null ? null : new BigDecimal(value.toString());
+    }
+}
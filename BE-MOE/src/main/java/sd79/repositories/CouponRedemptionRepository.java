@@ -0,0 +1,66 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Coupon counters as conditional in-place updates plus the coupon_redemptions rows they are paired with. A null
+ * coupon quantity means unlimited, quantity - 1 keeps it null
+ */
+@Repository
+@RequiredArgsConstructor
+public class CouponRedemptionRepository {
+
+    private static final String AVAILABLE = "SELECT quantity IS NULL OR quantity > 0 FROM coupons WHERE id = ?";
+
+    private static final String TAKE = "UPDATE coupons SET quantity = quantity - 1, usage_count = COALESCE(usage_count, 0) + 1 " +
+            "WHERE id = ? AND (quantity IS NULL OR quantity > 0)";
+
+    private static final String GIVE_BACK = "UPDATE coupons SET quantity = quantity + 1, usage_count = GREATEST(COALESCE(usage_count, 0) - 1, 0) " +
+            "WHERE id = ?";
+
+    private static final String INSERT = "INSERT INTO coupon_redemptions (coupon_id, customer_id, bill_id) VALUES (?, ?, ?)";
+
+    private static final String DELETE = "DELETE FROM coupon_redemptions WHERE bill_id = ? AND coupon_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Plain consistent read, takes no lock
+     *
+     * @return empty when the coupon does not exist, otherwise whether any is left
+     */
+    public Optional<Boolean> findAvailable(Long couponId) {
+        List<Boolean> available = this.jdbcTemplate.queryForList(AVAILABLE, Boolean.class, couponId);
+        return available.isEmpty() ? Optional.empty() : Optional.of(Boolean.TRUE.equals(available.getFirst()));
+    }
+
+    public boolean take(Long couponId) {
+        return this.jdbcTemplate.update(TAKE, couponId) == 1;
+    }
+
+    public void giveBack(Long couponId) {
+        this.jdbcTemplate.update(GIVE_BACK, couponId);
+    }
+
+    public void insert(Long couponId, Long customerId, Long billId) {
+        this.jdbcTemplate.update(INSERT, couponId, customerId, billId);
+    }
+
+    /**
+     * @return whether the bill held a redemption of the coupon, only then is anything given back
+     */
+    public boolean delete(Long billId, Long couponId) {
+        return this.jdbcTemplate.update(DELETE, billId, couponId) == 1;
+    }
+}
@@ -6,7 +6,6 @@ import jakarta.persistence.TypedQuery;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -21,6 +20,7 @@ import sd79.dto.response.productResponse.ProductDetailResponse2;
 import sd79.enums.ProductStatus;
 import sd79.exception.InvalidDataException;
 import sd79.model.*;
+import sd79.utils.PageCursor;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -129,13 +129,13 @@ public class BillCustomizeQuery {
 
         sql.append(" AND b.billStatus.id = :statusId");
 
-        if (status == 2) {
-            sql.append(" ORDER BY b.createAt ASC");  // Thời gian lâu nhất lên đầu
-        } else if (status == 8) {
-            sql.append(" ORDER BY b.createAt DESC"); // Thời gian mới nhất lên đầu
-        } else {
-            sql.append(" ORDER BY b.createAt DESC"); // Mặc định nếu cần
+        // Trạng thái 2: thời gian lâu nhất lên đầu, còn lại mới nhất lên đầu; b.id giữ thứ tự duy nhất cho cursor
+        boolean ascending = status == 2;
+        PageCursor cursor = PageCursor.isPresent(param.getCursor()) ? PageCursor.decode(param.getCursor()) : null;
+        if (cursor != null) {
+            sql.append(cursor.seek("b.createAt", "b.id", ascending));
         }
+        sql.append(ascending ? " ORDER BY b.createAt ASC, b.id ASC" : " ORDER BY b.createAt DESC, b.id DESC");
 
         TypedQuery<Bill> query = entityManager.createQuery(sql.toString(), Bill.class);
 
@@ -157,10 +157,24 @@ public class BillCustomizeQuery {
         }
 
         // Phân trang
-        query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
-        query.setMaxResults(param.getPageSize());
+        if (cursor != null) {
+            if (cursor.hasValue()) {
+                query.setParameter("cursorValue", cursor.getDateValue());
+            }
+            query.setParameter("cursorId", cursor.getId());
+        } else {
+            query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
+        }
+        query.setMaxResults(param.getPageSize() + 1);
+
+        List<Bill> bills = query.getResultList();
+        String nextCursor = null;
+        if (bills.size() > param.getPageSize()) {
+            bills = bills.subList(0, param.getPageSize());
+            nextCursor = PageCursor.encode(bills.getLast().getCreateAt(), bills.getLast().getId());
+        }
 
-        List<BillListResponse> billResponses = query.getResultList().stream()
+        List<BillListResponse> billResponses = bills.stream()
                 .map(bill -> BillListResponse.builder()
                         .id(bill.getId())
                         .code(bill.getCode())
@@ -171,73 +185,74 @@ public class BillCustomizeQuery {
                         .build())
                 .toList();
 
-        // Truy vấn số lượng bản ghi
-        StringBuilder countSql = new StringBuilder("SELECT COUNT(b) FROM Bill b LEFT JOIN b.customer c WHERE b.isDeleted = false");
+        long totalElements = -1;
+        if (PageCursor.shouldCount(param.getCursor(), param.getCount())) {
+            // Truy vấn số lượng bản ghi
+            StringBuilder countSql = new StringBuilder("SELECT COUNT(b) FROM Bill b LEFT JOIN b.customer c WHERE b.isDeleted = false");
 
-        if (employeePositionId == 2) { // Nhân viên
-            countSql.append(" AND (b.createdBy.id = :userId OR b.createdBy IS NULL)");
-        }
+            if (employeePositionId == 2) { // Nhân viên
+                countSql.append(" AND (b.createdBy.id = :userId OR b.createdBy IS NULL)");
+            }
 
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countSql.append(" AND (");
-            String[] keywords = param.getKeyword().trim().toLowerCase().split("\\s+");
-            for (int i = 0; i < keywords.length; i++) {
-                if (i > 0) countSql.append(" AND ");
-                countSql.append("(LOWER(c.firstName) LIKE :keyword").append(i)
-                        .append(" OR LOWER(c.lastName) LIKE :keyword").append(i)
-                        .append(" OR LOWER(b.code) LIKE :keyword").append(i).append(")");
+            if (StringUtils.hasLength(param.getKeyword())) {
+                countSql.append(" AND (");
+                String[] keywords = param.getKeyword().trim().toLowerCase().split("\\s+");
+                for (int i = 0; i < keywords.length; i++) {
+                    if (i > 0) countSql.append(" AND ");
+                    countSql.append("(LOWER(c.firstName) LIKE :keyword").append(i)
+                            .append(" OR LOWER(c.lastName) LIKE :keyword").append(i)
+                            .append(" OR LOWER(b.code) LIKE :keyword").append(i).append(")");
+                }
+                countSql.append(")");
             }
-            countSql.append(")");
-        }
 
-        if (param.getStartDate() != null) {
-            countSql.append(" AND Date(b.createAt) >= :startDate");
-        }
+            if (param.getStartDate() != null) {
+                countSql.append(" AND Date(b.createAt) >= :startDate");
+            }
 
-        if (param.getEndDate() != null) {
-            countSql.append(" AND Date(b.createAt) <= :endDate");
-        }
+            if (param.getEndDate() != null) {
+                countSql.append(" AND Date(b.createAt) <= :endDate");
+            }
 
-        if (param.getMinTotal() != null) {
-            countSql.append(" AND b.total >= :minTotal");
-        }
+            if (param.getMinTotal() != null) {
+                countSql.append(" AND b.total >= :minTotal");
+            }
 
-        if (param.getMaxTotal() != null) {
-            countSql.append(" AND b.total <= :maxTotal");
-        }
+            if (param.getMaxTotal() != null) {
+                countSql.append(" AND b.total <= :maxTotal");
+            }
 
-        countSql.append(" AND b.billStatus.id = :statusId");
+            countSql.append(" AND b.billStatus.id = :statusId");
 
-        TypedQuery<Long> countQuery = entityManager.createQuery(countSql.toString(), Long.class);
+            TypedQuery<Long> countQuery = entityManager.createQuery(countSql.toString(), Long.class);
 
-        if (StringUtils.hasLength(param.getKeyword())) {
-            String[] keywords = param.getKeyword().trim().toLowerCase().split("\\s+");
-            for (int i = 0; i < keywords.length; i++) {
-                countQuery.setParameter("keyword" + i, "%" + keywords[i] + "%");
+            if (StringUtils.hasLength(param.getKeyword())) {
+                String[] keywords = param.getKeyword().trim().toLowerCase().split("\\s+");
+                for (int i = 0; i < keywords.length; i++) {
+                    countQuery.setParameter("keyword" + i, "%" + keywords[i] + "%");
+                }
             }
-        }
 
-        if (param.getStartDate() != null) countQuery.setParameter("startDate", param.getStartDate());
-        if (param.getEndDate() != null) countQuery.setParameter("endDate", param.getEndDate());
-        if (param.getMinTotal() != null) countQuery.setParameter("minTotal", param.getMinTotal());
-        if (param.getMaxTotal() != null) countQuery.setParameter("maxTotal", param.getMaxTotal());
-        countQuery.setParameter("statusId", status);
+            if (param.getStartDate() != null) countQuery.setParameter("startDate", param.getStartDate());
+            if (param.getEndDate() != null) countQuery.setParameter("endDate", param.getEndDate());
+            if (param.getMinTotal() != null) countQuery.setParameter("minTotal", param.getMinTotal());
+            if (param.getMaxTotal() != null) countQuery.setParameter("maxTotal", param.getMaxTotal());
+            countQuery.setParameter("statusId", status);
 
-        if (employeePositionId == 2) {
-            countQuery.setParameter("userId", userId);
-        }
-
-        Long totalElements = countQuery.getSingleResult();
+            if (employeePositionId == 2) {
+                countQuery.setParameter("userId", userId);
+            }
 
-        Pageable pageable = PageRequest.of(param.getPageNo() - 1, param.getPageSize());
-        Page<?> page = new PageImpl<>(billResponses, pageable, totalElements);
+            totalElements = countQuery.getSingleResult();
+        }
 
         return PageableResponse.builder()
                 .pageNumber(param.getPageNo())
                 .pageSize(param.getPageSize())
-                .totalPages(page.getTotalPages())
-                .totalElements(page.getTotalElements())
+                .totalPages(totalElements < 0 ? -1 : (int) Math.ceil((double) totalElements / param.getPageSize()))
+                .totalElements(totalElements)
                 .content(billResponses)
+                .nextCursor(nextCursor)
                 .build();
     }
 
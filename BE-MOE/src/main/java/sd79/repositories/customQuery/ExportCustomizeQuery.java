@@ -0,0 +1,119 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories.customQuery;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sd79.dto.requests.notifications.Recipient;
+import sd79.model.Support;
+
+import java.util.stream.Stream;
+
+/**
+ * Forward-only streams over whole tables for exports and mass mailing. Only these queries ask the MySQL driver for row
+ * streaming (fetch size Integer.MIN_VALUE), so the rest of the application keeps ordinary buffered result sets. While a
+ * stream is open its connection can run no other statement, which is why tables whose rows pull eager associations are
+ * streamed as projections and the others as read-only entities the caller detaches as it goes. Streams must be consumed
+ * and closed inside a transaction, without touching the database in between
+ */
+@Component
+public class ExportCustomizeQuery {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Rows between two flushes of the output and clears of the persistence context
+     */
+    public int getFetchSize() {
+        return this.fetchSize;
+    }
+
+    public Stream<Support> streamSupports() {
+        return stream(this.entityManager.createQuery("SELECT s FROM Support s ORDER BY s.id", Support.class));
+    }
+
+    public Stream<Tuple> streamPromotions() {
+        return stream(this.entityManager.createQuery("SELECT p.id AS id, p.name AS name, p.code AS code, p.percent AS percent, " +
+                "p.startDate AS startDate, p.endDate AS endDate, p.note AS note, u.username AS createdBy, p.createAt AS createAt " +
+                "FROM Promotion p " +
+                "LEFT JOIN p.createdBy u " +
+                "ORDER BY p.id", Tuple.class));
+    }
+
+    public Stream<Tuple> streamPromotionDetails() {
+        return stream(this.entityManager.createQuery("SELECT pd.id AS id, pm.id AS promotionId, pm.code AS promotionCode, p.id AS productId, p.name AS productName " +
+                "FROM PromotionDetail pd " +
+                "JOIN pd.promotion pm " +
+                "JOIN pd.product p " +
+                "ORDER BY pd.id", Tuple.class));
+    }
+
+    public Stream<Tuple> streamBills() {
+        return stream(this.entityManager.createQuery("SELECT b.id AS id, b.code AS code, s.name AS status, b.paymentMethod AS paymentMethod, " +
+                "c.id AS customerId, c.lastName AS customerLastName, c.firstName AS customerFirstName, " +
+                "c.phoneNumber AS customerPhone, cp.code AS couponCode, b.subtotal AS subtotal, " +
+                "b.sellerDiscount AS sellerDiscount, b.shipping AS shipping, b.total AS total, " +
+                "b.paymentTime AS paymentTime, b.createAt AS createdAt " +
+                "FROM Bill b " +
+                "LEFT JOIN b.billStatus s " +
+                "LEFT JOIN b.customer c " +
+                "LEFT JOIN b.coupon cp " +
+                "ORDER BY b.id", Tuple.class));
+    }
+
+    public Stream<Tuple> streamCustomers() {
+        return stream(this.entityManager.createQuery("SELECT c.id AS id, c.lastName AS lastName, c.firstName AS firstName, c.phoneNumber AS phoneNumber, " +
+                "c.gender AS gender, c.dateOfBirth AS dateOfBirth, u.username AS username, u.email AS email, " +
+                "a.streetName AS streetName, a.ward AS ward, a.district AS district, a.city AS city, " +
+                "c.createdAt AS createdAt " +
+                "FROM Customer c " +
+                "LEFT JOIN c.user u " +
+                "LEFT JOIN c.customerAddress a " +
+                "ORDER BY c.id", Tuple.class));
+    }
+
+    public Stream<Recipient> streamRecipients() {
+        return stream(this.entityManager.createQuery("SELECT new sd79.dto.requests.notifications.Recipient(CONCAT(c.firstName, ' ', c.lastName), u.email) " +
+                "FROM Customer c " +
+                "JOIN c.user u " +
+                "WHERE u.email IS NOT NULL " +
+                "ORDER BY c.id", Recipient.class));
+    }
+
+    /**
+     * Detaches a streamed entity, projections are never managed
+     */
+    public void detach(Object row) {
+        if (row.getClass().isAnnotationPresent(Entity.class)) {
+            this.entityManager.detach(row);
+        }
+    }
+
+    /**
+     * Drops whatever the stream pulled into the persistence context
+     */
+    public void clear() {
+        this.entityManager.clear();
+    }
+
+    private <T> Stream<T> stream(TypedQuery<T> query) {
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, Integer.MIN_VALUE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories.customQuery;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Compiles the data and count JPQL of a filter shape (the set of predicates present) once and registers them as
+ * named queries, so later requests with the same shape skip string building and HQL parsing
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilterQueryCache {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Map<String, Boolean> shapes = new ConcurrentHashMap<>();
+
+    public static String shape(String name, boolean... predicates) {
+        StringBuilder key = new StringBuilder(name).append(':');
+        for (boolean predicate : predicates) {
+            key.append(predicate ? '1' : '0');
+        }
+        return key.toString();
+    }
+
+    public void register(String shape, Supplier<Queries> builder) {
+        this.shapes.computeIfAbsent(shape, key -> {
+            Queries queries = builder.get();
+            try (EntityManager em = this.entityManagerFactory.createEntityManager()) {
+                this.entityManagerFactory.addNamedQuery(key + ".data", em.createQuery(queries.getData()));
+                this.entityManagerFactory.addNamedQuery(key + ".count", em.createQuery(queries.getCount(), Long.class));
+            }
+            log.debug("Compiled filter shape {}", key);
+            return Boolean.TRUE;
+        });
+    }
+
+    public <T> TypedQuery<T> createDataQuery(String shape, Class<T> type) {
+        return this.entityManager.createNamedQuery(shape + ".data", type);
+    }
+
+    /**
+     * Runs the count query of a shape on the caller's connection, -1 when the caller does not need it. Counting on a
+     * second thread would need a second pooled connection per request while open-in-view holds the first
+     */
+    public long count(String shape, boolean enabled, Consumer<Query> binder) {
+        if (!enabled) {
+            return -1L;
+        }
+        TypedQuery<Long> countQuery = this.entityManager.createNamedQuery(shape + ".count", Long.class);
+        binder.accept(countQuery);
+        return countQuery.getSingleResult();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Queries {
+        private final String data;
+
+        private final String count;
+    }
+}
@@ -8,31 +8,39 @@ package sd79.repositories.customQuery;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import sd79.dto.requests.common.ProductParamFilter;
 import sd79.dto.requests.common.ProductParamFilter2;
 import sd79.dto.requests.productRequests.ProductRequests;
 import sd79.dto.response.PageableResponse;
+import sd79.dto.response.clients.product.FacetResponse;
 import sd79.dto.response.clients.product.ProductResponse;
 import sd79.dto.response.productResponse.ProductDetailResponse2;
+import sd79.dto.response.promotions.PromotionPrice;
 import sd79.enums.ProductStatus;
 import sd79.model.Product;
 import sd79.model.ProductDetail;
 import sd79.model.ProductImage;
-import sd79.model.PromotionDetail;
+import sd79.model.ProductListing;
 import sd79.repositories.products.ProductDetailRepository;
-import sd79.repositories.promotions.PromotionDetailRepository;
-
-import java.math.BigDecimal;
+import sd79.service.images.ImageStore;
+import sd79.service.products.ProductFacetIndex;
+import sd79.service.products.ProductSearchIndex;
+import sd79.service.products.SalesRankingService;
+import sd79.service.promotions.PromotionPriceResolver;
+import sd79.utils.PageCursor;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static sd79.dto.requests.productRequests.ProductRequests.SortBy.*;
@@ -46,675 +54,488 @@ public class ProductCustomizeQuery {
 
     private final ProductDetailRepository productDetailRepository;
 
-    private final PromotionDetailRepository promotionDetailRepository;
+    private final PromotionPriceResolver promotionPriceResolver;
 
-    private static final String LIKE_FORMAT = "%%%s%%";
+    private final FilterQueryCache filterQueryCache;
 
-    public PageableResponse getAllProducts(ProductParamFilter param) {
-        StringBuilder sql = new StringBuilder("SELECT prd FROM Product prd WHERE prd.isDeleted = false");
-        if (StringUtils.hasLength(param.getKeyword())) {
-            sql.append(" AND lower(prd.name) like lower(:keyword)");
-        }
+    private final ProductSearchIndex productSearchIndex;
 
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
-            sql.append(" AND prd.status = :status");
-        } else if (param.getStatus() == ProductStatus.OUT_OF_STOCK) {
-            sql.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') < 1)");
-        }
+    private final ProductFacetIndex productFacetIndex;
 
-        if (StringUtils.hasLength(param.getCategory())) {
-            sql.append(" AND prd.category.name like :category");
-        }
+    private final SalesRankingService salesRankingService;
 
-        if (StringUtils.hasLength(param.getBrand())) {
-            sql.append(" AND prd.brand.name like :brand");
-        }
+    private final ImageStore imageStore;
 
-        if (StringUtils.hasLength(param.getMaterial())) {
-            sql.append(" AND prd.material.name like :material");
-        }
+    private static final String LIKE_FORMAT = "%%%s%%";
 
-        if (StringUtils.hasLength(param.getOrigin())) {
-            sql.append(" AND prd.origin like :origin");
-        }
+    public PageableResponse getAllProducts(ProductParamFilter param) {
+        return getProducts(param, false);
+    }
 
-        sql.append(" ORDER BY prd.id DESC");
+    public PageableResponse getAllProductArchives(ProductParamFilter param) {
+        return getProducts(param, true);
+    }
 
-        TypedQuery<Product> query = entityManager.createQuery(sql.toString(), Product.class);
-        if (StringUtils.hasLength(param.getKeyword())) {
-            query.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
-        }
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
-            query.setParameter("status", param.getStatus());
-        }
-        if (StringUtils.hasLength(param.getCategory())) {
-            query.setParameter("category", param.getCategory());
-        }
+    public PageableResponse getAllProductDetails(ProductParamFilter2 param) {
+        boolean hasCursor = PageCursor.isPresent(param.getCursor());
+        String shape = FilterQueryCache.shape("productDetails",
+                StringUtils.hasLength(param.getKeyword()),
+                StringUtils.hasLength(param.getCategory()),
+                StringUtils.hasLength(param.getBrand()),
+                StringUtils.hasLength(param.getMaterial()),
+                StringUtils.hasLength(param.getOrigin()),
+                StringUtils.hasLength(param.getColor()),
+                StringUtils.hasLength(param.getSize()),
+                hasCursor);
+        this.filterQueryCache.register(shape, () -> {
+            StringBuilder where = new StringBuilder(" FROM ProductDetail prd WHERE prd.product.isDeleted = false AND prd.status = 'ACTIVE' AND prd.product.status = 'ACTIVE' AND prd.quantity > 0");
+            if (StringUtils.hasLength(param.getKeyword())) {
+                where.append(" AND lower(prd.product.name) like lower(:keyword)");
+            }
 
-        if (StringUtils.hasLength(param.getBrand())) {
-            query.setParameter("brand", param.getBrand());
-        }
+            if (StringUtils.hasLength(param.getCategory())) {
+                where.append(" AND prd.product.category.name like :category");
+            }
 
-        if (StringUtils.hasLength(param.getMaterial())) {
-            query.setParameter("material", param.getMaterial());
-        }
+            if (StringUtils.hasLength(param.getBrand())) {
+                where.append(" AND prd.product.brand.name like :brand");
+            }
 
-        if (StringUtils.hasLength(param.getOrigin())) {
-            query.setParameter("origin", param.getOrigin());
-        }
+            if (StringUtils.hasLength(param.getMaterial())) {
+                where.append(" AND prd.product.material.name like :material");
+            }
 
-        query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
-        query.setMaxResults(param.getPageSize());
+            if (StringUtils.hasLength(param.getOrigin())) {
+                where.append(" AND prd.product.origin like :origin");
+            }
 
-        List<sd79.dto.response.productResponse.ProductResponse> data = query.getResultList().stream().map(this::convertToProductResponse).toList();
+            if (StringUtils.hasLength(param.getColor())) {
+                where.append(" AND prd.color.name like :color");
+            }
 
-        // TODO count product
-        StringBuilder countPage = new StringBuilder("SELECT count(prd) FROM Product prd WHERE prd.isDeleted = false");
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countPage.append(" AND lower(prd.name) like lower(:keyword)");
-        }
+            if (StringUtils.hasLength(param.getSize())) {
+                where.append(" AND prd.size.name like :size");
+            }
 
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
-            countPage.append(" AND prd.status = :status");
-        } else if (param.getStatus() == ProductStatus.OUT_OF_STOCK) {
-            countPage.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') < 1)");
-        }
-        if (StringUtils.hasLength(param.getCategory())) {
-            countPage.append(" AND prd.category.name like :category");
-        }
+            String seek = hasCursor ? " AND (prd.product.id < :cursorValue OR (prd.product.id = :cursorValue AND prd.id < :cursorId))" : "";
+            return new FilterQueryCache.Queries("SELECT prd" + where + seek + " ORDER BY prd.product.id DESC, prd.id DESC", "SELECT count(prd)" + where);
+        });
 
-        if (StringUtils.hasLength(param.getBrand())) {
-            countPage.append(" AND prd.brand.name like :brand");
-        }
+        long total = this.filterQueryCache.count(shape, PageCursor.shouldCount(param.getCursor(), param.getCount()), countQuery -> setDetailParameters(countQuery, param));
 
-        if (StringUtils.hasLength(param.getMaterial())) {
-            countPage.append(" AND prd.material.name like :material");
+        TypedQuery<ProductDetail> query = this.filterQueryCache.createDataQuery(shape, ProductDetail.class);
+        setDetailParameters(query, param);
+        if (hasCursor) {
+            PageCursor cursor = PageCursor.decode(param.getCursor());
+            query.setParameter("cursorValue", cursor.getLongValue());
+            query.setParameter("cursorId", cursor.getId());
+        } else {
+            query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
         }
+        query.setMaxResults(param.getPageSize() + 1);
 
-        if (StringUtils.hasLength(param.getOrigin())) {
-            countPage.append(" AND prd.origin like :origin");
+        List<ProductDetail> details = query.getResultList();
+        String nextCursor = null;
+        if (details.size() > param.getPageSize()) {
+            details = details.subList(0, param.getPageSize());
+            nextCursor = PageCursor.encode(details.getLast().getProduct().getId(), details.getLast().getId());
         }
+        Map<Long, PromotionPrice> prices = this.promotionPriceResolver.resolve(details.stream().map(item -> item.getProduct().getId()).toList());
+        List<ProductDetailResponse2> data = details.stream().map(item -> {
+            PromotionPrice price = prices.get(item.getProduct().getId());
+            return ProductDetailResponse2.builder()
+                    .id(item.getId())
+                    .productName(String.format("%s [%s - %s]", item.getProduct().getName(), item.getSize().getName(), item.getColor().getName()))
+                    .imageUrl(convertToUrl(item.getProduct().getProductImages()))
+                    .brand(item.getProduct().getBrand().getName())
+                    .category(item.getProduct().getCategory().getName())
+                    .material(item.getProduct().getMaterial().getName())
+                    .color(item.getColor().getName())
+                    .size(item.getSize().getName())
+                    .origin(item.getProduct().getOrigin())
+                    .price(item.getRetailPrice())
+                    .sellPrice(price.apply(item.getRetailPrice()))
+                    .percent(price.getPercent())
+                    .expiredDate(price.getExpiredDate())
+                    .quantity(item.getQuantity())
+                    .build();
+        }).toList();
 
-        TypedQuery<Long> countQuery = entityManager.createQuery(countPage.toString(), Long.class);
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countQuery.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
-        }
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
-            countQuery.setParameter("status", param.getStatus());
-        }
-        if (StringUtils.hasLength(param.getCategory())) {
-            countQuery.setParameter("category", param.getCategory());
-        }
+        return toPageableResponse(param.getPageNo(), param.getPageSize(), total, data, nextCursor);
+    }
 
-        if (StringUtils.hasLength(param.getBrand())) {
-            countQuery.setParameter("brand", param.getBrand());
-        }
+    private PageableResponse getProducts(ProductParamFilter param, boolean archived) {
+        boolean hasCursor = PageCursor.isPresent(param.getCursor());
+        PageCursor cursor = hasCursor ? PageCursor.decode(param.getCursor()) : null;
+        boolean byStatus = param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK;
+        boolean outOfStock = param.getStatus() == ProductStatus.OUT_OF_STOCK;
+        String shape = FilterQueryCache.shape(archived ? "productArchives" : "products",
+                StringUtils.hasLength(param.getKeyword()),
+                byStatus,
+                outOfStock,
+                StringUtils.hasLength(param.getCategory()),
+                StringUtils.hasLength(param.getBrand()),
+                StringUtils.hasLength(param.getMaterial()),
+                StringUtils.hasLength(param.getOrigin()),
+                hasCursor,
+                hasCursor && !cursor.hasValue());
+        this.filterQueryCache.register(shape, () -> {
+            StringBuilder where = new StringBuilder(" FROM Product prd WHERE prd.isDeleted = ").append(archived);
+            if (StringUtils.hasLength(param.getKeyword())) {
+                where.append(" AND lower(prd.name) like lower(:keyword)");
+            }
 
-        if (StringUtils.hasLength(param.getMaterial())) {
-            countQuery.setParameter("material", param.getMaterial());
-        }
+            if (byStatus) {
+                where.append(" AND prd.status = :status");
+            } else if (outOfStock) {
+                where.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') < 1)");
+            }
 
-        if (StringUtils.hasLength(param.getOrigin())) {
-            countQuery.setParameter("origin", param.getOrigin());
-        }
-        Long totalElements = countQuery.getSingleResult();
-        Pageable pageable = PageRequest.of(param.getPageNo() - 1, param.getPageSize());
-        Page<?> page = new PageImpl<>(data, pageable, totalElements);
-        return PageableResponse.builder()
-                .pageNumber(param.getPageNo())
-                .pageNo(param.getPageNo())
-                .pageSize(param.getPageSize())
-                .totalPages(page.getTotalPages())
-                .totalElements(page.getTotalElements()) // Not required
-                .content(data)
-                .build();
-    }
+            if (StringUtils.hasLength(param.getCategory())) {
+                where.append(" AND prd.category.name like :category");
+            }
 
-    public PageableResponse getAllProductArchives(ProductParamFilter param) {
-        StringBuilder sql = new StringBuilder("SELECT prd FROM Product prd WHERE prd.isDeleted = true");
-        if (StringUtils.hasLength(param.getKeyword())) {
-            sql.append(" AND lower(prd.name) like lower(:keyword)");
-        }
+            if (StringUtils.hasLength(param.getBrand())) {
+                where.append(" AND prd.brand.name like :brand");
+            }
 
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
-            sql.append(" AND prd.status = :status");
-        } else if (param.getStatus() == ProductStatus.OUT_OF_STOCK) {
-            sql.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') < 1)");
-        }
+            if (StringUtils.hasLength(param.getMaterial())) {
+                where.append(" AND prd.material.name like :material");
+            }
 
-        if (StringUtils.hasLength(param.getCategory())) {
-            sql.append(" AND prd.category.name like :category");
-        }
+            if (StringUtils.hasLength(param.getOrigin())) {
+                where.append(" AND prd.origin like :origin");
+            }
 
-        if (StringUtils.hasLength(param.getBrand())) {
-            sql.append(" AND prd.brand.name like :brand");
-        }
+            // Archives are ordered by when they were moved to the bin, the product list by newest product
+            String seek;
+            String orderBy;
+            if (archived) {
+                seek = hasCursor ? cursor.seek("prd.updateAt", "prd.id", false) : "";
+                orderBy = " ORDER BY prd.updateAt DESC, prd.id DESC";
+            } else {
+                seek = hasCursor ? " AND prd.id < :cursorId" : "";
+                orderBy = " ORDER BY prd.id DESC";
+            }
+            return new FilterQueryCache.Queries("SELECT prd" + where + seek + orderBy, "SELECT count(prd)" + where);
+        });
 
-        if (StringUtils.hasLength(param.getMaterial())) {
-            sql.append(" AND prd.material.name like :material");
+        long total = this.filterQueryCache.count(shape, PageCursor.shouldCount(param.getCursor(), param.getCount()), countQuery -> setProductParameters(countQuery, param, byStatus));
+
+        TypedQuery<Product> query = this.filterQueryCache.createDataQuery(shape, Product.class);
+        setProductParameters(query, param, byStatus);
+        if (hasCursor) {
+            if (archived && cursor.hasValue()) {
+                query.setParameter("cursorValue", cursor.getDateValue());
+            }
+            query.setParameter("cursorId", cursor.getId());
+        } else {
+            query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
         }
+        query.setMaxResults(param.getPageSize() + 1);
 
-        if (StringUtils.hasLength(param.getOrigin())) {
-            sql.append(" AND prd.origin like :origin");
+        List<Product> products = query.getResultList();
+        String nextCursor = null;
+        if (products.size() > param.getPageSize()) {
+            products = products.subList(0, param.getPageSize());
+            Product last = products.getLast();
+            nextCursor = PageCursor.encode(archived ? last.getUpdateAt() : last.getId(), last.getId());
         }
 
-        sql.append(" ORDER BY prd.updateAt DESC");
+        List<sd79.dto.response.productResponse.ProductResponse> data = products.stream().map(this::convertToProductResponse).toList();
 
-        TypedQuery<Product> query = entityManager.createQuery(sql.toString(), Product.class);
+        return toPageableResponse(param.getPageNo(), param.getPageSize(), total, data, nextCursor);
+    }
+
+    private void setProductParameters(Query query, ProductParamFilter param, boolean byStatus) {
         if (StringUtils.hasLength(param.getKeyword())) {
             query.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
         }
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
+        if (byStatus) {
             query.setParameter("status", param.getStatus());
         }
         if (StringUtils.hasLength(param.getCategory())) {
             query.setParameter("category", param.getCategory());
         }
-
         if (StringUtils.hasLength(param.getBrand())) {
             query.setParameter("brand", param.getBrand());
         }
-
         if (StringUtils.hasLength(param.getMaterial())) {
             query.setParameter("material", param.getMaterial());
         }
-
         if (StringUtils.hasLength(param.getOrigin())) {
             query.setParameter("origin", param.getOrigin());
         }
-
-        query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
-        query.setMaxResults(param.getPageSize());
-
-        List<sd79.dto.response.productResponse.ProductResponse> data = query.getResultList().stream().map(this::convertToProductResponse).toList();
-
-        // TODO count product
-        StringBuilder countPage = new StringBuilder("SELECT count(prd) FROM Product prd WHERE prd.isDeleted = true");
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countPage.append(" AND lower(prd.name) like lower(:keyword)");
-        }
-
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
-            countPage.append(" AND prd.status = :status");
-        } else if (param.getStatus() == ProductStatus.OUT_OF_STOCK) {
-            countPage.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') < 1)");
-        }
-        if (StringUtils.hasLength(param.getCategory())) {
-            countPage.append(" AND prd.category.name like :category");
-        }
-
-        if (StringUtils.hasLength(param.getBrand())) {
-            countPage.append(" AND prd.brand.name like :brand");
-        }
-
-        if (StringUtils.hasLength(param.getMaterial())) {
-            countPage.append(" AND prd.material.name like :material");
-        }
-
-        if (StringUtils.hasLength(param.getOrigin())) {
-            countPage.append(" AND prd.origin like :origin");
-        }
-
-        TypedQuery<Long> countQuery = entityManager.createQuery(countPage.toString(), Long.class);
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countQuery.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
-        }
-        if (param.getStatus() != ProductStatus.ALL && param.getStatus() != ProductStatus.OUT_OF_STOCK) {
-            countQuery.setParameter("status", param.getStatus());
-        }
-        if (StringUtils.hasLength(param.getCategory())) {
-            countQuery.setParameter("category", param.getCategory());
-        }
-
-        if (StringUtils.hasLength(param.getBrand())) {
-            countQuery.setParameter("brand", param.getBrand());
-        }
-
-        if (StringUtils.hasLength(param.getMaterial())) {
-            countQuery.setParameter("material", param.getMaterial());
-        }
-
-        if (StringUtils.hasLength(param.getOrigin())) {
-            countQuery.setParameter("origin", param.getOrigin());
-        }
-        Long totalElements = countQuery.getSingleResult();
-        Pageable pageable = PageRequest.of(param.getPageNo() - 1, param.getPageSize());
-        Page<?> page = new PageImpl<>(data, pageable, totalElements);
-        return PageableResponse.builder()
-                .pageNumber(param.getPageNo())
-                .pageNo(param.getPageNo())
-                .pageSize(param.getPageSize())
-                .totalPages(page.getTotalPages())
-                .totalElements(page.getTotalElements()) // Not required
-                .content(data)
-                .build();
     }
 
-    public PageableResponse getAllProductDetails(ProductParamFilter2 param) {
-        StringBuilder sql = new StringBuilder("SELECT prd FROM ProductDetail prd WHERE prd.product.isDeleted = false AND prd.status = 'ACTIVE' AND prd.product.status = 'ACTIVE' AND prd.quantity > 0");
-        if (StringUtils.hasLength(param.getKeyword())) {
-            sql.append(" AND lower(prd.product.name) like lower(:keyword)");
-        }
-
-        if (StringUtils.hasLength(param.getCategory())) {
-            sql.append(" AND prd.product.category.name like :category");
-        }
-
-        if (StringUtils.hasLength(param.getBrand())) {
-            sql.append(" AND prd.product.brand.name like :brand");
-        }
-
-        if (StringUtils.hasLength(param.getMaterial())) {
-            sql.append(" AND prd.product.material.name like :material");
-        }
-
-        if (StringUtils.hasLength(param.getOrigin())) {
-            sql.append(" AND prd.product.origin like :origin");
-        }
-
-        if (StringUtils.hasLength(param.getColor())) {
-            sql.append(" AND prd.color.name like :color");
-        }
-
-        if (StringUtils.hasLength(param.getSize())) {
-            sql.append(" AND prd.size.name like :size");
-        }
-
-        sql.append(" ORDER BY prd.product.id DESC");
-
-        TypedQuery<ProductDetail> query = entityManager.createQuery(sql.toString(), ProductDetail.class);
+    private void setDetailParameters(Query query, ProductParamFilter2 param) {
         if (StringUtils.hasLength(param.getKeyword())) {
             query.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
         }
-
         if (StringUtils.hasLength(param.getCategory())) {
             query.setParameter("category", param.getCategory());
         }
-
         if (StringUtils.hasLength(param.getBrand())) {
             query.setParameter("brand", param.getBrand());
         }
-
         if (StringUtils.hasLength(param.getMaterial())) {
             query.setParameter("material", param.getMaterial());
         }
-
         if (StringUtils.hasLength(param.getOrigin())) {
             query.setParameter("origin", param.getOrigin());
         }
-
         if (StringUtils.hasLength(param.getColor())) {
             query.setParameter("color", param.getColor());
         }
-
         if (StringUtils.hasLength(param.getSize())) {
             query.setParameter("size", param.getSize());
         }
+    }
 
-        query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
-        query.setMaxResults(param.getPageSize());
-
-        List<ProductDetailResponse2> data = query.getResultList().stream().map(item -> {
-            PromotionDetail promotionDetail = this.promotionDetailRepository.findByProductId(item.getProduct().getId());
-            BigDecimal retailPrice = item.getRetailPrice();
-            BigDecimal discountPercent = promotionDetail != null
-                    ? BigDecimal.valueOf(promotionDetail.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                    : BigDecimal.ZERO;
-
-            BigDecimal discountPrice = retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
+    private PageableResponse toPageableResponse(int pageNo, int pageSize, long totalElements, Object data, String nextCursor) {
+        return PageableResponse.builder()
+                .pageNumber(pageNo)
+                .pageNo(pageNo)
+                .pageSize(pageSize)
+                .totalPages(totalElements < 0 ? -1 : (int) Math.ceil((double) totalElements / pageSize))
+                .totalElements(totalElements) // -1 when the count was skipped
+                .content(data)
+                .nextCursor(nextCursor)
+                .build();
+    }
 
-            return ProductDetailResponse2.builder()
-                    .id(item.getId())
-                    .productName(String.format("%s [%s - %s]", item.getProduct().getName(), item.getSize().getName(), item.getColor().getName()))
-                    .imageUrl(convertToUrl(item.getProduct().getProductImages()))
-                    .brand(item.getProduct().getBrand().getName())
-                    .category(item.getProduct().getCategory().getName())
-                    .material(item.getProduct().getMaterial().getName())
-                    .color(item.getColor().getName())
-                    .size(item.getSize().getName())
-                    .origin(item.getProduct().getOrigin())
-                    .price(item.getRetailPrice())
-                    .sellPrice(discountPrice)
-                    .percent(promotionDetail != null ? promotionDetail.getPromotion().getPercent() : null)
-                    .expiredDate(promotionDetail != null ? promotionDetail.getPromotion().getEndDate() : null)
-                    .quantity(item.getQuantity())
-                    .build();
-        }).toList();
+    public List<ProductResponse.Product> getExploreOurProducts(Integer page) {
+        String query = "SELECT l FROM ProductListing l WHERE l.status = 'ACTIVE' AND l.isDeleted = false AND l.totalStock > 0 ORDER BY l.updateAt DESC";
+        TypedQuery<ProductListing> execute = entityManager.createQuery(query, ProductListing.class);
+        execute.setFirstResult((page - 1) * 10);
+        execute.setMaxResults(12);
 
-        // TODO count product
-        StringBuilder countPage = new StringBuilder("SELECT count(prd) FROM ProductDetail prd WHERE prd.product.isDeleted = false AND prd.status = 'ACTIVE' AND prd.product.status = 'ACTIVE' AND prd.quantity > 0");
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countPage.append(" AND lower(prd.product.name) like lower(:keyword)");
-        }
+        return convertToClientProducts(execute.getResultList());
+    }
 
-        if (StringUtils.hasLength(param.getCategory())) {
-            countPage.append(" AND prd.product.category.name like :category");
-        }
+    public List<ProductResponse.Product> getBestSellingProducts(SalesRankingService.Window window) {
+        // Over-fetch from the ranking since some best sellers may be hidden or out of stock right now
+        List<Long> ranked = this.salesRankingService.top(window, 30);
+        List<ProductListing> products = new ArrayList<>();
+        if (!ranked.isEmpty()) {
+            Map<Long, ProductListing> listings = entityManager.createQuery("SELECT l FROM ProductListing l WHERE l.status = 'ACTIVE' AND l.isDeleted = false AND l.totalStock > 0 AND l.productId IN :ids", ProductListing.class)
+                    .setParameter("ids", ranked)
+                    .getResultList().stream()
+                    .collect(Collectors.toMap(ProductListing::getProductId, Function.identity()));
+            ranked.stream().map(listings::get).filter(Objects::nonNull).limit(6).forEach(products::add);
+        }
+        if (products.size() < 6) {
+            // Not enough sales yet, fill up with the latest products
+            String query = "SELECT l FROM ProductListing l WHERE l.status = 'ACTIVE' AND l.isDeleted = false AND l.totalStock > 0 ORDER BY l.soldCount DESC, l.updateAt DESC";
+            TypedQuery<ProductListing> execute = entityManager.createQuery(query, ProductListing.class);
+            execute.setMaxResults(6 + products.size());
+            Set<Long> picked = products.stream().map(ProductListing::getProductId).collect(Collectors.toSet());
+            execute.getResultList().stream().filter(l -> !picked.contains(l.getProductId())).limit(6 - products.size()).forEach(products::add);
+        }
+
+        return convertToClientProducts(products);
+    }
 
-        if (StringUtils.hasLength(param.getBrand())) {
-            countPage.append(" AND prd.product.brand.name like :brand");
+    public PageableResponse getProductsFilters(ProductRequests.ParamFilters param) {
+        // Keyword matches come from the search index, the LIKE scan is only a fallback until the index is loaded
+        List<Long> keywordIds = null;
+        if (StringUtils.hasLength(param.getKeyword()) && this.productSearchIndex.isReady()) {
+            keywordIds = this.productSearchIndex.search(param.getKeyword(), 0);
+            if (keywordIds.isEmpty()) {
+                return toPageableResponse(param.getPageNo(), param.getPageSize(), 0, List.of(), null);
+            }
         }
 
-        if (StringUtils.hasLength(param.getMaterial())) {
-            countPage.append(" AND prd.product.material.name like :material");
+        // Attribute and price selections are answered, ordered and paged by the facet index, SQL only loads the page
+        boolean keywordResolved = keywordIds != null || !StringUtils.hasLength(param.getKeyword());
+        if (this.productFacetIndex.isReady() && keywordResolved && isFiltered(param)) {
+            ProductFacetIndex.Page page = this.productFacetIndex.page(param, keywordIds);
+            List<ProductListing> listings = List.of();
+            if (!page.getIds().isEmpty()) {
+                Map<Long, ProductListing> loaded = entityManager.createQuery("SELECT l FROM ProductListing l WHERE l.status = 'ACTIVE' AND l.isDeleted = false AND l.totalStock > 0 AND l.productId IN :ids", ProductListing.class)
+                        .setParameter("ids", page.getIds())
+                        .getResultList().stream()
+                        .collect(Collectors.toMap(ProductListing::getProductId, Function.identity()));
+                listings = page.getIds().stream().map(loaded::get).filter(Objects::nonNull).toList();
+            }
+            return toPageableResponse(param.getPageNo(), param.getPageSize(), page.getTotal(), convertToClientProducts(listings), page.getNextCursor());
         }
 
-        if (StringUtils.hasLength(param.getOrigin())) {
-            countPage.append(" AND prd.product.origin like :origin");
-        }
+        StringBuilder where = new StringBuilder(" FROM ProductListing l WHERE l.status = 'ACTIVE' AND l.isDeleted = false AND l.totalStock > 0");
+        appendFilterPredicates(where, param, keywordIds);
 
-        if (StringUtils.hasLength(param.getColor())) {
-            countPage.append(" AND prd.color.name like :color");
+        // Sort column and direction, the product id breaks ties so the keyset is unique
+        String sortColumn;
+        boolean ascending = false;
+        if (param.getSortBy() == PRICE_ASC) {
+            sortColumn = "l.minPrice";
+            ascending = true;
+        } else if (param.getSortBy() == PRICE_DESC) {
+            sortColumn = "l.maxPrice";
+        } else if (param.getSortBy() == CREATED_AT) {
+            sortColumn = "l.createAt";
+        } else {
+            sortColumn = "l.updateAt";
         }
+        String direction = ascending ? "ASC" : "DESC";
 
-        if (StringUtils.hasLength(param.getSize())) {
-            countPage.append(" AND prd.size.name like :size");
+        StringBuilder sql = new StringBuilder("SELECT l").append(where);
+        PageCursor cursor = PageCursor.isPresent(param.getCursor()) ? PageCursor.decode(param.getCursor()) : null;
+        if (cursor != null) {
+            sql.append(cursor.seek(sortColumn, "l.productId", ascending));
         }
+        sql.append(String.format(" ORDER BY %1$s %2$s, l.productId %2$s", sortColumn, direction));
 
-        TypedQuery<Long> countQuery = entityManager.createQuery(countPage.toString(), Long.class);
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countQuery.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
-        }
+        TypedQuery<ProductListing> execute = entityManager.createQuery(sql.toString(), ProductListing.class);
+        setFilterParameters(execute, param, keywordIds);
 
-        if (StringUtils.hasLength(param.getCategory())) {
-            countQuery.setParameter("category", param.getCategory());
+        if (cursor != null) {
+            if (cursor.hasValue()) {
+                execute.setParameter("cursorValue", sortColumn.endsWith("Price") ? cursor.getDecimalValue() : cursor.getDateValue());
+            }
+            execute.setParameter("cursorId", cursor.getId());
+        } else {
+            execute.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
         }
+        execute.setMaxResults(param.getPageSize() + 1);
 
-        if (StringUtils.hasLength(param.getBrand())) {
-            countQuery.setParameter("brand", param.getBrand());
+        List<ProductListing> listings = execute.getResultList();
+        String nextCursor = null;
+        if (listings.size() > param.getPageSize()) {
+            listings = listings.subList(0, param.getPageSize());
+            ProductListing last = listings.getLast();
+            Object sortValue = switch (sortColumn) {
+                case "l.minPrice" -> last.getMinPrice();
+                case "l.maxPrice" -> last.getMaxPrice();
+                case "l.createAt" -> last.getCreateAt();
+                default -> last.getUpdateAt();
+            };
+            nextCursor = PageCursor.encode(sortValue, last.getProductId());
         }
 
-        if (StringUtils.hasLength(param.getMaterial())) {
-            countQuery.setParameter("material", param.getMaterial());
-        }
+        List<ProductResponse.Product> data = convertToClientProducts(listings);
 
-        if (StringUtils.hasLength(param.getOrigin())) {
-            countQuery.setParameter("origin", param.getOrigin());
+        long totalElements = -1;
+        if (PageCursor.shouldCount(param.getCursor(), param.getCount())) {
+            TypedQuery<Long> countQuery = entityManager.createQuery("SELECT count(l)" + where, Long.class);
+            setFilterParameters(countQuery, param, keywordIds);
+            totalElements = countQuery.getSingleResult();
         }
+        return toPageableResponse(param.getPageNo(), param.getPageSize(), totalElements, data, nextCursor);
+    }
 
-        if (StringUtils.hasLength(param.getColor())) {
-            countQuery.setParameter("color", param.getColor());
+    public List<ProductRequests.ProductBase> searchBase(String keyword) {
+        if (StringUtils.hasLength(keyword.trim())) {
+            if (this.productSearchIndex.isReady()) {
+                List<Long> ids = this.productSearchIndex.search(keyword, 5);
+                if (ids.isEmpty()) {
+                    return List.of();
+                }
+                Map<Long, ProductListing> listings = entityManager.createQuery("SELECT l FROM ProductListing l WHERE l.productId IN :ids", ProductListing.class)
+                        .setParameter("ids", ids)
+                        .getResultList().stream()
+                        .collect(Collectors.toMap(ProductListing::getProductId, Function.identity()));
+                return ids.stream().map(listings::get).filter(Objects::nonNull).map(this::convertToProductBase).toList();
+            }
+            String sql = "SELECT l FROM ProductListing l WHERE l.status = 'ACTIVE' AND l.isDeleted = false AND l.totalStock > 0 AND lower(l.name) like lower(:keyword)";
+            TypedQuery<ProductListing> execute = entityManager.createQuery(sql, ProductListing.class);
+            execute.setParameter("keyword", String.format(LIKE_FORMAT, keyword));
+            execute.setMaxResults(5);
+            return execute.getResultList().stream().map(this::convertToProductBase).toList();
         }
+        return null;
+    }
 
-        if (StringUtils.hasLength(param.getSize())) {
-            countQuery.setParameter("size", param.getSize());
-        }
-        Long totalElements = countQuery.getSingleResult();
-        Pageable pageable = PageRequest.of(param.getPageNo() - 1, param.getPageSize());
-        Page<?> page = new PageImpl<>(data, pageable, totalElements);
-        return PageableResponse.builder()
-                .pageNumber(param.getPageNo())
-                .pageNo(param.getPageNo())
-                .pageSize(param.getPageSize())
-                .totalPages(page.getTotalPages())
-                .totalElements(page.getTotalElements()) // Not required
-                .content(data)
+    private ProductRequests.ProductBase convertToProductBase(ProductListing listing) {
+        return ProductRequests.ProductBase.builder()
+                .id(listing.getProductId())
+                .name(listing.getName())
+                .imageUrl(listing.getImageUrl())
                 .build();
     }
 
-    public List<ProductResponse.Product> getExploreOurProducts(Integer page) {
-        StringBuilder query = new StringBuilder("SELECT prd FROM Product prd WHERE prd.status = 'ACTIVE' AND prd.isDeleted = false");
-        query.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') > 0)");
-        query.append(" ORDER BY prd.updateAt DESC");
-        TypedQuery<Product> execute = entityManager.createQuery(query.toString(), Product.class);
-        execute.setFirstResult((page - 1) * 10);
-        execute.setMaxResults(12);
-
-        return execute.getResultList().stream()
-                .map(s -> {
-                            PromotionDetail promotionDetail = this.promotionDetailRepository.findByProductId(s.getId());
-                            BigDecimal retailPrice = s.getProductDetails().getFirst().getRetailPrice();
-                            BigDecimal discountPercent = promotionDetail != null
-                                    ? BigDecimal.valueOf(promotionDetail.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                                    : BigDecimal.ZERO;
-
-                            BigDecimal discountPrice = retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
-
-                            return ProductResponse.Product.builder()
-                                    .productId(s.getId())
-                                    .imageUrl(s.getProductImages().getFirst().getImageUrl())
-                                    .name(s.getName())
-                                    .retailPrice(s.getProductDetails().getFirst().getRetailPrice())
-                                    .discountPrice(discountPrice)
-                                    .rate(4)
-                                    .rateCount(104)
-                                    .percent(promotionDetail != null ? promotionDetail.getPromotion().getPercent() : null)
-                                    .expiredDate(promotionDetail != null ? promotionDetail.getPromotion().getEndDate() : null)
-                                    .build();
-                        }
-                ).toList();
+    public FacetResponse.Result getProductFacets(ProductRequests.ParamFilters param) {
+        // Without the search index the keyword cannot narrow the bitmaps, the counts then ignore it
+        List<Long> keywordIds = StringUtils.hasLength(param.getKeyword()) && this.productSearchIndex.isReady()
+                ? this.productSearchIndex.search(param.getKeyword(), 0) : null;
+        return this.productFacetIndex.facets(param, keywordIds);
     }
 
-    public List<ProductResponse.Product> getBestSellingProducts() {
-        String query = """
-                    SELECT prd FROM Product prd\s
-                    WHERE prd.status = 'ACTIVE'\s
-                    AND prd.isDeleted = false\s
-                    AND (
-                        SELECT COALESCE(SUM(pd.quantity), 0)\s
-                        FROM ProductDetail pd\s
-                        WHERE pd.product.id = prd.id\s
-                        AND pd.status = 'ACTIVE'
-                    ) > 0\s
-                    ORDER BY (
-                        SELECT COUNT(bd)\s
-                        FROM BillDetail bd\s
-                        JOIN bd.productDetail pd\s
-                        WHERE pd.product.id = prd.id
-                    ) DESC, prd.updateAt DESC
-               \s""";
-
-        TypedQuery<Product> execute = entityManager.createQuery(query, Product.class);
-        execute.setMaxResults(6);
-
-        return execute.getResultList().stream()
-                .map(s -> {
-                            PromotionDetail promotionDetail = this.promotionDetailRepository.findByProductId(s.getId());
-                            BigDecimal retailPrice = s.getProductDetails().getFirst().getRetailPrice();
-                            BigDecimal discountPercent = promotionDetail != null
-                                    ? BigDecimal.valueOf(promotionDetail.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                                    : BigDecimal.ZERO;
-
-                            BigDecimal discountPrice = retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
-                            return ProductResponse.Product.builder()
-                                    .productId(s.getId())
-                                    .imageUrl(s.getProductImages().getFirst().getImageUrl())
-                                    .name(s.getName())
-                                    .retailPrice(s.getProductDetails().getFirst().getRetailPrice())
-                                    .discountPrice(discountPrice)
-                                    .rate(4)
-                                    .rateCount(104)
-                                    .percent(promotionDetail != null ? promotionDetail.getPromotion().getPercent() : null)
-                                    .expiredDate(promotionDetail != null ? promotionDetail.getPromotion().getEndDate() : null)
-                                    .build();
-                        }
-                ).collect(Collectors.toList());
+    private static boolean isFiltered(ProductRequests.ParamFilters param) {
+        return StringUtils.hasLength(param.getKeyword()) || param.getCategoryIds() != null || param.getBrandIds() != null
+                || param.getMaterialIds() != null || param.getColorIds() != null || param.getSizeIds() != null
+                || param.getMinPrice() != null || param.getMaxPrice() != null;
     }
 
-    public PageableResponse getProductsFilters(ProductRequests.ParamFilters param) {
-        StringBuilder query = new StringBuilder("SELECT prd FROM Product prd WHERE prd.status = 'ACTIVE' AND prd.isDeleted = false");
-        // Default query
-        query.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') > 0)");
-
-        if (StringUtils.hasLength(param.getKeyword())) {
-            query.append(" AND lower(prd.name) like lower(:keyword)");
+    private void appendFilterPredicates(StringBuilder where, ProductRequests.ParamFilters param, List<Long> keywordIds) {
+        if (keywordIds != null) {
+            where.append(" AND l.productId IN :keywordIds");
+        } else if (StringUtils.hasLength(param.getKeyword())) {
+            where.append(" AND lower(l.name) like lower(:keyword)");
         }
 
-        if (!(param.getCategoryIds() == null)) {
-            String categoryIds = param.getCategoryIds().stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-            query.append(String.format(" AND prd.category.id IN (%s)", categoryIds));
+        if (param.getCategoryIds() != null) {
+            where.append(" AND l.categoryId IN :categoryIds");
         }
 
-        if (!(param.getBrandIds() == null)) {
-            String brandIds = param.getBrandIds().stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-            query.append(String.format(" AND prd.brand.id IN (%s)", brandIds));
+        if (param.getBrandIds() != null) {
+            where.append(" AND l.brandId IN :brandIds");
         }
 
-        if (!(param.getMaterialIds() == null)) {
-            String materialIds = param.getMaterialIds().stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-            query.append(String.format(" AND prd.material.id IN (%s)", materialIds));
+        if (param.getMaterialIds() != null) {
+            where.append(" AND l.materialId IN :materialIds");
         }
 
-        if (param.getMinPrice() != null || param.getMaxPrice() != null) {
-            query.append(" AND EXISTS (SELECT 1 FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE'");
-
-            if (param.getMinPrice() != null) {
-                query.append(" AND d.retailPrice >= :minPrice");
-            }
-            if (param.getMaxPrice() != null) {
-                query.append(" AND d.retailPrice <= :maxPrice");
-            }
-
-            query.append(")");
+        if (param.getColorIds() != null) {
+            where.append(" AND EXISTS (SELECT 1 FROM ProductDetail c WHERE c.product.id = l.productId AND c.status = 'ACTIVE' AND c.quantity > 0 AND c.color.id IN :colorIds)");
         }
 
-        if (param.getSortBy() == PRICE_ASC) {
-            query.append(" ORDER BY (SELECT MIN(d.retailPrice) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') ASC");
-        } else if (param.getSortBy() == PRICE_DESC) {
-            query.append(" ORDER BY (SELECT MAX(d.retailPrice) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') DESC");
-        } else if (param.getSortBy() == CREATED_AT) {
-            query.append(" ORDER BY prd.createAt DESC");
-        } else {
-            query.append(" ORDER BY prd.updateAt DESC");
-        }
-
-        TypedQuery<Product> execute = entityManager.createQuery(query.toString(), Product.class);
-        if (StringUtils.hasLength(param.getKeyword())) {
-            execute.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
+        if (param.getSizeIds() != null) {
+            where.append(" AND EXISTS (SELECT 1 FROM ProductDetail s WHERE s.product.id = l.productId AND s.status = 'ACTIVE' AND s.quantity > 0 AND s.size.id IN :sizeIds)");
         }
 
         if (param.getMinPrice() != null || param.getMaxPrice() != null) {
+            // In stock variants only, like the color and size filters and the facet index price buckets
+            where.append(" AND EXISTS (SELECT 1 FROM ProductDetail d WHERE d.product.id = l.productId AND d.status = 'ACTIVE' AND d.quantity > 0");
+
             if (param.getMinPrice() != null) {
-                execute.setParameter("minPrice", param.getMinPrice());
+                where.append(" AND d.retailPrice >= :minPrice");
             }
             if (param.getMaxPrice() != null) {
-                execute.setParameter("maxPrice", param.getMinPrice());
+                where.append(" AND d.retailPrice <= :maxPrice");
             }
-        }
 
-        execute.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
-        execute.setMaxResults(param.getPageSize());
-
-        List<ProductResponse.Product> data = execute.getResultList().stream()
-                .map(s -> {
-                            PromotionDetail promotionDetail = this.promotionDetailRepository.findByProductId(s.getId());
-                            BigDecimal retailPrice = s.getProductDetails().getFirst().getRetailPrice();
-                            BigDecimal discountPercent = promotionDetail != null
-                                    ? BigDecimal.valueOf(promotionDetail.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                                    : BigDecimal.ZERO;
-
-                            BigDecimal discountPrice = retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
-                            return ProductResponse.Product.builder()
-                                    .productId(s.getId())
-                                    .imageUrl(s.getProductImages().getFirst().getImageUrl())
-                                    .name(s.getName())
-                                    .retailPrice(s.getProductDetails().getFirst().getRetailPrice())
-                                    .discountPrice(discountPrice)
-                                    .rate(4)
-                                    .rateCount(104)
-                                    .percent(promotionDetail != null ? promotionDetail.getPromotion().getPercent() : null)
-                                    .expiredDate(promotionDetail != null ? promotionDetail.getPromotion().getEndDate() : null)
-                                    .build();
-                        }
-                ).toList();
-
-        StringBuilder countPage = new StringBuilder("SELECT count(prd) FROM Product prd WHERE prd.status = 'ACTIVE' AND prd.isDeleted = false");
-        countPage.append(" AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') > 0)");
-
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countPage.append(" AND lower(prd.name) like lower(:keyword)");
+            where.append(")");
         }
+    }
 
-        if (!(param.getCategoryIds() == null)) {
-            String categoryIds = param.getCategoryIds().stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-            countPage.append(String.format(" AND prd.category.id IN (%s)", categoryIds));
+    private void setFilterParameters(TypedQuery<?> query, ProductRequests.ParamFilters param, List<Long> keywordIds) {
+        if (keywordIds != null) {
+            query.setParameter("keywordIds", keywordIds);
+        } else if (StringUtils.hasLength(param.getKeyword())) {
+            query.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
         }
-
-        if (!(param.getBrandIds() == null)) {
-            String brandIds = param.getBrandIds().stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-            countPage.append(String.format(" AND prd.brand.id IN (%s)", brandIds));
+        if (param.getCategoryIds() != null) {
+            query.setParameter("categoryIds", param.getCategoryIds());
         }
-
-        if (!(param.getMaterialIds() == null)) {
-            String materialIds = param.getMaterialIds().stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-            countPage.append(String.format(" AND prd.material.id IN (%s)", materialIds));
+        if (param.getBrandIds() != null) {
+            query.setParameter("brandIds", param.getBrandIds());
         }
-
-        if (param.getMinPrice() != null || param.getMaxPrice() != null) {
-            countPage.append(" AND EXISTS (SELECT 1 FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE'");
-
-            if (param.getMinPrice() != null) {
-                countPage.append(" AND d.retailPrice >= :minPrice");
-            }
-            if (param.getMaxPrice() != null) {
-                countPage.append(" AND d.retailPrice <= :maxPrice");
-            }
-
-            countPage.append(")");
+        if (param.getMaterialIds() != null) {
+            query.setParameter("materialIds", param.getMaterialIds());
         }
-
-        if (param.getSortBy() == PRICE_ASC) {
-            countPage.append(" ORDER BY (SELECT MIN(d.retailPrice) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') ASC");
-        } else if (param.getSortBy() == PRICE_DESC) {
-            countPage.append(" ORDER BY (SELECT MAX(d.retailPrice) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') DESC");
-        } else if (param.getSortBy() == CREATED_AT) {
-            countPage.append(" ORDER BY prd.createAt DESC");
-        } else {
-            countPage.append(" ORDER BY prd.updateAt DESC");
+        if (param.getColorIds() != null) {
+            query.setParameter("colorIds", param.getColorIds());
         }
-        TypedQuery<Long> countQuery = entityManager.createQuery(countPage.toString(), Long.class);
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countQuery.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
+        if (param.getSizeIds() != null) {
+            query.setParameter("sizeIds", param.getSizeIds());
         }
-
-        if (param.getMinPrice() != null || param.getMaxPrice() != null) {
-            if (param.getMinPrice() != null) {
-                countQuery.setParameter("minPrice", param.getMinPrice());
-            }
-            if (param.getMaxPrice() != null) {
-                countQuery.setParameter("maxPrice", param.getMinPrice());
-            }
+        if (param.getMinPrice() != null) {
+            query.setParameter("minPrice", param.getMinPrice());
         }
-        Long totalElements = countQuery.getSingleResult();
-        Pageable pageable = PageRequest.of(param.getPageNo() - 1, param.getPageSize());
-        Page<?> page = new PageImpl<>(data, pageable, totalElements);
-        return PageableResponse.builder()
-                .pageNumber(param.getPageNo())
-                .pageNo(param.getPageNo())
-                .pageSize(param.getPageSize())
-                .totalPages(page.getTotalPages())
-                .totalElements(page.getTotalElements()) // Not required
-                .content(data)
-                .build();
-    }
-
-    public List<ProductRequests.ProductBase> searchBase(String keyword) {
-        if (StringUtils.hasLength(keyword.trim())) {
-            String sql = "SELECT prd FROM Product prd WHERE (prd.status = 'ACTIVE') AND (prd.isDeleted = false) AND ( lower(prd.name) like lower(:keyword)) AND ((SELECT coalesce(sum(d.quantity), 0) FROM ProductDetail d WHERE d.product.id = prd.id AND d.status = 'ACTIVE') > 0)";
-            TypedQuery<Product> execute = entityManager.createQuery(sql, Product.class);
-            execute.setParameter("keyword", String.format(LIKE_FORMAT, keyword));
-            execute.setMaxResults(5);
-            return execute.getResultList().stream().map(p ->
-                    ProductRequests.ProductBase.builder()
-                            .id(p.getId())
-                            .name(p.getName())
-                            .imageUrl(p.getProductImages().getFirst().getImageUrl())
-                            .build()
-            ).toList();
+        if (param.getMaxPrice() != null) {
+            query.setParameter("maxPrice", param.getMaxPrice());
         }
-        return null;
     }
 
     private sd79.dto.response.productResponse.ProductResponse convertToProductResponse(Product product) {
@@ -736,6 +557,25 @@ public class ProductCustomizeQuery {
                 .build();
     }
 
+    private List<ProductResponse.Product> convertToClientProducts(List<ProductListing> listings) {
+        Map<Long, PromotionPrice> prices = this.promotionPriceResolver.resolve(listings.stream().map(ProductListing::getProductId).toList());
+        return listings.stream().map(s -> {
+            PromotionPrice price = prices.get(s.getProductId());
+            return ProductResponse.Product.builder()
+                    .productId(s.getProductId())
+                    .imageUrl(s.getImageUrl())
+                    .thumbnails(this.imageStore.variants(s.getImageUrl()))
+                    .name(s.getName())
+                    .retailPrice(s.getRetailPrice())
+                    .discountPrice(price.apply(s.getRetailPrice()))
+                    .rate(4)
+                    .rateCount(104)
+                    .percent(price.getPercent())
+                    .expiredDate(price.getExpiredDate())
+                    .build();
+        }).collect(Collectors.toList());
+    }
+
     private List<String> convertToUrl(List<ProductImage> images) {
         return images.stream()
                 .map(ProductImage::getImageUrl)
@@ -10,10 +10,6 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 import sd79.dto.response.PageableResponse;
@@ -21,6 +17,7 @@ import sd79.dto.response.clients.invoices.InvoiceResponse;
 import sd79.enums.ProductStatus;
 import sd79.exception.InvalidDataException;
 import sd79.model.Bill;
+import sd79.utils.PageCursor;
 
 import java.util.List;
 
@@ -54,7 +51,12 @@ public class InvoiceRepository {
             sql.append(" AND b.billStatus IS NOT NULL");
         }
 
-        sql.append(" ORDER BY b.createAt DESC");
+        PageCursor cursor = PageCursor.isPresent(param.getCursor()) ? PageCursor.decode(param.getCursor()) : null;
+        if (cursor != null) {
+            sql.append(cursor.seek("b.createAt", "b.id", false));
+        }
+
+        sql.append(" ORDER BY b.createAt DESC, b.id DESC");
         TypedQuery<Bill> query = entityManager.createQuery(sql.toString(), Bill.class);
         query.setParameter("userId", param.getUserId());
 
@@ -70,10 +72,24 @@ public class InvoiceRepository {
             }
         }
 
-        query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
-        query.setMaxResults(param.getPageSize());
+        if (cursor != null) {
+            if (cursor.hasValue()) {
+                query.setParameter("cursorValue", cursor.getDateValue());
+            }
+            query.setParameter("cursorId", cursor.getId());
+        } else {
+            query.setFirstResult((param.getPageNo() - 1) * param.getPageSize());
+        }
+        query.setMaxResults(param.getPageSize() + 1);
 
-        List<InvoiceResponse.Invoice> invoices = query.getResultList().stream().map(i ->
+        List<Bill> bills = query.getResultList();
+        String nextCursor = null;
+        if (bills.size() > param.getPageSize()) {
+            bills = bills.subList(0, param.getPageSize());
+            nextCursor = PageCursor.encode(bills.getLast().getCreateAt(), bills.getLast().getId());
+        }
+
+        List<InvoiceResponse.Invoice> invoices = bills.stream().map(i ->
                 InvoiceResponse.Invoice.builder()
                         .id(i.getId())
                         .code(i.getCode())
@@ -107,48 +123,50 @@ public class InvoiceRepository {
                         .build()
         ).toList();
 
-        StringBuilder countPage = new StringBuilder("SELECT count(b) FROM Bill b WHERE customer.user.id = :userId");
-        if (param.getStatus() == null) {
-            countPage.append(" AND b.billStatus IS NOT NULL");
-        }
+        long totalElements = -1;
+        if (PageCursor.shouldCount(param.getCursor(), param.getCount())) {
+            StringBuilder countPage = new StringBuilder("SELECT count(b) FROM Bill b WHERE customer.user.id = :userId");
+            if (param.getStatus() == null) {
+                countPage.append(" AND b.billStatus IS NOT NULL");
+            }
 
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countPage.append(" AND lower(b.code) like lower(:keyword)");
-        }
+            if (StringUtils.hasLength(param.getKeyword())) {
+                countPage.append(" AND lower(b.code) like lower(:keyword)");
+            }
 
-        if (param.getStatus() != 0) {
-            if (param.getStatus() >= 1 && param.getStatus() <= 8) {
-                countPage.append(" AND b.billStatus.id = :status");
-            } else {
-                throw new InvalidDataException("Status invalid");
+            if (param.getStatus() != 0) {
+                if (param.getStatus() >= 1 && param.getStatus() <= 8) {
+                    countPage.append(" AND b.billStatus.id = :status");
+                } else {
+                    throw new InvalidDataException("Status invalid");
+                }
             }
-        }
 
-        TypedQuery<Long> countQuery = entityManager.createQuery(countPage.toString(), Long.class);
-        countQuery.setParameter("userId", param.getUserId());
+            TypedQuery<Long> countQuery = entityManager.createQuery(countPage.toString(), Long.class);
+            countQuery.setParameter("userId", param.getUserId());
 
-        if (StringUtils.hasLength(param.getKeyword())) {
-            countQuery.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
-        }
+            if (StringUtils.hasLength(param.getKeyword())) {
+                countQuery.setParameter("keyword", String.format(LIKE_FORMAT, param.getKeyword().trim()));
+            }
 
-        if (param.getStatus() != 0) {
-            if (param.getStatus() >= 1 && param.getStatus() <= 8) {
-                countQuery.setParameter("status", param.getStatus());
-            } else {
-                throw new InvalidDataException("Status invalid");
+            if (param.getStatus() != 0) {
+                if (param.getStatus() >= 1 && param.getStatus() <= 8) {
+                    countQuery.setParameter("status", param.getStatus());
+                } else {
+                    throw new InvalidDataException("Status invalid");
+                }
             }
-        }
 
-        Long totalElements = countQuery.getSingleResult();
-        Pageable pageable = PageRequest.of(param.getPageNo() - 1, param.getPageSize());
-        Page<?> page = new PageImpl<>(invoices, pageable, totalElements);
+            totalElements = countQuery.getSingleResult();
+        }
         return PageableResponse.builder()
                 .pageNumber(param.getPageNo())
                 .pageNo(param.getPageNo())
                 .pageSize(param.getPageSize())
-                .totalPages(page.getTotalPages())
-                .totalElements(page.getTotalElements()) // Not required
+                .totalPages(totalElements < 0 ? -1 : (int) Math.ceil((double) totalElements / param.getPageSize()))
+                .totalElements(totalElements) // -1 when the count was skipped
                 .content(invoices)
+                .nextCursor(nextCursor)
                 .build();
     }
 }
@@ -10,10 +10,15 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import sd79.dto.response.productResponse.ColorResponse;
+import sd79.dto.response.productResponse.ProductFacetVariant;
+import sd79.dto.response.productResponse.ProductPageVariant;
+import sd79.dto.response.productResponse.ProductStockSummary;
 import sd79.dto.response.productResponse.SizeResponse;
 import sd79.model.ProductDetail;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -31,6 +36,35 @@ public interface ProductDetailRepository extends JpaRepository<ProductDetail, Lo
     @Query("SELECT DISTINCT  new sd79.dto.response.productResponse.ColorResponse(p.color.id, p.color.name, p.color.hexColorCode , p.color.createdBy.username, p.color.createAt, p.color.updateAt) FROM  ProductDetail p WHERE p.product.id = :productId AND p.status = 'ACTIVE'")
     HashSet<ColorResponse> getColorProduct(long productId);
 
+    @Query("SELECT new sd79.dto.response.productResponse.ProductStockSummary(coalesce(sum(p.quantity), 0), min(p.retailPrice), max(p.retailPrice)) FROM ProductDetail p WHERE p.product.id = :productId AND p.status = 'ACTIVE'")
+    ProductStockSummary getStockSummary(long productId);
+
+    Optional<ProductDetail> findFirstByProductIdOrderByIdAsc(Long productId);
+
+    @Query("SELECT new sd79.dto.response.productResponse.ProductFacetVariant(p.product.id, p.color.id, p.size.id, p.retailPrice) FROM ProductDetail p WHERE p.status = 'ACTIVE' AND p.quantity > 0")
+    List<ProductFacetVariant> findAvailableVariants();
+
+    @Query("SELECT p.size.id, count(DISTINCT p.product.id) FROM ProductDetail p WHERE p.product.isDeleted = false GROUP BY p.size.id")
+    List<Object[]> countProductsGroupBySize();
+
+    @Query("SELECT p.color.id, count(DISTINCT p.product.id) FROM ProductDetail p WHERE p.product.isDeleted = false GROUP BY p.color.id")
+    List<Object[]> countProductsGroupByColor();
+
+    @Query("SELECT new sd79.dto.response.productResponse.ProductFacetVariant(p.product.id, p.color.id, p.size.id, p.retailPrice) FROM ProductDetail p WHERE p.product.id = :productId AND p.status = 'ACTIVE' AND p.quantity > 0")
+    List<ProductFacetVariant> findAvailableVariants(long productId);
+
+    @Query("SELECT new sd79.dto.response.productResponse.ProductFacetVariant(p.product.id, p.color.id, p.size.id, p.retailPrice) FROM ProductDetail p WHERE p.product.id IN :productIds AND p.status = 'ACTIVE' AND p.quantity > 0")
+    List<ProductFacetVariant> findAvailableVariants(Collection<Long> productIds);
+
+    @Query("SELECT new sd79.dto.response.productResponse.ProductPageVariant(p.id, p.retailPrice, p.quantity, p.status, " +
+            "p.size.id, p.size.name, p.size.length, p.size.width, p.size.sleeve, p.size.createdBy.username, p.size.createAt, p.size.updateAt, " +
+            "p.color.id, p.color.name, p.color.hexColorCode, p.color.createdBy.username, p.color.createAt, p.color.updateAt) " +
+            "FROM ProductDetail p WHERE p.product.id = :productId ORDER BY p.id")
+    List<ProductPageVariant> getPageVariants(long productId);
+
+    @Query("SELECT pd FROM ProductDetail pd JOIN FETCH pd.product WHERE pd.id IN :ids")
+    List<ProductDetail> findAllWithProductByIdIn(Collection<Long> ids);
+
     @Query("FROM ProductDetail pd where pd.product.id = :productId AND pd.color.id = :colorId AND pd.size.id = :sizeId")
     Optional<ProductDetail> findByProductIdAndColorIdAndSizeId(long productId, int colorId, int sizeId);
 }
@@ -0,0 +1,35 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories.products;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import sd79.dto.response.productResponse.ImageResponse;
+
+import java.util.List;
+
+/**
+ * Inserts the images of one upload as a single JDBC batch; product_images uses IDENTITY keys, which Hibernate never
+ * batches. With rewriteBatchedStatements the driver sends one multi-row INSERT
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductImageBatchRepository {
+
+    private static final String INSERT = "INSERT INTO product_images (product_id, image_url, public_id) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(Long productId, List<ImageResponse> images) {
+        this.jdbcTemplate.batchUpdate(INSERT, images, images.size(), (statement, image) -> {
+            statement.setLong(1, productId);
+            statement.setString(2, image.getUrl());
+            statement.setString(3, image.getPublicId());
+        });
+    }
+}
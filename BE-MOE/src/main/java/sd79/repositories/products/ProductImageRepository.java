@@ -13,6 +13,8 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import sd79.model.ProductImage;
 
+import java.util.Optional;
+
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
 
@@ -20,4 +22,8 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Long
     @Transactional
     @Query("DELETE FROM ProductImage WHERE publicId = :publicId")
     void deleteByPublicId(String publicId);
+
+    Optional<ProductImage> findByPublicId(String publicId);
+
+    Optional<ProductImage> findFirstByProductIdOrderByIdAsc(Long productId);
 }
@@ -0,0 +1,29 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories.products;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import sd79.model.ProductListing;
+
+import java.util.Collection;
+
+@Repository
+public interface ProductListingRepository extends JpaRepository<ProductListing, Long> {
+
+    /**
+     * Recomputes stock and sold count in place, the same sums the full refresh stores
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE product_listing l SET " +
+            "l.total_stock = (SELECT COALESCE(SUM(d.quantity), 0) FROM product_details d WHERE d.product_id = l.product_id AND d.status = 'ACTIVE'), " +
+            "l.sold_count = (SELECT COALESCE(SUM(s.quantity), 0) FROM product_sales s WHERE s.product_id = l.product_id) " +
+            "WHERE l.product_id IN :productIds", nativeQuery = true)
+    int refreshStock(Collection<Long> productIds);
+}
@@ -6,27 +6,28 @@
  */
 package sd79.repositories.products;
 
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sd79.model.Product;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
-    @Query("SELECT count(p) from Product p where p.category.id = :idCategory and p.isDeleted = false ")
-    Long countByCategory(@Param("idCategory") Integer idCategory);
+    @Query("SELECT p.category.id, count(p) from Product p where p.isDeleted = false GROUP BY p.category.id")
+    List<Object[]> countGroupByCategory();
 
-    @Query("SELECT count(p) from Product p where p.brand.id = :idBrand and p.isDeleted = false ")
-    Long countByBrand(@Param("idBrand") Integer idBrand);
+    @Query("SELECT p.brand.id, count(p) from Product p where p.isDeleted = false GROUP BY p.brand.id")
+    List<Object[]> countGroupByBrand();
 
-    @Query("SELECT count(p) from Product p where p.material.id = :idMaterial and p.isDeleted = false ")
-    Long countByMaterial(@Param("idMaterial") Integer idMaterial);
+    @Query("SELECT p.material.id, count(p) from Product p where p.isDeleted = false GROUP BY p.material.id")
+    List<Object[]> countGroupByMaterial();
 
-    @Query("FROM Product WHERE id != :id AND (category.name = :category OR brand.name = :brand OR  1 = 1) order by updateAt desc")
-    List<Product> getRelatedItem(Long id, String category, String brand, Pageable pageable);
+    @EntityGraph("Product.page")
+    @Query("FROM Product p WHERE p.id = :id")
+    Optional<Product> findPageById(Long id);
 }
@@ -0,0 +1,59 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories.products;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import sd79.dto.response.productResponse.ProductSalesTotal;
+import sd79.model.ProductSale;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface ProductSaleRepository extends JpaRepository<ProductSale, Long> {
+
+    List<ProductSale> findByBillId(Long billId);
+
+    @Query(value = "SELECT id FROM bill WHERE id = :billId FOR UPDATE", nativeQuery = true)
+    Long lockBill(Long billId);
+
+    List<ProductSale> findAllByOrderByBillIdAsc();
+
+    @Modifying
+    @Query("DELETE FROM ProductSale s WHERE s.billId = :billId")
+    int deleteByBillId(Long billId);
+
+    @Query("SELECT coalesce(sum(s.quantity), 0) FROM ProductSale s WHERE s.productId = :productId")
+    long sumQuantityByProductId(Long productId);
+
+    @Query("SELECT new sd79.dto.response.productResponse.ProductSalesTotal(s.productId, sum(s.quantity)) FROM ProductSale s GROUP BY s.productId")
+    List<ProductSalesTotal> sumQuantities();
+
+    @Query("SELECT new sd79.dto.response.productResponse.ProductSalesTotal(s.productId, sum(s.quantity)) FROM ProductSale s WHERE s.soldAt >= :from GROUP BY s.productId")
+    List<ProductSalesTotal> sumQuantitiesSince(Date from);
+
+    /**
+     * Fills the ledger from bills completed before it existed: completed bills that were never cancelled
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO product_sales (bill_id, product_id, quantity, sold_at)
+            SELECT b.id, pd.product_id, SUM(bd.quantity), COALESCE(b.payment_time, b.update_at, b.create_at)
+            FROM bill b
+            JOIN bill_detail bd ON bd.bill_id = b.id
+            JOIN product_details pd ON pd.id = bd.product_detail_id
+            WHERE b.is_deleted = 0
+              AND (b.bill_status_id = 8 OR EXISTS (SELECT 1 FROM bill_status_detail s WHERE s.bill_id = b.id AND s.bill_status_id = 8))
+              AND b.bill_status_id <> 7
+              AND NOT EXISTS (SELECT 1 FROM bill_status_detail c WHERE c.bill_id = b.id AND c.bill_status_id = 7)
+            GROUP BY b.id, pd.product_id, b.payment_time, b.update_at, b.create_at
+            """, nativeQuery = true)
+    int backfillFromCompletedBills();
+}
@@ -0,0 +1,84 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.repositories.products;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stock changes as conditional in-place updates, never read-modify-write. Each call is one JDBC batch, which the
+ * driver sends in a single round trip with rewriteBatchedStatements
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStockRepository {
+
+    private static final String DECREMENT = "UPDATE product_details SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+
+    private static final String INCREMENT = "UPDATE product_details SET quantity = quantity + ? WHERE id = ?";
+
+    private static final String LOCK_QUANTITY = "SELECT quantity FROM product_details WHERE id = ? FOR UPDATE";
+
+    private static final String APPLIED_SEQUENCE = "SELECT applied_seq FROM flash_sale_ledger_offset WHERE id = 1";
+
+    private static final String LOCK_APPLIED_SEQUENCE = "SELECT applied_seq FROM flash_sale_ledger_offset WHERE id = 1 FOR UPDATE";
+
+    private static final String SAVE_APPLIED_SEQUENCE = "UPDATE flash_sale_ledger_offset SET applied_seq = ? WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return per line the number of rows updated, 0 where the stock was short (or the product detail is gone)
+     */
+    public int[] decrementAll(List<Map.Entry<Long, Integer>> lines) {
+        return this.jdbcTemplate.batchUpdate(DECREMENT, lines, lines.size(), (statement, line) -> {
+            statement.setInt(1, line.getValue());
+            statement.setLong(2, line.getKey());
+            statement.setInt(3, line.getValue());
+        })[0];
+    }
+
+    /**
+     * Adds each quantity, negative ones included: the flash-sale ledger writes back net deltas through here
+     */
+    public void incrementAll(List<Map.Entry<Long, Integer>> lines) {
+        this.jdbcTemplate.batchUpdate(INCREMENT, lines, lines.size(), (statement, line) -> {
+            statement.setInt(1, line.getValue());
+            statement.setLong(2, line.getKey());
+        });
+    }
+
+    /**
+     * Reads the stock and holds the row lock until the transaction ends, stock writes on the row wait for it
+     */
+    public Optional<Integer> lockQuantity(Long productDetailId) {
+        List<Integer> quantities = this.jdbcTemplate.queryForList(LOCK_QUANTITY, Integer.class, productDetailId);
+        if (quantities.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(quantities.getFirst() != null ? quantities.getFirst() : 0);
+    }
+
+    public long appliedSequence() {
+        List<Long> sequences = this.jdbcTemplate.queryForList(APPLIED_SEQUENCE, Long.class);
+        return sequences.isEmpty() || sequences.getFirst() == null ? 0 : sequences.getFirst();
+    }
+
+    public long lockAppliedSequence() {
+        Long sequence = this.jdbcTemplate.queryForObject(LOCK_APPLIED_SEQUENCE, Long.class);
+        return sequence != null ? sequence : 0;
+    }
+
+    public void saveAppliedSequence(long sequence) {
+        this.jdbcTemplate.update(SAVE_APPLIED_SEQUENCE, sequence);
+    }
+}
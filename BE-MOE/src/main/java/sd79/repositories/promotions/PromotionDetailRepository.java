@@ -8,8 +8,12 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import sd79.dto.response.promotions.PromotionPrice;
+import sd79.dto.response.promotions.PromotionWindow;
 import sd79.model.PromotionDetail;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -27,6 +31,18 @@ public interface PromotionDetailRepository extends JpaRepository<PromotionDetail
             "AND CURRENT_TIMESTAMP BETWEEN pd.promotion.startDate AND pd.promotion.endDate")
     Optional<PromotionDetail> findActivePromotionByProductId(@Param("productId") Long productId);
 
+    @Query("SELECT new sd79.dto.response.promotions.PromotionPrice(pd.product.id, p.percent, p.endDate) FROM PromotionDetail pd " +
+            "JOIN pd.promotion p " +
+            "WHERE pd.product.id IN :productIds " +
+            "AND CURRENT_TIMESTAMP BETWEEN p.startDate AND p.endDate")
+    List<PromotionPrice> findActivePricesByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT new sd79.dto.response.promotions.PromotionWindow(pd.product.id, p.percent, p.startDate, p.endDate) FROM PromotionDetail pd " +
+            "JOIN pd.promotion p " +
+            "WHERE p.endDate >= CURRENT_TIMESTAMP " +
+            "ORDER BY p.startDate ASC")
+    List<PromotionWindow> findCurrentAndUpcomingWindows();
+
 }
 
 
@@ -6,6 +6,7 @@
  */
 package sd79.service;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.micrometer.common.util.StringUtils;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,6 +16,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -29,8 +31,10 @@ import sd79.dto.requests.authRequests.VerifyOtp;
 import sd79.dto.requests.notifications.Recipient;
 import sd79.dto.requests.notifications.SendEmailRequest;
 import sd79.dto.response.auth.TokenResponse;
+import sd79.enums.AuthMode;
 import sd79.exception.EntityNotFoundException;
 import sd79.exception.InvalidDataException;
+import sd79.exception.TooManyRequestsException;
 import sd79.model.Customer;
 import sd79.model.CustomerAddress;
 import sd79.model.User;
@@ -39,7 +43,9 @@ import sd79.repositories.CustomerAddressRepository;
 import sd79.repositories.CustomerRepository;
 import sd79.repositories.auth.RoleRepository;
 import sd79.repositories.auth.UserRepository;
-import sd79.utils.CloudinaryUtils;
+import sd79.service.images.ImageUploadPipeline;
+import sd79.service.security.PrincipalCache;
+import sd79.service.security.TokenVersionService;
 import sd79.utils.RandomNumberGenerator;
 
 import java.util.*;
@@ -67,7 +73,13 @@ public class AuthenticationService {
 
     private final CustomerAddressRepository addressRepository;
 
-    private final CloudinaryUtils cloudinary;
+    private final CustomerService customerService;
+
+    private final ImageUploadPipeline imageUploadPipeline;
+
+    private final PrincipalCache principalCache;
+
+    private final TokenVersionService tokenVersionService;
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
 
@@ -76,20 +88,34 @@ public class AuthenticationService {
     @Value("${spring.frontend.url}")
     private String host_frontend;
 
+    @Value("${security.auth.mode:SESSION}")
+    private AuthMode authMode;
+
     public TokenResponse authenticate(SignInRequest signInRequest) {
-        this.authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(signInRequest.getUsername(), signInRequest.getPassword()));
+        try {
+            this.authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(signInRequest.getUsername(), signInRequest.getPassword()));
+        } catch (InternalAuthenticationServiceException e) {
+            // DaoAuthenticationProvider wraps whatever the user lookup throws, a full hashing queue must still answer 429
+            if (e.getCause() instanceof TooManyRequestsException tooManyRequests) {
+                throw tooManyRequests;
+            }
+            throw e;
+        }
         var user = this.userRepository.findUserByUsernameOrEmailIgnoreCase(signInRequest.getUsername())
                 .filter(u -> u.getUsername().equals(signInRequest.getUsername()) || u.getEmail().equals(signInRequest.getUsername()))
                 .orElseThrow(() -> new UsernameNotFoundException("Username or password incorrect"));
 
-        String access_token = this.jwtService.generateToken(user);
-        String refresh_token = this.jwtService.generateRefreshToken(user);
+        long tokenVersion = this.tokenVersionService.current(user.getUsername());
+        String access_token = this.jwtService.generateToken(user, tokenVersion);
+        String refresh_token = this.jwtService.generateRefreshToken(user, tokenVersion);
 
-        this.tokenService.saveToken(Token.builder()
-                .id(user.getUsername())
-                .accessToken(access_token)
-                .refreshToken(refresh_token)
-                .build());
+        if (this.authMode == AuthMode.SESSION) {
+            this.tokenService.saveToken(Token.builder()
+                    .id(user.getUsername())
+                    .accessToken(access_token)
+                    .refreshToken(refresh_token)
+                    .build());
+        }
         return TokenResponse.builder()
                 .accessToken(access_token)
                 .refreshToken(refresh_token)
@@ -103,14 +129,22 @@ public class AuthenticationService {
         if (StringUtils.isBlank(refresh_token)) {
             throw new InvalidDataException("Token must be not blank!");
         }
-        final String username = this.jwtService.extractUsername(refresh_token, REFRESH_TOKEN);
+        final Claims claims = this.jwtService.extractClaims(refresh_token, REFRESH_TOKEN);
+        final String username = claims.getSubject();
+        long tokenVersion = this.tokenVersionService.current(username);
+        if (TokenVersionService.versionOf(claims) < tokenVersion
+                || !this.tokenVersionService.isCurrent(username, TokenVersionService.versionOf(claims), claims.getIssuedAt())) {
+            throw new InvalidDataException("Token has been revoked");
+        }
         User user = this.userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("Username not found"));
-        String access_token = this.jwtService.generateToken(user);
-        this.tokenService.saveToken(Token.builder()
-                .id(user.getUsername())
-                .accessToken(access_token)
-                .refreshToken(refresh_token)
-                .build());
+        String access_token = this.jwtService.generateToken(user, tokenVersion);
+        if (this.authMode == AuthMode.SESSION) {
+            this.tokenService.saveToken(Token.builder()
+                    .id(user.getUsername())
+                    .accessToken(access_token)
+                    .refreshToken(refresh_token)
+                    .build());
+        }
         return TokenResponse.builder()
                 .accessToken(access_token)
                 .refreshToken(refresh_token)
@@ -123,13 +157,20 @@ public class AuthenticationService {
         if (StringUtils.isBlank(authorization)) {
             throw new InvalidDataAccessApiUsageException("Token must be not blank!");
         }
+        String username;
         try {
-            String username = this.jwtService.extractUsername(authorization, ACCESS_TOKEN);
-            this.tokenService.deleteToken(username);
-            log.info("========== logout successfully ==========");
+            username = this.jwtService.extractUsername(authorization, ACCESS_TOKEN);
         } catch (Exception e) {
             log.error("The account was logged out with an error={}", e.getMessage());
+            return;
         }
+        this.principalCache.evict(username);
+        if (this.authMode == AuthMode.SESSION) {
+            this.tokenService.deleteToken(username);
+        }
+        // A revocation that did not reach redis fails the logout, the token would still work on the other nodes
+        this.tokenVersionService.revoke(username);
+        log.info("========== logout successfully ==========");
     }
 
     public void validInfo(String email, String username) {
@@ -166,7 +207,6 @@ public class AuthenticationService {
                 .districtId(request.getDistrictId())
                 .cityId(request.getCityId())
                 .build());
-        Map<String, String> uploadResult = request.getAvatar() != null ? this.cloudinary.upload(request.getAvatar()) : null;
         Customer customer = Customer.builder()
                 .phoneNumber(request.getPhoneNumber())
                 .user(userSave)
@@ -177,10 +217,12 @@ public class AuthenticationService {
                 .createdAt(new Date())
                 .updatedAt(new Date())
                 .customerAddress(address)
-                .image(request.getAvatar() != null ? Objects.requireNonNull(uploadResult).get("url") : null)
-                .publicId(request.getAvatar() != null ? Objects.requireNonNull(uploadResult).get("publicId") : null)
                 .build();
-        this.customerRepository.save(customer);
+        Long customerId = this.customerRepository.save(customer).getId();
+        if (request.getAvatar() != null && !request.getAvatar().isEmpty()) {
+            // Uploaded in the background once the account is committed
+            this.imageUploadPipeline.submit(request.getAvatar(), image -> this.customerService.replaceImage(customerId, image));
+        }
         return userSave.getId();
     }
 
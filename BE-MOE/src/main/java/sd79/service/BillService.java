@@ -1,5 +1,6 @@
 package sd79.service;
 
+import jakarta.servlet.http.HttpServletResponse;
 import sd79.dto.requests.billRequest.BillCustomerRequest;
 import sd79.dto.requests.billRequest.BillDetailRequest;
 import sd79.dto.requests.billRequest.BillRequest;
@@ -8,6 +9,7 @@ import sd79.dto.response.bills.BillCouponResponse;
 import sd79.dto.response.bills.BillDetailResponse;
 import sd79.dto.response.bills.BillResponse;
 import sd79.model.Customer;
+import sd79.service.export.ExportFormat;
 
 import java.util.List;
 
@@ -15,6 +17,7 @@ public interface BillService {
     //them lan 1
     List<BillResponse> getAllBill();
     List<BillResponse> getAllBills();
+    void exportBills(ExportFormat format, HttpServletResponse response);
     BillResponse getBillId(Long id);
     long storeBill(BillRequest billRequest);
     void deleteBill(long id);
@@ -18,7 +18,7 @@ public interface CouponService {
     PageableResponse getAllCouponCustomerGood(Long customerId,BillCouponFilter param);
     CouponResponse getCouponById(Long id);
     long storeCoupon(CouponRequest couponRequest);
-    void storeCouponImages(CouponImageReq req);
+    String storeCouponImages(CouponImageReq req);
     long updateCoupon(Long id, CouponRequest couponRequest);
     void deleteCoupon(Long id);
     void deleteCouponImage(Long couponId);
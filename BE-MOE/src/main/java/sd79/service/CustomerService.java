@@ -1,12 +1,15 @@
 package sd79.service;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import sd79.dto.requests.CustomerReq;
 import sd79.dto.requests.productRequests.CustomerRequest;
 import sd79.dto.requests.productRequests.ProductImageReq;
 import sd79.dto.response.CustomerResponse;
+import sd79.dto.response.productResponse.ImageResponse;
 import sd79.enums.Gender;
+import sd79.service.export.ExportFormat;
 import java.util.Date;
 
 
@@ -26,5 +29,12 @@ public interface CustomerService {
 
     Page<CustomerResponse> searchCustomers(String keyword, Gender gender,Date birth, Pageable pageable);
 
-    void updateImage(ProductImageReq req);
+    String updateImage(ProductImageReq req);
+
+    /**
+     * Points the customer at an uploaded avatar and discards the previous one
+     */
+    void replaceImage(Long customerId, ImageResponse image);
+
+    void exportCustomers(ExportFormat format, HttpServletResponse response);
 }
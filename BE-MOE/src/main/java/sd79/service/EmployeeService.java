@@ -29,7 +29,7 @@ public interface EmployeeService {
 
     List<EmployeeResponse> findByNameAndPhone(String keyword, String phone_number);
 
-    void updateImage(EmployeeImageReq req);
+    String updateImage(EmployeeImageReq req);
 
     EmployeeResponse detailByUserId(long userId);
 
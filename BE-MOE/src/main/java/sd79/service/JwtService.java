@@ -6,18 +6,27 @@
  */
 package sd79.service;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.security.core.userdetails.UserDetails;
 import sd79.enums.TokenType;
 
 public interface JwtService {
 
-    String generateToken(UserDetails user);
+    /**
+     * @param tokenVersion the user's current token version, see TokenVersionService
+     */
+    String generateToken(UserDetails user, long tokenVersion);
 
-    String generateRefreshToken(UserDetails user);
+    String generateRefreshToken(UserDetails user, long tokenVersion);
 
     String generateOtherToken(String data);
 
     String extractUsername(String token, TokenType type);
 
+    /**
+     * Verifies the signature and expiry once and returns every claim, for callers that need more than one of them
+     */
+    Claims extractClaims(String token, TokenType type);
+
     boolean isValid(String token, TokenType type, UserDetails user);
 }
\ No newline at end of file
@@ -23,7 +23,7 @@ public interface ProductService {
 
     long storeProduct(ProductRequest req);
 
-    void storeProductImages(ProductImageReq req);
+    String storeProductImages(ProductImageReq req);
 
     void setProductStatus(long id, ProductStatus status);
 
@@ -1,10 +1,12 @@
 package sd79.service;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import sd79.dto.requests.promotion.PromotionRequest;
 import sd79.dto.response.PromotionDetailResponse;
 import sd79.dto.response.PromotionResponse;
+import sd79.service.export.ExportFormat;
 
 import java.time.LocalDateTime;
 import java.util.Date;
@@ -15,6 +17,10 @@ public interface PromotionService {
 
     List<PromotionDetailResponse> getAllPromotionDetail();
 
+    void exportPromotions(ExportFormat format, HttpServletResponse response);
+
+    void exportPromotionDetails(ExportFormat format, HttpServletResponse response);
+
     PromotionResponse getPromotionId(Integer id);
 
     Integer storePromotion(PromotionRequest promotionRequest);
@@ -1,9 +1,11 @@
 package sd79.service;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import sd79.dto.requests.SupportRequest;
 import sd79.model.Support;
+import sd79.service.export.ExportFormat;
 import java.util.List;
 
 public interface SupportService {
@@ -16,4 +18,6 @@ public interface SupportService {
     void deleteSupportRequest(Long id);
     List<Support> getAllSupportRequests(); // Thêm phương thức này
 
+    void exportSupportRequests(ExportFormat format, HttpServletResponse response);
+
 }
\ No newline at end of file
@@ -15,4 +15,9 @@ public interface TokenService {
     void saveToken(Token token);
 
     Token getToken(String id);
+
+    /**
+     * Whether the user has a session, answered from the local near-cache when possible
+     */
+    boolean isActive(String id);
 }
@@ -0,0 +1,235 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import sd79.dto.response.CatalogCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache of the public catalog responses. The first tier is a bounded LRU per node with a short TTL, the
+ * second is Redis shared by every node. Responses are kept as JSON trees, so any response type can be cached and
+ * served back unchanged.
+ * <p>
+ * Each region has a generation counter in Redis that is part of every Redis key. Invalidating a region increments
+ * it, which orphans the old keys (they expire by TTL). Invalidations are driven by {@link CatalogVersion}, which moves
+ * the generations before it bumps the catalog version and announces both in one pub/sub message, so no node can serve
+ * a body cached under an old generation with the new ETag. When Redis is unavailable the cache degrades to the local
+ * tier
+ */
+@Slf4j
+@Component
+public class CatalogCache {
+
+    public enum Region {
+        PRODUCTS
+    }
+
+    private static final String KEY_PREFIX = "catalog:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxEntries;
+
+    private final long localTtlMillis;
+
+    private final Duration redisTtl;
+
+    private final Map<String, Entry> entries;
+
+    private final Map<Region, Long> generations = new EnumMap<>(Region.class);
+
+    private final LongAdder localHits = new LongAdder();
+
+    private final LongAdder redisHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private final LongAdder redisErrors = new LongAdder();
+
+    public CatalogCache(StringRedisTemplate redisTemplate,
+                        ObjectMapper objectMapper,
+                        @Value("${catalog.cache.local.max-entries:2000}") int maxEntries,
+                        @Value("${catalog.cache.local.ttl-ms:30000}") long localTtlMillis,
+                        @Value("${catalog.cache.redis.ttl-ms:300000}") long redisTtlMillis) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.localTtlMillis = localTtlMillis;
+        this.redisTtl = Duration.ofMillis(redisTtlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CatalogCache.this.maxEntries) {
+                    CatalogCache.this.evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        for (Region region : Region.values()) {
+            this.generations.put(region, 0L);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (Region region : Region.values()) {
+            try {
+                String generation = this.redisTemplate.opsForValue().get(generationKey(region));
+                if (generation != null) {
+                    advance(region, Long.parseLong(generation));
+                }
+            } catch (RuntimeException e) {
+                this.redisErrors.increment();
+                log.warn("Catalog cache could not read generation of {}: {}", region, e.getMessage());
+            }
+        }
+    }
+
+    public JsonNode get(Region region, String key, Supplier<?> loader) {
+        String localKey = region + ":" + key;
+        long generation;
+        synchronized (this) {
+            generation = this.generations.get(region);
+            Entry entry = this.entries.get(localKey);
+            if (entry != null && entry.generation == generation) {
+                if (System.currentTimeMillis() - entry.loadedAt < this.localTtlMillis) {
+                    this.localHits.increment();
+                    return entry.value;
+                }
+                this.entries.remove(localKey);
+                this.expirations.increment();
+            }
+        }
+
+        String redisKey = KEY_PREFIX + region + ":" + generation + ":" + key;
+        JsonNode value = readRedis(redisKey);
+        if (value != null) {
+            this.redisHits.increment();
+        } else {
+            this.misses.increment();
+            value = this.objectMapper.valueToTree(loader.get());
+            writeRedis(redisKey, value);
+        }
+
+        synchronized (this) {
+            // An invalidation arrived while loading, the value may predate it
+            if (this.generations.get(region) == generation) {
+                this.entries.put(localKey, new Entry(value, generation, System.currentTimeMillis()));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Moves the generation of every region, without announcing it
+     *
+     * @return the new generations, for {@link CatalogVersion} to announce
+     */
+    Map<Region, Long> invalidate(Collection<Region> regions) {
+        Map<Region, Long> moved = new EnumMap<>(Region.class);
+        for (Region region : regions) {
+            this.invalidations.increment();
+            Long generation = null;
+            try {
+                generation = this.redisTemplate.opsForValue().increment(generationKey(region));
+            } catch (RuntimeException e) {
+                this.redisErrors.increment();
+                log.warn("Catalog cache could not invalidate {} in redis: {}", region, e.getMessage());
+            }
+            synchronized (this) {
+                long next = generation != null ? generation : this.generations.get(region) + 1;
+                advance(region, next);
+                moved.put(region, next);
+            }
+        }
+        return moved;
+    }
+
+    public synchronized CatalogCacheMetrics getMetrics() {
+        return CatalogCacheMetrics.builder()
+                .localEntries(this.entries.size())
+                .localMaxEntries(this.maxEntries)
+                .localHits(this.localHits.sum())
+                .redisHits(this.redisHits.sum())
+                .misses(this.misses.sum())
+                .evictions(this.evictions.sum())
+                .expirations(this.expirations.sum())
+                .invalidations(this.invalidations.sum())
+                .redisErrors(this.redisErrors.sum())
+                .build();
+    }
+
+    synchronized void advance(Region region, long generation) {
+        if (generation <= this.generations.get(region)) {
+            return;
+        }
+        this.generations.put(region, generation);
+        this.entries.keySet().removeIf(key -> key.startsWith(region + ":"));
+    }
+
+    private JsonNode readRedis(String key) {
+        try {
+            String json = this.redisTemplate.opsForValue().get(key);
+            return json != null ? this.objectMapper.readTree(json) : null;
+        } catch (JsonProcessingException | RuntimeException e) {
+            this.redisErrors.increment();
+            log.warn("Catalog cache could not read {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, JsonNode value) {
+        try {
+            this.redisTemplate.opsForValue().set(key, this.objectMapper.writeValueAsString(value), this.redisTtl);
+        } catch (JsonProcessingException | RuntimeException e) {
+            this.redisErrors.increment();
+            log.warn("Catalog cache could not write {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static String generationKey(Region region) {
+        return KEY_PREFIX + "generation:" + region;
+    }
+
+    private static final class Entry {
+        private final JsonNode value;
+
+        private final long generation;
+
+        private final long loadedAt;
+
+        private Entry(JsonNode value, long generation, long loadedAt) {
+            this.value = value;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
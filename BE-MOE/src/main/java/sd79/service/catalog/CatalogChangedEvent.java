@@ -0,0 +1,49 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.catalog;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published by every write that changes what the public catalog endpoints return. Each event bumps
+ * {@link CatalogVersion}; the regions are the {@link CatalogCache} regions to invalidate, none for attribute writes
+ * since attribute lists are served from {@link ReferenceDataService} instead. Promotion writes also rebuild the active promotion index once committed;
+ * attribute writes and product create/delete/move events also reload {@link ReferenceDataService}
+ */
+@Getter
+public class CatalogChangedEvent {
+
+    private final List<CatalogCache.Region> regions;
+
+    private final boolean promotions;
+
+    private final boolean referenceData;
+
+    public CatalogChangedEvent(CatalogCache.Region... regions) {
+        this(false, false, regions);
+    }
+
+    private CatalogChangedEvent(boolean promotions, boolean referenceData, CatalogCache.Region... regions) {
+        this.regions = List.of(regions);
+        this.promotions = promotions;
+        this.referenceData = referenceData;
+    }
+
+    public static CatalogChangedEvent all() {
+        return new CatalogChangedEvent(false, true, CatalogCache.Region.values());
+    }
+
+    public static CatalogChangedEvent attributes() {
+        return new CatalogChangedEvent(false, true);
+    }
+
+    public static CatalogChangedEvent promotions() {
+        return new CatalogChangedEvent(true, false, CatalogCache.Region.PRODUCTS);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.catalog;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Monotonic version of the whole storefront catalog, bumped after every committed product, detail, image, promotion
+ * or attribute write. The counter lives in Redis so every node derives the same ETag. The bump runs after every other
+ * listener of the event and first moves the {@link CatalogCache} generations, so a body cached before the write can
+ * never be served under the new ETag; the new generations and the version are announced in one pub/sub message and
+ * applied in that order. Without Redis each node counts on its own
+ */
+@Slf4j
+@Component
+public class CatalogVersion implements MessageListener {
+
+    private static final String CHANNEL = "catalog-version";
+
+    private static final String VERSION_KEY = "catalog:version";
+
+    private static final String MODIFIED_KEY = "catalog:version:modified";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final CatalogCache catalogCache;
+
+    private long version;
+
+    private long lastModified = System.currentTimeMillis();
+
+    public CatalogVersion(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer, CatalogCache catalogCache) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.catalogCache = catalogCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        try {
+            String version = this.redisTemplate.opsForValue().get(VERSION_KEY);
+            String modified = this.redisTemplate.opsForValue().get(MODIFIED_KEY);
+            if (version != null && modified != null) {
+                synchronized (this) {
+                    this.version = Long.parseLong(version);
+                    this.lastModified = Long.parseLong(modified);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Catalog version could not be read from redis: {}", e.getMessage());
+        }
+    }
+
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Epoch millis of the last bump, or of the node start when the catalog has not changed since
+     */
+    public synchronized long getLastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     * Strong entity tag of every catalog response served at the current version
+     */
+    public synchronized String getETag() {
+        return "\"catalog-" + this.version + "\"";
+    }
+
+    /**
+     * Ordered last: the in-memory views reloaded by the other listeners are current before the ETag moves
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Map<CatalogCache.Region, Long> generations = this.catalogCache.invalidate(event.getRegions());
+        long now = System.currentTimeMillis();
+        try {
+            Long next = this.redisTemplate.opsForValue().increment(VERSION_KEY);
+            if (next != null) {
+                this.redisTemplate.opsForValue().set(MODIFIED_KEY, String.valueOf(now));
+                advance(next, now);
+                this.redisTemplate.convertAndSend(CHANNEL, next + ":" + now + ":" + generations.entrySet().stream()
+                        .map(generation -> generation.getKey() + "=" + generation.getValue())
+                        .collect(Collectors.joining(",")));
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Catalog version could not be bumped in redis: {}", e.getMessage());
+        }
+        synchronized (this) {
+            advance(this.version + 1, now);
+        }
+    }
+
+    /**
+     * version:modified:REGION=generation,... with the generations applied before the version
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(":", -1);
+        try {
+            if (parts.length != 3) {
+                throw new IllegalArgumentException(body);
+            }
+            for (String generation : parts[2].isEmpty() ? new String[0] : parts[2].split(",")) {
+                int index = generation.indexOf('=');
+                this.catalogCache.advance(CatalogCache.Region.valueOf(generation.substring(0, index)), Long.parseLong(generation.substring(index + 1)));
+            }
+            advance(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            log.warn("Catalog version ignored message {}", body);
+        }
+    }
+
+    private synchronized void advance(long version, long modified) {
+        if (version > this.version) {
+            this.version = version;
+            this.lastModified = Math.max(this.lastModified, modified);
+        }
+    }
+}
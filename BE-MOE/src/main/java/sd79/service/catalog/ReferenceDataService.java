@@ -0,0 +1,215 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.catalog;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sd79.dto.response.productResponse.*;
+import sd79.model.AbstractEntity;
+import sd79.repositories.products.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the attribute lists of the admin pages and the storefront from an in-memory {@link ReferenceDataSnapshot}.
+ * A snapshot is loaded with one query per attribute type plus one GROUP BY per product count, and is replaced as a
+ * whole when its own version moves past it. Only attribute writes and product create/delete/move events
+ * ({@link CatalogChangedEvent#isReferenceData()}) bump that version, announced on a pub/sub channel so every node
+ * reloads; stock and order changes leave it alone. The version is also bumped on a fixed period, so a node that missed
+ * a message serves a stale snapshot for at most that long. Only the very first load blocks: while one reader reloads a
+ * stale snapshot the others keep getting the previous one
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReferenceDataService implements MessageListener {
+
+    private static final String CHANNEL = "reference-data";
+
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final CategoryRepository categoryRepository;
+
+    private final BrandRepository brandRepository;
+
+    private final MaterialRepository materialRepository;
+
+    private final SizeRepository sizeRepository;
+
+    private final ColorRepository colorRepository;
+
+    private final ProductRepository productRepository;
+
+    private final ProductDetailRepository productDetailRepository;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private volatile ReferenceDataSnapshot snapshot;
+
+    @PostConstruct
+    public void subscribe() {
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public ReferenceDataSnapshot get() {
+        long version = this.version.get();
+        ReferenceDataSnapshot current = this.snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (this.snapshot == null) {
+                    this.snapshot = load(version);
+                }
+                return this.snapshot;
+            }
+        }
+        if (current.getVersion() >= version || !this.reloading.compareAndSet(false, true)) {
+            return current;
+        }
+        try {
+            // Tagged with the version read before loading, a write committed meanwhile triggers another reload
+            ReferenceDataSnapshot loaded = load(version);
+            synchronized (this) {
+                if (loaded.getVersion() > this.snapshot.getVersion()) {
+                    this.snapshot = loaded;
+                }
+                return this.snapshot;
+            }
+        } finally {
+            this.reloading.set(false);
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!event.isReferenceData()) {
+            return;
+        }
+        this.version.incrementAndGet();
+        try {
+            this.redisTemplate.convertAndSend(CHANNEL, NODE_ID);
+        } catch (RuntimeException e) {
+            log.warn("Reference data change not announced message={}", e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the snapshot stale, the next read reloads it
+     */
+    @Scheduled(initialDelayString = "${reference-data.refresh-ms:300000}", fixedDelayString = "${reference-data.refresh-ms:300000}")
+    public void expire() {
+        this.version.incrementAndGet();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!NODE_ID.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            this.version.incrementAndGet();
+        }
+    }
+
+    private ReferenceDataSnapshot load(long version) {
+        Map<Integer, Long> categoryCounts = counts(this.productRepository.countGroupByCategory());
+        Map<Integer, Long> brandCounts = counts(this.productRepository.countGroupByBrand());
+        Map<Integer, Long> materialCounts = counts(this.productRepository.countGroupByMaterial());
+        Map<Integer, Long> sizeCounts = counts(this.productDetailRepository.countProductsGroupBySize());
+        Map<Integer, Long> colorCounts = counts(this.productDetailRepository.countProductsGroupByColor());
+
+        List<CategoryResponse> categories = this.categoryRepository.findCategoriesByNameAndIsDeletedIsFalse("").stream()
+                .map(category -> CategoryResponse.builder()
+                        .id(category.getId())
+                        .name(category.getName())
+                        .productCount(categoryCounts.getOrDefault(category.getId(), 0L))
+                        .createdBy(username(category))
+                        .createdAt(category.getCreateAt())
+                        .updatedAt(category.getUpdateAt())
+                        .build())
+                .toList();
+        List<BrandResponse> brands = this.brandRepository.findBrandsByNameAndIsDeletedIsFalse("").stream()
+                .map(brand -> BrandResponse.builder()
+                        .id(brand.getId())
+                        .name(brand.getName())
+                        .productCount(brandCounts.getOrDefault(brand.getId(), 0L))
+                        .createdBy("Admin")
+                        .createdAt(brand.getCreateAt())
+                        .updatedAt(brand.getUpdateAt())
+                        .build())
+                .toList();
+        List<MaterialResponse> materials = this.materialRepository.findMaterialsByNameAndIsDeletedIsFalse("").stream()
+                .map(material -> MaterialResponse.builder()
+                        .id(material.getId())
+                        .name(material.getName())
+                        .productCount(materialCounts.getOrDefault(material.getId(), 0L))
+                        .createdBy(username(material))
+                        .createdAt(material.getCreateAt())
+                        .updatedAt(material.getUpdateAt())
+                        .build())
+                .toList();
+        List<SizeResponse> sizes = this.sizeRepository.findSizesByNameAndIsDeletedIsFalse("").stream()
+                .map(size -> SizeResponse.builder()
+                        .id(size.getId())
+                        .name(size.getName())
+                        .length(size.getLength())
+                        .width(size.getWidth())
+                        .sleeve(size.getSleeve())
+                        .productCount(sizeCounts.getOrDefault(size.getId(), 0L))
+                        .createdBy(username(size))
+                        .createdAt(size.getCreateAt())
+                        .updatedAt(size.getUpdateAt())
+                        .build())
+                .toList();
+        List<ColorResponse> colors = this.colorRepository.findColorsByNameAndIsDeletedIsFalse("").stream()
+                .map(color -> ColorResponse.builder()
+                        .id(color.getId())
+                        .name(color.getName())
+                        .hex_code(color.getHexColorCode())
+                        .productCount(colorCounts.getOrDefault(color.getId(), 0L))
+                        .createdBy(username(color))
+                        .createdAt(color.getCreateAt())
+                        .updatedAt(color.getUpdateAt())
+                        .build())
+                .toList();
+        return new ReferenceDataSnapshot(version, categories, brands, materials, sizes, colors);
+    }
+
+    private static Map<Integer, Long> counts(List<Object[]> rows) {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+            }
+        }
+        return counts;
+    }
+
+    private static String username(AbstractEntity<?> entity) {
+        return entity.getCreatedBy() != null ? entity.getCreatedBy().getUsername() : null;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.catalog;
+
+import lombok.Getter;
+import sd79.dto.response.productResponse.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Immutable view of every live category, brand, material, size and color with its product count, built for one
+ * {@link CatalogVersion}. Never modified once published, a newer version replaces it as a whole
+ */
+@Getter
+public class ReferenceDataSnapshot {
+
+    private final long version;
+
+    private final long loadedAt;
+
+    private final List<CategoryResponse> categories;
+
+    private final List<BrandResponse> brands;
+
+    private final List<MaterialResponse> materials;
+
+    private final List<SizeResponse> sizes;
+
+    private final List<ColorResponse> colors;
+
+    public ReferenceDataSnapshot(long version, List<CategoryResponse> categories, List<BrandResponse> brands,
+                                 List<MaterialResponse> materials, List<SizeResponse> sizes, List<ColorResponse> colors) {
+        this.version = version;
+        this.loadedAt = System.currentTimeMillis();
+        this.categories = List.copyOf(categories);
+        this.brands = List.copyOf(brands);
+        this.materials = List.copyOf(materials);
+        this.sizes = List.copyOf(sizes);
+        this.colors = List.copyOf(colors);
+    }
+
+    public List<CategoryResponse> getCategories(String keyword) {
+        return filter(this.categories, CategoryResponse::getName, keyword);
+    }
+
+    public List<BrandResponse> getBrands(String keyword) {
+        return filter(this.brands, BrandResponse::getName, keyword);
+    }
+
+    public List<MaterialResponse> getMaterials(String keyword) {
+        return filter(this.materials, MaterialResponse::getName, keyword);
+    }
+
+    public List<SizeResponse> getSizes(String keyword) {
+        return filter(this.sizes, SizeResponse::getName, keyword);
+    }
+
+    public List<ColorResponse> getColors(String keyword) {
+        return filter(this.colors, ColorResponse::getName, keyword);
+    }
+
+    /**
+     * Case-insensitive substring match, as the LIKE queries of the admin search boxes did
+     */
+    private static <T> List<T> filter(List<T> items, Function<T, String> name, String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return items;
+        }
+        String needle = keyword.trim().toLowerCase(Locale.ROOT);
+        return items.stream()
+                .filter(item -> name.apply(item) != null && name.apply(item).toLowerCase(Locale.ROOT).contains(needle))
+                .toList();
+    }
+}
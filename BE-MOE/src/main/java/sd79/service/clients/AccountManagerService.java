@@ -17,7 +17,7 @@ public interface AccountManagerService {
     long accountInformation(Long id, CustomerRequest customerRequest);
     long addressInformation(Long id, AddressAccountRequest addressAccountRequest);
     long UpdatePassWord(Long id, PassWordRequest passWordRequest);
-    void updateImageAccInfo(AccountImageReq req);
+    String updateImageAccInfo(AccountImageReq req);
 
 
 }
@@ -0,0 +1,122 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.clients;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import sd79.model.redis_model.Cart;
+import sd79.repositories.CartStore;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Moves carts from the former repository layout (one cart:{id} hash per line, the cart id set and the cart:username /
+ * cart:id index sets) into {@link CartStore}, then deletes the old keys. Lines already present in the new store win,
+ * so running it again, or on several nodes at once, is harmless
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CartMigration {
+
+    private static final String LEGACY_KEYSPACE = "cart";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final CartStore cartStore;
+
+    @Value("${cart.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (this.migrateOnStartup) {
+            try {
+                migrate();
+            } catch (RuntimeException e) {
+                log.warn("Cart migration failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the number of cart lines moved
+     */
+    public int migrate() {
+        Set<String> members = this.redisTemplate.opsForSet().members(LEGACY_KEYSPACE);
+        if (members == null || members.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = new ArrayList<>(members);
+        List<Object> hashes = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            ids.forEach(id -> redis.hGetAll(legacyKey(id)));
+            return null;
+        });
+        List<Object> indexes = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            ids.forEach(id -> redis.sMembers(legacyKey(id) + ":idx"));
+            return null;
+        });
+
+        Map<String, List<Cart>> carts = new HashMap<>();
+        List<String> legacyKeys = new ArrayList<>();
+        legacyKeys.add(LEGACY_KEYSPACE);
+        int moved = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            legacyKeys.add(legacyKey(id));
+            legacyKeys.add(legacyKey(id) + ":idx");
+            if (indexes.get(i) instanceof Collection<?> indexKeys) {
+                indexKeys.forEach(key -> legacyKeys.add(key.toString()));
+            }
+            if (hashes.get(i) instanceof Map<?, ?> hash && hash.get("username") != null) {
+                carts.computeIfAbsent(hash.get("username").toString(), username -> new ArrayList<>()).add(toCart(id, hash));
+                moved++;
+            }
+        }
+        carts.forEach(this.cartStore::saveAllIfAbsent);
+        this.redisTemplate.delete(legacyKeys);
+        log.info("Cart migration moved {} lines of {} carts", moved, carts.size());
+        return moved;
+    }
+
+    private static Cart toCart(String id, Map<?, ?> hash) {
+        return Cart.builder()
+                .id(id)
+                .imageUrl(text(hash, "imageUrl"))
+                .name(text(hash, "name"))
+                .origin(text(hash, "origin"))
+                .retailPrice(decimal(hash, "retailPrice"))
+                .sellPrice(decimal(hash, "sellPrice"))
+                .quantity(hash.get("quantity") != null ? Integer.parseInt(hash.get("quantity").toString()) : 0)
+                .username(text(hash, "username"))
+                .build();
+    }
+
+    private static String text(Map<?, ?> hash, String field) {
+        Object value = hash.get(field);
+        return value != null ? value.toString() : null;
+    }
+
+    private static BigDecimal decimal(Map<?, ?> hash, String field) {
+        Object value = hash.get(field);
+        return value != null ? new BigDecimal(value.toString()) : null;
+    }
+
+    private static String legacyKey(String id) {
+        return LEGACY_KEYSPACE + ":" + id;
+    }
+}
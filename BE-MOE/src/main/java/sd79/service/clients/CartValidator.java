@@ -0,0 +1,94 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.clients;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import sd79.dto.response.clients.cart.CartResponse;
+import sd79.dto.response.promotions.PromotionPrice;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductDetail;
+import sd79.repositories.products.ProductDetailRepository;
+import sd79.service.promotions.PromotionPriceResolver;
+
+import java.util.*;
+
+/**
+ * Validates and prices a set of product details at once: a single query loads them with their product, prices come
+ * from the in-memory promotion index. Used by the cart view and by checkout
+ */
+@Component
+@RequiredArgsConstructor
+public class CartValidator {
+
+    private final ProductDetailRepository productDetailRepository;
+
+    private final PromotionPriceResolver promotionPriceResolver;
+
+    public Result validate(Collection<Long> productDetailIds) {
+        Map<Long, ProductDetail> details = new HashMap<>();
+        if (!productDetailIds.isEmpty()) {
+            this.productDetailRepository.findAllWithProductByIdIn(new HashSet<>(productDetailIds))
+                    .forEach(detail -> details.put(detail.getId(), detail));
+        }
+        Map<Long, PromotionPrice> prices = this.promotionPriceResolver.resolve(
+                details.values().stream().map(detail -> detail.getProduct().getId()).distinct().toList());
+
+        Map<Long, CartResponse.ProductCart> lines = new HashMap<>();
+        for (Long id : productDetailIds) {
+            ProductDetail detail = details.get(id);
+            if (detail == null) {
+                lines.put(id, CartResponse.ProductCart.builder()
+                        .id(id)
+                        .status(false)
+                        .quantity(0)
+                        .message(String.format("Product id %d is not available", id))
+                        .build());
+                continue;
+            }
+            PromotionPrice price = prices.get(detail.getProduct().getId());
+            lines.put(id, CartResponse.ProductCart.builder()
+                    .id(id)
+                    // A product moved to the bin keeps its status, it must not be sold either
+                    .status(detail.getStatus() == ProductStatus.ACTIVE && detail.getProduct().getStatus() == ProductStatus.ACTIVE
+                            && !Boolean.TRUE.equals(detail.getProduct().getIsDeleted()))
+                    .quantity(detail.getQuantity())
+                    .percent(price.getPercent())
+                    .sellPrice(price.apply(detail.getRetailPrice()))
+                    .message(String.format("Product id %d is valid", id))
+                    .build());
+        }
+        return new Result(details, lines);
+    }
+
+    public static final class Result {
+        private final Map<Long, ProductDetail> details;
+
+        private final Map<Long, CartResponse.ProductCart> lines;
+
+        private Result(Map<Long, ProductDetail> details, Map<Long, CartResponse.ProductCart> lines) {
+            this.details = details;
+            this.lines = lines;
+        }
+
+        /**
+         * The loaded product detail, with its product initialized
+         */
+        public Optional<ProductDetail> getDetail(Long productDetailId) {
+            return Optional.ofNullable(this.details.get(productDetailId));
+        }
+
+        public CartResponse.ProductCart getLine(Long productDetailId) {
+            return this.lines.get(productDetailId);
+        }
+
+        public boolean isPurchasable(Long productDetailId, int quantity) {
+            CartResponse.ProductCart line = this.lines.get(productDetailId);
+            return line != null && line.isStatus() && line.getQuantity() >= quantity;
+        }
+    }
+}
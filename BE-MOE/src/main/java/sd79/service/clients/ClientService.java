@@ -14,7 +14,9 @@ import sd79.dto.response.PageableResponse;
 import sd79.dto.response.clients.cart.CartResponse;
 import sd79.dto.response.clients.customer.UserInfoRes;
 import sd79.dto.response.clients.invoices.InvoiceResponse;
+import sd79.dto.response.clients.product.FacetResponse;
 import sd79.dto.response.clients.product.ProductResponse;
+import sd79.service.products.SalesRankingService;
 
 import java.util.List;
 import java.util.Set;
@@ -22,7 +24,7 @@ import java.util.Set;
 public interface ClientService {
     List<ProductResponse.Product> getExploreOurProducts(Integer page);
 
-    List<ProductResponse.Product> getBestSellingProducts();
+    List<ProductResponse.Product> getBestSellingProducts(SalesRankingService.Window window);
 
     ProductResponse.ProductDetail getProductDetail(Long id);
 
@@ -49,4 +51,6 @@ public interface ClientService {
      PageableResponse productFilters(ProductRequests.ParamFilters param);
 
     List<ProductRequests.ProductBase> searchBase(String keyword);
+
+    FacetResponse.Result productFacets(ProductRequests.ParamFilters param);
 }
@@ -27,14 +27,14 @@ import sd79.repositories.auth.UserRepository;
 import sd79.repositories.products.ProductDetailRepository;
 import sd79.repositories.products.ProductRepository;
 import sd79.repositories.promotions.PromotionDetailRepository;
+import sd79.service.CustomerService;
 import sd79.service.clients.AccountManagerService;
+import sd79.service.images.ImageUploadPipeline;
 import sd79.service.impl.CustomerServiceImpl;
-import sd79.utils.CloudinaryUtils;
 
 import java.math.BigDecimal;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -46,7 +46,9 @@ public class AccountManagerServiceImpl implements AccountManagerService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
 
-    private final CloudinaryUtils cloudinary;
+    private final CustomerService customerService;
+
+    private final ImageUploadPipeline imageUploadPipeline;
 
 
     @Override
@@ -145,16 +147,10 @@ public class AccountManagerServiceImpl implements AccountManagerService {
     }
 
     @Override
-    public void updateImageAccInfo(AccountImageReq req) {
-        Customer customer = this.customerRepository.findByUserId(req.getUserId()).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy thông tin"));
-        if (req.getImages() != null && customer.getPublicId() != null) {
-            this.cloudinary.removeByPublicId(customer.getPublicId());
-        }
-        assert req.getImages() != null;
-        Map<String, String> uploadResult = this.cloudinary.upload(req.getImages()[0]);
-        customer.setImage(uploadResult.get("url"));
-        customer.setPublicId(uploadResult.get("publicId"));
-        customerRepository.save(customer);
+    public String updateImageAccInfo(AccountImageReq req) {
+        Long customerId = this.customerRepository.findByUserId(req.getUserId()).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy thông tin")).getId();
+        return this.imageUploadPipeline.submit(req.getImages() != null && req.getImages().length > 0 ? req.getImages()[0] : null,
+                image -> this.customerService.replaceImage(customerId, image));
     }
 
 
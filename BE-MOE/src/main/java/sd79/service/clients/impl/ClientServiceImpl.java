@@ -12,9 +12,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import sd79.dto.requests.clients.bills.BillClientRequest;
@@ -26,7 +26,9 @@ import sd79.dto.response.PageableResponse;
 import sd79.dto.response.clients.cart.CartResponse;
 import sd79.dto.response.clients.customer.UserInfoRes;
 import sd79.dto.response.clients.invoices.InvoiceResponse;
+import sd79.dto.response.clients.product.FacetResponse;
 import sd79.dto.response.clients.product.ProductResponse;
+import sd79.dto.response.promotions.PromotionPrice;
 import sd79.enums.PaymentMethod;
 import sd79.enums.ProductStatus;
 import sd79.exception.EntityNotFoundException;
@@ -37,15 +39,19 @@ import sd79.repositories.*;
 import sd79.repositories.customQuery.ProductCustomizeQuery;
 import sd79.repositories.invoice_client.InvoiceRepository;
 import sd79.repositories.products.ProductDetailRepository;
-import sd79.repositories.products.ProductRepository;
-import sd79.repositories.promotions.PromotionDetailRepository;
+import sd79.service.clients.CartValidator;
+import sd79.service.coupons.CouponRedemptionService;
 import sd79.service.JwtService;
+import sd79.service.promotions.PromotionPriceResolver;
 import sd79.service.clients.ClientService;
+import sd79.service.products.InventoryService;
+import sd79.service.products.ProductListingService;
+import sd79.service.products.ProductPageLoader;
+import sd79.service.products.SalesRankingService;
 import sd79.utils.RandomNumberGenerator;
 
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 import static sd79.enums.TokenType.ACCESS_TOKEN;
@@ -58,11 +64,13 @@ public class ClientServiceImpl implements ClientService {
 
     private final ProductCustomizeQuery productCustomizeQuery;
 
-    private final ProductRepository productRepository;
-
     private final ProductDetailRepository productDetailRepository;
 
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
+
+    private final CartValidator cartValidator;
+
+    private final InventoryService inventoryService;
 
     private final CustomerRepository customerRepository;
 
@@ -74,7 +82,15 @@ public class ClientServiceImpl implements ClientService {
 
     private final CouponRepo couponRepo;
 
-    private final PromotionDetailRepository promotionDetailRepository;
+    private final CouponRedemptionService couponRedemptionService;
+
+    private final PromotionPriceResolver promotionPriceResolver;
+
+    private final ProductListingService productListingService;
+
+    private final SalesRankingService salesRankingService;
+
+    private final ProductPageLoader productPageLoader;
 
     private final InvoiceRepository invoiceRepository;
 
@@ -100,70 +116,13 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
-    public List<ProductResponse.Product> getBestSellingProducts() {
-        return this.productCustomizeQuery.getBestSellingProducts();
+    public List<ProductResponse.Product> getBestSellingProducts(SalesRankingService.Window window) {
+        return this.productCustomizeQuery.getBestSellingProducts(window);
     }
 
     @Override
     public ProductResponse.ProductDetail getProductDetail(Long id) {
-        Product product = this.productRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Product not found"));
-        PromotionDetail promotionDetail = this.promotionDetailRepository.findByProductId(product.getId());
-        BigDecimal retailPrice = product.getProductDetails().getFirst().getRetailPrice();
-        BigDecimal discountPercent = promotionDetail != null
-                ? BigDecimal.valueOf(promotionDetail.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                : BigDecimal.ZERO;
-
-        BigDecimal discountPrice = retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
-
-        List<ProductResponse.Product> relatedItem = this.productRepository.getRelatedItem(product.getId(), product.getCategory().getName(), product.getBrand().getName(), PageRequest.of(0, 6)).stream().map(s -> {
-                    PromotionDetail promotionDetail2 = this.promotionDetailRepository.findByProductId(s.getId());
-
-                    BigDecimal retailPrice2 = s.getProductDetails().getFirst().getRetailPrice();
-
-                    BigDecimal discountPercent2 = promotionDetail2 != null
-                            ? BigDecimal.valueOf(promotionDetail2.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                            : BigDecimal.ZERO;
-                    BigDecimal discountPrice2 = retailPrice2.multiply(BigDecimal.valueOf(1).subtract(discountPercent2));
-
-                    return ProductResponse.Product.builder()
-                            .productId(s.getId())
-                            .imageUrl(s.getProductImages().getFirst().getImageUrl())
-                            .name(s.getName())
-                            .retailPrice(s.getProductDetails().getFirst().getRetailPrice())
-                            .discountPrice(discountPrice2)
-                            .percent(promotionDetail2 != null ? promotionDetail2.getPromotion().getPercent() : null)
-                            .expiredDate(promotionDetail2 != null ? promotionDetail2.getPromotion().getEndDate() : null)
-                            .rate(4)
-                            .rateCount(104)
-                            .build();
-                }
-        ).toList();
-        return ProductResponse.ProductDetail.builder()
-                .productId(id)
-                .imageUrl(product.getProductImages().stream()
-                        .map(ProductImage::getImageUrl)
-                        .collect(Collectors.toList()))
-                .name(product.getName())
-                .retailPrice(product.getProductDetails().getFirst().getRetailPrice())
-                .discountPrice(product.getProductDetails().getFirst().getRetailPrice().multiply(BigDecimal.valueOf(1).subtract(BigDecimal.valueOf(0.50))))
-                .rate(4)
-                .rateCount(102)
-                //TODO details
-                .sizes(this.productDetailRepository.getSizeProduct(product.getId()))
-                .colors(this.productDetailRepository.getColorProduct(product.getId()))
-                .quantity(this.productDetailRepository.countByProductId(product.getId()))
-                .origin(product.getOrigin())
-                .category(product.getCategory().getName())
-                .material(product.getMaterial().getName())
-                .brand(product.getBrand().getName())
-                .description(product.getDescription())
-                //TODO related items
-                .relatedItem(relatedItem)
-                .discountPrice(discountPrice)
-                .percent(promotionDetail != null ? promotionDetail.getPromotion().getPercent() : null)
-                .expiredDate(promotionDetail != null ? promotionDetail.getPromotion().getEndDate() : null)
-                .purchase(this.billDetailRepository.getPurchase(product.getId()))
-                .build();
+        return this.productPageLoader.load(id);
     }
 
     @Override
@@ -174,34 +133,12 @@ public class ClientServiceImpl implements ClientService {
         }
         final String token = authorization.substring("Bearer ".length());
         final String username = this.jwtService.extractUsername(token, ACCESS_TOKEN);
-        List<Cart> cart = this.cartRepository.findByUsername(username);
+        List<Cart> cart = this.cartStore.findByUsername(username);
         List<CartResponse.Cart> cartResponses = new ArrayList<>();
 
+        CartValidator.Result validation = this.cartValidator.validate(cart.stream().map(i -> Long.valueOf(i.getId())).toList());
         cart.forEach(i -> {
-            Optional<ProductDetail> productDetail = productDetailRepository.findById(Long.valueOf(i.getId()));
-            CartResponse.ProductCart validProduct = new CartResponse.ProductCart();
-            if (productDetail.isPresent()) {
-                ProductDetail prd = productDetail.get();
-                PromotionDetail promotionDetail = this.promotionDetailRepository.findByProductId(prd.getProduct().getId());
-                BigDecimal retailPrice = prd.getRetailPrice();
-                BigDecimal discountPercent = promotionDetail != null
-                        ? BigDecimal.valueOf(promotionDetail.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                        : BigDecimal.ZERO;
-
-                BigDecimal discountPrice = retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
-                boolean status = prd.getStatus() == ProductStatus.ACTIVE && prd.getProduct().getStatus() == ProductStatus.ACTIVE;
-                validProduct.setId(prd.getId());
-                validProduct.setStatus(status);
-                validProduct.setQuantity(prd.getQuantity());
-                validProduct.setPercent(promotionDetail != null ? promotionDetail.getPromotion().getPercent() : null);
-                validProduct.setSellPrice(discountPrice);
-                validProduct.setMessage(String.format("Product id %d is valid", prd.getId()));
-            } else {
-                validProduct.setId(Long.parseLong(i.getId()));
-                validProduct.setStatus(false);
-                validProduct.setQuantity(0);
-                validProduct.setMessage(String.format("Product id %s is valid", i.getId()));
-            }
+            CartResponse.ProductCart validProduct = validation.getLine(Long.valueOf(i.getId()));
             cartResponses.add(CartResponse.Cart.builder()
                     .id(i.getId())
                     .imageUrl(i.getImageUrl())
@@ -219,7 +156,7 @@ public class ClientServiceImpl implements ClientService {
     @Override
     public void addToCart(CartRequest.FilterParams req) {
         ProductDetail prd = this.productDetailRepository.findByProductIdAndColorIdAndSizeId(req.getProductId(), req.getColorId(), req.getSizeId()).orElseThrow(() -> new EntityNotFoundException("Màu sắc hoặc kích thước này không có sẵn!"));
-        Optional<Cart> isAlreadyExists = this.cartRepository.findByIdAndUsername(String.valueOf(prd.getId()), req.getUsername());
+        Optional<Cart> isAlreadyExists = this.cartStore.findByIdAndUsername(String.valueOf(prd.getId()), req.getUsername());
         if (isAlreadyExists.isPresent()) {
             Cart updatedCart = isAlreadyExists.get();
             if (prd.getQuantity() <= 0) {
@@ -228,7 +165,7 @@ public class ClientServiceImpl implements ClientService {
                 throw new InvalidDataException(String.format("Chỉ còn %d sản phẩm có sẵn!", prd.getQuantity() - updatedCart.getQuantity()));
             }
             updatedCart.setQuantity(updatedCart.getQuantity() + req.getQuantity());
-            this.cartRepository.save(updatedCart);
+            this.cartStore.save(updatedCart);
             return;
         }
         if (req.getQuantity() > prd.getQuantity()) {
@@ -244,7 +181,7 @@ public class ClientServiceImpl implements ClientService {
                 .quantity(req.getQuantity())
                 .username(req.getUsername())
                 .build();
-        this.cartRepository.save(cart);
+        this.cartStore.save(cart);
     }
 
     @Override
@@ -253,19 +190,14 @@ public class ClientServiceImpl implements ClientService {
         if (req.getQuantity() > prd.getQuantity()) {
             throw new InvalidDataException(String.format("Chỉ còn %d sản phẩm có sẵn!", prd.getQuantity()));
         }
-        PromotionDetail promotionDetail = this.promotionDetailRepository.findByProductId(prd.getProduct().getId());
-        BigDecimal discountPercent = promotionDetail != null
-                ? BigDecimal.valueOf(promotionDetail.getPromotion().getPercent()).divide(BigDecimal.valueOf(100))
-                : BigDecimal.ZERO;
-        BigDecimal retailPrice = prd.getRetailPrice();
-        BigDecimal discountPrice = retailPrice.multiply(BigDecimal.valueOf(1).subtract(discountPercent));
+        PromotionPrice promotionPrice = this.promotionPriceResolver.resolve(prd.getProduct().getId());
         boolean status = prd.getStatus() == ProductStatus.ACTIVE && prd.getProduct().getStatus() == ProductStatus.ACTIVE;
         CartResponse.ProductCart productCart = CartResponse.ProductCart.builder()
                 .id(prd.getId())
                 .status(status)
                 .quantity(prd.getQuantity())
-                .sellPrice(discountPrice)
-                .percent(promotionDetail != null ? promotionDetail.getPromotion().getPercent() : null)
+                .sellPrice(promotionPrice.apply(prd.getRetailPrice()))
+                .percent(promotionPrice.getPercent())
                 .build();
         return CartResponse.Cart.builder()
                 .id(String.valueOf(prd.getId()))
@@ -282,7 +214,7 @@ public class ClientServiceImpl implements ClientService {
     @Override
     public void updateCart(CartRequest.Param req) {
         ProductDetail prd = this.productDetailRepository.findById(req.getProductDetailId()).orElseThrow(() -> new EntityNotFoundException("Product not found"));
-        Optional<Cart> isAlreadyExists = this.cartRepository.findByIdAndUsername(String.valueOf(req.getProductDetailId()), req.getUsername());
+        Optional<Cart> isAlreadyExists = this.cartStore.findByIdAndUsername(String.valueOf(req.getProductDetailId()), req.getUsername());
         if (isAlreadyExists.isPresent()) {
             Cart updatedCart = isAlreadyExists.get();
             updatedCart.setQuantity(req.getQuantity());
@@ -291,14 +223,13 @@ public class ClientServiceImpl implements ClientService {
             } else if (req.getQuantity() > prd.getQuantity()) {
                 throw new InvalidDataException("Bạn đã thêm tối đa số lượng sản phẩm!");
             }
-            this.cartRepository.save(updatedCart);
+            this.cartStore.save(updatedCart);
         }
     }
 
     @Override
     public void deleteCart(String id, String username) {
-        Optional<Cart> isAlreadyExists = this.cartRepository.findByIdAndUsername(id, username);
-        isAlreadyExists.ifPresent(this.cartRepository::delete);
+        this.cartStore.delete(username, id);
     }
 
     @Override
@@ -314,7 +245,21 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
+    @Transactional
     public long saveBill(BillClientRequest.BillCreate req) {
+        // Validate every line up front, nothing is written for an order that can not go through
+        CartValidator.Result validation = this.cartValidator.validate(req.getItems().stream().map(BillClientRequest.BillDetailCreate::getId).toList());
+        req.getItems().forEach(item -> {
+            validation.getDetail(item.getId()).orElseThrow(() -> new EntityNotFoundException("Product not found"));
+            if (!validation.isPurchasable(item.getId(), item.getQuantity())) {
+                throw new InvalidDataException("Giao dịch thất bại vui lòng thử lại!");
+            }
+        });
+        // The validation read may already be stale, the conditional decrement is what actually guards the stock
+        Map<Long, Integer> quantities = new HashMap<>();
+        req.getItems().forEach(item -> quantities.merge(item.getId(), item.getQuantity(), Integer::sum));
+        this.inventoryService.take(quantities);
+
         Customer customer = this.customerRepository.findById(req.getCustomerId()).orElse(null);
         Coupon couponId = null;
         if (req.getCouponId() != null) {
@@ -347,19 +292,12 @@ public class ClientServiceImpl implements ClientService {
                 .build());
 
         if (req.getCouponId() != null) {
-            Coupon coupon = this.couponRepo.findById(req.getCouponId()).orElseThrow(() -> new EntityNotFoundException("Coupon not found"));
-            coupon.setQuantity(coupon.getQuantity() - 1);
-            coupon.setUsageCount(coupon.getUsageCount() + 1);
-            this.couponRepo.save(coupon);
+            this.couponRedemptionService.redeem(req.getCouponId(), billSave);
         }
 
+        List<Long> productIds = new ArrayList<>();
         req.getItems().forEach(item -> {
-            ProductDetail prd = this.productDetailRepository.findById(item.getId()).orElseThrow(() -> new EntityNotFoundException("Product not found"));
-            if (prd.getQuantity() - item.getQuantity() < 0) {
-                billSave.setBillStatus(this.billStatusRepository.findById(7).orElse(null));
-                this.billRepository.delete(billSave);
-                throw new InvalidDataException("Giao dịch thất bại vui lòng thử lại!");
-            }
+            ProductDetail prd = validation.getDetail(item.getId()).orElseThrow(() -> new EntityNotFoundException("Product not found"));
             this.billDetailRepository.save(BillDetail.builder()
                     .productDetail(prd)
                     .bill(bill)
@@ -370,9 +308,9 @@ public class ClientServiceImpl implements ClientService {
                     .createAt(new Date())
                     .updateAt(new Date())
                     .build());
-            prd.setQuantity(prd.getQuantity() - item.getQuantity());
-            this.productDetailRepository.save(prd);
+            productIds.add(prd.getProduct().getId());
         });
+        this.productListingService.refreshStock(productIds);
 
         sendInvoiceToClient(billSave);
         return billSave.getId();
@@ -387,17 +325,17 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
+    @Transactional
     public void cancelInvoice(long id, String message) {
         Bill bill = this.billRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Bill not found"));
         bill.setBillStatus(this.billStatusRepository.findById(7).orElse(null));
         bill.setMessage(message);
-        bill.getBillDetails().forEach(detail -> {
-            ProductDetail productDetail = this.productDetailRepository.findById(detail.getProductDetail().getId()).orElseThrow(() -> new EntityNotFoundException("Product not found"));
-            assert productDetail != null;
-            productDetail.setQuantity(productDetail.getQuantity() + detail.getQuantity());
-            this.productDetailRepository.save(productDetail);
-        });
+        Map<Long, Integer> quantities = new HashMap<>();
+        bill.getBillDetails().forEach(detail -> quantities.merge(detail.getProductDetail().getId(), detail.getQuantity(), Integer::sum));
+        this.inventoryService.restock(quantities);
         this.billRepository.save(bill);
+        this.productListingService.refreshStock(bill.getBillDetails().stream().map(detail -> detail.getProductDetail().getProduct().getId()).toList());
+        this.salesRankingService.revoke(bill.getId());
 
         this.billStatusDetailRepo.save(BillStatusDetail.builder()
                 .bill(bill)
@@ -429,6 +367,11 @@ public class ClientServiceImpl implements ClientService {
         return this.productCustomizeQuery.searchBase(keyword);
     }
 
+    @Override
+    public FacetResponse.Result productFacets(ProductRequests.ParamFilters param) {
+        return this.productCustomizeQuery.getProductFacets(param);
+    }
+
     private void sendInvoiceToClient(Bill bill) {
         Context context = new Context();
         Map<String, Object> properties = new HashMap<>();
@@ -0,0 +1,57 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.coupons;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import sd79.exception.EntityNotFoundException;
+import sd79.exception.InvalidDataException;
+import sd79.model.Bill;
+import sd79.repositories.CouponRedemptionRepository;
+
+/**
+ * Redeems and gives back coupons for bills. Public coupons are hot rows every checkout touches, so the counters are
+ * never read, changed and saved: a redemption is one conditional update that only succeeds while the coupon has
+ * some left, paired with a coupon_redemptions row per bill (and customer). A depleted coupon is turned away by a plain
+ * read before any row lock is asked for. The row also makes giving back idempotent, a bill that no longer holds a
+ * redemption gives nothing back a second time
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CouponRedemptionService {
+
+    private final CouponRedemptionRepository couponRedemptionRepository;
+
+    /**
+     * Redeems the coupon for a saved bill
+     *
+     * @throws EntityNotFoundException when the coupon does not exist
+     * @throws InvalidDataException    when the coupon has none left
+     */
+    @Transactional
+    public void redeem(Long couponId, Bill bill) {
+        boolean available = this.couponRedemptionRepository.findAvailable(couponId).orElseThrow(() -> new EntityNotFoundException("Coupon not found"));
+        if (!available || !this.couponRedemptionRepository.take(couponId)) {
+            log.info("Coupon {} depleted, bill {} not redeemed", couponId, bill.getId());
+            throw new InvalidDataException("Phiếu giảm giá đã hết lượt sử dụng");
+        }
+        this.couponRedemptionRepository.insert(couponId, bill.getCustomer() != null ? bill.getCustomer().getId() : null, bill.getId());
+    }
+
+    /**
+     * Gives the coupon of the bill back, if it still holds one
+     */
+    @Transactional
+    public void release(Bill bill) {
+        if (bill.getCoupon() != null && this.couponRedemptionRepository.delete(bill.getId(), bill.getCoupon().getId())) {
+            this.couponRedemptionRepository.giveBack(bill.getCoupon().getId());
+        }
+    }
+}
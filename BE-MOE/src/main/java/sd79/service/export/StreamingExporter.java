@@ -0,0 +1,142 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sd79.repositories.customQuery.ExportCustomizeQuery;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a streamed table straight to the response as NDJSON or CSV. Rows are mapped one at a time, detached once
+ * written and the persistence context is cleared after every fetch, so the heap holds one fetch of rows whatever the
+ * table size. The response is flushed at the same rhythm, the client sees the first rows while the rest are read
+ */
+@Component
+@RequiredArgsConstructor
+public class StreamingExporter {
+
+    private final ExportCustomizeQuery exportCustomizeQuery;
+
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public <T> void export(HttpServletResponse response, String name, ExportFormat format,
+                           Supplier<Stream<T>> source, Function<T, Map<String, Object>> mapper) {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=\"%s-%s.%s\"",
+                name, new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()), format.getExtension()));
+
+        int fetchSize = this.exportCustomizeQuery.getFetchSize();
+        try (Stream<T> rows = source.get();
+             Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8))) {
+            if (format == ExportFormat.CSV) {
+                // Byte order mark, spreadsheet tools read the file as UTF-8 only with it
+                writer.write('\uFEFF');
+            }
+            long count = 0;
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                T row = iterator.next();
+                Map<String, Object> values = mapper.apply(row);
+                if (format == ExportFormat.CSV) {
+                    if (count == 0) {
+                        writeCsvLine(writer, new ArrayList<>(values.keySet()));
+                    }
+                    writeCsvLine(writer, values.values());
+                } else {
+                    writer.write(this.objectMapper.writeValueAsString(values));
+                    writer.write('\n');
+                }
+                this.exportCustomizeQuery.detach(row);
+                if (++count % fetchSize == 0) {
+                    this.exportCustomizeQuery.clear();
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hands the streamed rows to the consumer in lists of at most size rows, clearing the persistence context between
+     * lists
+     */
+    @Transactional(readOnly = true)
+    public <T> void forEachBatch(Supplier<Stream<T>> source, int size, Consumer<List<T>> consumer) {
+        try (Stream<T> rows = source.get()) {
+            List<T> batch = new ArrayList<>(size);
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                T row = iterator.next();
+                batch.add(row);
+                this.exportCustomizeQuery.detach(row);
+                if (batch.size() == size) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(size);
+                    this.exportCustomizeQuery.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        }
+    }
+
+    /**
+     * Row of a projection keyed by its aliases, in select order
+     */
+    public static Map<String, Object> columns(Tuple tuple) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            values.put(element.getAlias(), tuple.get(element));
+        }
+        return values;
+    }
+
+    private void writeCsvLine(Writer writer, Collection<?> values) throws IOException {
+        StringJoiner line = new StringJoiner(",", "", "\r\n");
+        for (Object value : values) {
+            line.add(csvField(value));
+        }
+        writer.write(line.toString());
+    }
+
+    private String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        // Same rendering as the JSON responses, dates use the configured Jackson format
+        JsonNode node = this.objectMapper.valueToTree(value);
+        String text = node.isValueNode() ? node.asText() : node.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
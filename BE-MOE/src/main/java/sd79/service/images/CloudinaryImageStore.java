@@ -0,0 +1,76 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.images;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import sd79.dto.response.productResponse.ImageResponse;
+import sd79.exception.CloudinaryException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cloudinary keeps the original only; variants are derived on its CDN from a transformation in the url
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "image.store.type", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryImageStore implements ImageStore {
+
+    private static final String UPLOAD_SEGMENT = "/upload/";
+
+    private final Cloudinary cloudinary;
+
+    @Override
+    public ImageResponse store(File file) {
+        try {
+            Map uploadResult = cloudinary.uploader().upload(file, ObjectUtils.emptyMap());
+            log.info("Upload successfully data={}", uploadResult.toString());
+            return ImageResponse.builder()
+                    .url(uploadResult.get("url").toString())
+                    .publicId(uploadResult.get("public_id").toString())
+                    .build();
+        } catch (IOException e) {
+            log.error("Upload failed message={}", e.getMessage());
+            throw new CloudinaryException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void remove(String publicId) {
+        try {
+            cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+        } catch (IOException e) {
+            log.error("Remove failed message={}", e.getMessage());
+            throw new CloudinaryException(e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, String> variants(String url) {
+        int index = url == null ? -1 : url.indexOf(UPLOAD_SEGMENT);
+        if (index < 0) {
+            return Collections.emptyMap();
+        }
+        String prefix = url.substring(0, index + UPLOAD_SEGMENT.length());
+        String path = url.substring(index + UPLOAD_SEGMENT.length());
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            variants.put(variant.getKey(), prefix + "c_limit,w_" + variant.getWidth() + ",q_auto,f_auto/" + path);
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.images;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import sd79.dto.response.productResponse.ImageResponse;
+import sd79.exception.InvalidDataException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps images on the local disk, one directory per image: root/{id}/original.{ext} next to a resized file per
+ * {@link ImageVariant}. Variants are generated in parallel when the image is stored, so serving never resizes. Files
+ * are written once and never change, which lets the image endpoint cache them forever
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "image.store.type", havingValue = "local")
+public class FileSystemImageStore implements ImageStore {
+
+    private static final String ORIGINAL = "original";
+
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{32}");
+
+    private static final Pattern FILE_NAME = Pattern.compile("([a-z]+)\\.(jpg|png|gif|bmp)");
+
+    private final Path root;
+
+    private final String baseUrl;
+
+    private final long maxPixels;
+
+    public FileSystemImageStore(@Value("${image.store.local.root:./data/images}") String root,
+                                @Value("${image.store.local.base-url:http://localhost:2004/api/v2/client/images}") String baseUrl,
+                                @Value("${image.store.local.max-pixels:40000000}") long maxPixels) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.maxPixels = maxPixels;
+    }
+
+    @Override
+    public ImageResponse store(File file) {
+        Decoded decoded = decode(file);
+        String id = UUID.randomUUID().toString().replace("-", "");
+        Path directory = this.root.resolve(id);
+        try {
+            Files.createDirectories(directory);
+            Files.copy(file.toPath(), directory.resolve(ORIGINAL + "." + decoded.extension));
+            String variantExtension = variantExtension(decoded.extension);
+            CompletableFuture.allOf(Arrays.stream(ImageVariant.values())
+                    .map(variant -> CompletableFuture.runAsync(() -> writeVariant(decoded.image, variant, directory.resolve(variant.getKey() + "." + variantExtension))))
+                    .toArray(CompletableFuture[]::new)).join();
+        } catch (IOException e) {
+            delete(directory);
+            log.error("Store failed message={}", e.getMessage());
+            throw new UncheckedIOException(e);
+        } catch (CompletionException e) {
+            delete(directory);
+            log.error("Variants failed message={}", e.getCause().getMessage());
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        log.info("Stored image {}", id);
+        return ImageResponse.builder()
+                .url(this.baseUrl + "/" + id + "/" + ORIGINAL + "." + decoded.extension)
+                .publicId(id)
+                .build();
+    }
+
+    @Override
+    public void remove(String publicId) {
+        if (publicId != null && ID.matcher(publicId).matches()) {
+            delete(this.root.resolve(publicId));
+        }
+    }
+
+    @Override
+    public Map<String, String> variants(String url) {
+        if (url == null || !url.startsWith(this.baseUrl + "/")) {
+            return Collections.emptyMap();
+        }
+        String[] path = url.substring(this.baseUrl.length() + 1).split("/");
+        Matcher fileName = path.length == 2 ? FILE_NAME.matcher(path[1]) : null;
+        if (fileName == null || !ID.matcher(path[0]).matches() || !fileName.matches()) {
+            return Collections.emptyMap();
+        }
+        String extension = variantExtension(fileName.group(2));
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            variants.put(variant.getKey(), this.baseUrl + "/" + path[0] + "/" + variant.getKey() + "." + extension);
+        }
+        return variants;
+    }
+
+    /**
+     * The stored file behind an image url path, empty for a malformed or unknown one. Ids and names are matched
+     * against what this store writes, so a request can never leave the root directory
+     */
+    public Optional<Path> resolve(String id, String fileName) {
+        if (!ID.matcher(id).matches() || !FILE_NAME.matcher(fileName).matches()) {
+            return Optional.empty();
+        }
+        Path file = this.root.resolve(id).resolve(fileName);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    private Decoded decode(File file) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new InvalidDataException("Định dạng ảnh không được hỗ trợ");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                // Dimensions come from the header; a small file can declare a huge bitmap, so check before decoding
+                long width = reader.getWidth(0);
+                long height = reader.getHeight(0);
+                if (width <= 0 || height <= 0 || width * height > this.maxPixels) {
+                    throw new InvalidDataException("Kích thước ảnh quá lớn");
+                }
+                return new Decoded(reader.read(0), "jpeg".equals(format) ? "jpg" : format);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new InvalidDataException("Ảnh không hợp lệ");
+        }
+    }
+
+    private static void writeVariant(BufferedImage image, ImageVariant variant, Path target) {
+        // Never upscale, a small original is kept at its own size
+        int width = Math.min(variant.getWidth(), image.getWidth());
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        boolean png = target.getFileName().toString().endsWith(".png");
+        BufferedImage scaled = new BufferedImage(width, height, png ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        try {
+            if (!ImageIO.write(scaled, png ? "png" : "jpg", target.toFile())) {
+                throw new IOException("No writer for " + target.getFileName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Variants keep transparency as png and are jpg otherwise, gif and bmp are not worth writing at thumbnail size
+     */
+    private static String variantExtension(String extension) {
+        return "png".equals(extension) || "gif".equals(extension) ? "png" : "jpg";
+    }
+
+    private static void delete(Path directory) {
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException e) {
+            log.warn("Image directory {} not deleted message={}", directory, e.getMessage());
+        }
+    }
+
+    private static final class Decoded {
+        private final BufferedImage image;
+
+        private final String extension;
+
+        private Decoded(BufferedImage image, String extension) {
+            this.image = image;
+            this.extension = extension;
+        }
+    }
+}
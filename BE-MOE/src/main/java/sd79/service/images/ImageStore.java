@@ -0,0 +1,31 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.images;
+
+import sd79.dto.response.productResponse.ImageResponse;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Where uploaded images live. The implementation is chosen with image.store.type (cloudinary by default, or local)
+ */
+public interface ImageStore {
+
+    /**
+     * Stores the image together with its {@link ImageVariant}s; the file still belongs to the caller afterwards
+     */
+    ImageResponse store(File file);
+
+    void remove(String publicId);
+
+    /**
+     * Urls of the variants of an image url issued by this store, keyed by {@link ImageVariant#getKey()}; empty for any
+     * other url
+     */
+    Map<String, String> variants(String url);
+}
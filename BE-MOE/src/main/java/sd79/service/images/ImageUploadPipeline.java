@@ -0,0 +1,254 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.images;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+import sd79.dto.response.images.UploadProgress;
+import sd79.dto.response.productResponse.ImageResponse;
+import sd79.enums.UploadStatus;
+import sd79.exception.InvalidDataException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Background image uploads. Files are spooled to disk on the request thread (the multipart parts are gone once the
+ * request ends), then uploaded by a bounded pool with a few attempts per file while the request returns an upload id
+ * right away. Progress is published to /topic/uploads/{uploadId}; the last message carries the uploaded images.
+ * <p>
+ * The caller's callback receives every image that made it, in file order, and runs on an upload thread. When it
+ * fails the images are removed from the store again so nothing is left orphaned
+ */
+@Slf4j
+@Component
+public class ImageUploadPipeline {
+
+    private static final String TOPIC = "/topic/uploads/";
+
+    private final ImageStore imageStore;
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Path spoolDirectory;
+
+    private final int maxAttempts;
+
+    private final long retryBackoffMillis;
+
+    private final ThreadPoolExecutor executor;
+
+    public ImageUploadPipeline(ImageStore imageStore,
+                               SimpMessagingTemplate messagingTemplate,
+                               @Value("${image.upload.spool-dir:${java.io.tmpdir}/moe-uploads}") String spoolDirectory,
+                               @Value("${image.upload.threads:4}") int threads,
+                               @Value("${image.upload.queue-capacity:100}") int queueCapacity,
+                               @Value("${image.upload.max-attempts:3}") int maxAttempts,
+                               @Value("${image.upload.retry-backoff-ms:500}") long retryBackoffMillis) {
+        this.imageStore = imageStore;
+        this.messagingTemplate = messagingTemplate;
+        this.spoolDirectory = Paths.get(spoolDirectory);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-upload-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Spools the files and schedules their upload, after commit when called inside a transaction
+     *
+     * @return the upload id to follow on /topic/uploads/{uploadId}
+     */
+    public String submit(MultipartFile[] files, Consumer<List<ImageResponse>> onUploaded) {
+        List<MultipartFile> parts = files == null ? List.of() : Arrays.stream(files).filter(Objects::nonNull).filter(file -> !file.isEmpty()).toList();
+        if (parts.isEmpty()) {
+            throw new InvalidDataException("Vui lòng chọn ảnh");
+        }
+        if (this.executor.getQueue().remainingCapacity() < parts.size()) {
+            throw new InvalidDataException("Hệ thống đang xử lý nhiều ảnh, vui lòng thử lại sau");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        List<Path> spooled = spool(uploadId, parts);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        start(uploadId, spooled, onUploaded);
+                    } else {
+                        spooled.forEach(ImageUploadPipeline::delete);
+                    }
+                }
+            });
+        } else {
+            start(uploadId, spooled, onUploaded);
+        }
+        return uploadId;
+    }
+
+    /**
+     * Single image variant, for avatars and coupon images
+     */
+    public String submit(MultipartFile file, Consumer<ImageResponse> onUploaded) {
+        return submit(new MultipartFile[]{file}, images -> onUploaded.accept(images.getFirst()));
+    }
+
+    private List<Path> spool(String uploadId, List<MultipartFile> parts) {
+        List<Path> spooled = new ArrayList<>(parts.size());
+        try {
+            Files.createDirectories(this.spoolDirectory);
+            for (int i = 0; i < parts.size(); i++) {
+                Path target = this.spoolDirectory.resolve(uploadId + "-" + i);
+                parts.get(i).transferTo(target);
+                spooled.add(target);
+            }
+            return spooled;
+        } catch (IOException e) {
+            spooled.forEach(ImageUploadPipeline::delete);
+            log.error("Spool failed message={}", e.getMessage());
+            throw new UncheckedIOException("Không thể lưu tạm ảnh", e);
+        }
+    }
+
+    private void start(String uploadId, List<Path> files, Consumer<List<ImageResponse>> onUploaded) {
+        Job job = new Job(uploadId, files.size());
+        publish(job.progress(UploadStatus.QUEUED, null));
+
+        List<CompletableFuture<ImageResponse>> uploads = new ArrayList<>(files.size());
+        for (Path file : files) {
+            try {
+                uploads.add(CompletableFuture.supplyAsync(() -> upload(job, file), this.executor));
+            } catch (RejectedExecutionException e) {
+                // The capacity check at submit is not atomic, a file that finds the queue full counts as failed
+                delete(file);
+                job.failed.incrementAndGet();
+                uploads.add(CompletableFuture.completedFuture(null));
+            }
+        }
+        CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> complete(job, uploads, onUploaded));
+    }
+
+    private ImageResponse upload(Job job, Path file) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    ImageResponse image = this.imageStore.store(file.toFile());
+                    job.uploaded.incrementAndGet();
+                    publish(job.progress(UploadStatus.UPLOADING, null));
+                    return image;
+                } catch (RuntimeException e) {
+                    // A file the store rejects will not get any better on a retry
+                    if (attempt >= this.maxAttempts || e instanceof InvalidDataException) {
+                        throw e;
+                    }
+                    log.warn("Upload {} attempt {} failed message={}", job.uploadId, attempt, e.getMessage());
+                    Thread.sleep(this.retryBackoffMillis * attempt);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Upload {} gave up on {} message={}", job.uploadId, file.getFileName(), e.getMessage());
+        } finally {
+            delete(file);
+        }
+        job.failed.incrementAndGet();
+        publish(job.progress(UploadStatus.UPLOADING, null));
+        return null;
+    }
+
+    private void complete(Job job, List<CompletableFuture<ImageResponse>> uploads, Consumer<List<ImageResponse>> onUploaded) {
+        List<ImageResponse> images = uploads.stream().map(upload -> upload.getNow(null)).filter(Objects::nonNull).toList();
+        if (images.isEmpty()) {
+            publish(job.progress(UploadStatus.FAILED, null));
+            return;
+        }
+        try {
+            onUploaded.accept(images);
+        } catch (RuntimeException e) {
+            log.error("Upload {} could not be saved message={}", job.uploadId, e.getMessage());
+            images.forEach(image -> discard(image.getPublicId()));
+            publish(job.progress(UploadStatus.FAILED, null));
+            return;
+        }
+        publish(job.progress(images.size() == job.total ? UploadStatus.COMPLETED : UploadStatus.PARTIAL, images));
+    }
+
+    /**
+     * Best-effort removal of an image that is no longer referenced, such as the one a new upload replaced
+     */
+    public void discard(String publicId) {
+        try {
+            this.imageStore.remove(publicId);
+        } catch (RuntimeException e) {
+            log.warn("Orphan image {} could not be removed message={}", publicId, e.getMessage());
+        }
+    }
+
+    private void publish(UploadProgress progress) {
+        try {
+            this.messagingTemplate.convertAndSend(TOPIC + progress.getUploadId(), progress);
+        } catch (RuntimeException e) {
+            log.warn("Upload progress {} not sent message={}", progress.getUploadId(), e.getMessage());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Spool file {} not deleted message={}", file, e.getMessage());
+        }
+    }
+
+    private static final class Job {
+        private final String uploadId;
+
+        private final int total;
+
+        private final AtomicInteger uploaded = new AtomicInteger();
+
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private Job(String uploadId, int total) {
+            this.uploadId = uploadId;
+            this.total = total;
+        }
+
+        private UploadProgress progress(UploadStatus status, List<ImageResponse> images) {
+            return UploadProgress.builder()
+                    .uploadId(this.uploadId)
+                    .status(status)
+                    .total(this.total)
+                    .uploaded(this.uploaded.get())
+                    .failed(this.failed.get())
+                    .images(images)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.images;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resized copies served next to every original, bounded by width
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    THUMB("thumb", 160),
+    SMALL("small", 320),
+    MEDIUM("medium", 640);
+
+    private final String key;
+
+    private final int width;
+}
@@ -1,6 +1,7 @@
 package sd79.service.impl;
 
 import jakarta.persistence.EntityExistsException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,13 +14,19 @@ import sd79.dto.response.bills.BillDetailResponse;
 import sd79.dto.response.bills.BillResponse;
 import sd79.dto.response.productResponse.ProductDetailResponse2;
 import sd79.exception.EntityNotFoundException;
-import sd79.exception.InvalidDataException;
 import sd79.model.*;
 import sd79.repositories.*;
 import sd79.repositories.auth.UserRepository;
 import sd79.repositories.customQuery.BillCustomizeQuery;
+import sd79.repositories.customQuery.ExportCustomizeQuery;
 import sd79.repositories.products.ProductDetailRepository;
 import sd79.service.BillService;
+import sd79.service.coupons.CouponRedemptionService;
+import sd79.service.export.ExportFormat;
+import sd79.service.export.StreamingExporter;
+import sd79.service.products.InventoryService;
+import sd79.service.products.ProductListingService;
+import sd79.service.products.SalesRankingService;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -40,6 +47,12 @@ public class BillServiceImpl implements BillService {
     private final BillCustomizeQuery billCustomizeQuery;
     private final BillRepo billRepo;
     private final CustomerAddressRepository customerAddressRepository;
+    private final ProductListingService productListingService;
+    private final SalesRankingService salesRankingService;
+    private final ExportCustomizeQuery exportCustomizeQuery;
+    private final StreamingExporter streamingExporter;
+    private final InventoryService inventoryService;
+    private final CouponRedemptionService couponRedemptionService;
 
     //them lan 1
     @Override
@@ -47,6 +60,11 @@ public class BillServiceImpl implements BillService {
         return this.billRepository.findAll().stream().map(this::convertToBillResponse).toList();
     }
 
+    @Override
+    public void exportBills(ExportFormat format, HttpServletResponse response) {
+        this.streamingExporter.export(response, "bills", format, this.exportCustomizeQuery::streamBills, StreamingExporter::columns);
+    }
+
     @Override
     public List<BillResponse> getAllBill() { // get bill hien tai
         return this.billCustomizeQuery.getAllBills();
@@ -79,31 +97,25 @@ public class BillServiceImpl implements BillService {
     }
 
     @Override
+    @Transactional
     public void deleteBill(long id) {
         Bill bill = billRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Bill not found with ID: " + id));
 
         // Trả lại số lượng sản phẩm trong các BillDetail
         List<BillDetail> billDetails = billDetailRepository.findByBill(bill);
-        for (BillDetail billDetail : billDetails) {
-            ProductDetail productDetail = billDetail.getProductDetail();
-            productDetail.setQuantity(productDetail.getQuantity() + billDetail.getQuantity());
-            productDetailRepository.save(productDetail);
+        Map<Long, Integer> quantities = new HashMap<>();
+        billDetails.forEach(billDetail -> quantities.merge(billDetail.getProductDetail().getId(), billDetail.getQuantity(), Integer::sum));
+        inventoryService.restock(quantities);
 
-            // Xóa BillDetail sau khi trả lại số lượng
-            billDetailRepository.delete(billDetail);
-        }
+        // Xóa BillDetail sau khi trả lại số lượng
+        billDetailRepository.deleteAll(billDetails);
+        productListingService.refreshStock(billDetails.stream().map(billDetail -> billDetail.getProductDetail().getProduct().getId()).toList());
 
-        Coupon coupon = bill.getCoupon();
-        if (coupon != null) {
-            coupon.setQuantity(coupon.getQuantity() + 1);
-            coupon.setUsageCount((coupon.getUsageCount() != null && coupon.getUsageCount() > 0)
-                    ? coupon.getUsageCount() - 1
-                    : 0);
-            couponRepository.save(coupon);
-        }
+        couponRedemptionService.release(bill);
 
         // Xóa hóa đơn
+        salesRankingService.revoke(id);
         billRepository.deleteById(id);
     }
 
@@ -119,6 +131,7 @@ public class BillServiceImpl implements BillService {
     }
 
     @Override
+    @Transactional
     public long storeProduct(BillDetailRequest billDetailRequest) {
         int requestedQuantity = billDetailRequest.getQuantity() != null ? billDetailRequest.getQuantity() : 1;
 
@@ -136,23 +149,19 @@ public class BillServiceImpl implements BillService {
         if (existingBillDetailOptional.isPresent()) {
             billDetail = existingBillDetailOptional.get();
 
-            int currentQuantity = billDetail.getQuantity();
-            int quantityDifference = requestedQuantity - currentQuantity;
-
-            if (quantityDifference > productDetail.getQuantity()) {
-                throw new IllegalArgumentException("Not enough product quantity available. Available: " + productDetail.getQuantity());
+            int quantityDifference = requestedQuantity - billDetail.getQuantity();
+            if (quantityDifference > 0) {
+                inventoryService.take(Map.of(productDetail.getId(), quantityDifference));
+            } else if (quantityDifference < 0) {
+                inventoryService.restock(Map.of(productDetail.getId(), -quantityDifference));
             }
 
             billDetail.setQuantity(requestedQuantity);
             totalAmountProduct = discountAmount.multiply(new BigDecimal(requestedQuantity));
             billDetail.setTotalAmountProduct(totalAmountProduct);
             billDetail.setUpdateAt(new Date());
-
-            productDetail.setQuantity(productDetail.getQuantity() - quantityDifference);
         } else {
-            if (requestedQuantity > productDetail.getQuantity()) {
-                throw new IllegalArgumentException("Not enough product quantity available. Available: " + productDetail.getQuantity());
-            }
+            inventoryService.take(Map.of(productDetail.getId(), requestedQuantity));
 
             totalAmountProduct = discountAmount.multiply(new BigDecimal(requestedQuantity));
             billDetail = BillDetail.builder()
@@ -165,24 +174,23 @@ public class BillServiceImpl implements BillService {
                     .createAt(new Date())
                     .updateAt(new Date())
                     .build();
-
-            productDetail.setQuantity(productDetail.getQuantity() - requestedQuantity);
         }
 
-        productDetailRepository.save(productDetail);
         billDetail = billDetailRepository.save(billDetail);
+        productListingService.refreshStock(productDetail.getProduct().getId());
 
         return billDetail.getId();
     }
 
     @Override
+    @Transactional
     public void deleteBillDetail(long billDetailId) {
         BillDetail billDetail = billDetailRepository.findById(billDetailId)
                 .orElseThrow(() -> new IllegalArgumentException("BillDetail not found with ID: " + billDetailId));
         ProductDetail productDetail = billDetail.getProductDetail();
-        productDetail.setQuantity(productDetail.getQuantity() + billDetail.getQuantity());
-        productDetailRepository.save(productDetail);
+        inventoryService.restock(Map.of(productDetail.getId(), billDetail.getQuantity()));
         billDetailRepository.delete(billDetail);
+        productListingService.refreshStock(productDetail.getProduct().getId());
     }
 
     //them lan 3
@@ -268,19 +276,13 @@ public class BillServiceImpl implements BillService {
     }
 
     @Override
+    @Transactional
     public long storeCoupon(Long billId, Long couponId) {
         Bill bill = billRepository.findById(billId)
                 .orElseThrow(() -> new IllegalArgumentException("Bill not found with ID: " + billId));
 
         // Remove existing coupon if there is one, regardless of the new coupon's ID
-        Coupon currentCoupon = bill.getCoupon();
-        if (currentCoupon != null) {
-            currentCoupon.setQuantity(currentCoupon.getQuantity() + 1);
-            currentCoupon.setUsageCount((currentCoupon.getUsageCount() != null && currentCoupon.getUsageCount() > 0)
-                    ? currentCoupon.getUsageCount() - 1
-                    : 0);
-            couponRepository.save(currentCoupon);
-        }
+        couponRedemptionService.release(bill);
 
         // If the new coupon ID is null or 0, set the coupon on the bill to null and save
         if (couponId == null || couponId == 0) {
@@ -290,43 +292,27 @@ public class BillServiceImpl implements BillService {
             return bill.getId();
         }
 
-        // Retrieve and validate the new coupon
+        // Redeem the new coupon, a depleted one is turned away
+        couponRedemptionService.redeem(couponId, bill);
         Coupon newCoupon = couponRepository.findById(couponId)
                 .orElseThrow(() -> new IllegalArgumentException("Coupon not found with ID: " + couponId));
 
-        if (newCoupon.getQuantity() != null && newCoupon.getQuantity() <= 0) {
-            throw new IllegalArgumentException("Coupon is no longer available (quantity depleted).");
-        }
-
-        // Update the new coupon's quantity and usage count
-        if (newCoupon.getQuantity() != null) {
-            newCoupon.setQuantity(newCoupon.getQuantity() - 1);
-        }
-        newCoupon.setUsageCount((newCoupon.getUsageCount() != null ? newCoupon.getUsageCount() : 0) + 1);
-
         // Set the new coupon to the bill and save
         bill.setCoupon(newCoupon);
 //        bill.setUpdatedBy(getUserById(bill.getUpdatedBy().getId()));
 
-        couponRepository.save(newCoupon);
         billRepository.save(bill);
 
         return bill.getId();
     }
 
     @Override
+    @Transactional
     public long deleteCoupon(long billId) {
         Bill bill = billRepository.findById(billId)
                 .orElseThrow(() -> new IllegalArgumentException("Bill not found with ID: " + billId));
 
-        Coupon coupon = bill.getCoupon();
-        if (coupon != null) {
-            coupon.setQuantity(coupon.getQuantity() + 1);
-            coupon.setUsageCount((coupon.getUsageCount() != null && coupon.getUsageCount() > 0)
-                    ? coupon.getUsageCount() - 1
-                    : 0);
-            couponRepository.save(coupon);
-        }
+        couponRedemptionService.release(bill);
 
         bill.setCoupon(null);
 //        bill.setUpdatedBy(getUserById(bill.getUpdatedBy().getId()));
@@ -336,6 +322,7 @@ public class BillServiceImpl implements BillService {
     }
 
     //them cuoi cung
+    @Transactional
     public long storePay(BillRequest billRequest, List<BillDetailRequest> billDetailRequests) {
         validateBillRequest(billRequest);
 
@@ -344,6 +331,8 @@ public class BillServiceImpl implements BillService {
         BillStatus billStatus = findBillStatus(billRequest.getBillStatus());
 
         Bill bill = getOrCreateBill(billRequest, customer, coupon, billStatus);
+        // An existing bill redeemed its coupon through storeCoupon already
+        boolean created = bill.getId() == null;
         updateBillAttributes(bill, billRequest, billStatus);
 
         // Accumulate total bill amount across all products
@@ -357,6 +346,10 @@ public class BillServiceImpl implements BillService {
         if (bill.getId() == null) {
             throw new RuntimeException("Failed to save the bill to the database.");
         }
+        if (created && coupon != null) {
+            couponRedemptionService.redeem(coupon.getId(), bill);
+        }
+        salesRankingService.onStatusChange(bill, billStatus.getId());
 
         return bill.getId();
     }
@@ -423,10 +416,32 @@ public class BillServiceImpl implements BillService {
     private BigDecimal processBillDetails(Bill bill, List<BillDetailRequest> billDetailRequests) {
         BigDecimal totalBillAmount = BigDecimal.ZERO;
 
+        List<BillDetail> billDetails = new ArrayList<>(billDetailRequests.size());
+        Map<Long, Integer> taken = new HashMap<>();
+        Map<Long, Integer> returned = new HashMap<>();
+        Set<Long> changedProducts = new HashSet<>();
         for (BillDetailRequest detailRequest : billDetailRequests) {
             ProductDetail productDetail = findProductDetail(detailRequest.getProductDetail());
-
             BillDetail billDetail = getOrCreateBillDetail(bill, productDetail);
+            billDetails.add(billDetail);
+
+            // Lines added through storeProduct already hold their stock, only the change is taken or returned
+            int difference = detailRequest.getQuantity() - (billDetail.getQuantity() != null ? billDetail.getQuantity() : 0);
+            if (difference > 0) {
+                taken.merge(productDetail.getId(), difference, Integer::sum);
+            } else if (difference < 0) {
+                returned.merge(productDetail.getId(), -difference, Integer::sum);
+            }
+            if (difference != 0) {
+                changedProducts.add(productDetail.getProduct().getId());
+            }
+        }
+        inventoryService.take(taken);
+        inventoryService.restock(returned);
+        productListingService.refreshStock(changedProducts);
+
+        for (int i = 0; i < billDetailRequests.size(); i++) {
+            BillDetailRequest detailRequest = billDetailRequests.get(i);
 
             BigDecimal totalAmountProduct = calculateTotalAmountProduct(detailRequest);
 
@@ -434,7 +449,7 @@ public class BillServiceImpl implements BillService {
             totalBillAmount = totalBillAmount.add(totalAmountProduct);
 
             // Update and save the bill detail
-            updateBillDetail(billDetail, detailRequest, totalAmountProduct);
+            updateBillDetail(billDetails.get(i), detailRequest, totalAmountProduct);
         }
 
         return totalBillAmount;
@@ -456,13 +471,6 @@ public class BillServiceImpl implements BillService {
 
     private void updateBillDetail(BillDetail billDetail, BillDetailRequest detailRequest, BigDecimal totalAmountProduct) {
         int quantity = detailRequest.getQuantity();
-        ProductDetail productDetail = billDetail.getProductDetail();
-
-        int totalQuantity =  productDetail.getQuantity() + quantity;
-
-        if(totalQuantity < quantity) {
-            throw new InvalidDataException("Không đủ số lượng sản phẩm: " + productDetail.getQuantity());
-        }
 
         billDetail.setQuantity(quantity);
         billDetail.setRetailPrice(detailRequest.getPrice());
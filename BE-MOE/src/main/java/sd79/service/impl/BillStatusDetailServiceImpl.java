@@ -14,12 +14,16 @@ import sd79.model.*;
 import sd79.repositories.*;
 import sd79.repositories.auth.UserRepository;
 import sd79.repositories.customQuery.BillCustomizeQuery;
-import sd79.repositories.products.ProductDetailRepository;
 import sd79.repositories.products.ProductRepository;
 import sd79.service.BillStatusDetailService;
+import sd79.service.products.InventoryService;
+import sd79.service.products.ProductListingService;
+import sd79.service.products.SalesRankingService;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -31,8 +35,10 @@ public class BillStatusDetailServiceImpl implements BillStatusDetailService {
     private final BillStatusDetailRepo billStatusDetailRepo;
     private final UserRepository userRepository;
     private final BillCustomizeQuery billCustomizeQuery;
-    private final ProductDetailRepository productDetailRepository;
+    private final InventoryService inventoryService;
     private final BillDetailRepo billDetailRepository;
+    private final ProductListingService productListingService;
+    private final SalesRankingService salesRankingService;
 
     @Override
     public List<BillStatusDetailResponse> getBillStatusDetailsByBillId(Long billId) {
@@ -40,6 +46,7 @@ public class BillStatusDetailServiceImpl implements BillStatusDetailService {
     }
 
     @Override
+    @Transactional
     public long addBillStatusDetail(BillStatusDetailRequest request) {
         Bill bill = billRepository.findById(request.getBill())
                 .orElseThrow(() -> new IllegalArgumentException("Bill not found"));
@@ -64,15 +71,15 @@ public class BillStatusDetailServiceImpl implements BillStatusDetailService {
 
         if(billStatus.getId() == 7){
             List<BillDetail> billDetails = billDetailRepository.findByBill(bill);
-            for (BillDetail billDetail : billDetails) {
-                ProductDetail productDetail = billDetail.getProductDetail();
-                productDetail.setQuantity(productDetail.getQuantity() + billDetail.getQuantity());
-                productDetailRepository.save(productDetail);
-            }
+            Map<Long, Integer> quantities = new HashMap<>();
+            billDetails.forEach(billDetail -> quantities.merge(billDetail.getProductDetail().getId(), billDetail.getQuantity(), Integer::sum));
+            inventoryService.restock(quantities);
+            productListingService.refreshStock(billDetails.stream().map(billDetail -> billDetail.getProductDetail().getProduct().getId()).toList());
         }
 
         // Save the new BillStatusDetail
         this.billStatusDetailRepo.save(billStatusDetail);
+        salesRankingService.onStatusChange(bill, billStatus.getId());
 
         // Return the ID of the newly created BillStatusDetail
         return billStatusDetail.getId();
@@ -94,6 +101,7 @@ public class BillStatusDetailServiceImpl implements BillStatusDetailService {
         billStatusDetail.setUpdatedBy(getUserById(request.getUserId()));
 
         this.billStatusDetailRepo.save(billStatusDetail);
+        salesRankingService.onStatusChange(bill, billStatus.getId());
         return billStatusDetail.getId();
     }
 
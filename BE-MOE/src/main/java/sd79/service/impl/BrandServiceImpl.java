@@ -8,6 +8,7 @@ package sd79.service.impl;
 
 import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import sd79.dto.requests.productRequests.BrandRequest;
@@ -17,9 +18,10 @@ import sd79.exception.NotAllowedDeleteEntityException;
 import sd79.model.Brand;
 import sd79.model.User;
 import sd79.repositories.products.BrandRepository;
-import sd79.repositories.products.ProductRepository;
 import sd79.repositories.auth.UserRepository;
 import sd79.service.BrandService;
+import sd79.service.catalog.CatalogChangedEvent;
+import sd79.service.catalog.ReferenceDataService;
 
 import java.util.List;
 import java.util.Objects;
@@ -30,13 +32,15 @@ public class BrandServiceImpl implements BrandService {
 
     private final BrandRepository brandRepository;
 
-    private final ProductRepository productRepository;
-
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReferenceDataService referenceDataService;
+
     @Override
     public List<BrandResponse> getAllBrands(String keyword) {
-        return this.brandRepository.findBrandsByNameAndIsDeletedIsFalse(keyword).stream().map(this::convertToBrandResponse).toList();
+        return this.referenceDataService.get().getBrands(keyword);
     }
 
     @Transactional
@@ -50,7 +54,9 @@ public class BrandServiceImpl implements BrandService {
         brand.setName(req.getName());
         brand.setCreatedBy(user);
         brand.setUpdatedBy(user);
-        return this.brandRepository.save(brand).getId();
+        Integer id = this.brandRepository.save(brand).getId();
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
+        return id;
     }
 
     @Transactional
@@ -65,6 +71,7 @@ public class BrandServiceImpl implements BrandService {
         brand.setName(req.getName());
         brand.setUpdatedBy(this.getUserById(req.getUserId()));
         this.brandRepository.save(brand);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     @Override
@@ -75,6 +82,7 @@ public class BrandServiceImpl implements BrandService {
         } catch (Exception e) {
             throw new NotAllowedDeleteEntityException("Không thể xóa thương hiệu này!");
         }
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     private Brand getBrandById(Integer id) {
@@ -85,15 +93,4 @@ public class BrandServiceImpl implements BrandService {
         return this.userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
 
-    private BrandResponse convertToBrandResponse(Brand brand) {
-        return BrandResponse.builder()
-                .id(brand.getId())
-                .name(brand.getName())
-                .productCount(this.productRepository.countByBrand(brand.getId()))
-                .createdBy("Admin")
-                .createdAt(brand.getCreateAt())
-                .updatedAt(brand.getUpdateAt())
-                .build();
-    }
-
 }
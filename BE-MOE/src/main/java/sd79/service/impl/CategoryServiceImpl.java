@@ -8,6 +8,7 @@ package sd79.service.impl;
 
 import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import sd79.dto.requests.productRequests.CategoryRequest;
@@ -17,9 +18,10 @@ import sd79.exception.NotAllowedDeleteEntityException;
 import sd79.model.Category;
 import sd79.model.User;
 import sd79.repositories.products.CategoryRepository;
-import sd79.repositories.products.ProductRepository;
 import sd79.repositories.auth.UserRepository;
 import sd79.service.CategoryService;
+import sd79.service.catalog.CatalogChangedEvent;
+import sd79.service.catalog.ReferenceDataService;
 
 import java.util.List;
 import java.util.Objects;
@@ -29,13 +31,15 @@ import java.util.Objects;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
 
-    private final ProductRepository productRepository;
-
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReferenceDataService referenceDataService;
+
     @Override
     public List<CategoryResponse> getAllCategories(String keyword) {
-        return this.categoryRepository.findCategoriesByNameAndIsDeletedIsFalse(keyword).stream().map(this::convertToCategoryResponse).toList();
+        return this.referenceDataService.get().getCategories(keyword);
     }
 
     @Transactional
@@ -49,7 +53,9 @@ public class CategoryServiceImpl implements CategoryService {
         category.setName(req.getName());
         category.setCreatedBy(user);
         category.setUpdatedBy(user);
-        return this.categoryRepository.save(category).getId();
+        Integer id = this.categoryRepository.save(category).getId();
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
+        return id;
     }
 
     @Transactional
@@ -65,6 +71,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setName(req.getName());
         category.setUpdatedBy(this.getUserById(req.getUserId()));
         this.categoryRepository.save(category);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     @Override
@@ -75,6 +82,7 @@ public class CategoryServiceImpl implements CategoryService {
         } catch (Exception e) {
             throw new NotAllowedDeleteEntityException("Không thể xóa danh mục này!");
         }
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     private Category getCategoryById(Integer id) {
@@ -84,15 +92,4 @@ public class CategoryServiceImpl implements CategoryService {
     private User getUserById(Long id) {
         return this.userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
-
-    private CategoryResponse convertToCategoryResponse(Category category) {
-        return CategoryResponse.builder()
-                .id(category.getId())
-                .name(category.getName())
-                .productCount(this.productRepository.countByCategory(category.getId()))
-                .createdBy(category.getCreatedBy().getUsername())
-                .createdAt(category.getCreateAt())
-                .updatedAt(category.getUpdateAt())
-                .build();
-    }
 }
@@ -8,6 +8,7 @@ package sd79.service.impl;
 
 import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import sd79.dto.requests.productRequests.ColorRequest;
 import sd79.dto.response.productResponse.ColorResponse;
@@ -18,6 +19,8 @@ import sd79.model.User;
 import sd79.repositories.products.ColorRepository;
 import sd79.repositories.auth.UserRepository;
 import sd79.service.ColorService;
+import sd79.service.catalog.CatalogChangedEvent;
+import sd79.service.catalog.ReferenceDataService;
 
 import java.util.List;
 import java.util.Objects;
@@ -30,9 +33,13 @@ public class ColorServiceImpl implements ColorService {
 
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReferenceDataService referenceDataService;
+
     @Override
     public List<ColorResponse> getAllColors(String keyword) {
-        return this.colorRepository.findColorsByNameAndIsDeletedIsFalse(keyword).stream().map(this::convertToResponse).toList();
+        return this.referenceDataService.get().getColors(keyword);
     }
 
     @Override
@@ -46,7 +53,9 @@ public class ColorServiceImpl implements ColorService {
         color.setHexColorCode(req.getHex_code());
         color.setCreatedBy(user);
         color.setUpdatedBy(user);
-        return this.colorRepository.save(color).getId();
+        int id = this.colorRepository.save(color).getId();
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
+        return id;
     }
 
     @Override
@@ -62,6 +71,7 @@ public class ColorServiceImpl implements ColorService {
         color.setHexColorCode(req.getHex_code());
         color.setUpdatedBy(user);
         this.colorRepository.save(color);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     @Override
@@ -72,6 +82,7 @@ public class ColorServiceImpl implements ColorService {
         } catch (Exception e) {
             throw new NotAllowedDeleteEntityException("Không thể xóa màu này!");
         }
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     private Color getColorById(int id) {
@@ -81,15 +92,4 @@ public class ColorServiceImpl implements ColorService {
     private User getUserById(Long id) {
         return this.userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
-
-    private ColorResponse convertToResponse(Color color) {
-        return ColorResponse.builder()
-                .id(color.getId())
-                .name(color.getName())
-                .hex_code(color.getHexColorCode())
-                .createdBy(color.getCreatedBy().getUsername())
-                .createdAt(color.getCreateAt())
-                .updatedAt(color.getUpdateAt())
-                .build();
-    }
 }
@@ -7,6 +7,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import sd79.dto.requests.CouponImageReq;
@@ -18,6 +19,7 @@ import sd79.dto.requests.notifications.SendEmailRequest;
 import sd79.dto.response.CouponCustomerResponse;
 import sd79.dto.response.CouponResponse;
 import sd79.dto.response.PageableResponse;
+import sd79.dto.response.productResponse.ImageResponse;
 import sd79.enums.TodoDiscountType;
 import sd79.enums.TodoType;
 import sd79.exception.EntityNotFoundException;
@@ -30,7 +32,8 @@ import sd79.repositories.CustomerRepository;
 import sd79.repositories.auth.UserRepository;
 import sd79.repositories.customQuery.CouponCustomizeQuery;
 import sd79.service.CouponService;
-import sd79.utils.CloudinaryUploadCoupon;
+import sd79.service.images.ImageStore;
+import sd79.service.images.ImageUploadPipeline;
 
 import java.text.SimpleDateFormat;
 import java.util.Collections;
@@ -43,11 +46,13 @@ public class CouponServiceImpl implements CouponService {
 
     private final CouponRepo couponRepo;
     private final UserRepository userRepository;
-    private final CloudinaryUploadCoupon cloudinaryUploadCoupon;
+    private final ImageStore imageStore;
     private final CouponCustomizeQuery couponCustomizeQuery;
     private final CouponImageRepo couponImageRepo;
     private final CustomerRepository customerRepository;
     private final CouponShareRepo couponShareRepo;
+    private final ImageUploadPipeline imageUploadPipeline;
+    private final TransactionTemplate transactionTemplate;
     @Value("${spring.frontend.url}")
     private String host_frontend;
 
@@ -213,22 +218,30 @@ public class CouponServiceImpl implements CouponService {
                 .orElseThrow(() -> new EntityNotFoundException("Coupon not found"));
     }
 
-    @Transactional
     @Override
-    public void storeCouponImages(CouponImageReq req) {
-        Coupon coupon = this.findCouponById(req.getCouponID());
+    public String storeCouponImages(CouponImageReq req) {
+        Long couponId = this.findCouponById(req.getCouponID()).getId();
+        return this.imageUploadPipeline.submit(req.getImages(), image -> {
+            String previousPublicId = this.transactionTemplate.execute(status -> replaceCouponImage(couponId, image));
+            if (previousPublicId != null) {
+                this.imageUploadPipeline.discard(previousPublicId);
+            }
+        });
+    }
+
+    private String replaceCouponImage(Long couponId, ImageResponse image) {
+        Coupon coupon = this.findCouponById(couponId);
         CouponImage couponImage = coupon.getCouponImage();
-        if (couponImage != null && couponImage.getPublicId() != null) {
-            cloudinaryUploadCoupon.delete(couponImage.getPublicId());
+        String previousPublicId = null;
+        if (couponImage != null) {
+            previousPublicId = couponImage.getPublicId();
             couponImageRepo.delete(couponImage);
         }
-        String imageUrl = cloudinaryUploadCoupon.upload(req.getImages());
-        String publicId = extractPublicId(imageUrl);
 
         CouponImage newCouponImage = new CouponImage();
         newCouponImage.setCoupon(coupon);
-        newCouponImage.setImageUrl(imageUrl);
-        newCouponImage.setPublicId(publicId);
+        newCouponImage.setImageUrl(image.getUrl());
+        newCouponImage.setPublicId(image.getPublicId());
         couponImageRepo.save(newCouponImage);
 
         if (coupon.getType() == TodoType.PERSONAL) {
@@ -239,18 +252,7 @@ public class CouponServiceImpl implements CouponService {
                 sendCouponEmail(coupon, customer);
             }
         }
-    }
-
-    private String extractPublicId(String url) {
-        String[] parts = url.split("/upload/");
-        if (parts.length > 1) {
-            String pathAfterUpload = parts[1];
-            String[] pathParts = pathAfterUpload.split("/");
-            String publicIdWithExtension = pathParts[pathParts.length - 1];
-            return publicIdWithExtension.split("\\.")[0];
-        } else {
-            throw new IllegalArgumentException("Invalid Cloudinary URL format");
-        }
+        return previousPublicId;
     }
 
     @Override
@@ -280,7 +282,6 @@ public class CouponServiceImpl implements CouponService {
         coupon.setDiscountType(couponRequest.getDiscountType());
         coupon.setMaxValue(couponRequest.getMaxValue());
         coupon.setQuantity(couponRequest.getQuantity());
-        coupon.setUsageCount(coupon.getUsageCount());
         coupon.setConditions(couponRequest.getConditions());
         coupon.setType(couponRequest.getType());
         coupon.setStartDate(couponRequest.getStartDate());
@@ -326,7 +327,7 @@ public class CouponServiceImpl implements CouponService {
         Coupon coupon = this.findCouponById(couponId);
         CouponImage couponImage = coupon.getCouponImage();
         if (couponImage != null && couponImage.getPublicId() != null) {
-            cloudinaryUploadCoupon.delete(couponImage.getPublicId());
+            imageStore.remove(couponImage.getPublicId());
             couponImageRepo.delete(couponImage);
         } else {
 //            throw new RuntimeException("Coupon image not found or public ID is null");
@@ -1,6 +1,7 @@
 package sd79.service.impl;
 
 import jakarta.persistence.EntityExistsException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +15,7 @@ import sd79.dto.requests.productRequests.CustomerRequest;
 import sd79.dto.requests.productRequests.ProductImageReq;
 import sd79.dto.response.CustomerResponse;
 import sd79.dto.response.auth.UserResponse;
+import sd79.dto.response.productResponse.ImageResponse;
 import sd79.enums.Gender;
 import sd79.enums.ProductStatus;
 import sd79.exception.EntityNotFoundException;
@@ -25,12 +27,16 @@ import sd79.repositories.CustomerAddressRepository;
 import sd79.repositories.CustomerRepository;
 import sd79.repositories.auth.RoleRepository;
 import sd79.repositories.auth.UserRepository;
+import sd79.repositories.customQuery.ExportCustomizeQuery;
 import sd79.service.CustomerService;
-import sd79.utils.CloudinaryUtils;
+import sd79.service.export.ExportFormat;
+import sd79.service.export.StreamingExporter;
+import sd79.service.images.ImageStore;
+import sd79.service.images.ImageUploadPipeline;
+import sd79.service.security.TokenVersionService;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 @Service
@@ -55,7 +61,15 @@ public class CustomerServiceImpl implements CustomerService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
 
-    private final CloudinaryUtils cloudinary;
+    private final ImageStore imageStore;
+
+    private final ImageUploadPipeline imageUploadPipeline;
+
+    private final TokenVersionService tokenVersionService;
+
+    private final ExportCustomizeQuery exportCustomizeQuery;
+
+    private final StreamingExporter streamingExporter;
 
     @Override
     public Page<CustomerResponse> getAll(Pageable pageable) {  // Modified method to return a paginated response
@@ -72,6 +86,9 @@ public class CustomerServiceImpl implements CustomerService {
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy thông tin người dùng"));
         user.setIsLocked(isLocked);
         this.userRepository.save(user);
+        if (Boolean.TRUE.equals(isLocked)) {
+            this.tokenVersionService.revoke(user.getUsername());
+        }
     }
 
     @Override
@@ -183,7 +200,7 @@ public class CustomerServiceImpl implements CustomerService {
         User user = userRepository.findById(customer.getUser().getId())
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy thông tin người dùng"));
         if (customer.getPublicId() != null) {
-            this.cloudinary.removeByPublicId(customer.getPublicId());
+            this.imageStore.remove(customer.getPublicId());
         }
         customerRepository.delete(customer);
         userRepository.delete(user);
@@ -197,18 +214,25 @@ public class CustomerServiceImpl implements CustomerService {
     }
 
     @Override
-    public void updateImage(ProductImageReq req) {
-        Customer customer = this.customerRepository.findById(req.getProductId()).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy khách hàng"));
-        if (req.getImages() != null && customer.getPublicId() != null) {
-            this.cloudinary.removeByPublicId(customer.getPublicId());
-        }
-        assert req.getImages() != null;
-        Map<String, String> uploadResult = this.cloudinary.upload(req.getImages()[0]);
-        customer.setImage(uploadResult.get("url"));
-        customer.setPublicId(uploadResult.get("publicId"));
+    public String updateImage(ProductImageReq req) {
+        Long customerId = this.customerRepository.findById(req.getProductId()).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy khách hàng")).getId();
+        return this.imageUploadPipeline.submit(req.getImages() != null && req.getImages().length > 0 ? req.getImages()[0] : null,
+                image -> replaceImage(customerId, image));
+    }
+
+    @Override
+    public void replaceImage(Long customerId, ImageResponse image) {
+        Customer customer = this.customerRepository.findById(customerId).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy khách hàng"));
+        String previousPublicId = customer.getPublicId();
+        customer.setImage(image.getUrl());
+        customer.setPublicId(image.getPublicId());
         customerRepository.save(customer);
+        if (previousPublicId != null) {
+            this.imageUploadPipeline.discard(previousPublicId);
+        }
     }
 
+
     private void populateCustomerData(Customer customer, CustomerRequest customerRequest) {
         customer.setFirstName(customerRequest.getFirstName());
         customer.setLastName(customerRequest.getLastName());
@@ -241,4 +265,9 @@ public class CustomerServiceImpl implements CustomerService {
                 .updatedAt(customer.getUpdatedAt())
                 .build();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void exportCustomers(ExportFormat format, HttpServletResponse response) {
+        this.streamingExporter.export(response, "customers", format, this.exportCustomizeQuery::streamCustomers, StreamingExporter::columns);
+    }
+}
@@ -20,12 +20,12 @@ import sd79.repositories.*;
 import sd79.repositories.auth.RoleRepository;
 import sd79.repositories.auth.UserRepository;
 import sd79.service.EmployeeService;
-import sd79.utils.CloudinaryUtils;
+import sd79.service.images.ImageUploadPipeline;
+import sd79.service.security.TokenVersionService;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -45,7 +45,9 @@ public class EmployeeServiceImpl implements EmployeeService {
 
     private final PasswordEncoder passwordEncoder;
 
-    private final CloudinaryUtils cloudinary;
+    private final ImageUploadPipeline imageUploadPipeline;
+
+    private final TokenVersionService tokenVersionService;
 
     @Override
     public EmployeeResponse getEmployeeById(Long id) {
@@ -120,6 +122,9 @@ public class EmployeeServiceImpl implements EmployeeService {
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy thông tin người dùng"));
         user.setIsLocked(isLocked);
         this.userRepository.save(user);
+        if (Boolean.TRUE.equals(isLocked)) {
+            this.tokenVersionService.revoke(user.getUsername());
+        }
     }
 
 
@@ -182,16 +187,19 @@ public class EmployeeServiceImpl implements EmployeeService {
     }
 
     @Override
-    public void updateImage(EmployeeImageReq req) {
-        Employee employee = this.employeeRepository.findById(req.getProductId()).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy nhân viên"));
-        if (req.getImages() != null && employee.getPublicId() != null) {
-            this.cloudinary.removeByPublicId(employee.getPublicId());
-        }
-        assert req.getImages() != null;
-        Map<String, String> uploadResult = this.cloudinary.upload(req.getImages()[0]);
-        employee.setImage(uploadResult.get("url"));
-        employee.setPublicId(uploadResult.get("publicId"));
-        employeeRepository.save(employee);
+    public String updateImage(EmployeeImageReq req) {
+        Long employeeId = req.getProductId();
+        this.employeeRepository.findById(employeeId).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy nhân viên"));
+        return this.imageUploadPipeline.submit(req.getImages() != null && req.getImages().length > 0 ? req.getImages()[0] : null, image -> {
+            Employee employee = this.employeeRepository.findById(employeeId).orElseThrow(() -> new EntityNotFoundException("Không tìm thấy nhân viên"));
+            String previousPublicId = employee.getPublicId();
+            employee.setImage(image.getUrl());
+            employee.setPublicId(image.getPublicId());
+            employeeRepository.save(employee);
+            if (previousPublicId != null) {
+                this.imageUploadPipeline.discard(previousPublicId);
+            }
+        });
     }
 
     @Override
@@ -7,10 +7,12 @@
 package sd79.service.impl;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,9 +20,11 @@ import org.springframework.stereotype.Service;
 import sd79.enums.TokenType;
 import sd79.exception.InvalidDataException;
 import sd79.service.JwtService;
+import sd79.service.security.TokenVersionService;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -50,14 +54,29 @@ public class JwtServiceImpl implements JwtService {
     @Value("${jwt.key}")
     private String key;
 
+    private final Map<TokenType, Key> signingKeys = new EnumMap<>(TokenType.class);
+
+    private final Map<TokenType, JwtParser> parsers = new EnumMap<>(TokenType.class);
+
+    /**
+     * Keys and parsers are immutable and thread-safe, decoding them once saves a Base64 decode and a key build per call
+     */
+    @PostConstruct
+    public void init() {
+        this.signingKeys.put(ACCESS_TOKEN, Keys.hmacShaKeyFor(Decoders.BASE64.decode(this.secretKey)));
+        this.signingKeys.put(REFRESH_TOKEN, Keys.hmacShaKeyFor(Decoders.BASE64.decode(this.refreshKey)));
+        this.signingKeys.put(OTHER_TOKEN, Keys.hmacShaKeyFor(Decoders.BASE64.decode(this.otherKey)));
+        this.signingKeys.forEach((type, signingKey) -> this.parsers.put(type, Jwts.parserBuilder().setSigningKey(signingKey).build()));
+    }
+
     @Override
-    public String generateToken(UserDetails user) {
-        return generateToken(new HashMap<>(), user);
+    public String generateToken(UserDetails user, long tokenVersion) {
+        return generateToken(versionClaims(tokenVersion), user);
     }
 
     @Override
-    public String generateRefreshToken(UserDetails user) {
-        return generateRefreshToken(new HashMap<>(), user);
+    public String generateRefreshToken(UserDetails user, long tokenVersion) {
+        return generateRefreshToken(versionClaims(tokenVersion), user);
     }
 
     @Override
@@ -70,6 +89,11 @@ public class JwtServiceImpl implements JwtService {
         return extractClaim(token, type, Claims::getSubject);
     }
 
+    @Override
+    public Claims extractClaims(String token, TokenType type) {
+        return extraAllClaim(token, type);
+    }
+
     @Override
     public boolean isValid(String token, TokenType type, UserDetails user) {
         final String username = this.extractUsername(token, type);
@@ -106,19 +130,18 @@ public class JwtServiceImpl implements JwtService {
                 .compact();
     }
 
+    private static Map<String, Object> versionClaims(long tokenVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TokenVersionService.CLAIM, tokenVersion);
+        return claims;
+    }
+
     private Key getKey(TokenType type) {
-        switch (type) {
-            case ACCESS_TOKEN -> {
-                return Keys.hmacShaKeyFor(Decoders.BASE64.decode(this.secretKey));
-            }
-            case REFRESH_TOKEN -> {
-                return Keys.hmacShaKeyFor(Decoders.BASE64.decode(this.refreshKey));
-            }
-            case OTHER_TOKEN -> {
-                return Keys.hmacShaKeyFor(Decoders.BASE64.decode(this.otherKey));
-            }
-            default -> throw new InvalidDataException("Invalid token type");
+        Key signingKey = this.signingKeys.get(type);
+        if (signingKey == null) {
+            throw new InvalidDataException("Invalid token type");
         }
+        return signingKey;
     }
 
     private <T> T extractClaim(String token, TokenType type, Function<Claims, T> claimResolver) {
@@ -128,7 +151,11 @@ public class JwtServiceImpl implements JwtService {
 
     private Claims extraAllClaim(String token, TokenType type) {
         token = token.startsWith(key) ? token.substring(key.length()) : token;
-        return Jwts.parserBuilder().setSigningKey(getKey(type)).build().parseClaimsJws(token).getBody();
+        JwtParser parser = this.parsers.get(type);
+        if (parser == null) {
+            throw new InvalidDataException("Invalid token type");
+        }
+        return parser.parseClaimsJws(token).getBody();
     }
 
     private boolean isTokenExpired(String token, TokenType type) {
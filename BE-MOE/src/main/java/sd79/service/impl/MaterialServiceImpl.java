@@ -8,6 +8,7 @@ package sd79.service.impl;
 
 import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import sd79.dto.requests.productRequests.MaterialRequest;
@@ -17,9 +18,10 @@ import sd79.exception.NotAllowedDeleteEntityException;
 import sd79.model.Material;
 import sd79.model.User;
 import sd79.repositories.products.MaterialRepository;
-import sd79.repositories.products.ProductRepository;
 import sd79.repositories.auth.UserRepository;
 import sd79.service.MaterialService;
+import sd79.service.catalog.CatalogChangedEvent;
+import sd79.service.catalog.ReferenceDataService;
 
 import java.util.List;
 import java.util.Objects;
@@ -30,13 +32,15 @@ public class MaterialServiceImpl implements MaterialService {
 
     private final MaterialRepository materialRepository;
 
-    private final ProductRepository productRepository;
-
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReferenceDataService referenceDataService;
+
     @Override
     public List<MaterialResponse> getAllMaterials(String keyword) {
-        return this.materialRepository.findMaterialsByNameAndIsDeletedIsFalse(keyword).stream().map(this::convertToMaterialResponse).toList();
+        return this.referenceDataService.get().getMaterials(keyword);
     }
 
     @Transactional
@@ -50,7 +54,9 @@ public class MaterialServiceImpl implements MaterialService {
         material.setName(req.getName());
         material.setCreatedBy(user);
         material.setUpdatedBy(user);
-        return this.materialRepository.save(material).getId();
+        Integer id = this.materialRepository.save(material).getId();
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
+        return id;
     }
 
     @Transactional
@@ -65,6 +71,7 @@ public class MaterialServiceImpl implements MaterialService {
         material.setName(req.getName());
         material.setUpdatedBy(this.getUserById(req.getUserId()));
         this.materialRepository.save(material);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     @Override
@@ -75,6 +82,7 @@ public class MaterialServiceImpl implements MaterialService {
         } catch (Exception e) {
             throw new NotAllowedDeleteEntityException("Không thể xóa chất liệu này!");
         }
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     private Material getMaterialById(Integer id) {
@@ -85,15 +93,4 @@ public class MaterialServiceImpl implements MaterialService {
         return this.userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
 
-    private MaterialResponse convertToMaterialResponse(Material material) {
-        return MaterialResponse.builder()
-                .id(material.getId())
-                .name(material.getName())
-                .productCount(this.productRepository.countByMaterial(material.getId()))
-                .createdBy(material.getCreatedBy().getUsername())
-                .createdAt(material.getCreateAt())
-                .updatedAt(material.getUpdateAt())
-                .build();
-    }
-
 }
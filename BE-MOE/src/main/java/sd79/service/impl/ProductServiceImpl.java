@@ -10,13 +10,12 @@ import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import sd79.dto.requests.common.ProductParamFilter2;
-import sd79.dto.requests.notifications.Recipient;
 import sd79.dto.requests.notifications.SendEmailRequest;
 import sd79.dto.requests.productRequests.*;
 import sd79.dto.requests.common.ProductParamFilter;
@@ -26,11 +25,15 @@ import sd79.enums.ProductStatus;
 import sd79.exception.EntityNotFoundException;
 import sd79.exception.NotAllowedDeleteEntityException;
 import sd79.model.*;
-import sd79.repositories.CustomerRepository;
+import sd79.repositories.customQuery.ExportCustomizeQuery;
 import sd79.repositories.customQuery.ProductCustomizeQuery;
 import sd79.repositories.products.*;
 import sd79.service.ProductService;
-import sd79.utils.CloudinaryUtils;
+import sd79.service.catalog.CatalogChangedEvent;
+import sd79.service.export.StreamingExporter;
+import sd79.service.images.ImageStore;
+import sd79.service.images.ImageUploadPipeline;
+import sd79.service.products.ProductListingService;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -44,6 +47,8 @@ import static sd79.utils.UserUtils.getUserById;
 @Slf4j
 public class ProductServiceImpl implements ProductService {
 
+    private static final int MARKETING_BATCH_SIZE = 500;
+
     private final ProductRepository productRepository;
 
     private final CategoryRepository categoryRepository;
@@ -54,17 +59,27 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductImageRepository productImageRepository;
 
+    private final ProductImageBatchRepository productImageBatchRepository;
+
+    private final ImageUploadPipeline imageUploadPipeline;
+
     private final SizeRepository sizeRepository;
 
     private final ColorRepository colorRepository;
 
     private final ProductDetailRepository productDetailRepository;
 
-    private final CloudinaryUtils cloudinary;
+    private final ImageStore imageStore;
 
     private final ProductCustomizeQuery productCustomizeQuery;
 
-    private final CustomerRepository customerRepository;
+    private final ExportCustomizeQuery exportCustomizeQuery;
+
+    private final StreamingExporter streamingExporter;
+
+    private final ProductListingService productListingService;
+
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${spring.frontend.url}")
     private String host_frontend;
@@ -121,22 +136,20 @@ public class ProductServiceImpl implements ProductService {
 
             this.productDetailRepository.save(productDetail);
         }
+        this.productListingService.refresh(product.getId());
+        this.eventPublisher.publishEvent(CatalogChangedEvent.all());
 
         return product.getId();
     }
 
     @Override
-    public void storeProductImages(ProductImageReq req) {
-        Product product = this.getProductById(req.getProductId());
-        for (MultipartFile file : req.getImages()) {
-            ProductImage productImage = new ProductImage();
-            Map<String, String> uploadResult = this.cloudinary.upload(file);
-            productImage.setProduct(product);
-            productImage.setImageUrl(uploadResult.get("url"));
-            productImage.setPublicId(uploadResult.get("publicId"));
-            this.productImageRepository.save(productImage);
-        }
-        marketingProduct(product.getId());
+    public String storeProductImages(ProductImageReq req) {
+        Long productId = this.getProductById(req.getProductId()).getId();
+        return this.imageUploadPipeline.submit(req.getImages(), images -> {
+            this.productImageBatchRepository.insertAll(productId, images);
+            this.productListingService.refresh(productId);
+            marketingProduct(productId);
+        });
     }
 
     @Override
@@ -144,6 +157,7 @@ public class ProductServiceImpl implements ProductService {
         Product product = this.getProductById(id);
         product.setStatus(status);
         this.productRepository.save(product);
+        this.productListingService.refresh(id);
     }
 
     @Override
@@ -151,6 +165,8 @@ public class ProductServiceImpl implements ProductService {
         Product product = this.getProductById(id);
         product.setIsDeleted(true);
         this.productRepository.save(product);
+        this.productListingService.refresh(id);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.all());
     }
 
     @Override
@@ -158,6 +174,8 @@ public class ProductServiceImpl implements ProductService {
         Product product = this.getProductById(id);
         product.setIsDeleted(false);
         this.productRepository.save(product);
+        this.productListingService.refresh(id);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.all());
     }
 
     @Override
@@ -169,7 +187,7 @@ public class ProductServiceImpl implements ProductService {
         Product product = getProductById(id);
         product.getProductImages().forEach(item -> {
             ProductImage productImage = getProductImageById(item.getId());
-            this.cloudinary.removeByPublicId(productImage.getPublicId());
+            this.imageStore.remove(productImage.getPublicId());
             this.productImageRepository.delete(productImage);
         });
     }
@@ -195,6 +213,8 @@ public class ProductServiceImpl implements ProductService {
         product.setUpdatedBy(user);
 
         this.productRepository.save(product);
+        this.productListingService.refresh(id);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.all());
     }
 
     @Override
@@ -202,16 +222,20 @@ public class ProductServiceImpl implements ProductService {
         ProductDetail prd = this.getProductDetailById(id);
         prd.setStatus(status ? ProductStatus.ACTIVE : ProductStatus.INACTIVE);
         this.productDetailRepository.save(prd);
+        this.productListingService.refresh(prd.getProduct().getId());
     }
 
     @Override
     public void updateAttributeProductDetail(List<ProductDetailModify> items) {
+        List<Long> productIds = new ArrayList<>();
         items.forEach(i -> {
             ProductDetail prd = this.getProductDetailById(i.getId());
             prd.setQuantity(i.getQuantity());
             prd.setRetailPrice(i.getPrice());
             this.productDetailRepository.save(prd);
+            productIds.add(prd.getProduct().getId());
         });
+        this.productListingService.refresh(productIds);
     }
 
     @Override
@@ -219,7 +243,7 @@ public class ProductServiceImpl implements ProductService {
         if (this.productDetailRepository.existsDetailByAttribute(request.getProductId(), request.getColorId(), request.getSizeId())) {
             throw new EntityExistsException("Thuộc tính đã tồn tại!");
         }
-        return this.productDetailRepository.save(ProductDetail.builder()
+        long id = this.productDetailRepository.save(ProductDetail.builder()
                 .color(this.getColorById(request.getColorId()))
                 .size(this.getSizeById(request.getSizeId()))
                 .retailPrice(request.getRetailPrice())
@@ -227,12 +251,20 @@ public class ProductServiceImpl implements ProductService {
                 .product(this.getProductById(request.getProductId()))
                 .status(ProductStatus.ACTIVE)
                 .build()).getId();
+        this.productListingService.refresh(request.getProductId());
+        // A new size or color of the product changes the attribute product counts
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
+        return id;
     }
 
     @Override
     public void removeImageCloudinary(String publicId) {
-        this.cloudinary.removeByPublicId(publicId);
+        Long productId = this.productImageRepository.findByPublicId(publicId).map(image -> image.getProduct().getId()).orElse(null);
+        this.imageStore.remove(publicId);
         this.productImageRepository.deleteByPublicId(publicId);
+        if (productId != null) {
+            this.productListingService.refresh(productId);
+        }
     }
 
     @Override
@@ -314,19 +346,15 @@ public class ProductServiceImpl implements ProductService {
         properties.put("url", host_frontend);
         context.setVariables(properties);
 
-        List<Recipient> customers = this.customerRepository.findAll().stream().map(customer ->
-                Recipient.builder()
-                        .name(String.format("%s %s", customer.getFirstName(), customer.getLastName()))
-                        .email(customer.getUser().getEmail())
-                        .build()
-        ).toList();
-
         String html = templateEngine.process("marketing_product.html", context);
-        SendEmailRequest bestSellingProducts = SendEmailRequest.builder()
-                .to(customers)
-                .subject("MOE SHOP - THÔNG BÁO RA MẮT BỘ SƯU TẬP MỚI")
-                .htmlContent(html)
-                .build();
-        kafkaTemplate.send("send-mail", bestSellingProducts);
+        // Customers are streamed and sent in batches, one mail request never holds the whole customer table
+        this.streamingExporter.forEachBatch(this.exportCustomizeQuery::streamRecipients, MARKETING_BATCH_SIZE, customers -> {
+            SendEmailRequest bestSellingProducts = SendEmailRequest.builder()
+                    .to(customers)
+                    .subject("MOE SHOP - THÔNG BÁO RA MẮT BỘ SƯU TẬP MỚI")
+                    .htmlContent(html)
+                    .build();
+            kafkaTemplate.send("send-mail", bestSellingProducts);
+        });
     }
 }
@@ -1,6 +1,8 @@
 package sd79.service.impl;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -12,10 +14,14 @@ import sd79.exception.EntityNotFoundException;
 import sd79.exception.InvalidDataException;
 import sd79.model.*;
 import sd79.repositories.auth.UserRepository;
+import sd79.repositories.customQuery.ExportCustomizeQuery;
 import sd79.repositories.products.ProductRepository;
 import sd79.repositories.promotions.PromotionDetailRepository;
 import sd79.repositories.promotions.PromotionRepository;
 import sd79.service.PromotionService;
+import sd79.service.catalog.CatalogChangedEvent;
+import sd79.service.export.ExportFormat;
+import sd79.service.export.StreamingExporter;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -34,6 +40,12 @@ public class PromotionsServiceImpl implements PromotionService {
 
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ExportCustomizeQuery exportCustomizeQuery;
+
+    private final StreamingExporter streamingExporter;
+
     private boolean containsSpecialCharacters(String input) {
         // Biểu thức chính quy kiểm tra ký tự đặc biệt
         String regex = "^[\\p{L}0-9\\s\\-_]*$";
@@ -74,6 +86,17 @@ public class PromotionsServiceImpl implements PromotionService {
     }
 
     @Override
+    public void exportPromotions(ExportFormat format, HttpServletResponse response) {
+        this.streamingExporter.export(response, "promotions", format, this.exportCustomizeQuery::streamPromotions, StreamingExporter::columns);
+    }
+
+    @Override
+    public void exportPromotionDetails(ExportFormat format, HttpServletResponse response) {
+        this.streamingExporter.export(response, "promotion-details", format, this.exportCustomizeQuery::streamPromotionDetails, StreamingExporter::columns);
+    }
+
+    @Override
+    @Transactional
     public Integer storePromotion(PromotionRequest req) {
         // Kiểm tra tất cả các sản phẩm xem có sản phẩm nào đã có khuyến mãi trước đó không
         for (Long productId : req.getProductIds()) {
@@ -112,6 +135,7 @@ public class PromotionsServiceImpl implements PromotionService {
             // Lưu chi tiết khuyến mãi vào cơ sở dữ liệu
             this.promotionDetailRepository.save(promotionDetail);
         }
+        this.eventPublisher.publishEvent(CatalogChangedEvent.promotions());
 
         // Trả về ID của đợt khuyến mãi đã lưu
         return promotion.getId();
@@ -119,6 +143,7 @@ public class PromotionsServiceImpl implements PromotionService {
 
 
     @Override
+    @Transactional
     public Integer updatePromotion(PromotionRequest req, Integer id) {
         Promotion promotion = this.promotionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy đợt giảm giá với id " + id));
@@ -174,6 +199,7 @@ public class PromotionsServiceImpl implements PromotionService {
 
         // Xử lý chi tiết khuyến mãi
         updatePromotionDetails(req, promotion);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.promotions());
 
         return promotion.getId();
     }
@@ -204,6 +230,7 @@ public class PromotionsServiceImpl implements PromotionService {
     }
 
     @Override
+    @Transactional
     public void deleteByPromotionId(Integer id) {
         Promotion promotion = this.promotionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy đợt giảm giá với id id " + id));
@@ -211,6 +238,7 @@ public class PromotionsServiceImpl implements PromotionService {
         promotionDetailRepository.deleteByPromotionId(id);
 
         promotionRepository.delete(promotion);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.promotions());
 
     }
 
@@ -8,6 +8,7 @@ package sd79.service.impl;
 
 import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import sd79.dto.requests.productRequests.SizeRequest;
 import sd79.dto.response.productResponse.SizeResponse;
@@ -18,6 +19,8 @@ import sd79.model.User;
 import sd79.repositories.products.SizeRepository;
 import sd79.repositories.auth.UserRepository;
 import sd79.service.SizeService;
+import sd79.service.catalog.CatalogChangedEvent;
+import sd79.service.catalog.ReferenceDataService;
 
 import java.util.List;
 import java.util.Objects;
@@ -30,9 +33,13 @@ public class SizeServiceImpl implements SizeService {
 
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReferenceDataService referenceDataService;
+
     @Override
     public List<SizeResponse> getAllSizes(String keyword) {
-        return this.sizeRepository.findSizesByNameAndIsDeletedIsFalse(keyword).stream().map(this::convertToSizeResponse).toList();
+        return this.referenceDataService.get().getSizes(keyword);
     }
 
     @Override
@@ -48,7 +55,9 @@ public class SizeServiceImpl implements SizeService {
         size.setSleeve(req.getSleeve());
         size.setCreatedBy(user);
         size.setUpdatedBy(user);
-        return this.sizeRepository.save(size).getId();
+        int id = this.sizeRepository.save(size).getId();
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
+        return id;
     }
 
     @Override
@@ -66,6 +75,7 @@ public class SizeServiceImpl implements SizeService {
         size.setSleeve(req.getSleeve());
         size.setUpdatedBy(user);
         this.sizeRepository.save(size);
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     @Override
@@ -76,6 +86,7 @@ public class SizeServiceImpl implements SizeService {
         } catch (Exception e) {
             throw new NotAllowedDeleteEntityException("Không thể xóa thuộc tính này!");
         }
+        this.eventPublisher.publishEvent(CatalogChangedEvent.attributes());
     }
 
     private Size getSizeById(int id) {
@@ -85,17 +96,4 @@ public class SizeServiceImpl implements SizeService {
     private User getUserById(Long id) {
         return this.userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
-
-    private SizeResponse convertToSizeResponse(Size size) {
-        return SizeResponse.builder()
-                .id(size.getId())
-                .name(size.getName())
-                .length(size.getLength())
-                .width(size.getWidth())
-                .sleeve(size.getSleeve())
-                .createdBy(size.getCreatedBy().getUsername())
-                .createdAt(size.getCreateAt())
-                .updatedAt(size.getUpdateAt())
-                .build();
-    }
 }
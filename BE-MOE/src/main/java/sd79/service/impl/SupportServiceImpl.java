@@ -1,5 +1,6 @@
 package sd79.service.impl;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,19 +10,28 @@ import sd79.dto.requests.SupportRequest;
 import sd79.exception.EntityNotFoundException;
 import sd79.model.Support;
 import sd79.repositories.SupportRepository;
+import sd79.repositories.customQuery.ExportCustomizeQuery;
 import sd79.service.SupportService;
+import sd79.service.export.ExportFormat;
+import sd79.service.export.StreamingExporter;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 @Service
 public class SupportServiceImpl implements SupportService {
     private final SupportRepository supportRepository;
+    private final ExportCustomizeQuery exportCustomizeQuery;
+    private final StreamingExporter streamingExporter;
 
 
     @Autowired
-    public SupportServiceImpl(SupportRepository supportRepository) {
+    public SupportServiceImpl(SupportRepository supportRepository, ExportCustomizeQuery exportCustomizeQuery, StreamingExporter streamingExporter) {
         this.supportRepository = supportRepository;
+        this.exportCustomizeQuery = exportCustomizeQuery;
+        this.streamingExporter = streamingExporter;
     }
 
 //    @Override
@@ -47,6 +57,22 @@ public class SupportServiceImpl implements SupportService {
     public List<Support> getAllSupportRequests() {
         return supportRepository.findAll(); // Lấy tất cả các yêu cầu hỗ trợ
     }
+
+    @Override
+    public void exportSupportRequests(ExportFormat format, HttpServletResponse response) {
+        streamingExporter.export(response, "support-requests", format, exportCustomizeQuery::streamSupports, support -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", support.getId());
+            row.put("hoTen", support.getHoTen());
+            row.put("email", support.getEmail());
+            row.put("sdt", support.getSdt());
+            row.put("issueDescription", support.getIssueDescription());
+            row.put("status", support.getStatus());
+            row.put("createdDate", support.getCreatedDate());
+            row.put("resolvedDate", support.getResolvedDate());
+            return row;
+        });
+    }
     @Override
     public void deleteSupportRequest(Long id) {
         if (!supportRepository.existsById(id)) {
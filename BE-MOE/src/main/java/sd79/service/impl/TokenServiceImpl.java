@@ -12,25 +12,35 @@ import sd79.exception.AuthenticationExceptionCustom;
 import sd79.model.redis_model.Token;
 import sd79.repositories.auth.TokenRepository;
 import sd79.service.TokenService;
+import sd79.service.security.TokenNearCache;
 
 @Service
 @RequiredArgsConstructor
 public class TokenServiceImpl implements TokenService {
     private final TokenRepository tokenRepository;
 
+    private final TokenNearCache tokenNearCache;
+
     @Override
     public void deleteToken(String id) {
         Token token = getToken(id);
         this.tokenRepository.delete(token);
+        this.tokenNearCache.deleted(id);
     }
 
     @Override
     public void saveToken(Token token) {
         this.tokenRepository.save(token);
+        this.tokenNearCache.saved(token.getId(), token.getAccessToken());
     }
 
     @Override
     public Token getToken(String id) {
         return this.tokenRepository.findById(id).orElseThrow(() -> new AuthenticationExceptionCustom("Something went wrong!"));
     }
+
+    @Override
+    public boolean isActive(String id) {
+        return this.tokenNearCache.get(id, username -> this.tokenRepository.findById(username).map(Token::getAccessToken).orElse(null)) != null;
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sd79.dto.response.productResponse.RecommendationMetrics;
+import sd79.model.ProductSale;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Item-to-item co-purchase model over the product_sales ledger: two products are neighbours when they were sold in
+ * the same completed bill, weighted by the number of such bills. Only the top-K neighbours of each product are kept,
+ * as a sorted long[], and recomputed for the products of a bill when it is recorded or revoked.
+ * Lookups touch memory only; products without enough neighbours fall back to the same category/brand
+ */
+@Slf4j
+@Component
+public class CoPurchaseRecommender {
+
+    private final ProductFacetIndex productFacetIndex;
+
+    private final int topK;
+
+    private final Map<Long, Map<Long, Integer>> pairCounts = new HashMap<>();
+
+    private final Map<Long, long[]> neighbours = new ConcurrentHashMap<>();
+
+    private final LongAdder views = new LongAdder();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    private final LongAdder nanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    private volatile long lastRebuildMillis;
+
+    private volatile Date lastRebuildAt;
+
+    public CoPurchaseRecommender(ProductFacetIndex productFacetIndex, @Value("${product.recommendation.top-k:12}") int topK) {
+        this.productFacetIndex = productFacetIndex;
+        this.topK = topK;
+    }
+
+    /**
+     * @param sales the whole ledger ordered by bill id
+     */
+    public synchronized void rebuild(List<ProductSale> sales) {
+        long start = System.currentTimeMillis();
+        this.pairCounts.clear();
+        this.neighbours.clear();
+        List<Long> basket = new ArrayList<>();
+        Long billId = null;
+        for (ProductSale sale : sales) {
+            if (!sale.getBillId().equals(billId)) {
+                count(basket, 1);
+                basket.clear();
+                billId = sale.getBillId();
+            }
+            basket.add(sale.getProductId());
+        }
+        count(basket, 1);
+        this.pairCounts.keySet().forEach(this::rank);
+        this.lastRebuildMillis = System.currentTimeMillis() - start;
+        this.lastRebuildAt = new Date();
+        log.info("Co-purchase model loaded {} products took={}ms", this.neighbours.size(), this.lastRebuildMillis);
+    }
+
+    public synchronized void add(Collection<Long> productIds) {
+        update(productIds, 1);
+    }
+
+    public synchronized void remove(Collection<Long> productIds) {
+        update(productIds, -1);
+    }
+
+    /**
+     * Up to {@code limit} visible products to show next to the product, best co-purchased first
+     */
+    public List<Long> related(Long productId, Integer categoryId, Integer brandId, int limit) {
+        long start = System.nanoTime();
+        Set<Long> related = new LinkedHashSet<>();
+        for (long neighbour : this.neighbours.getOrDefault(productId, new long[0])) {
+            if (related.size() == limit) {
+                break;
+            }
+            if (this.productFacetIndex.contains(neighbour)) {
+                related.add(neighbour);
+            }
+        }
+        if (related.size() < limit) {
+            this.fallbacks.increment();
+            for (Long id : this.productFacetIndex.sameCategoryOrBrand(categoryId, brandId, limit + related.size() + 1)) {
+                if (related.size() == limit) {
+                    break;
+                }
+                if (!id.equals(productId)) {
+                    related.add(id);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        this.views.increment();
+        this.nanos.add(elapsed);
+        this.maxNanos.accumulate(elapsed);
+        return new ArrayList<>(related);
+    }
+
+    public RecommendationMetrics getMetrics() {
+        long viewCount = this.views.sum();
+        long pairs;
+        synchronized (this) {
+            pairs = this.pairCounts.values().stream().mapToLong(Map::size).sum() / 2;
+        }
+        return RecommendationMetrics.builder()
+                .products(this.neighbours.size())
+                .pairs(pairs)
+                .views(viewCount)
+                .fallbacks(this.fallbacks.sum())
+                .averageNanosPerView(viewCount == 0 ? 0 : this.nanos.sum() / viewCount)
+                .maxNanosPerView(this.maxNanos.get())
+                .lastRebuildMillis(this.lastRebuildMillis)
+                .lastRebuildAt(this.lastRebuildAt)
+                .build();
+    }
+
+    private void update(Collection<Long> productIds, int delta) {
+        List<Long> basket = new ArrayList<>(new LinkedHashSet<>(productIds));
+        count(basket, delta);
+        basket.forEach(this::rank);
+    }
+
+    private void count(List<Long> basket, int delta) {
+        for (Long product : basket) {
+            for (Long other : basket) {
+                if (product.equals(other)) {
+                    continue;
+                }
+                Map<Long, Integer> counts = this.pairCounts.computeIfAbsent(product, key -> new HashMap<>());
+                if (counts.merge(other, delta, Integer::sum) <= 0) {
+                    counts.remove(other);
+                }
+                if (counts.isEmpty()) {
+                    this.pairCounts.remove(product);
+                }
+            }
+        }
+    }
+
+    private void rank(Long productId) {
+        Map<Long, Integer> counts = this.pairCounts.get(productId);
+        if (counts == null) {
+            this.neighbours.remove(productId);
+            return;
+        }
+        long[] top = counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.<Long, Integer>comparingByKey(Comparator.reverseOrder())))
+                .limit(this.topK)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+        this.neighbours.put(productId, top);
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sd79.dto.response.productResponse.FlashSaleMetrics;
+import sd79.exception.EntityNotFoundException;
+import sd79.exception.InsufficientStockException;
+import sd79.exception.InvalidDataException;
+import sd79.repositories.products.ProductDetailRepository;
+import sd79.repositories.products.ProductStockRepository;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flash-sale stock for a few hot product details. While a product detail is on sale its stock lives in a redis counter
+ * and checkouts take it with one Lua script, so the sale never queues on the product_details row lock. Every change
+ * of a counter is appended by the same script to a ledger of numbered entries; the reconciler writes the net deltas of
+ * a batch back to product_details and records the last applied entry in flash_sale_ledger_offset in the same
+ * transaction. A batch stays in redis until it is applied, so a crash anywhere only replays entries and the offset
+ * skips those already written. The entry sequence must therefore never restart below the offset: it is reseeded at
+ * startup and on enable, and the scripts refuse to ledger without it.
+ * <p>
+ * Enable a product detail before the sale opens: a checkout already on its way to MySQL at that instant is the only one
+ * the counter does not see. Stock edits from the product screens are not mirrored into the counter, disable the sale
+ * first
+ */
+@Slf4j
+@Component
+public class FlashSaleInventory {
+
+    private static final String STOCK_KEY = "flash-sale:stock:";
+
+    private static final String SKUS_KEY = "flash-sale:skus";
+
+    private static final String LEDGER_KEY = "flash-sale:ledger";
+
+    private static final String PROCESSING_KEY = "flash-sale:ledger:processing";
+
+    private static final String SEQUENCE_KEY = "flash-sale:ledger:sequence";
+
+    /**
+     * KEYS ledger, sequence, then one counter per line; ARGV the product detail ids, then the quantities. Returns 0
+     * followed by the short lines, or 1 followed by the lines without a counter (1-based), which are left to MySQL,
+     * or -1 without taking anything when the sequence is gone
+     */
+    private static final RedisScript<List> TAKE = RedisScript.of("""
+            local n = #KEYS - 2
+            local held, missing, short = {}, {}, {}
+            for i = 1, n do
+              local stock = redis.call('GET', KEYS[i + 2])
+              if not stock then
+                missing[#missing + 1] = i
+              elseif tonumber(stock) < tonumber(ARGV[n + i]) then
+                short[#short + 1] = i
+              else
+                held[#held + 1] = i
+              end
+            end
+            if #short > 0 then
+              table.insert(short, 1, 0)
+              return short
+            end
+            if #held > 0 then
+              if redis.call('EXISTS', KEYS[2]) == 0 then
+                return {-1}
+              end
+              local entry = {}
+              for _, i in ipairs(held) do
+                redis.call('DECRBY', KEYS[i + 2], ARGV[n + i])
+                entry[#entry + 1] = ARGV[i] .. ':-' .. ARGV[n + i]
+              end
+              redis.call('RPUSH', KEYS[1], redis.call('INCR', KEYS[2]) .. '|' .. table.concat(entry, ','))
+            end
+            table.insert(missing, 1, 1)
+            return missing
+            """, List.class);
+
+    /**
+     * Same keys and arguments as {@link #TAKE}. Always ledgered, a counter removed in the meantime only means the
+     * quantity goes back to MySQL through the reconciler. Returns -1 without any change when the sequence is gone
+     */
+    private static final RedisScript<Long> RESTOCK = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[2]) == 0 then
+              return -1
+            end
+            local n = #KEYS - 2
+            local entry = {}
+            for i = 1, n do
+              if redis.call('EXISTS', KEYS[i + 2]) == 1 then
+                redis.call('INCRBY', KEYS[i + 2], ARGV[n + i])
+              end
+              entry[#entry + 1] = ARGV[i] .. ':' .. ARGV[n + i]
+            end
+            redis.call('RPUSH', KEYS[1], redis.call('INCR', KEYS[2]) .. '|' .. table.concat(entry, ','))
+            return n
+            """, Long.class);
+
+    /**
+     * KEYS ledger, processing; ARGV batch size. An unfinished batch is handed out again before any new one
+     */
+    private static final RedisScript<List> CLAIM = RedisScript.of("""
+            if redis.call('LLEN', KEYS[2]) == 0 then
+              local entries = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1)
+              if #entries == 0 then
+                return entries
+              end
+              redis.call('RPUSH', KEYS[2], unpack(entries))
+              redis.call('LTRIM', KEYS[1], #entries, -1)
+            end
+            return redis.call('LRANGE', KEYS[2], 0, -1)
+            """, List.class);
+
+    /**
+     * KEYS processing; ARGV first entry of the applied batch. Another instance may already have claimed the next one
+     */
+    private static final RedisScript<Long> RELEASE = RedisScript.of("""
+            if redis.call('LINDEX', KEYS[1], 0) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * KEYS sequence, ledger, processing; ARGV the applied offset. Raises the sequence to the offset and to the last
+     * entry still waiting in either list, never lowers it. Creates the sequence when it is gone
+     */
+    private static final RedisScript<Long> RESEED = RedisScript.of("""
+            local floor = tonumber(ARGV[1])
+            for i = 2, 3 do
+              local last = redis.call('LINDEX', KEYS[i], -1)
+              if last then
+                floor = math.max(floor, tonumber(string.sub(last, 1, string.find(last, '|', 1, true) - 1)))
+              end
+            end
+            local current = redis.call('GET', KEYS[1])
+            if not current or tonumber(current) < floor then
+              redis.call('SET', KEYS[1], string.format('%.0f', floor))
+              return floor
+            end
+            return tonumber(current)
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ProductStockRepository productStockRepository;
+
+    private final ProductDetailRepository productDetailRepository;
+
+    private final ProductListingService productListingService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final AtomicLong appliedEntries = new AtomicLong();
+
+    private final AtomicLong appliedBatches = new AtomicLong();
+
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private final AtomicLong appliedSequence = new AtomicLong();
+
+    public FlashSaleInventory(StringRedisTemplate redisTemplate,
+                              ProductStockRepository productStockRepository,
+                              ProductDetailRepository productDetailRepository,
+                              ProductListingService productListingService,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${flash-sale.enabled:false}") boolean enabled,
+                              @Value("${flash-sale.batch-size:500}") int batchSize) {
+        this.redisTemplate = redisTemplate;
+        this.productStockRepository = productStockRepository;
+        this.productDetailRepository = productDetailRepository;
+        this.productListingService = productListingService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!this.enabled) {
+            return;
+        }
+        try {
+            reseed(this.productStockRepository.appliedSequence());
+        } catch (RuntimeException e) {
+            // The scripts refuse to ledger without a sequence, the first checkout reseeds it then
+            log.error("Flash sale sequence not reseeded message={}", e.getMessage());
+        }
+    }
+
+    /**
+     * Takes the lines held by a counter. When the surrounding transaction does not commit they are put back
+     *
+     * @return the lines of product details that are not on sale, for MySQL
+     * @throws InsufficientStockException when a counter is short, nothing is taken then
+     */
+    public List<Map.Entry<Long, Integer>> take(List<Map.Entry<Long, Integer>> lines) {
+        if (!this.enabled) {
+            return lines;
+        }
+        List<?> result = this.redisTemplate.execute(TAKE, keys(lines), arguments(lines));
+        if (result != null && !result.isEmpty() && ((Number) result.getFirst()).intValue() == -1) {
+            reseed(this.productStockRepository.appliedSequence());
+            result = this.redisTemplate.execute(TAKE, keys(lines), arguments(lines));
+        }
+        if (result == null || result.isEmpty() || ((Number) result.getFirst()).intValue() == -1) {
+            throw new IllegalStateException("Flash sale take returned no result");
+        }
+        List<Integer> indexes = result.subList(1, result.size()).stream().map(index -> ((Number) index).intValue() - 1).toList();
+        if (((Number) result.getFirst()).intValue() == 0) {
+            throw new InsufficientStockException("Không đủ số lượng sản phẩm", indexes.stream().map(index -> lines.get(index).getKey()).toList());
+        }
+
+        List<Map.Entry<Long, Integer>> missing = indexes.stream().map(lines::get).toList();
+        if (missing.size() < lines.size()) {
+            List<Map.Entry<Long, Integer>> held = new ArrayList<>(lines);
+            held.removeAll(missing);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            putBack(held);
+                        }
+                    }
+                });
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns the lines held by a counter, after commit when called inside a transaction
+     *
+     * @return the lines of product details that are not on sale, for MySQL
+     */
+    public List<Map.Entry<Long, Integer>> restock(List<Map.Entry<Long, Integer>> lines) {
+        if (!this.enabled) {
+            return lines;
+        }
+        List<String> stock = this.redisTemplate.opsForValue().multiGet(keys(lines).subList(2, lines.size() + 2));
+        List<Map.Entry<Long, Integer>> held = new ArrayList<>();
+        List<Map.Entry<Long, Integer>> missing = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            (stock != null && stock.get(i) != null ? held : missing).add(lines.get(i));
+        }
+        if (held.isEmpty()) {
+            return missing;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putBack(held);
+                }
+            });
+        } else {
+            putBack(held);
+        }
+        return missing;
+    }
+
+    /**
+     * Moves the stock of a product detail into a counter, after every earlier ledger entry is written back
+     *
+     * @return the stock of the counter
+     */
+    public long enable(Long productDetailId) {
+        requireEnabled();
+        drain();
+        Integer stock = this.transactionTemplate.execute(status -> {
+            int quantity = this.productStockRepository.lockQuantity(productDetailId).orElseThrow(() -> new EntityNotFoundException("Product not found"));
+            if (!Boolean.TRUE.equals(this.redisTemplate.opsForValue().setIfAbsent(STOCK_KEY + productDetailId, String.valueOf(quantity)))) {
+                throw new InvalidDataException("Sản phẩm đang trong chương trình flash sale");
+            }
+            this.redisTemplate.opsForSet().add(SKUS_KEY, String.valueOf(productDetailId));
+            reseed(this.productStockRepository.lockAppliedSequence());
+            return quantity;
+        });
+        log.info("Flash sale enabled for product detail {} stock={}", productDetailId, stock);
+        return stock != null ? stock : 0;
+    }
+
+    /**
+     * Closes the counter to checkouts, writes the whole ledger back and hands the product detail back to MySQL
+     */
+    public void disable(Long productDetailId) {
+        requireEnabled();
+        String key = STOCK_KEY + productDetailId;
+        if (!Boolean.TRUE.equals(this.redisTemplate.opsForValue().setIfPresent(key, "0"))) {
+            throw new EntityNotFoundException("Sản phẩm không có trong chương trình flash sale");
+        }
+        // With the counter at 0 no new sale is ledgered, once drained MySQL holds the final stock
+        drain();
+        this.redisTemplate.delete(key);
+        this.redisTemplate.opsForSet().remove(SKUS_KEY, String.valueOf(productDetailId));
+        log.info("Flash sale disabled for product detail {}", productDetailId);
+    }
+
+    @Scheduled(initialDelayString = "${flash-sale.reconcile-ms:1000}", fixedDelayString = "${flash-sale.reconcile-ms:1000}")
+    public void scheduledReconcile() {
+        if (!this.enabled) {
+            return;
+        }
+        try {
+            while (reconcile() >= this.batchSize) {
+                // Keep going while the ledger has full batches waiting
+            }
+        } catch (RuntimeException e) {
+            this.failedBatches.incrementAndGet();
+            log.error("Flash sale reconcile failed message={}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one batch of the ledger back to product_details
+     *
+     * @return the number of entries in the batch
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized int reconcile() {
+        List<String> entries = (List<String>) this.redisTemplate.execute(CLAIM, List.of(LEDGER_KEY, PROCESSING_KEY), String.valueOf(this.batchSize));
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Integer> deltas = new TreeMap<>();
+        Long applied = this.transactionTemplate.execute(status -> {
+            long appliedSequence = this.productStockRepository.lockAppliedSequence();
+            long lastSequence = appliedSequence;
+            for (String entry : entries) {
+                int separator = entry.indexOf('|');
+                long sequence = Long.parseLong(entry.substring(0, separator));
+                if (sequence <= appliedSequence) {
+                    // Applied before a crash or by another instance, the offset makes the replay a no-op
+                    continue;
+                }
+                for (String line : entry.substring(separator + 1).split(",")) {
+                    int colon = line.indexOf(':');
+                    deltas.merge(Long.parseLong(line.substring(0, colon)), Integer.parseInt(line.substring(colon + 1)), Integer::sum);
+                }
+                lastSequence = Math.max(lastSequence, sequence);
+            }
+            if (lastSequence == appliedSequence) {
+                return appliedSequence;
+            }
+            List<Map.Entry<Long, Integer>> lines = deltas.entrySet().stream().filter(delta -> delta.getValue() != 0).toList();
+            if (!lines.isEmpty()) {
+                this.productStockRepository.incrementAll(lines);
+            }
+            this.productStockRepository.saveAppliedSequence(lastSequence);
+            return lastSequence;
+        });
+        this.redisTemplate.execute(RELEASE, List.of(PROCESSING_KEY), entries.getFirst());
+
+        this.appliedSequence.set(applied != null ? applied : 0);
+        this.appliedBatches.incrementAndGet();
+        this.appliedEntries.addAndGet(entries.size());
+        if (!deltas.isEmpty()) {
+            this.productListingService.refreshStock(this.productDetailRepository.findAllWithProductByIdIn(deltas.keySet()).stream()
+                    .map(detail -> detail.getProduct().getId())
+                    .distinct()
+                    .toList());
+        }
+        return entries.size();
+    }
+
+    public FlashSaleMetrics getMetrics() {
+        Map<Long, Long> stock = new TreeMap<>();
+        long pending = 0;
+        if (this.enabled) {
+            List<String> skus = new ArrayList<>(Optional.ofNullable(this.redisTemplate.opsForSet().members(SKUS_KEY)).orElse(Set.of()));
+            List<String> counters = skus.isEmpty() ? List.of() : this.redisTemplate.opsForValue().multiGet(skus.stream().map(sku -> STOCK_KEY + sku).toList());
+            for (int i = 0; i < skus.size(); i++) {
+                if (counters != null && counters.get(i) != null) {
+                    stock.put(Long.parseLong(skus.get(i)), Long.parseLong(counters.get(i)));
+                }
+            }
+            pending = Optional.ofNullable(this.redisTemplate.opsForList().size(LEDGER_KEY)).orElse(0L)
+                    + Optional.ofNullable(this.redisTemplate.opsForList().size(PROCESSING_KEY)).orElse(0L);
+        }
+        return FlashSaleMetrics.builder()
+                .enabled(this.enabled)
+                .stock(stock)
+                .pendingEntries(pending)
+                .appliedEntries(this.appliedEntries.get())
+                .appliedBatches(this.appliedBatches.get())
+                .failedBatches(this.failedBatches.get())
+                .appliedSequence(this.appliedSequence.get())
+                .build();
+    }
+
+    private void drain() {
+        while (reconcile() > 0) {
+            // Until the ledger and any unfinished batch are written back
+        }
+    }
+
+    private void putBack(List<Map.Entry<Long, Integer>> lines) {
+        try {
+            Long result = this.redisTemplate.execute(RESTOCK, keys(lines), arguments(lines));
+            if (result != null && result == -1) {
+                reseed(this.productStockRepository.appliedSequence());
+                result = this.redisTemplate.execute(RESTOCK, keys(lines), arguments(lines));
+            }
+            if (result == null || result == -1) {
+                throw new IllegalStateException("Flash sale sequence missing");
+            }
+        } catch (RuntimeException e) {
+            log.error("Flash sale stock {} not put back message={}", lines, e.getMessage());
+        }
+    }
+
+    private void reseed(long appliedSequence) {
+        Long sequence = this.redisTemplate.execute(RESEED, List.of(SEQUENCE_KEY, LEDGER_KEY, PROCESSING_KEY), String.valueOf(appliedSequence));
+        log.debug("Flash sale sequence at {} applied={}", sequence, appliedSequence);
+    }
+
+    private void requireEnabled() {
+        if (!this.enabled) {
+            throw new InvalidDataException("Flash sale is disabled");
+        }
+    }
+
+    private static List<String> keys(List<Map.Entry<Long, Integer>> lines) {
+        List<String> keys = new ArrayList<>(lines.size() + 2);
+        keys.add(LEDGER_KEY);
+        keys.add(SEQUENCE_KEY);
+        lines.forEach(line -> keys.add(STOCK_KEY + line.getKey()));
+        return keys;
+    }
+
+    private static Object[] arguments(List<Map.Entry<Long, Integer>> lines) {
+        Object[] arguments = new Object[lines.size() * 2];
+        for (int i = 0; i < lines.size(); i++) {
+            arguments[i] = String.valueOf(lines.get(i).getKey());
+            arguments[lines.size() + i] = String.valueOf(lines.get(i).getValue());
+        }
+        return arguments;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import sd79.exception.InsufficientStockException;
+import sd79.exception.InvalidDataException;
+import sd79.repositories.products.ProductStockRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Takes and returns product detail stock for orders. Every line of an order goes in one batch of conditional
+ * decrements, so concurrent buyers of the same variant can neither oversell it nor lose each other's updates. Lines
+ * are applied in id order, two orders sharing variants lock their rows in the same order and can not deadlock.
+ * Product details on a flash sale are taken from their {@link FlashSaleInventory} counter instead
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final ProductStockRepository productStockRepository;
+
+    private final FlashSaleInventory flashSaleInventory;
+
+    /**
+     * Takes every quantity (product detail id to quantity) or none: when a line is short the whole batch, and the
+     * caller's transaction, rolls back
+     *
+     * @throws InsufficientStockException naming every short line
+     */
+    @Transactional
+    public void take(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = lines(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+        lines = this.flashSaleInventory.take(lines);
+        if (lines.isEmpty()) {
+            return;
+        }
+        int[] updated = this.productStockRepository.decrementAll(lines);
+        List<Long> shortLines = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (updated[i] == 0) {
+                shortLines.add(lines.get(i).getKey());
+            }
+        }
+        if (!shortLines.isEmpty()) {
+            log.info("Stock short for product details {}", shortLines);
+            throw new InsufficientStockException("Không đủ số lượng sản phẩm", shortLines);
+        }
+    }
+
+    /**
+     * Puts quantities back, for cancelled bills and removed lines
+     */
+    @Transactional
+    public void restock(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = lines(quantities);
+        if (!lines.isEmpty()) {
+            lines = this.flashSaleInventory.restock(lines);
+        }
+        if (!lines.isEmpty()) {
+            this.productStockRepository.incrementAll(lines);
+        }
+    }
+
+    private static List<Map.Entry<Long, Integer>> lines(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantities.size());
+        new TreeMap<>(quantities).forEach((id, quantity) -> {
+            if (quantity == null || quantity < 0) {
+                throw new InvalidDataException("Số lượng không hợp lệ");
+            }
+            if (quantity > 0) {
+                lines.add(Map.entry(id, quantity));
+            }
+        });
+        return lines;
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sd79.dto.requests.productRequests.ProductRequests;
+import sd79.dto.response.clients.product.FacetResponse;
+import sd79.dto.response.productResponse.ProductFacetVariant;
+import sd79.model.ProductListing;
+import sd79.utils.PageCursor;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap facet index over the products visible on the storefront, one bitmap (bit = product id) per category, brand,
+ * material, color, size and price bucket. A filter is answered by intersecting bitmaps; the count of every facet value
+ * applies all the other facets' selections, so selecting a brand still shows how many products the other brands have
+ */
+@Slf4j
+@Component
+public class ProductFacetIndex {
+
+    public enum Facet {
+        CATEGORY, BRAND, MATERIAL, COLOR, SIZE, PRICE
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final BitSet active = new BitSet();
+
+    private final Map<Facet, Map<Integer, BitSet>> bitmaps = new EnumMap<>(Facet.class);
+
+    private final TreeMap<Long, BitSet> prices = new TreeMap<>();
+
+    private final Map<Long, long[]> productPrices = new HashMap<>();
+
+    private final Map<Long, SortValues> sortValues = new HashMap<>();
+
+    private final long[] priceBuckets;
+
+    private volatile boolean ready;
+
+    public ProductFacetIndex(@Value("${product.facet.price-buckets:0,100000,200000,300000,500000}") long[] priceBuckets) {
+        this.priceBuckets = priceBuckets.clone();
+        Arrays.sort(this.priceBuckets);
+        for (Facet facet : Facet.values()) {
+            this.bitmaps.put(facet, new HashMap<>());
+        }
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    public void rebuild(Collection<ProductListing> listings, Collection<ProductFacetVariant> variants) {
+        Map<Long, List<ProductFacetVariant>> byProduct = new HashMap<>();
+        variants.forEach(variant -> byProduct.computeIfAbsent(variant.getProductId(), key -> new ArrayList<>()).add(variant));
+
+        this.lock.writeLock().lock();
+        try {
+            this.active.clear();
+            this.bitmaps.values().forEach(Map::clear);
+            this.prices.clear();
+            this.productPrices.clear();
+            this.sortValues.clear();
+            listings.forEach(listing -> add(listing, byProduct.getOrDefault(listing.getProductId(), List.of())));
+            this.ready = true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        log.info("Product facet index loaded {} products", this.active.cardinality());
+    }
+
+    public void update(ProductListing listing, Collection<ProductFacetVariant> variants) {
+        this.lock.writeLock().lock();
+        try {
+            delete(listing.getProductId());
+            add(listing, variants);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        this.lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * One page of the products matching the filter in storefront order, so SQL only loads the page's ids. Rows are
+     * ordered like {@link PageCursor#seek(String, String, boolean)} orders them: nulls first ascending, last descending
+     *
+     * @param keywordIds products matching the keyword, null when there is no keyword
+     */
+    public Page page(ProductRequests.ParamFilters param, Collection<Long> keywordIds) {
+        ProductRequests.SortBy sortBy = param.getSortBy();
+        boolean ascending = sortBy == ProductRequests.SortBy.PRICE_ASC;
+        Comparator<Row> order = Comparator.<Row, Comparable<Object>>comparing(row -> row.value, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingLong(row -> row.id);
+        if (!ascending) {
+            order = order.reversed();
+        }
+
+        List<Row> rows;
+        this.lock.readLock().lock();
+        try {
+            BitSet matching = matching(param, keywordIds, null);
+            rows = new ArrayList<>(matching.cardinality());
+            for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                rows.add(new Row(i, sortValue(this.sortValues.get((long) i), sortBy)));
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        rows.sort(order);
+
+        int from;
+        if (PageCursor.isPresent(param.getCursor())) {
+            PageCursor cursor = PageCursor.decode(param.getCursor());
+            Comparable<Object> value = null;
+            if (cursor.hasValue()) {
+                value = asComparable(sortBy == ProductRequests.SortBy.PRICE_ASC || sortBy == ProductRequests.SortBy.PRICE_DESC
+                        ? cursor.getDecimalValue() : cursor.getLongValue());
+            }
+            int index = Collections.binarySearch(rows, new Row(cursor.getId(), value), order);
+            from = index >= 0 ? index + 1 : -index - 1;
+        } else {
+            from = Math.max(param.getPageNo() - 1, 0) * param.getPageSize();
+        }
+
+        int to = Math.min(from + param.getPageSize(), rows.size());
+        if (from >= to) {
+            return new Page(List.of(), rows.size(), null);
+        }
+        List<Long> ids = rows.subList(from, to).stream().map(row -> row.id).toList();
+        String nextCursor = null;
+        if (to < rows.size()) {
+            Row last = rows.get(to - 1);
+            nextCursor = PageCursor.encode(last.value, last.id);
+        }
+        return new Page(ids, rows.size(), nextCursor);
+    }
+
+    public FacetResponse.Result facets(ProductRequests.ParamFilters param, Collection<Long> keywordIds) {
+        this.lock.readLock().lock();
+        try {
+            BitSet matching = matching(param, keywordIds, null);
+            return FacetResponse.Result.builder()
+                    .total(matching.cardinality())
+                    .categories(counts(Facet.CATEGORY, matching(param, keywordIds, Facet.CATEGORY)))
+                    .brands(counts(Facet.BRAND, matching(param, keywordIds, Facet.BRAND)))
+                    .materials(counts(Facet.MATERIAL, matching(param, keywordIds, Facet.MATERIAL)))
+                    .colors(counts(Facet.COLOR, matching(param, keywordIds, Facet.COLOR)))
+                    .sizes(counts(Facet.SIZE, matching(param, keywordIds, Facet.SIZE)))
+                    .prices(counts(Facet.PRICE, matching(param, keywordIds, Facet.PRICE)))
+                    .build();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(Long productId) {
+        this.lock.readLock().lock();
+        try {
+            return this.active.get(productId.intValue());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visible products of the category or the brand, the ones matching both first, then newest id first
+     */
+    public List<Long> sameCategoryOrBrand(Integer categoryId, Integer brandId, int limit) {
+        this.lock.readLock().lock();
+        try {
+            BitSet category = categoryId != null ? this.bitmaps.get(Facet.CATEGORY).getOrDefault(categoryId, new BitSet()) : new BitSet();
+            BitSet brand = brandId != null ? this.bitmaps.get(Facet.BRAND).getOrDefault(brandId, new BitSet()) : new BitSet();
+            BitSet both = (BitSet) category.clone();
+            both.and(brand);
+            BitSet either = (BitSet) category.clone();
+            either.or(brand);
+            either.andNot(both);
+
+            List<Long> ids = new ArrayList<>(toIds(both));
+            ids.addAll(toIds(either));
+            return ids.size() > limit ? ids.subList(0, limit) : ids;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private static Comparable<Object> sortValue(SortValues values, ProductRequests.SortBy sortBy) {
+        if (values == null) {
+            return null;
+        }
+        if (sortBy == ProductRequests.SortBy.PRICE_ASC) {
+            return asComparable(values.minPrice);
+        }
+        if (sortBy == ProductRequests.SortBy.PRICE_DESC) {
+            return asComparable(values.maxPrice);
+        }
+        return asComparable(sortBy == ProductRequests.SortBy.CREATED_AT ? values.createAt : values.updateAt);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> asComparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+
+    /**
+     * Visible products matching every selection except the one of {@code ignored}
+     */
+    private BitSet matching(ProductRequests.ParamFilters param, Collection<Long> keywordIds, Facet ignored) {
+        BitSet result = (BitSet) this.active.clone();
+        if (keywordIds != null) {
+            BitSet keyword = new BitSet();
+            keywordIds.forEach(id -> keyword.set(id.intValue()));
+            result.and(keyword);
+        }
+        and(result, Facet.CATEGORY, param.getCategoryIds(), ignored);
+        and(result, Facet.BRAND, param.getBrandIds(), ignored);
+        and(result, Facet.MATERIAL, param.getMaterialIds(), ignored);
+        and(result, Facet.COLOR, param.getColorIds(), ignored);
+        and(result, Facet.SIZE, param.getSizeIds(), ignored);
+        if (ignored != Facet.PRICE && (param.getMinPrice() != null || param.getMaxPrice() != null)) {
+            long from = param.getMinPrice() != null ? param.getMinPrice().longValue() : Long.MIN_VALUE;
+            long to = param.getMaxPrice() != null ? param.getMaxPrice().longValue() : Long.MAX_VALUE;
+            BitSet inRange = new BitSet();
+            if (from <= to) {
+                this.prices.subMap(from, true, to, true).values().forEach(inRange::or);
+            }
+            result.and(inRange);
+        }
+        return result;
+    }
+
+    private void and(BitSet result, Facet facet, List<Integer> values, Facet ignored) {
+        if (values == null || facet == ignored) {
+            return;
+        }
+        BitSet selected = new BitSet();
+        values.forEach(value -> {
+            BitSet bitmap = this.bitmaps.get(facet).get(value);
+            if (bitmap != null) {
+                selected.or(bitmap);
+            }
+        });
+        result.and(selected);
+    }
+
+    private List<FacetResponse.Count> counts(Facet facet, BitSet base) {
+        List<FacetResponse.Count> counts = new ArrayList<>();
+        new TreeMap<>(this.bitmaps.get(facet)).forEach((value, bitmap) -> {
+            BitSet intersection = (BitSet) bitmap.clone();
+            intersection.and(base);
+            FacetResponse.Count.CountBuilder count = FacetResponse.Count.builder().id(value).count(intersection.cardinality());
+            if (facet == Facet.PRICE) {
+                count.minPrice(BigDecimal.valueOf(this.priceBuckets[value]))
+                        .maxPrice(value + 1 < this.priceBuckets.length ? BigDecimal.valueOf(this.priceBuckets[value + 1]) : null);
+            }
+            counts.add(count.build());
+        });
+        return counts;
+    }
+
+    private void add(ProductListing listing, Collection<ProductFacetVariant> variants) {
+        if (!ProductSearchIndex.isVisible(listing) || variants.isEmpty()) {
+            return;
+        }
+        int bit = listing.getProductId().intValue();
+        this.active.set(bit);
+        this.sortValues.put(listing.getProductId(), new SortValues(listing.getMinPrice(), listing.getMaxPrice(),
+                millis(listing.getCreateAt()), millis(listing.getUpdateAt())));
+        set(Facet.CATEGORY, listing.getCategoryId(), bit);
+        set(Facet.BRAND, listing.getBrandId(), bit);
+        set(Facet.MATERIAL, listing.getMaterialId(), bit);
+
+        long[] amounts = variants.stream()
+                .filter(variant -> variant.getRetailPrice() != null)
+                .mapToLong(variant -> variant.getRetailPrice().longValue())
+                .distinct()
+                .toArray();
+        this.productPrices.put(listing.getProductId(), amounts);
+        for (long amount : amounts) {
+            this.prices.computeIfAbsent(amount, key -> new BitSet()).set(bit);
+            set(Facet.PRICE, bucketOf(amount), bit);
+        }
+        variants.forEach(variant -> {
+            set(Facet.COLOR, variant.getColorId(), bit);
+            set(Facet.SIZE, variant.getSizeId(), bit);
+        });
+    }
+
+    private void delete(Long productId) {
+        int bit = productId.intValue();
+        this.active.clear(bit);
+        this.sortValues.remove(productId);
+        this.bitmaps.values().forEach(values -> values.values().removeIf(bitmap -> {
+            bitmap.clear(bit);
+            return bitmap.isEmpty();
+        }));
+        long[] amounts = this.productPrices.remove(productId);
+        if (amounts != null) {
+            for (long amount : amounts) {
+                BitSet bitmap = this.prices.get(amount);
+                if (bitmap != null) {
+                    bitmap.clear(bit);
+                    if (bitmap.isEmpty()) {
+                        this.prices.remove(amount);
+                    }
+                }
+            }
+        }
+    }
+
+    private void set(Facet facet, Integer value, int bit) {
+        if (value != null) {
+            this.bitmaps.get(facet).computeIfAbsent(value, key -> new BitSet()).set(bit);
+        }
+    }
+
+    private int bucketOf(long amount) {
+        int index = Arrays.binarySearch(this.priceBuckets, amount);
+        return Math.max(index >= 0 ? index : -index - 2, 0);
+    }
+
+    private static Long millis(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    private static List<Long> toIds(BitSet bits) {
+        List<Long> ids = new ArrayList<>(bits.cardinality());
+        for (int i = bits.length() - 1; i >= 0; i = bits.previousSetBit(i - 1)) {
+            ids.add((long) i);
+        }
+        return ids;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Page {
+        private final List<Long> ids;
+
+        private final long total;
+
+        private final String nextCursor;
+    }
+
+    @AllArgsConstructor
+    private static class SortValues {
+        private final BigDecimal minPrice;
+
+        private final BigDecimal maxPrice;
+
+        private final Long createAt;
+
+        private final Long updateAt;
+    }
+
+    @AllArgsConstructor
+    private static class Row {
+        private final long id;
+
+        private final Comparable<Object> value;
+    }
+}
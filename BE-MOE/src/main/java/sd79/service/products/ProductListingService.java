@@ -0,0 +1,215 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sd79.dto.response.productResponse.ProductFacetVariant;
+import sd79.dto.response.productResponse.ProductStockSummary;
+import sd79.model.Product;
+import sd79.model.ProductDetail;
+import sd79.model.ProductImage;
+import sd79.model.ProductListing;
+import sd79.repositories.products.ProductDetailRepository;
+import sd79.repositories.products.ProductImageRepository;
+import sd79.repositories.products.ProductListingRepository;
+import sd79.repositories.products.ProductRepository;
+import sd79.repositories.products.ProductSaleRepository;
+import sd79.service.catalog.CatalogCache;
+import sd79.service.catalog.CatalogChangedEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the product_listing read model so the storefront never has to aggregate product details per row.
+ * Product, detail and image writes call {@link #refresh(Long)}: the row is rebuilt in the write transaction, the
+ * product is evicted from {@link ProductPageCache}, the cached catalog product lists are invalidated and, once the
+ * write commits, {@link ProductSearchIndex} and {@link ProductFacetIndex} are updated.
+ * <p>
+ * Orders only move stock and sales, and touch the hottest products. They call {@link #refreshStock(Collection)}
+ * instead, which queues the products after commit; {@link #flushStock()} updates their stock and sold count in place
+ * outside the order transaction, and only invalidates the catalog when a product sells out or comes back in stock
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductListingService {
+
+    private final ProductListingRepository productListingRepository;
+
+    private final ProductRepository productRepository;
+
+    private final ProductDetailRepository productDetailRepository;
+
+    private final ProductImageRepository productImageRepository;
+
+    private final ProductSaleRepository productSaleRepository;
+
+    private final ProductSearchIndex productSearchIndex;
+
+    private final ProductFacetIndex productFacetIndex;
+
+    private final ProductPageCache productPageCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Set<Long> pendingStock = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (this.productListingRepository.count() != this.productRepository.count()) {
+            log.info("Product listing is out of sync, rebuilding");
+            rebuildAll();
+        }
+        loadIndexes();
+    }
+
+    @Transactional
+    public void rebuildAll() {
+        this.productRepository.findAll().forEach(product -> this.productListingRepository.save(toListing(product)));
+        if (this.productSearchIndex.isReady()) {
+            afterCommit(this::loadIndexes);
+        }
+        this.productPageCache.clear();
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS));
+    }
+
+    @Transactional
+    public void refresh(Long productId) {
+        update(productId);
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS));
+    }
+
+    @Transactional
+    public void refresh(Collection<Long> productIds) {
+        new LinkedHashSet<>(productIds).forEach(this::update);
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS));
+    }
+
+    public void refreshStock(Long productId) {
+        refreshStock(List.of(productId));
+    }
+
+    /**
+     * Queues products whose stock or sales changed, once the surrounding transaction commits
+     */
+    public void refreshStock(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(productIds));
+        afterCommit(() -> this.pendingStock.addAll(ids));
+    }
+
+    @Scheduled(initialDelayString = "${product.listing.stock-refresh-ms:1000}", fixedDelayString = "${product.listing.stock-refresh-ms:1000}")
+    @Transactional
+    public void flushStock() {
+        List<Long> productIds = new ArrayList<>();
+        for (Iterator<Long> iterator = this.pendingStock.iterator(); iterator.hasNext(); ) {
+            productIds.add(iterator.next());
+            iterator.remove();
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    ProductListingService.this.pendingStock.addAll(productIds);
+                }
+            }
+        });
+
+        Map<Long, Boolean> visible = this.productListingRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(ProductListing::getProductId, ProductSearchIndex::isVisible));
+        this.productListingRepository.refreshStock(productIds);
+        List<ProductListing> listings = this.productListingRepository.findAllById(productIds);
+        Map<Long, List<ProductFacetVariant>> variants = this.productDetailRepository.findAvailableVariants(productIds).stream()
+                .collect(Collectors.groupingBy(ProductFacetVariant::getProductId));
+        List<Long> crossed = listings.stream()
+                .filter(listing -> !Objects.equals(visible.get(listing.getProductId()), ProductSearchIndex.isVisible(listing)))
+                .map(ProductListing::getProductId)
+                .toList();
+        afterCommit(() -> listings.forEach(listing -> {
+            this.productSearchIndex.update(listing);
+            this.productFacetIndex.update(listing, variants.getOrDefault(listing.getProductId(), List.of()));
+        }));
+        if (!crossed.isEmpty()) {
+            // Sold out or back in stock changes which products the cached lists and pages show
+            this.productPageCache.evict(crossed);
+            this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS));
+        }
+    }
+
+    private void update(Long productId) {
+        this.productPageCache.evict(productId);
+        Optional<Product> product = this.productRepository.findById(productId);
+        if (product.isEmpty()) {
+            this.productListingRepository.deleteById(productId);
+            afterCommit(() -> {
+                this.productSearchIndex.remove(productId);
+                this.productFacetIndex.remove(productId);
+            });
+            return;
+        }
+        ProductListing listing = this.productListingRepository.save(toListing(product.get()));
+        List<ProductFacetVariant> variants = this.productDetailRepository.findAvailableVariants(productId);
+        // A rolled back write never reaches the in-memory indexes
+        afterCommit(() -> {
+            this.productSearchIndex.update(listing);
+            this.productFacetIndex.update(listing, variants);
+        });
+    }
+
+    private void loadIndexes() {
+        List<ProductListing> listings = this.productListingRepository.findAll();
+        this.productSearchIndex.rebuild(listings);
+        this.productFacetIndex.rebuild(listings, this.productDetailRepository.findAvailableVariants());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private ProductListing toListing(Product product) {
+        ProductStockSummary stock = this.productDetailRepository.getStockSummary(product.getId());
+        return ProductListing.builder()
+                .productId(product.getId())
+                .name(product.getName())
+                .status(product.getStatus())
+                .isDeleted(product.getIsDeleted())
+                .categoryId(product.getCategory() != null ? product.getCategory().getId() : null)
+                .brandId(product.getBrand() != null ? product.getBrand().getId() : null)
+                .materialId(product.getMaterial() != null ? product.getMaterial().getId() : null)
+                .totalStock(stock.getTotalStock())
+                .retailPrice(this.productDetailRepository.findFirstByProductIdOrderByIdAsc(product.getId()).map(ProductDetail::getRetailPrice).orElse(null))
+                .minPrice(stock.getMinPrice())
+                .maxPrice(stock.getMaxPrice())
+                .imageUrl(this.productImageRepository.findFirstByProductIdOrderByIdAsc(product.getId()).map(ProductImage::getImageUrl).orElse(null))
+                .soldCount(this.productSaleRepository.sumQuantityByProductId(product.getId()))
+                .createAt(product.getCreateAt())
+                .updateAt(product.getUpdateAt())
+                .build();
+    }
+}
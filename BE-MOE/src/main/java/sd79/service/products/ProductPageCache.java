@@ -0,0 +1,120 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sd79.dto.response.clients.product.ProductResponse;
+import sd79.service.catalog.CatalogCache;
+import sd79.service.catalog.CatalogChangedEvent;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of assembled product pages keyed by product id. A page also embeds its related items, so evicting
+ * a product drops its own page and every page listing it as related. Evictions made inside a transaction are repeated
+ * after commit, otherwise a reader could cache the pre-commit state in between
+ */
+@Component
+public class ProductPageCache {
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final Map<Long, Entry> entries;
+
+    private long generation;
+
+    public ProductPageCache(@Value("${product.page.cache.max-entries:1000}") int maxEntries,
+                            @Value("${product.page.cache.ttl-ms:600000}") long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > ProductPageCache.this.maxEntries;
+            }
+        };
+    }
+
+    public ProductResponse.ProductDetail get(Long productId, Function<Long, ProductResponse.ProductDetail> loader) {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = this.entries.get(productId);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt < this.ttlMillis) {
+                return entry.page;
+            }
+            startGeneration = this.generation;
+        }
+        ProductResponse.ProductDetail page = loader.apply(productId);
+        synchronized (this) {
+            // Skip caching when something was evicted while loading, the page may predate that write
+            if (startGeneration == this.generation) {
+                this.entries.put(productId, new Entry(page, System.currentTimeMillis()));
+            }
+        }
+        return page;
+    }
+
+    public void evict(Long productId) {
+        evict(List.of(productId));
+    }
+
+    public void evict(Collection<Long> productIds) {
+        remove(productIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(productIds);
+                }
+            });
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // Product writes evict their own pages through ProductListingService; attribute names show on every page
+        if (!event.getRegions().contains(CatalogCache.Region.PRODUCTS)) {
+            clear();
+        }
+    }
+
+    public synchronized void clear() {
+        this.generation++;
+        this.entries.clear();
+    }
+
+    private synchronized void remove(Collection<Long> productIds) {
+        this.generation++;
+        this.entries.keySet().removeAll(productIds);
+        this.entries.values().removeIf(entry -> entry.page.getRelatedItem().stream()
+                .anyMatch(item -> productIds.contains(item.getProductId())));
+    }
+
+    private static final class Entry {
+        private final ProductResponse.ProductDetail page;
+
+        private final long loadedAt;
+
+        private Entry(ProductResponse.ProductDetail page, long loadedAt) {
+            this.page = page;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import sd79.dto.response.clients.product.ProductResponse;
+import sd79.dto.response.productResponse.ColorResponse;
+import sd79.dto.response.productResponse.ProductPageVariant;
+import sd79.dto.response.productResponse.SizeResponse;
+import sd79.dto.response.promotions.PromotionPrice;
+import sd79.enums.ProductStatus;
+import sd79.exception.EntityNotFoundException;
+import sd79.model.Product;
+import sd79.model.ProductImage;
+import sd79.model.ProductListing;
+import sd79.repositories.BillDetailRepo;
+import sd79.repositories.products.ProductDetailRepository;
+import sd79.repositories.products.ProductListingRepository;
+import sd79.repositories.products.ProductRepository;
+import sd79.service.images.ImageStore;
+import sd79.service.promotions.PromotionPriceResolver;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Builds the storefront product page from a fixed number of queries: the product with its attributes and images
+ * (entity graph), all of its variants with size and color, the cards of the {@link CoPurchaseRecommender} picks from
+ * product_listing and the purchase count. The assembled page is cached without prices from promotions; those are
+ * applied on every read from the in-memory promotion index, so promotion writes and start/end instants never serve a
+ * stale discount
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductPageLoader {
+
+    private static final int RELATED_ITEMS = 6;
+
+    private final ProductRepository productRepository;
+
+    private final ProductDetailRepository productDetailRepository;
+
+    private final ProductListingRepository productListingRepository;
+
+    private final BillDetailRepo billDetailRepository;
+
+    private final PromotionPriceResolver promotionPriceResolver;
+
+    private final ProductPageCache productPageCache;
+
+    private final CoPurchaseRecommender coPurchaseRecommender;
+
+    private final ImageStore imageStore;
+
+    public ProductResponse.ProductDetail load(Long productId) {
+        ProductResponse.ProductDetail page = this.productPageCache.get(productId, this::fetch);
+
+        List<Long> productIds = new ArrayList<>();
+        productIds.add(productId);
+        page.getRelatedItem().forEach(item -> productIds.add(item.getProductId()));
+        Map<Long, PromotionPrice> prices = this.promotionPriceResolver.resolve(productIds);
+
+        PromotionPrice promotionPrice = prices.get(productId);
+        return page.toBuilder()
+                .discountPrice(promotionPrice.apply(page.getRetailPrice()))
+                .percent(promotionPrice.getPercent())
+                .expiredDate(promotionPrice.getExpiredDate())
+                .relatedItem(page.getRelatedItem().stream().map(item -> {
+                    PromotionPrice relatedPrice = prices.get(item.getProductId());
+                    return item.toBuilder()
+                            .discountPrice(relatedPrice.apply(item.getRetailPrice()))
+                            .percent(relatedPrice.getPercent())
+                            .expiredDate(relatedPrice.getExpiredDate())
+                            .build();
+                }).toList())
+                .build();
+    }
+
+    private ProductResponse.ProductDetail fetch(Long productId) {
+        Product product = this.productRepository.findPageById(productId).orElseThrow(() -> new EntityNotFoundException("Product not found"));
+        List<ProductPageVariant> variants = this.productDetailRepository.getPageVariants(productId);
+        if (variants.isEmpty()) {
+            throw new EntityNotFoundException("Product not found");
+        }
+
+        Map<Integer, SizeResponse> sizes = new LinkedHashMap<>();
+        Map<Integer, ColorResponse> colors = new LinkedHashMap<>();
+        long quantity = 0;
+        for (ProductPageVariant variant : variants) {
+            if (variant.getStatus() == ProductStatus.ACTIVE) {
+                sizes.putIfAbsent(variant.getSize().getId(), variant.getSize());
+                colors.putIfAbsent(variant.getColor().getId(), variant.getColor());
+                quantity += variant.getQuantity() != null ? variant.getQuantity() : 0;
+            }
+        }
+
+        List<Long> relatedIds = this.coPurchaseRecommender.related(productId,
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getBrand() != null ? product.getBrand().getId() : null,
+                RELATED_ITEMS);
+        Map<Long, ProductListing> listings = new HashMap<>();
+        this.productListingRepository.findAllById(relatedIds).forEach(listing -> listings.put(listing.getProductId(), listing));
+        List<ProductResponse.Product> relatedItem = relatedIds.stream()
+                .map(listings::get)
+                .filter(Objects::nonNull)
+                .map(listing -> ProductResponse.Product.builder()
+                        .productId(listing.getProductId())
+                        .imageUrl(listing.getImageUrl())
+                        .thumbnails(this.imageStore.variants(listing.getImageUrl()))
+                        .name(listing.getName())
+                        .retailPrice(listing.getRetailPrice())
+                        .rate(4)
+                        .rateCount(104)
+                        .build())
+                .toList();
+
+        List<String> imageUrls = product.getProductImages().stream().map(ProductImage::getImageUrl).toList();
+        BigDecimal retailPrice = variants.getFirst().getRetailPrice();
+        return ProductResponse.ProductDetail.builder()
+                .productId(productId)
+                .imageUrl(imageUrls)
+                .imageVariants(imageUrls.stream().map(this.imageStore::variants).toList())
+                .name(product.getName())
+                .retailPrice(retailPrice)
+                .rate(4)
+                .rateCount(102)
+                .sizes(new HashSet<>(sizes.values()))
+                .colors(new HashSet<>(colors.values()))
+                .quantity(quantity)
+                .origin(product.getOrigin())
+                .category(product.getCategory() != null ? product.getCategory().getName() : null)
+                .material(product.getMaterial() != null ? product.getMaterial().getName() : null)
+                .brand(product.getBrand() != null ? product.getBrand().getName() : null)
+                .description(product.getDescription())
+                .relatedItem(relatedItem)
+                .purchase(this.billDetailRepository.getPurchase(productId))
+                .build();
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductListing;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory n-gram inverted index over the names of products visible on the storefront. Names and queries are
+ * folded (lower case, Vietnamese diacritics removed, đ -> d) so "ao phong" matches "Áo phông". Every word is indexed
+ * by all of its 1 to 3 character grams; longer query tokens intersect their trigrams and are verified by substring
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    private final Map<Long, String> names = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text.replace('đ', 'd').replace('Đ', 'D'), Normalizer.Form.NFD);
+        return MARKS.matcher(folded).replaceAll("").toLowerCase(Locale.ROOT).trim();
+    }
+
+    public static boolean isVisible(ProductListing listing) {
+        return listing.getStatus() == ProductStatus.ACTIVE
+                && !Boolean.TRUE.equals(listing.getIsDeleted())
+                && listing.getTotalStock() != null && listing.getTotalStock() > 0;
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    public void rebuild(Collection<ProductListing> listings) {
+        this.lock.writeLock().lock();
+        try {
+            this.postings.clear();
+            this.names.clear();
+            listings.stream().filter(ProductSearchIndex::isVisible).forEach(listing -> add(listing.getProductId(), listing.getName()));
+            this.ready = true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        log.info("Product search index loaded {} products", this.names.size());
+    }
+
+    public void update(ProductListing listing) {
+        this.lock.writeLock().lock();
+        try {
+            delete(listing.getProductId());
+            if (isVisible(listing)) {
+                add(listing.getProductId(), listing.getName());
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        this.lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Product ids whose folded name contains every token of the keyword, best match first.
+     * Whole-word matches rank above word-prefix matches, which rank above plain substrings; shorter names win ties
+     *
+     * @param limit maximum number of ids, 0 for all
+     */
+    public List<Long> search(String keyword, int limit) {
+        String[] tokens = SEPARATORS.split(fold(keyword));
+        List<String> terms = Arrays.stream(tokens).filter(token -> !token.isEmpty()).distinct().toList();
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        this.lock.readLock().lock();
+        try {
+            Set<Long> candidates = null;
+            for (String term : terms) {
+                Set<Long> matches = candidates(term);
+                if (candidates == null) {
+                    candidates = new HashSet<>(matches);
+                } else {
+                    candidates.retainAll(matches);
+                }
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<long[]> scored = new ArrayList<>(candidates.size());
+            for (Long productId : candidates) {
+                String name = this.names.get(productId);
+                int score = 0;
+                for (String term : terms) {
+                    int termScore = score(name, term);
+                    if (termScore == 0) {
+                        score = -1;
+                        break;
+                    }
+                    score += termScore;
+                }
+                if (score > 0) {
+                    scored.add(new long[]{productId, score, name.length()});
+                }
+            }
+            scored.sort(Comparator.<long[]>comparingLong(item -> -item[1])
+                    .thenComparingLong(item -> item[2])
+                    .thenComparingLong(item -> -item[0]));
+
+            return scored.stream()
+                    .limit(limit > 0 ? limit : Long.MAX_VALUE)
+                    .map(item -> item[0])
+                    .toList();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> candidates(String term) {
+        if (term.length() <= GRAM) {
+            return this.postings.getOrDefault(term, Set.of());
+        }
+        Set<Long> result = null;
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            Set<Long> posting = this.postings.getOrDefault(term.substring(i, i + GRAM), Set.of());
+            if (result == null) {
+                result = new HashSet<>(posting);
+            } else {
+                result.retainAll(posting);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static int score(String name, String term) {
+        int best = 0;
+        for (String word : SEPARATORS.split(name)) {
+            if (word.equals(term)) {
+                return 3;
+            }
+            if (word.startsWith(term)) {
+                best = 2;
+            } else if (best == 0 && word.contains(term)) {
+                best = 1;
+            }
+        }
+        return best;
+    }
+
+    private void add(Long productId, String name) {
+        String folded = fold(name);
+        this.names.put(productId, folded);
+        for (String gram : grams(folded)) {
+            this.postings.computeIfAbsent(gram, key -> new HashSet<>()).add(productId);
+        }
+    }
+
+    private void delete(Long productId) {
+        String folded = this.names.remove(productId);
+        if (folded == null) {
+            return;
+        }
+        for (String gram : grams(folded)) {
+            Set<Long> posting = this.postings.get(gram);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    this.postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String folded) {
+        Set<String> grams = new HashSet<>();
+        for (String word : SEPARATORS.split(folded)) {
+            for (int size = 1; size <= GRAM; size++) {
+                for (int i = 0; i + size <= word.length(); i++) {
+                    grams.add(word.substring(i, i + size));
+                }
+            }
+        }
+        return grams;
+    }
+}
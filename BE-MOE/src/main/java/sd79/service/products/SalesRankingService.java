@@ -0,0 +1,181 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.products;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sd79.dto.response.productResponse.ProductSalesTotal;
+import sd79.model.Bill;
+import sd79.model.BillDetail;
+import sd79.model.ProductSale;
+import sd79.repositories.BillDetailRepo;
+import sd79.repositories.products.ProductSaleRepository;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Best-seller ranking. A bill reaching COMPLETED (8) writes its sold quantities to the product_sales ledger and a
+ * bill CANCELED (7) removes them again. The all-time, 30-day and 7-day rankings are read from the ledger as a whole
+ * every {@code sales.ranking.refresh-ms}, so every node ranks from the same committed rows and the windows slide at
+ * that pace; a ranking is swapped in whole, never patched. Ledger changes also feed {@link CoPurchaseRecommender}
+ * once their transaction has committed
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesRankingService {
+
+    public static final int COMPLETED = 8;
+
+    public static final int CANCELED = 7;
+
+    private static final int RANKED = 100;
+
+    public enum Window {
+        ALL_TIME(0), LAST_30_DAYS(30), LAST_7_DAYS(7);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        private Date from() {
+            return this.days == 0 ? null : new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(this.days));
+        }
+    }
+
+    private final ProductSaleRepository productSaleRepository;
+
+    private final BillDetailRepo billDetailRepository;
+
+    private final ProductListingService productListingService;
+
+    private final CoPurchaseRecommender coPurchaseRecommender;
+
+    private volatile Map<Window, List<Long>> rankings = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void init() {
+        if (this.productSaleRepository.count() == 0) {
+            int rows = this.productSaleRepository.backfillFromCompletedBills();
+            log.info("Backfilled {} product sales from completed bills", rows);
+            if (rows > 0) {
+                this.productListingService.rebuildAll();
+            }
+        }
+        reload();
+        this.coPurchaseRecommender.rebuild(this.productSaleRepository.findAllByOrderByBillIdAsc());
+    }
+
+    @Scheduled(initialDelayString = "${sales.ranking.refresh-ms:60000}", fixedDelayString = "${sales.ranking.refresh-ms:60000}")
+    public void reload() {
+        Map<Window, List<Long>> next = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            List<ProductSalesTotal> rows = window == Window.ALL_TIME
+                    ? this.productSaleRepository.sumQuantities()
+                    : this.productSaleRepository.sumQuantitiesSince(window.from());
+            next.put(window, rows.stream()
+                    .filter(row -> row.getQuantity() > 0)
+                    .sorted(Comparator.comparingLong(ProductSalesTotal::getQuantity).reversed()
+                            .thenComparing(ProductSalesTotal::getProductId, Comparator.reverseOrder()))
+                    .limit(RANKED)
+                    .map(ProductSalesTotal::getProductId)
+                    .toList());
+        }
+        this.rankings = next;
+    }
+
+    /**
+     * Applies a bill status change to the ranking; statuses other than completed and canceled are ignored
+     */
+    @Transactional
+    public void onStatusChange(Bill bill, Integer statusId) {
+        if (statusId == null) {
+            return;
+        }
+        if (statusId == COMPLETED) {
+            record(bill);
+        } else if (statusId == CANCELED) {
+            revoke(bill.getId());
+        }
+    }
+
+    @Transactional
+    public void record(Bill bill) {
+        // Replace any previous entry so completing the same bill twice does not count it twice; the bill row lock
+        // keeps two concurrent completions from both seeing no previous entry
+        this.productSaleRepository.lockBill(bill.getId());
+        List<ProductSale> previous = this.productSaleRepository.findByBillId(bill.getId());
+        this.productSaleRepository.deleteByBillId(bill.getId());
+
+        Date now = new Date();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (BillDetail detail : this.billDetailRepository.findByBill(bill)) {
+            quantities.merge(detail.getProductDetail().getProduct().getId(), detail.getQuantity(), Integer::sum);
+        }
+        List<ProductSale> sales = quantities.entrySet().stream().map(entry -> ProductSale.builder()
+                .billId(bill.getId())
+                .productId(entry.getKey())
+                .quantity(entry.getValue())
+                .soldAt(now)
+                .build()).toList();
+        this.productSaleRepository.saveAll(sales);
+        afterCommit(() -> {
+            if (!previous.isEmpty()) {
+                this.coPurchaseRecommender.remove(previous.stream().map(ProductSale::getProductId).toList());
+            }
+            this.coPurchaseRecommender.add(quantities.keySet());
+        });
+
+        Set<Long> productIds = new HashSet<>(quantities.keySet());
+        previous.forEach(sale -> productIds.add(sale.getProductId()));
+        this.productListingService.refreshStock(productIds);
+    }
+
+    @Transactional
+    public void revoke(Long billId) {
+        this.productSaleRepository.lockBill(billId);
+        List<ProductSale> previous = this.productSaleRepository.findByBillId(billId);
+        if (previous.isEmpty()) {
+            return;
+        }
+        this.productSaleRepository.deleteByBillId(billId);
+        afterCommit(() -> this.coPurchaseRecommender.remove(previous.stream().map(ProductSale::getProductId).toList()));
+        this.productListingService.refreshStock(previous.stream().map(ProductSale::getProductId).toList());
+    }
+
+    /**
+     * Product ids ordered by quantity sold in the window, best seller first
+     */
+    public List<Long> top(Window window, int limit) {
+        List<Long> ranking = this.rankings.getOrDefault(window, List.of());
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
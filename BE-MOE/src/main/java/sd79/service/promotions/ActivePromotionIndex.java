@@ -0,0 +1,262 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.promotions;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sd79.dto.response.promotions.PromotionIndexMetrics;
+import sd79.dto.response.promotions.PromotionPrice;
+import sd79.dto.response.promotions.PromotionWindow;
+import sd79.repositories.promotions.PromotionDetailRepository;
+import sd79.service.catalog.CatalogCache;
+import sd79.service.catalog.CatalogChangedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-local index of the promotions active right now, keyed by product id.
+ * Every current and upcoming promotion window is kept in memory; the active table is recomputed from them
+ * at each start/end instant, and the windows are reloaded once a promotion write commits. Other nodes are told to
+ * reload on a pub/sub channel
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ActivePromotionIndex implements MessageListener {
+
+    private static final String CHANNEL = "promotion-index";
+
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private final PromotionDetailRepository promotionDetailRepository;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final TaskScheduler taskScheduler;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder rebuilds = new LongAdder();
+
+    private final LongAdder flips = new LongAdder();
+
+    private volatile List<PromotionWindow> windows = List.of();
+
+    private volatile Table table;
+
+    private volatile long lastRebuildMillis;
+
+    private volatile Date lastRebuildAt;
+
+    private volatile Date nextFlipAt;
+
+    private ScheduledFuture<?> nextFlip;
+
+    @PostConstruct
+    public void subscribe() {
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Runs after commit, a rolled back promotion write never reaches the index
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!event.isPromotions()) {
+            return;
+        }
+        rebuild();
+        try {
+            this.redisTemplate.convertAndSend(CHANNEL, NODE_ID);
+        } catch (RuntimeException e) {
+            log.warn("Promotion index change not announced message={}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!NODE_ID.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Safety net for promotions written by another node
+     */
+    @Scheduled(initialDelayString = "${promotion.index.refresh-ms:300000}", fixedDelayString = "${promotion.index.refresh-ms:300000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        this.windows = this.promotionDetailRepository.findCurrentAndUpcomingWindows();
+        flip();
+        this.rebuilds.increment();
+        this.lastRebuildMillis = System.currentTimeMillis() - start;
+        this.lastRebuildAt = new Date();
+        log.info("Active promotion index rebuilt windows={} active={} took={}ms", this.windows.size(), this.table.size, this.lastRebuildMillis);
+    }
+
+    public boolean isReady() {
+        return this.table != null;
+    }
+
+    public PromotionPrice lookup(long productId) {
+        Table current = this.table;
+        int slot = current == null ? -1 : current.find(productId);
+        // BETWEEN start AND end is inclusive, so the entry is still valid at the end instant itself
+        if (slot >= 0 && System.currentTimeMillis() <= current.endDates[slot]) {
+            this.hits.increment();
+            return new PromotionPrice(productId, current.percents[slot], new Date(current.endDates[slot]));
+        }
+        this.misses.increment();
+        return PromotionPrice.none(productId);
+    }
+
+    public PromotionIndexMetrics getMetrics() {
+        Table current = this.table;
+        return PromotionIndexMetrics.builder()
+                .activeProducts(current == null ? 0 : current.size)
+                .scheduledWindows(this.windows.size())
+                .hits(this.hits.sum())
+                .misses(this.misses.sum())
+                .rebuilds(this.rebuilds.sum())
+                .flips(this.flips.sum())
+                .lastRebuildMillis(this.lastRebuildMillis)
+                .lastRebuildAt(this.lastRebuildAt)
+                .nextFlipAt(this.nextFlipAt)
+                .build();
+    }
+
+    private synchronized void flip() {
+        long now = System.currentTimeMillis();
+        long boundary = Long.MAX_VALUE;
+        Table next = new Table(this.windows.size());
+        for (PromotionWindow window : this.windows) {
+            if (window.getStartDate() == null || window.getEndDate() == null || window.getPercent() == null) {
+                continue;
+            }
+            long startAt = window.getStartDate().getTime();
+            long endAt = window.getEndDate().getTime();
+            if (startAt <= now && now <= endAt) {
+                next.putIfAbsent(window.getProductId(), window.getPercent(), endAt);
+                boundary = Math.min(boundary, endAt + 1);
+            } else if (startAt > now) {
+                boundary = Math.min(boundary, startAt);
+            }
+        }
+        this.table = next;
+        this.flips.increment();
+
+        if (this.nextFlip != null) {
+            this.nextFlip.cancel(false);
+        }
+        if (boundary == Long.MAX_VALUE) {
+            this.nextFlip = null;
+            this.nextFlipAt = null;
+        } else {
+            this.nextFlip = this.taskScheduler.schedule(this::scheduledFlip, Instant.ofEpochMilli(boundary));
+            this.nextFlipAt = new Date(boundary);
+        }
+    }
+
+    /**
+     * A promotion starting or ending changes the prices of the cached catalog lists
+     */
+    private void scheduledFlip() {
+        flip();
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS));
+    }
+
+    /**
+     * Open addressing table of productId -> (percent, endDate). Product ids are identity columns starting at 1,
+     * so 0 marks an empty slot
+     */
+    private static final class Table {
+        private final long[] keys;
+
+        private final int[] percents;
+
+        private final long[] endDates;
+
+        private final int mask;
+
+        private int size;
+
+        private Table(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            this.keys = new long[capacity];
+            this.percents = new int[capacity];
+            this.endDates = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private int find(long key) {
+            for (int slot = hash(key) & this.mask; ; slot = (slot + 1) & this.mask) {
+                if (this.keys[slot] == key) {
+                    return slot;
+                }
+                if (this.keys[slot] == 0L) {
+                    return -1;
+                }
+            }
+        }
+
+        private void putIfAbsent(long key, int percent, long endDate) {
+            int slot = hash(key) & this.mask;
+            while (this.keys[slot] != 0L) {
+                if (this.keys[slot] == key) {
+                    return;
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key;
+            this.percents[slot] = percent;
+            this.endDates[slot] = endDate;
+            this.size++;
+        }
+    }
+}
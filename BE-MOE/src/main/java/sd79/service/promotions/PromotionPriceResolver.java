@@ -0,0 +1,55 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.promotions;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import sd79.dto.response.promotions.PromotionPrice;
+import sd79.repositories.promotions.PromotionDetailRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class PromotionPriceResolver {
+
+    private final PromotionDetailRepository promotionDetailRepository;
+
+    private final ActivePromotionIndex activePromotionIndex;
+
+    /**
+     * Resolve the active promotion of every product from the in-memory index, or with one query while the index is not built yet. Every requested id is present in the result,
+     * products without an active promotion map to {@link PromotionPrice#none(Long)}
+     * @param productIds
+     */
+    public Map<Long, PromotionPrice> resolve(Collection<Long> productIds) {
+        Set<Long> ids = productIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, PromotionPrice> prices = new HashMap<>();
+        if (this.activePromotionIndex.isReady()) {
+            ids.forEach(id -> prices.put(id, this.activePromotionIndex.lookup(id)));
+            return prices;
+        }
+        if (!ids.isEmpty()) {
+            this.promotionDetailRepository.findActivePricesByProductIds(ids)
+                    .forEach(price -> prices.putIfAbsent(price.getProductId(), price));
+        }
+        ids.forEach(id -> prices.putIfAbsent(id, PromotionPrice.none(id)));
+        return prices;
+    }
+
+    public PromotionPrice resolve(Long productId) {
+        if (this.activePromotionIndex.isReady()) {
+            return this.activePromotionIndex.lookup(productId);
+        }
+        return resolve(Set.of(productId)).get(productId);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.security;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import sd79.dto.response.PasswordHashingMetrics;
+import sd79.exception.TooManyRequestsException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt on a dedicated pool sized to the cores with a bounded queue, so a burst of logins or registrations can not
+ * take every CPU from the rest of the traffic. The calling thread waits for its hash; when the queue is full the call
+ * fails right away with {@link TooManyRequestsException} (429) instead of queueing without bound.
+ * <p>
+ * Hashes keep their own cost, so changing the strength only affects passwords hashed from then on
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final int MIN_STRENGTH = 10;
+
+    private static final int MAX_STRENGTH = 14;
+
+    private final BCryptPasswordEncoder delegate;
+
+    private final int strength;
+
+    private final int queueCapacity;
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder encodes = new LongAdder();
+
+    private final LongAdder matches = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder hashNanos = new LongAdder();
+
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity) {
+        this.strength = strength;
+        this.queueCapacity = queueCapacity;
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"));
+    }
+
+    /**
+     * Highest strength whose hash still takes at most targetMillis on this machine, never below the BCrypt default.
+     * Each step doubles the cost, so the search stops at the first strength over the target
+     */
+    public static int calibrate(long targetMillis) {
+        // Warm up the JIT first, the first hash is always the slowest
+        new BCryptPasswordEncoder(4).encode("calibration");
+        int chosen = MIN_STRENGTH;
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            long start = System.nanoTime();
+            new BCryptPasswordEncoder(strength).encode("calibration");
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("BCrypt strength {} took {} ms", strength, millis);
+            if (millis > targetMillis) {
+                break;
+            }
+            chosen = strength;
+        }
+        log.info("BCrypt strength {} chosen for a target of {} ms", chosen, targetMillis);
+        return chosen;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        this.encodes.increment();
+        return run(() -> this.delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        this.matches.increment();
+        return run(() -> this.delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public PasswordHashingMetrics getMetrics() {
+        long hashes = this.encodes.sum() + this.matches.sum() - this.rejected.sum();
+        return PasswordHashingMetrics.builder()
+                .strength(this.strength)
+                .threads(this.executor.getMaximumPoolSize())
+                .activeThreads(this.executor.getActiveCount())
+                .queueDepth(this.executor.getQueue().size())
+                .queueCapacity(this.queueCapacity)
+                .encodes(this.encodes.sum())
+                .matches(this.matches.sum())
+                .rejected(this.rejected.sum())
+                .averageHashMillis(hashes > 0 ? this.hashNanos.sum() / 1e6 / hashes : 0)
+                .maxHashMillis(this.maxHashNanos.get() / 1e6)
+                .build();
+    }
+
+    private <T> T run(Supplier<T> hash) {
+        Future<T> future;
+        try {
+            future = this.executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return hash.get();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    this.hashNanos.add(elapsed);
+                    this.maxHashNanos.accumulate(elapsed);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            log.warn("Password hashing queue is full, request rejected");
+            throw new TooManyRequestsException("Hệ thống đang bận, vui lòng thử lại sau", e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sd79.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded LRU cache of the authenticated principals resolved by PreFilter, keyed by the token subject, so a request
+ * with a valid token does not load the user and its role from MySQL. Any write to a user (lock, password, role) and
+ * every logout evicts it; evictions made inside a transaction are repeated after commit and then announced on a
+ * pub/sub channel so the other nodes drop their copy too. The TTL bounds staleness when Redis is unavailable
+ */
+@Slf4j
+@Component
+public class PrincipalCache implements MessageListener {
+
+    private static final String CHANNEL = "principal-invalidation";
+
+    private static final String BY_ID = "id:";
+
+    private static final String BY_USERNAME = "username:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries;
+
+    private long generation;
+
+    public PrincipalCache(StringRedisTemplate redisTemplate,
+                          RedisMessageListenerContainer listenerContainer,
+                          @Value("${security.principal-cache.max-entries:10000}") int maxEntries,
+                          @Value("${security.principal-cache.ttl-ms:300000}") long ttlMillis) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PrincipalCache.this.maxEntries;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void init() {
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = this.entries.get(username);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt < this.ttlMillis) {
+                return entry.principal;
+            }
+            startGeneration = this.generation;
+        }
+        UserDetails principal = loader.apply(username);
+        synchronized (this) {
+            // Skip caching when something was evicted while loading, the user may predate that write
+            if (startGeneration == this.generation) {
+                this.entries.put(username, new Entry(principal, System.currentTimeMillis()));
+            }
+        }
+        return principal;
+    }
+
+    public void evict(String username) {
+        evict(BY_USERNAME + username, entry -> username.equals(entry.principal.getUsername()));
+    }
+
+    /**
+     * Evicts a user under whatever name it was cached, its username may just have changed
+     */
+    public void evict(Long userId) {
+        if (userId != null) {
+            evict(BY_ID + userId, entry -> entry.principal instanceof User user && userId.equals(user.getId()));
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith(BY_ID)) {
+                Long userId = Long.parseLong(body.substring(BY_ID.length()));
+                remove(entry -> entry.principal instanceof User user && userId.equals(user.getId()));
+            } else if (body.startsWith(BY_USERNAME)) {
+                String username = body.substring(BY_USERNAME.length());
+                remove(entry -> username.equals(entry.principal.getUsername()));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Principal cache ignored invalidation message {}", body);
+        }
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private void evict(String message, Predicate<Entry> predicate) {
+        remove(predicate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(predicate);
+                    publish(message);
+                }
+            });
+        } else {
+            publish(message);
+        }
+    }
+
+    private synchronized void remove(Predicate<Entry> predicate) {
+        this.generation++;
+        this.entries.values().removeIf(predicate);
+    }
+
+    private void publish(String message) {
+        try {
+            this.redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (RuntimeException e) {
+            log.warn("Principal cache could not publish {}: {}", message, e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        private final UserDetails principal;
+
+        private final long loadedAt;
+
+        private Entry(UserDetails principal, long loadedAt) {
+            this.principal = principal;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Per-node cache of the active session of each username, as a fingerprint of its access token, so PreFilter does not
+ * read the Redis token on every request. Login, refresh and logout on any node announce the new fingerprint (or its
+ * removal) on a pub/sub channel and every node applies it right away; the short TTL only bounds staleness when a
+ * message is lost. Absent sessions are never cached, a revoked user always goes back to Redis
+ */
+@Slf4j
+@Component
+public class TokenNearCache implements MessageListener {
+
+    private static final String CHANNEL = "token-invalidation";
+
+    private static final String SAVED = "saved:";
+
+    private static final String DELETED = "deleted:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries;
+
+    private long generation;
+
+    public TokenNearCache(StringRedisTemplate redisTemplate,
+                          RedisMessageListenerContainer listenerContainer,
+                          @Value("${security.token-cache.max-entries:10000}") int maxEntries,
+                          @Value("${security.token-cache.ttl-ms:10000}") long ttlMillis) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TokenNearCache.this.maxEntries;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void init() {
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Fingerprint of the active access token of the username, null when it has no session
+     *
+     * @param loader reads the access token from Redis, null when there is none
+     */
+    public String get(String username, Function<String, String> loader) {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = this.entries.get(username);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt < this.ttlMillis) {
+                return entry.fingerprint;
+            }
+            startGeneration = this.generation;
+        }
+        String accessToken = loader.apply(username);
+        if (accessToken == null) {
+            return null;
+        }
+        String fingerprint = fingerprint(accessToken);
+        synchronized (this) {
+            // A session changed while loading, what was read may already be revoked
+            if (startGeneration == this.generation) {
+                this.entries.put(username, new Entry(fingerprint, System.currentTimeMillis()));
+            }
+        }
+        return fingerprint;
+    }
+
+    public void saved(String username, String accessToken) {
+        String fingerprint = fingerprint(accessToken);
+        put(username, fingerprint);
+        publish(SAVED + fingerprint + ":" + username);
+    }
+
+    public void deleted(String username) {
+        remove(username);
+        publish(DELETED + username);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(DELETED)) {
+            remove(body.substring(DELETED.length()));
+            return;
+        }
+        int index = body.indexOf(':', SAVED.length());
+        if (body.startsWith(SAVED) && index > 0) {
+            put(body.substring(index + 1), body.substring(SAVED.length(), index));
+        } else {
+            log.warn("Token cache ignored invalidation message {}", body);
+        }
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private synchronized void put(String username, String fingerprint) {
+        this.generation++;
+        this.entries.put(username, new Entry(fingerprint, System.currentTimeMillis()));
+    }
+
+    private synchronized void remove(String username) {
+        this.generation++;
+        this.entries.remove(username);
+    }
+
+    private void publish(String message) {
+        try {
+            this.redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (RuntimeException e) {
+            log.warn("Token cache could not publish {}: {}", message, e.getMessage());
+        }
+    }
+
+    private static String fingerprint(String accessToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(accessToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+
+        private final long loadedAt;
+
+        private Entry(String fingerprint, long loadedAt) {
+            this.fingerprint = fingerprint;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.service.security;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-user token versions. Every token carries the version of its user at issue time in the {@value #CLAIM} claim;
+ * revoking (logout, lock) increments the version in Redis, so every token issued before is refused.
+ * <p>
+ * Only users revoked within the lifetime of an access token can hold refused tokens, so that is all each node keeps in
+ * memory: bumps are announced on a pub/sub channel and a node starting up reads the recent ones from a sorted set.
+ * Validating an access token then needs no I/O; Redis is read when a token is issued or refreshed.
+ * <p>
+ * A revocation that cannot reach Redis still refuses, on this node, every token of the user issued until then, and
+ * the failure is rethrown so the caller knows the other nodes were not told
+ */
+@Slf4j
+@Component
+public class TokenVersionService implements MessageListener {
+
+    public static final String CLAIM = "ver";
+
+    private static final String CHANNEL = "token-version";
+
+    private static final String VERSION_KEY = "token:version:";
+
+    private static final String REVOCATIONS_KEY = "token:revocations";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final long windowMillis;
+
+    private final Map<String, Revocation> revocations = new HashMap<>();
+
+    public TokenVersionService(StringRedisTemplate redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               @Value("${jwt.expiryMinute}") long expiryMinute) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.windowMillis = 1000 * 60 * expiryMinute;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        long now = System.currentTimeMillis();
+        try {
+            this.redisTemplate.opsForZSet().removeRangeByScore(REVOCATIONS_KEY, 0, now - this.windowMillis);
+            Set<String> usernames = this.redisTemplate.opsForZSet().rangeByScore(REVOCATIONS_KEY, now - this.windowMillis, Double.MAX_VALUE);
+            if (usernames != null) {
+                for (String username : usernames) {
+                    Double revokedAt = this.redisTemplate.opsForZSet().score(REVOCATIONS_KEY, username);
+                    apply(username, current(username), revokedAt != null ? revokedAt.longValue() : now);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Token revocations could not be read from redis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Version to put in a token issued now
+     */
+    public long current(String username) {
+        try {
+            String version = this.redisTemplate.opsForValue().get(VERSION_KEY + username);
+            return version != null ? Long.parseLong(version) : 0;
+        } catch (RuntimeException e) {
+            log.warn("Token version of {} could not be read from redis: {}", username, e.getMessage());
+            synchronized (this) {
+                Revocation revocation = this.revocations.get(username);
+                return revocation != null ? revocation.version : 0;
+            }
+        }
+    }
+
+    /**
+     * Refuses every token of the user issued so far, on every node
+     */
+    public void revoke(String username) {
+        long now = System.currentTimeMillis();
+        try {
+            Long version = this.redisTemplate.opsForValue().increment(VERSION_KEY + username);
+            if (version == null) {
+                throw new IllegalStateException("Token version of " + username + " was not incremented");
+            }
+            this.redisTemplate.opsForZSet().add(REVOCATIONS_KEY, username, now);
+            apply(username, version, now);
+            this.redisTemplate.convertAndSend(CHANNEL, version + ":" + now + ":" + username);
+        } catch (RuntimeException e) {
+            log.error("Tokens of {} could not be revoked on every node: {}", username, e.getMessage());
+            applyLocal(username, now);
+            throw e;
+        }
+    }
+
+    /**
+     * Whether a token of the user carrying the version and issued at the date is still honoured, answered from memory
+     */
+    public synchronized boolean isCurrent(String username, long version, Date issuedAt) {
+        Revocation revocation = this.revocations.get(username);
+        if (revocation == null) {
+            return true;
+        }
+        if (System.currentTimeMillis() - revocation.latest() >= this.windowMillis) {
+            // Every token issued before this revocation has expired by now
+            this.revocations.remove(username);
+            return true;
+        }
+        if (revocation.localRevokedAt > 0 && (issuedAt == null || issuedAt.getTime() <= revocation.localRevokedAt)) {
+            return false;
+        }
+        return version >= revocation.version;
+    }
+
+    /**
+     * Version carried by a token, 0 for tokens issued before versions existed
+     */
+    public static long versionOf(Claims claims) {
+        return claims.get(CLAIM) instanceof Number version ? version.longValue() : 0;
+    }
+
+    public synchronized int size() {
+        return this.revocations.size();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(":", 3);
+        try {
+            apply(parts[2], Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            log.warn("Token version ignored message {}", body);
+        }
+    }
+
+    private synchronized void apply(String username, long version, long revokedAt) {
+        expire();
+        Revocation existing = this.revocations.get(username);
+        if (existing == null) {
+            this.revocations.put(username, new Revocation(version, revokedAt, 0));
+        } else if (version > existing.version) {
+            this.revocations.put(username, new Revocation(version, revokedAt, existing.localRevokedAt));
+        }
+    }
+
+    /**
+     * Refuses the tokens issued up to now on this node only, by issue time since the current version is unknown
+     */
+    private synchronized void applyLocal(String username, long revokedAt) {
+        expire();
+        Revocation existing = this.revocations.get(username);
+        this.revocations.put(username, existing == null
+                ? new Revocation(0, revokedAt, revokedAt)
+                : new Revocation(existing.version, existing.revokedAt, Math.max(existing.localRevokedAt, revokedAt)));
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        this.revocations.values().removeIf(revocation -> now - revocation.latest() >= this.windowMillis);
+    }
+
+    private static final class Revocation {
+        private final long version;
+
+        private final long revokedAt;
+
+        private final long localRevokedAt;
+
+        private Revocation(long version, long revokedAt, long localRevokedAt) {
+            this.version = version;
+            this.revokedAt = revokedAt;
+            this.localRevokedAt = localRevokedAt;
+        }
+
+        private long latest() {
+            return Math.max(this.revokedAt, this.localRevokedAt);
+        }
+    }
+}
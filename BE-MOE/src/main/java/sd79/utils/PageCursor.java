@@ -0,0 +1,115 @@
+/*
+ * Author: Nong Hoang Vu || JavaTech
+ * Facebook:https://facebook.com/NongHoangVu04
+ * Github: https://github.com/JavaTech04
+ * Youtube: https://www.youtube.com/@javatech04/?sub_confirmation=1
+ */
+package sd79.utils;
+
+import lombok.Getter;
+import sd79.exception.InvalidDataException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset cursor: the sort value and id of the last row of a page. Lists seek past it with
+ * {@code (sort < :cursorValue OR (sort = :cursorValue AND id < :cursorId))} instead of skipping rows with an offset.
+ * A null sort value is encoded as such; MySQL orders nulls first ascending and last descending, which
+ * {@link #seek(String, String, boolean)} follows
+ */
+@Getter
+public class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private static final String NULL_VALUE = "~";
+
+    private final String value;
+
+    private final long id;
+
+    private PageCursor(String value, long id) {
+        this.value = value;
+        this.id = id;
+    }
+
+    public static String encode(Object value, long id) {
+        String raw = switch (value) {
+            case Date date -> String.valueOf(date.getTime());
+            case BigDecimal decimal -> decimal.toPlainString();
+            case null -> NULL_VALUE;
+            default -> value.toString();
+        };
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((raw + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new PageCursor(raw.substring(0, index), Long.parseLong(raw.substring(index + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidDataException("Cursor invalid");
+        }
+    }
+
+    /**
+     * The count query is only worth running for offset pages; cursor pages skip it unless the caller asks
+     */
+    public static boolean shouldCount(String cursor, Boolean count) {
+        return count != null ? count : !isPresent(cursor);
+    }
+
+    public static boolean isPresent(String cursor) {
+        return cursor != null && !cursor.isBlank();
+    }
+
+    /**
+     * Whether the last row had a sort value; only then is :cursorValue bound
+     */
+    public boolean hasValue() {
+        return !NULL_VALUE.equals(this.value);
+    }
+
+    /**
+     * Keyset predicate past this cursor for {@code ORDER BY column, idColumn} in the given direction, using
+     * :cursorValue (when {@link #hasValue()}) and :cursorId
+     */
+    public String seek(String column, String idColumn, boolean ascending) {
+        if (!hasValue()) {
+            return ascending
+                    ? String.format(" AND ((%1$s IS NULL AND %2$s > :cursorId) OR %1$s IS NOT NULL)", column, idColumn)
+                    : String.format(" AND (%1$s IS NULL AND %2$s < :cursorId)", column, idColumn);
+        }
+        return ascending
+                ? String.format(" AND (%1$s > :cursorValue OR (%1$s = :cursorValue AND %2$s > :cursorId))", column, idColumn)
+                : String.format(" AND (%1$s < :cursorValue OR (%1$s = :cursorValue AND %2$s < :cursorId) OR %1$s IS NULL)", column, idColumn);
+    }
+
+    public Date getDateValue() {
+        try {
+            return new Date(Long.parseLong(this.value));
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Cursor invalid");
+        }
+    }
+
+    public long getLongValue() {
+        try {
+            return Long.parseLong(this.value);
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Cursor invalid");
+        }
+    }
+
+    public BigDecimal getDecimalValue() {
+        try {
+            return new BigDecimal(this.value);
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Cursor invalid");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package sd79.configuration;
+
+import io.micrometer.common.util.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import sd79.enums.AuthMode;
+import sd79.model.Role;
+import sd79.model.User;
+import sd79.model.redis_model.Token;
+import sd79.service.TokenService;
+import sd79.service.UserService;
+import sd79.service.impl.JwtServiceImpl;
+import sd79.service.security.PrincipalCache;
+import sd79.service.security.TokenVersionService;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static sd79.enums.TokenType.ACCESS_TOKEN;
+
+/**
+ * One authenticated request through PreFilter against the steps the filter ran before: the token parsed three times
+ * and the user loaded from the database on every request. Users live in H2, the Redis session check answers locally on
+ * both sides so only the work the filter itself does is measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreFilterBenchmark {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private JwtServiceImpl jwtService;
+
+    private TokenService tokenService;
+
+    private UserDetailsService userDetailsService;
+
+    private PreFilter preFilter;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        // One open connection, as a pooled one would be, so the lookup is not charged a connect
+        this.jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", true));
+        this.jdbcTemplate.execute("CREATE TABLE roles (id INT PRIMARY KEY, name VARCHAR(20))");
+        this.jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(50) UNIQUE, password VARCHAR(100), role_id INT)");
+        this.jdbcTemplate.update("INSERT INTO roles (id, name) VALUES (1, 'ADMIN')");
+        this.jdbcTemplate.update("INSERT INTO users (id, username, password, role_id) VALUES (1, 'alice', 'x', 1)");
+        this.userDetailsService = username -> this.jdbcTemplate.queryForObject("SELECT u.id, u.username, u.password, r.name " +
+                "FROM users u JOIN roles r ON r.id = u.role_id WHERE u.username = ?", (rs, row) -> User.builder()
+                .id(rs.getLong(1))
+                .username(rs.getString(2))
+                .password(rs.getString(3))
+                .role(Role.builder().name(rs.getString(4)).build())
+                .build(), username);
+
+        this.jwtService = new JwtServiceImpl();
+        ReflectionTestUtils.setField(this.jwtService, "expiryMinute", 10L);
+        ReflectionTestUtils.setField(this.jwtService, "key", "SD79BENCH");
+        ReflectionTestUtils.setField(this.jwtService, "secretKey", "b0238cff00a72de79bebabb5b5d6a777ff4b5f0401e6518ea03d48262f4bd818");
+        ReflectionTestUtils.setField(this.jwtService, "refreshKey", "9106746cb1d349b31174dda29c2729d3448d9b8a57418cc1833c8478f0763980");
+        ReflectionTestUtils.setField(this.jwtService, "otherKey", "9106746cb1d349b31174dda29c2729d3448d9b8a57418cc1833c8478f0763981");
+        this.jwtService.init();
+
+        Token session = Token.builder().id("alice").build();
+        this.tokenService = new TokenService() {
+            @Override
+            public void deleteToken(String id) {
+            }
+
+            @Override
+            public void saveToken(Token token) {
+            }
+
+            @Override
+            public Token getToken(String id) {
+                return session;
+            }
+
+            @Override
+            public boolean isActive(String id) {
+                return true;
+            }
+        };
+        UserService userService = () -> this.userDetailsService;
+        TokenVersionService tokenVersionService = new TokenVersionService(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), 60);
+        PrincipalCache principalCache = new PrincipalCache(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), 1_000, 60_000);
+        this.preFilter = new PreFilter(userService, this.jwtService, this.tokenService, principalCache, tokenVersionService);
+        ReflectionTestUtils.setField(this.preFilter, "authMode", AuthMode.SESSION);
+
+        this.request = new MockHttpServletRequest();
+        this.request.addHeader(AUTHORIZATION, "Bearer " + this.jwtService.generateToken(this.userDetailsService.loadUserByUsername("alice"), 0));
+        if (preFilter() == null || parseAndLoadPerRequest() == null) {
+            throw new IllegalStateException("Request not authenticated");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public Object preFilter() throws Exception {
+        SecurityContextHolder.clearContext();
+        MockFilterChain chain = new MockFilterChain();
+        this.preFilter.doFilter(this.request, new MockHttpServletResponse(), chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object parseAndLoadPerRequest() throws Exception {
+        SecurityContextHolder.clearContext();
+        MockFilterChain chain = new MockFilterChain();
+        final String token = this.request.getHeader(AUTHORIZATION).substring("Bearer ".length());
+        final String username = this.jwtService.extractUsername(token, ACCESS_TOKEN);
+        if (this.tokenService.getToken(username) == null) {
+            throw new IllegalStateException("Authentication failed");
+        }
+        if (StringUtils.isNotEmpty(username) & SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (this.jwtService.isValid(token, ACCESS_TOKEN, userDetails)) {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(this.request));
+                context.setAuthentication(authenticationToken);
+                SecurityContextHolder.setContext(context);
+            }
+        }
+        chain.doFilter(this.request, new MockHttpServletResponse());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,136 @@
+package sd79.configuration;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+import sd79.enums.AuthMode;
+import sd79.model.Role;
+import sd79.model.User;
+import sd79.service.JwtService;
+import sd79.service.TokenService;
+import sd79.service.UserService;
+import sd79.service.security.PrincipalCache;
+import sd79.service.security.TokenVersionService;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static sd79.enums.TokenType.ACCESS_TOKEN;
+
+class PreFilterTests {
+
+    private JwtService jwtService;
+
+    private TokenService tokenService;
+
+    private UserDetailsService userDetailsService;
+
+    private TokenVersionService tokenVersionService;
+
+    private PreFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        this.jwtService = mock(JwtService.class);
+        this.tokenService = mock(TokenService.class);
+        this.userDetailsService = mock(UserDetailsService.class);
+        UserService userService = mock(UserService.class);
+        when(userService.userDetailsService()).thenReturn(this.userDetailsService);
+        when(this.userDetailsService.loadUserByUsername("alice")).thenReturn(User.builder()
+                .id(1L)
+                .username("alice")
+                .role(Role.builder().name("ADMIN").build())
+                .build());
+
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn("alice");
+        when(claims.get(TokenVersionService.CLAIM)).thenReturn(2);
+        when(this.jwtService.extractClaims("good", ACCESS_TOKEN)).thenReturn(claims);
+
+        this.tokenVersionService = new TokenVersionService(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), 60);
+        PrincipalCache principalCache = new PrincipalCache(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), 100, 60_000);
+        this.filter = new PreFilter(userService, this.jwtService, this.tokenService, principalCache, this.tokenVersionService);
+        ReflectionTestUtils.setField(this.filter, "authMode", AuthMode.SESSION);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void passesRequestsWithoutABearerToken() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        this.filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(this.jwtService);
+    }
+
+    @Test
+    void authenticatesFromTheCachedPrincipal() throws Exception {
+        when(this.tokenService.isActive("alice")).thenReturn(true);
+
+        for (int i = 0; i < 2; i++) {
+            SecurityContextHolder.clearContext();
+            MockFilterChain chain = new MockFilterChain();
+            this.filter.doFilter(request("good"), new MockHttpServletResponse(), chain);
+
+            assertNotNull(chain.getRequest());
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            assertEquals("alice", ((User) authentication.getPrincipal()).getUsername());
+            assertEquals("ADMIN", authentication.getAuthorities().iterator().next().getAuthority());
+        }
+        // Parsed once per request, loaded from MySQL once for both
+        verify(this.jwtService, times(2)).extractClaims("good", ACCESS_TOKEN);
+        verify(this.userDetailsService, times(1)).loadUserByUsername("alice");
+    }
+
+    @Test
+    void refusesTokensOlderThanARevocation() throws Exception {
+        when(this.tokenService.isActive("alice")).thenReturn(true);
+        this.tokenVersionService.onMessage(new DefaultMessage("token-version".getBytes(StandardCharsets.UTF_8),
+                ("3:" + System.currentTimeMillis() + ":alice").getBytes(StandardCharsets.UTF_8)), null);
+
+        MockFilterChain chain = new MockFilterChain();
+        this.filter.doFilter(request("good"), new MockHttpServletResponse(), chain);
+
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(this.userDetailsService);
+    }
+
+    @Test
+    void checksTheRedisSessionOnlyInSessionMode() throws Exception {
+        when(this.tokenService.isActive("alice")).thenReturn(false);
+
+        MockFilterChain refused = new MockFilterChain();
+        this.filter.doFilter(request("good"), new MockHttpServletResponse(), refused);
+        assertNull(refused.getRequest());
+
+        ReflectionTestUtils.setField(this.filter, "authMode", AuthMode.STATELESS);
+        MockFilterChain passed = new MockFilterChain();
+        this.filter.doFilter(request("good"), new MockHttpServletResponse(), passed);
+        assertNotNull(passed.getRequest());
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,42 @@
+package sd79.dto.requests.productRequests;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParamFiltersTests {
+
+    @Test
+    void equivalentFiltersShareAKey() {
+        ProductRequests.ParamFilters first = ProductRequests.ParamFilters.builder()
+                .pageNo(1).pageSize(5).keyword(" Áo ").categoryIds(List.of(3, 1, 3)).minPrice(new BigDecimal("100000.00"))
+                .build();
+        ProductRequests.ParamFilters second = ProductRequests.ParamFilters.builder()
+                .pageNo(1).pageSize(5).keyword("áo").categoryIds(List.of(1, 3)).minPrice(new BigDecimal("100000"))
+                .build();
+        assertNotNull(first.cacheKey());
+        assertEquals(first.cacheKey(), second.cacheKey());
+    }
+
+    @Test
+    void distinguishesAbsentAndEmptySelections() {
+        ProductRequests.ParamFilters none = ProductRequests.ParamFilters.builder().pageNo(1).pageSize(5).build();
+        ProductRequests.ParamFilters empty = ProductRequests.ParamFilters.builder().pageNo(1).pageSize(5).brandIds(List.of()).build();
+        ProductRequests.ParamFilters blank = ProductRequests.ParamFilters.builder().pageNo(1).pageSize(5).keyword(" ").build();
+        assertNotEquals(none.cacheKey(), empty.cacheKey());
+        assertNotEquals(none.cacheKey(), blank.cacheKey());
+    }
+
+    @Test
+    void skipsUnboundedShapes() {
+        List<Integer> manyIds = IntStream.rangeClosed(1, 11).boxed().toList();
+        assertNull(ProductRequests.ParamFilters.builder().pageNo(1).pageSize(5).colorIds(manyIds).build().cacheKey());
+        assertNull(ProductRequests.ParamFilters.builder().pageNo(1).pageSize(5).keyword("a".repeat(51)).build().cacheKey());
+        assertNull(ProductRequests.ParamFilters.builder().pageNo(11).pageSize(5).build().cacheKey());
+        assertNull(ProductRequests.ParamFilters.builder().pageNo(1).pageSize(5).cursor("MTAwfDQy").build().cacheKey());
+    }
+}
@@ -0,0 +1,139 @@
+package sd79.service.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CatalogVersionTests {
+
+    private StringRedisTemplate redisTemplate;
+
+    private List<String> increments;
+
+    private List<String> messages;
+
+    private CatalogCache catalogCache;
+
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        this.redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> operations = mock(ValueOperations.class);
+        when(this.redisTemplate.opsForValue()).thenReturn(operations);
+        this.increments = new ArrayList<>();
+        this.messages = new ArrayList<>();
+        Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+        when(operations.increment(anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            this.increments.add(key);
+            return counters.computeIfAbsent(key, ignored -> new AtomicLong()).incrementAndGet();
+        });
+        when(this.redisTemplate.convertAndSend(anyString(), anyString())).thenAnswer(invocation -> {
+            this.messages.add(invocation.getArgument(1));
+            return 1L;
+        });
+        this.catalogCache = new CatalogCache(this.redisTemplate, new ObjectMapper(), 100, 60_000, 60_000);
+        this.catalogVersion = new CatalogVersion(this.redisTemplate, mock(RedisMessageListenerContainer.class), this.catalogCache);
+    }
+
+    @Test
+    void movesTheGenerationsBeforeTheVersionInOneMessage() {
+        this.catalogVersion.onCatalogChanged(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS));
+
+        assertEquals(List.of("catalog:generation:PRODUCTS", "catalog:version"), this.increments);
+        assertEquals(List.of("1:" + this.catalogVersion.getLastModified() + ":PRODUCTS=1"), this.messages);
+        assertEquals(1, this.catalogVersion.getVersion());
+    }
+
+    @Test
+    void aRemoteBumpDropsTheStaleBodiesFirst() {
+        AtomicInteger loads = new AtomicInteger();
+        this.catalogCache.get(CatalogCache.Region.PRODUCTS, "filters", loads::incrementAndGet);
+        this.catalogCache.get(CatalogCache.Region.PRODUCTS, "filters", loads::incrementAndGet);
+        assertEquals(1, loads.get());
+
+        this.catalogVersion.onMessage(new DefaultMessage("catalog-version".getBytes(StandardCharsets.UTF_8),
+                "4:1700000000000:PRODUCTS=3".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals("\"catalog-4\"", this.catalogVersion.getETag());
+        this.catalogCache.get(CatalogCache.Region.PRODUCTS, "filters", loads::incrementAndGet);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void ignoresAMalformedMessage() {
+        this.catalogVersion.onMessage(new DefaultMessage(new byte[0], "4:PRODUCTS".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(0, this.catalogVersion.getVersion());
+    }
+
+    @Test
+    void bumpsAfterTheOtherListenersOnCommit() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(CatalogCache.class, () -> this.catalogCache);
+            context.registerBean(CatalogVersion.class, () -> this.catalogVersion);
+            context.register(TransactionConfig.class, Probe.class);
+            context.refresh();
+
+            new TransactionTemplate(context.getBean(PlatformTransactionManager.class))
+                    .executeWithoutResult(status -> context.publishEvent(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS)));
+
+            assertEquals(List.of(0L), context.getBean(Probe.class).seen);
+            assertEquals(1, this.catalogVersion.getVersion());
+        }
+    }
+
+    static class Probe {
+
+        private final List<Long> seen = new ArrayList<>();
+
+        private final CatalogVersion catalogVersion;
+
+        Probe(CatalogVersion catalogVersion) {
+            this.catalogVersion = catalogVersion;
+        }
+
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        @TransactionalEventListener(fallbackExecution = true)
+        public void onCatalogChanged(CatalogChangedEvent event) {
+            this.seen.add(this.catalogVersion.getVersion());
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package sd79.service.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import sd79.repositories.products.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReferenceDataServiceTests {
+
+    private CategoryRepository categoryRepository;
+
+    private ReferenceDataService service;
+
+    @BeforeEach
+    void setUp() {
+        this.categoryRepository = mock(CategoryRepository.class);
+        when(this.categoryRepository.findCategoriesByNameAndIsDeletedIsFalse(anyString())).thenReturn(List.of());
+        this.service = new ReferenceDataService(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class),
+                this.categoryRepository, mock(BrandRepository.class), mock(MaterialRepository.class),
+                mock(SizeRepository.class), mock(ColorRepository.class), mock(ProductRepository.class),
+                mock(ProductDetailRepository.class));
+    }
+
+    @Test
+    void reloadsOnlyOnReferenceDataEvents() {
+        ReferenceDataSnapshot first = this.service.get();
+        assertSame(first, this.service.get());
+
+        this.service.onCatalogChanged(new CatalogChangedEvent(CatalogCache.Region.PRODUCTS));
+        assertSame(first, this.service.get());
+
+        this.service.onCatalogChanged(CatalogChangedEvent.attributes());
+        ReferenceDataSnapshot second = this.service.get();
+        assertNotSame(first, second);
+        assertTrue(second.getVersion() > first.getVersion());
+        verify(this.categoryRepository, times(2)).findCategoriesByNameAndIsDeletedIsFalse("");
+    }
+
+    @Test
+    void reloadsOnceExpired() {
+        ReferenceDataSnapshot first = this.service.get();
+
+        this.service.expire();
+        ReferenceDataSnapshot second = this.service.get();
+        assertNotSame(first, second);
+        assertSame(second, this.service.get());
+        verify(this.categoryRepository, times(2)).findCategoriesByNameAndIsDeletedIsFalse("");
+    }
+
+    @Test
+    void servesThePreviousSnapshotWhileReloading() throws Exception {
+        ReferenceDataSnapshot first = this.service.get();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(this.categoryRepository.findCategoriesByNameAndIsDeletedIsFalse(anyString())).thenAnswer(invocation -> {
+            loading.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return List.of();
+        });
+        this.service.onCatalogChanged(CatalogChangedEvent.all());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ReferenceDataSnapshot> reload = executor.submit(this.service::get);
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            assertSame(first, this.service.get());
+            release.countDown();
+            assertNotSame(first, reload.get(5, TimeUnit.SECONDS));
+            assertSame(reload.get(), this.service.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
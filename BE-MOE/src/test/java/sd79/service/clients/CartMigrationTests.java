@@ -0,0 +1,202 @@
+package sd79.service.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisHash;
+import org.springframework.data.redis.core.RedisKeyValueAdapter;
+import org.springframework.data.redis.core.RedisKeyValueTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.index.Indexed;
+import org.springframework.data.redis.core.mapping.RedisMappingContext;
+import redis.embedded.RedisServer;
+import sd79.model.redis_model.Cart;
+import sd79.repositories.CartStore;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartMigrationTests {
+
+    private static RedisServer redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    private RedisKeyValueAdapter legacyAdapter;
+
+    private RedisKeyValueTemplate legacyTemplate;
+
+    private CartStore cartStore;
+
+    private CartMigration cartMigration;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+
+        // The former repository wrote through Spring Data's key-value adapter, seeding with it gives the exact layout
+        RedisTemplate<byte[], byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.afterPropertiesSet();
+        RedisMappingContext mappingContext = new RedisMappingContext();
+        this.legacyAdapter = new RedisKeyValueAdapter(template, mappingContext);
+        this.legacyAdapter.afterPropertiesSet();
+        this.legacyTemplate = new RedisKeyValueTemplate(this.legacyAdapter, mappingContext);
+
+        this.cartStore = new CartStore(this.redisTemplate, new ObjectMapper(), 30);
+        this.cartMigration = new CartMigration(this.redisTemplate, this.cartStore);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        this.legacyAdapter.destroy();
+    }
+
+    @Test
+    void storesEachCartAsOneExpiringHash() {
+        this.cartStore.saveAll("alice", List.of(line("7", "alice", 2, "249000.50"), line("3", "alice", 1, "99000")));
+        this.cartStore.save(line("7", "alice", 5, "249000.50"));
+
+        List<Cart> carts = this.cartStore.findByUsername("alice");
+        assertEquals(List.of("3", "7"), carts.stream().map(Cart::getId).toList());
+        assertEquals(5, carts.get(1).getQuantity());
+        assertEquals(new BigDecimal("249000.50"), carts.get(1).getSellPrice());
+        assertEquals("Áo thun 7", carts.get(1).getName());
+        assertEquals(Set.of("carts:alice"), this.redisTemplate.keys("*"));
+        assertTrue(this.redisTemplate.getExpire("carts:alice") > 0);
+
+        this.cartStore.delete("alice", "3");
+        assertTrue(this.cartStore.findByIdAndUsername("3", "alice").isEmpty());
+        assertEquals(5, this.cartStore.findByIdAndUsername("7", "alice").orElseThrow().getQuantity());
+        assertTrue(this.cartStore.findByUsername("bob").isEmpty());
+    }
+
+    @Test
+    void movesLegacyCartsAndDeletesTheOldKeys() {
+        this.legacyTemplate.insert(legacy("11", "alice", 2, "150000.00"));
+        this.legacyTemplate.insert(legacy("12", "alice", 1, "99000"));
+        this.legacyTemplate.insert(legacy("21", "bob", 3, "45000.5"));
+        assertTrue(this.redisTemplate.hasKey("cart"));
+        assertTrue(this.redisTemplate.hasKey("cart:11"));
+        assertTrue(this.redisTemplate.hasKey("cart:11:idx"));
+        assertTrue(this.redisTemplate.hasKey("cart:username:alice"));
+
+        assertEquals(3, this.cartMigration.migrate());
+
+        List<Cart> alice = this.cartStore.findByUsername("alice");
+        assertEquals(List.of("11", "12"), alice.stream().map(Cart::getId).toList());
+        Cart first = alice.getFirst();
+        assertEquals(2, first.getQuantity());
+        assertEquals(new BigDecimal("150000.00"), first.getSellPrice());
+        assertEquals(new BigDecimal("200000"), first.getRetailPrice());
+        assertEquals("Áo thun 11", first.getName());
+        assertEquals("Việt Nam", first.getOrigin());
+        assertEquals("https://img/11.png", first.getImageUrl());
+        assertEquals(new BigDecimal("45000.5"), this.cartStore.findByIdAndUsername("21", "bob").orElseThrow().getSellPrice());
+
+        assertEquals(Set.of("carts:alice", "carts:bob"), this.redisTemplate.keys("*"));
+    }
+
+    @Test
+    void keepsLinesAlreadyInTheNewStore() {
+        this.cartStore.save(line("11", "alice", 5, "150000.00"));
+        this.legacyTemplate.insert(legacy("11", "alice", 1, "120000"));
+        this.legacyTemplate.insert(legacy("12", "alice", 1, "99000"));
+
+        assertEquals(2, this.cartMigration.migrate());
+        assertEquals(0, this.cartMigration.migrate());
+
+        List<Cart> alice = this.cartStore.findByUsername("alice");
+        assertEquals(List.of("11", "12"), alice.stream().map(Cart::getId).toList());
+        assertEquals(5, alice.getFirst().getQuantity());
+        assertEquals(new BigDecimal("150000.00"), alice.getFirst().getSellPrice());
+        assertEquals(Set.of("carts:alice"), this.redisTemplate.keys("*"));
+    }
+
+    private static Cart line(String id, String username, int quantity, String sellPrice) {
+        return Cart.builder()
+                .id(id)
+                .imageUrl("https://img/" + id + ".png")
+                .name("Áo thun " + id)
+                .origin("Việt Nam")
+                .retailPrice(new BigDecimal("200000"))
+                .sellPrice(new BigDecimal(sellPrice))
+                .quantity(quantity)
+                .username(username)
+                .build();
+    }
+
+    private static LegacyCart legacy(String id, String username, int quantity, String sellPrice) {
+        return new LegacyCart(id, "https://img/" + id + ".png", "Áo thun " + id, "Việt Nam",
+                new BigDecimal("200000"), new BigDecimal(sellPrice), quantity, username);
+    }
+
+    /**
+     * The cart entity as the former @RedisHash repository stored it
+     */
+    @RedisHash("cart")
+    static class LegacyCart {
+        @Id
+        @Indexed
+        private String id;
+
+        private String imageUrl;
+
+        private String name;
+
+        private String origin;
+
+        private BigDecimal retailPrice;
+
+        private BigDecimal sellPrice;
+
+        private int quantity;
+
+        @Indexed
+        private String username;
+
+        LegacyCart(String id, String imageUrl, String name, String origin, BigDecimal retailPrice, BigDecimal sellPrice,
+                   int quantity, String username) {
+            this.id = id;
+            this.imageUrl = imageUrl;
+            this.name = name;
+            this.origin = origin;
+            this.retailPrice = retailPrice;
+            this.sellPrice = sellPrice;
+            this.quantity = quantity;
+            this.username = username;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package sd79.service.clients;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sd79.dto.response.clients.cart.CartResponse;
+import sd79.dto.response.promotions.PromotionPrice;
+import sd79.enums.ProductStatus;
+import sd79.model.Product;
+import sd79.model.ProductDetail;
+import sd79.repositories.products.ProductDetailRepository;
+import sd79.service.promotions.PromotionPriceResolver;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class CartValidatorTests {
+
+    private ProductDetailRepository productDetailRepository;
+
+    private Map<Long, PromotionPrice> prices;
+
+    private CartValidator cartValidator;
+
+    @BeforeEach
+    void setUp() {
+        this.productDetailRepository = mock(ProductDetailRepository.class);
+        PromotionPriceResolver promotionPriceResolver = mock(PromotionPriceResolver.class);
+        this.prices = new HashMap<>();
+        when(promotionPriceResolver.resolve(anyCollection())).thenAnswer(invocation -> {
+            Map<Long, PromotionPrice> resolved = new HashMap<>();
+            for (Object id : invocation.getArgument(0, Collection.class)) {
+                resolved.put((Long) id, this.prices.getOrDefault((Long) id, PromotionPrice.none((Long) id)));
+            }
+            return resolved;
+        });
+        this.cartValidator = new CartValidator(this.productDetailRepository, promotionPriceResolver);
+    }
+
+    @Test
+    void refusesInactiveDeletedAndMissingProducts() {
+        Product active = product(1L, ProductStatus.ACTIVE, false);
+        Product inactive = product(2L, ProductStatus.INACTIVE, false);
+        Product binned = product(3L, ProductStatus.ACTIVE, true);
+        details(detail(10L, active, ProductStatus.ACTIVE, 5, "100000"),
+                detail(11L, active, ProductStatus.INACTIVE, 5, "100000"),
+                detail(20L, inactive, ProductStatus.ACTIVE, 5, "100000"),
+                detail(30L, binned, ProductStatus.ACTIVE, 5, "100000"));
+
+        CartValidator.Result result = this.cartValidator.validate(List.of(10L, 11L, 20L, 30L, 99L));
+
+        assertTrue(result.isPurchasable(10L, 1));
+        assertFalse(result.isPurchasable(11L, 1));
+        assertFalse(result.isPurchasable(20L, 1));
+        assertFalse(result.isPurchasable(30L, 1));
+        assertFalse(result.isPurchasable(99L, 1));
+        assertFalse(result.getLine(30L).isStatus());
+        CartResponse.ProductCart missing = result.getLine(99L);
+        assertFalse(missing.isStatus());
+        assertEquals(0, missing.getQuantity());
+        assertTrue(result.getDetail(99L).isEmpty());
+        assertEquals(10L, result.getDetail(10L).orElseThrow().getId());
+        // One query for the whole cart
+        verify(this.productDetailRepository, times(1)).findAllWithProductByIdIn(anyCollection());
+    }
+
+    @Test
+    void refusesQuantitiesAboveTheStock() {
+        details(detail(10L, product(1L, ProductStatus.ACTIVE, false), ProductStatus.ACTIVE, 3, "100000"),
+                detail(11L, product(2L, ProductStatus.ACTIVE, false), ProductStatus.ACTIVE, 0, "100000"));
+
+        CartValidator.Result result = this.cartValidator.validate(List.of(10L, 11L));
+
+        assertTrue(result.isPurchasable(10L, 3));
+        assertFalse(result.isPurchasable(10L, 4));
+        assertEquals(3, result.getLine(10L).getQuantity());
+        assertFalse(result.isPurchasable(11L, 1));
+    }
+
+    @Test
+    void pricesLinesWithTheActivePromotion() {
+        Product promoted = product(1L, ProductStatus.ACTIVE, false);
+        Product regular = product(2L, ProductStatus.ACTIVE, false);
+        details(detail(10L, promoted, ProductStatus.ACTIVE, 5, "200000"),
+                detail(11L, promoted, ProductStatus.ACTIVE, 5, "150000"),
+                detail(20L, regular, ProductStatus.ACTIVE, 5, "99000"));
+        this.prices.put(1L, new PromotionPrice(1L, 25, new Date(System.currentTimeMillis() + 60_000)));
+
+        CartValidator.Result result = this.cartValidator.validate(List.of(10L, 11L, 20L));
+
+        assertEquals(25, result.getLine(10L).getPercent());
+        assertEquals(0, new BigDecimal("150000").compareTo(result.getLine(10L).getSellPrice()));
+        assertEquals(0, new BigDecimal("112500").compareTo(result.getLine(11L).getSellPrice()));
+        assertNull(result.getLine(20L).getPercent());
+        assertEquals(0, new BigDecimal("99000").compareTo(result.getLine(20L).getSellPrice()));
+    }
+
+    @Test
+    void validatesAnEmptyCartWithoutQuerying() {
+        CartValidator.Result result = this.cartValidator.validate(List.of());
+
+        assertNull(result.getLine(1L));
+        verifyNoInteractions(this.productDetailRepository);
+    }
+
+    private void details(ProductDetail... details) {
+        when(this.productDetailRepository.findAllWithProductByIdIn(anyCollection())).thenReturn(List.of(details));
+    }
+
+    private static Product product(Long id, ProductStatus status, boolean deleted) {
+        Product product = new Product();
+        product.setId(id);
+        product.setStatus(status);
+        product.setIsDeleted(deleted);
+        return product;
+    }
+
+    private static ProductDetail detail(Long id, Product product, ProductStatus status, int quantity, String retailPrice) {
+        return ProductDetail.builder()
+                .id(id)
+                .product(product)
+                .status(status)
+                .quantity(quantity)
+                .retailPrice(new BigDecimal(retailPrice))
+                .build();
+    }
+}
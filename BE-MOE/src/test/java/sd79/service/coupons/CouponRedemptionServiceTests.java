@@ -0,0 +1,113 @@
+package sd79.service.coupons;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import sd79.exception.InvalidDataException;
+import sd79.model.Bill;
+import sd79.model.Coupon;
+import sd79.repositories.CouponRedemptionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponRedemptionServiceTests {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private CouponRedemptionService couponRedemptionService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000");
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.execute("CREATE TABLE coupons (id BIGINT PRIMARY KEY, quantity INT, usage_count INT)");
+        this.jdbcTemplate.execute("CREATE TABLE coupon_redemptions (id BIGINT AUTO_INCREMENT PRIMARY KEY, coupon_id BIGINT NOT NULL, " +
+                "customer_id BIGINT, bill_id BIGINT NOT NULL UNIQUE, redeemed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        this.jdbcTemplate.update("INSERT INTO coupons (id, quantity, usage_count) VALUES (1, 10, 0), (2, NULL, 0)");
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.couponRedemptionService = new CouponRedemptionService(new CouponRedemptionRepository(this.jdbcTemplate));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void parallelRedemptionsNeverGoPastTheQuantity() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> checkouts = new ArrayList<>();
+        for (long billId = 1; billId <= 50; billId++) {
+            Bill bill = bill(billId, null);
+            checkouts.add(executor.submit(() -> {
+                start.await();
+                try {
+                    this.transactionTemplate.executeWithoutResult(status -> this.couponRedemptionService.redeem(1L, bill));
+                    return true;
+                } catch (InvalidDataException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int successes = 0;
+        for (Future<Boolean> checkout : checkouts) {
+            successes += checkout.get(30, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(10, successes);
+        assertEquals(0, count("SELECT quantity FROM coupons WHERE id = 1"));
+        assertEquals(10, count("SELECT usage_count FROM coupons WHERE id = 1"));
+        assertEquals(10, count("SELECT COUNT(*) FROM coupon_redemptions WHERE coupon_id = 1"));
+    }
+
+    @Test
+    void anUnlimitedCouponStaysUnlimited() {
+        this.couponRedemptionService.redeem(2L, bill(1L, null));
+
+        assertNull(this.jdbcTemplate.queryForObject("SELECT quantity FROM coupons WHERE id = 2", Integer.class));
+        assertEquals(1, count("SELECT usage_count FROM coupons WHERE id = 2"));
+    }
+
+    @Test
+    void releasesOnlyOnce() {
+        Bill bill = bill(1L, 1L);
+        this.couponRedemptionService.redeem(1L, bill);
+
+        this.couponRedemptionService.release(bill);
+        this.couponRedemptionService.release(bill);
+
+        assertEquals(10, count("SELECT quantity FROM coupons WHERE id = 1"));
+        assertEquals(0, count("SELECT usage_count FROM coupons WHERE id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM coupon_redemptions"));
+    }
+
+    private int count(String sql) {
+        return this.jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private static Bill bill(Long id, Long couponId) {
+        Bill bill = new Bill();
+        bill.setId(id);
+        if (couponId != null) {
+            Coupon coupon = new Coupon();
+            coupon.setId(couponId);
+            bill.setCoupon(coupon);
+        }
+        return bill;
+    }
+}
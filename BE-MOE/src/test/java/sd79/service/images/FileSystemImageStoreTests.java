@@ -0,0 +1,57 @@
+package sd79.service.images;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sd79.dto.response.productResponse.ImageResponse;
+import sd79.exception.InvalidDataException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemImageStoreTests {
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path uploads;
+
+    @Test
+    void storesImagesWithinThePixelCap() throws IOException {
+        FileSystemImageStore store = new FileSystemImageStore(this.root.toString(), "http://localhost/images", 100);
+        ImageResponse image = store.store(png(10, 10));
+
+        assertTrue(image.getUrl().endsWith("/original.png"));
+        assertTrue(Files.isRegularFile(this.root.resolve(image.getPublicId()).resolve("original.png")));
+    }
+
+    @Test
+    void rejectsImagesOverThePixelCapBeforeDecoding() throws IOException {
+        FileSystemImageStore store = new FileSystemImageStore(this.root.toString(), "http://localhost/images", 100);
+
+        assertThrows(InvalidDataException.class, () -> store.store(png(11, 10)));
+        try (var stored = Files.list(this.root)) {
+            assertEquals(0, stored.count());
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotImages() throws IOException {
+        FileSystemImageStore store = new FileSystemImageStore(this.root.toString(), "http://localhost/images", 100);
+        Path text = Files.writeString(this.uploads.resolve("note.png"), "not an image");
+
+        assertThrows(InvalidDataException.class, () -> store.store(text.toFile()));
+    }
+
+    private File png(int width, int height) throws IOException {
+        File file = this.uploads.resolve(width + "x" + height + ".png").toFile();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", file);
+        return file;
+    }
+}
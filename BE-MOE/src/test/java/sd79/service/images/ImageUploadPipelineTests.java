@@ -0,0 +1,191 @@
+package sd79.service.images;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+import sd79.dto.response.images.UploadProgress;
+import sd79.dto.response.productResponse.ImageResponse;
+import sd79.enums.UploadStatus;
+import sd79.exception.InvalidDataException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageUploadPipelineTests {
+
+    @TempDir
+    Path spool;
+
+    private FakeStore store;
+
+    private RecordingTemplate template;
+
+    private ImageUploadPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        this.store = new FakeStore();
+        this.template = new RecordingTemplate();
+        this.pipeline = new ImageUploadPipeline(this.store, this.template, this.spool.toString(), 2, 10, 3, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.pipeline.shutdown();
+    }
+
+    @Test
+    void uploadsInFileOrderAndCleansTheSpool() throws Exception {
+        AtomicReference<List<ImageResponse>> saved = new AtomicReference<>();
+        String uploadId = this.pipeline.submit(files("a", "b", "c"), saved::set);
+
+        UploadProgress last = awaitFinal(uploadId);
+        assertEquals(UploadStatus.COMPLETED, last.getStatus());
+        assertEquals(3, last.getUploaded());
+        assertEquals(List.of("a", "b", "c"), saved.get().stream().map(ImageResponse::getPublicId).toList());
+        assertSpoolEmpty();
+    }
+
+    @Test
+    void retriesTransientFailuresButNotRejectedFiles() throws Exception {
+        AtomicReference<List<ImageResponse>> saved = new AtomicReference<>();
+        String uploadId = this.pipeline.submit(files("flaky", "reject", "ok"), saved::set);
+
+        UploadProgress last = awaitFinal(uploadId);
+        assertEquals(UploadStatus.PARTIAL, last.getStatus());
+        assertEquals(2, last.getUploaded());
+        assertEquals(1, last.getFailed());
+        assertEquals(List.of("flaky", "ok"), saved.get().stream().map(ImageResponse::getPublicId).toList());
+        assertEquals(2, this.store.attempts.get("flaky"));
+        assertEquals(1, this.store.attempts.get("reject"));
+        assertSpoolEmpty();
+    }
+
+    @Test
+    void removesStoredImagesWhenTheCallbackFails() throws Exception {
+        String uploadId = this.pipeline.submit(files("a", "b"), images -> {
+            throw new IllegalStateException("save failed");
+        });
+
+        assertEquals(UploadStatus.FAILED, awaitFinal(uploadId).getStatus());
+        assertTrue(this.store.stored.isEmpty());
+    }
+
+    @Test
+    void startsOnlyAfterCommit() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.pipeline.submit(files("rolled-back"), images -> fail("rolled back upload must not be saved"));
+            String uploadId = this.pipeline.submit(files("committed"), images -> {
+            });
+            assertTrue(this.template.sent.isEmpty());
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+            assertEquals(UploadStatus.COMPLETED, awaitFinal(uploadId).getStatus());
+            assertEquals(Set.of("committed"), this.store.stored.keySet());
+            assertSpoolEmpty();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rejectsEmptySubmissions() {
+        assertThrows(InvalidDataException.class, () -> this.pipeline.submit(new MultipartFile[0], images -> {
+        }));
+    }
+
+    private UploadProgress awaitFinal(String uploadId) throws InterruptedException {
+        while (true) {
+            UploadProgress progress = this.template.sent.poll(5, TimeUnit.SECONDS);
+            assertNotNull(progress, "upload did not finish");
+            if (progress.getUploadId().equals(uploadId) && progress.getStatus() != UploadStatus.QUEUED
+                    && progress.getStatus() != UploadStatus.UPLOADING) {
+                return progress;
+            }
+        }
+    }
+
+    private void assertSpoolEmpty() throws IOException {
+        try (Stream<Path> files = Files.list(this.spool)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static MultipartFile[] files(String... contents) {
+        return Stream.of(contents)
+                .map(content -> new MockMultipartFile("images", content + ".png", "image/png", content.getBytes(StandardCharsets.UTF_8)))
+                .toArray(MultipartFile[]::new);
+    }
+
+    private static class FakeStore implements ImageStore {
+
+        private final Map<String, String> stored = new ConcurrentHashMap<>();
+
+        private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+        @Override
+        public ImageResponse store(File file) {
+            String content;
+            try {
+                content = Files.readString(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int attempt = this.attempts.merge(content, 1, Integer::sum);
+            if (content.equals("reject")) {
+                throw new InvalidDataException("not an image");
+            }
+            if (content.equals("flaky") && attempt == 1) {
+                throw new IllegalStateException("timeout");
+            }
+            this.stored.put(content, content);
+            return ImageResponse.builder().publicId(content).url("/images/" + content).build();
+        }
+
+        @Override
+        public void remove(String publicId) {
+            this.stored.remove(publicId);
+        }
+
+        @Override
+        public Map<String, String> variants(String url) {
+            return Map.of();
+        }
+    }
+
+    private static class RecordingTemplate extends SimpMessagingTemplate {
+
+        private final BlockingQueue<UploadProgress> sent = new LinkedBlockingQueue<>();
+
+        private RecordingTemplate() {
+            super((message, timeout) -> true);
+        }
+
+        @Override
+        public void convertAndSend(String destination, Object payload) {
+            this.sent.add((UploadProgress) payload);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package sd79.service.products;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductListing;
+import sd79.model.ProductSale;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Related items of a product page: the in-memory co-purchase model against the same ranking computed per request
+ * with a self-join of product_sales. The join runs on H2 in MySQL mode with the bill and product indexes in place
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoPurchaseBenchmark {
+
+    private static final int PRODUCTS = 2_000;
+
+    @Param({"10000", "100000"})
+    private int bills;
+
+    private CoPurchaseRecommender recommender;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private long[] pages;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<ProductSale> sales = new ArrayList<>();
+        for (long billId = 1; billId <= this.bills; billId++) {
+            Set<Long> basket = new HashSet<>();
+            int lines = 1 + random.nextInt(4);
+            while (basket.size() < lines) {
+                // Skewed towards low ids, a few products sell far more than the rest
+                basket.add(1 + (long) (PRODUCTS * Math.pow(random.nextDouble(), 3)));
+            }
+            for (Long productId : basket) {
+                sales.add(ProductSale.builder().billId(billId).productId(productId).quantity(1).soldAt(new Date()).build());
+            }
+        }
+
+        List<ProductListing> listings = new ArrayList<>();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            listings.add(ProductListing.builder().productId(id).name("p" + id).status(ProductStatus.ACTIVE).isDeleted(false)
+                    .totalStock(10L).categoryId((int) (id % 20)).brandId((int) (id % 50)).build());
+        }
+        ProductFacetIndex productFacetIndex = new ProductFacetIndex(new long[]{0, 100_000});
+        productFacetIndex.rebuild(listings, List.of());
+        this.recommender = new CoPurchaseRecommender(productFacetIndex, 12);
+        this.recommender.rebuild(sales);
+
+        this.jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        this.jdbcTemplate.execute("CREATE TABLE product_sales (id BIGINT AUTO_INCREMENT PRIMARY KEY, bill_id BIGINT, product_id BIGINT, quantity INT)");
+        this.jdbcTemplate.execute("CREATE INDEX idx_product_sales_bill ON product_sales (bill_id)");
+        this.jdbcTemplate.execute("CREATE INDEX idx_product_sales_product ON product_sales (product_id)");
+        this.jdbcTemplate.batchUpdate("INSERT INTO product_sales (bill_id, product_id, quantity) VALUES (?, ?, ?)",
+                sales.stream().map(sale -> new Object[]{sale.getBillId(), sale.getProductId(), sale.getQuantity()}).toList());
+
+        this.pages = random.longs(1024, 1, PRODUCTS + 1).toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Long> model() {
+        long productId = nextPage();
+        return this.recommender.related(productId, (int) (productId % 20), (int) (productId % 50), 12);
+    }
+
+    @Benchmark
+    public List<Long> selfJoin() {
+        return this.jdbcTemplate.queryForList("SELECT b.product_id FROM product_sales a JOIN product_sales b ON b.bill_id = a.bill_id " +
+                "AND b.product_id <> a.product_id WHERE a.product_id = ? GROUP BY b.product_id " +
+                "ORDER BY COUNT(*) DESC, b.product_id LIMIT 12", Long.class, nextPage());
+    }
+
+    private long nextPage() {
+        return this.pages[this.next++ & 1023];
+    }
+}
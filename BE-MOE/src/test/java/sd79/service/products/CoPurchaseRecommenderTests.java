@@ -0,0 +1,80 @@
+package sd79.service.products;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sd79.dto.response.productResponse.ProductFacetVariant;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductListing;
+import sd79.model.ProductSale;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoPurchaseRecommenderTests {
+
+    private ProductFacetIndex facetIndex;
+
+    private CoPurchaseRecommender recommender;
+
+    @BeforeEach
+    void setUp() {
+        this.facetIndex = new ProductFacetIndex(new long[]{0});
+        List<ProductListing> listings = new ArrayList<>();
+        List<ProductFacetVariant> variants = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            listings.add(ProductListing.builder()
+                    .productId(id)
+                    .name("Product " + id)
+                    .status(ProductStatus.ACTIVE)
+                    .isDeleted(false)
+                    .totalStock(1L)
+                    .categoryId(id <= 5 ? 1 : 2)
+                    .brandId(1)
+                    .build());
+            variants.add(new ProductFacetVariant(id, 1, 1, BigDecimal.TEN));
+        }
+        this.facetIndex.rebuild(listings, variants);
+
+        this.recommender = new CoPurchaseRecommender(this.facetIndex, 3);
+        this.recommender.rebuild(List.of(
+                sale(10L, 1L), sale(10L, 2L), sale(10L, 3L),
+                sale(11L, 1L), sale(11L, 2L),
+                sale(12L, 1L), sale(12L, 4L)));
+    }
+
+    @Test
+    void ranksNeighboursByBillsInCommon() {
+        assertEquals(List.of(2L, 4L, 3L), this.recommender.related(1L, 1, 1, 3));
+        assertEquals(List.of(1L, 3L), this.recommender.related(2L, null, null, 2));
+        assertEquals(4, this.recommender.getMetrics().getPairs());
+    }
+
+    @Test
+    void followsRecordedAndRevokedBills() {
+        this.recommender.remove(List.of(1L, 2L));
+        assertEquals(List.of(4L, 3L, 2L), this.recommender.related(1L, null, null, 3));
+
+        this.recommender.add(List.of(1L, 3L, 3L));
+        assertEquals(List.of(3L, 4L, 2L), this.recommender.related(1L, null, null, 3));
+
+        this.recommender.remove(List.of(1L, 4L));
+        assertEquals(List.of(3L, 2L), this.recommender.related(1L, null, null, 3));
+    }
+
+    @Test
+    void skipsHiddenNeighboursAndFillsFromCategoryOrBrand() {
+        this.facetIndex.remove(4L);
+        // 2 and 3 are co-purchased, then the newest products sharing category 1 and brand 1, then brand 1 only
+        assertEquals(List.of(2L, 3L, 5L), this.recommender.related(1L, 1, 1, 3));
+        assertEquals(List.of(1L, 5L, 3L, 2L, 6L), this.recommender.related(4L, 1, 1, 5));
+        assertEquals(2, this.recommender.getMetrics().getFallbacks());
+        assertEquals(2, this.recommender.getMetrics().getViews());
+    }
+
+    private static ProductSale sale(Long billId, Long productId) {
+        return ProductSale.builder().billId(billId).productId(productId).quantity(1).build();
+    }
+}
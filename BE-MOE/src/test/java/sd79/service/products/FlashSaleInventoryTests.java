@@ -0,0 +1,234 @@
+package sd79.service.products;
+
+import org.junit.jupiter.api.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+import sd79.exception.InsufficientStockException;
+import sd79.repositories.products.ProductDetailRepository;
+import sd79.repositories.products.ProductStockRepository;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FlashSaleInventoryTests {
+
+    private static final String LEDGER = "flash-sale:ledger";
+
+    private static final String PROCESSING = "flash-sale:ledger:processing";
+
+    private static final String SEQUENCE = "flash-sale:ledger:sequence";
+
+    private static RedisServer redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private FlashSaleInventory flashSaleInventory;
+
+    private InventoryService inventoryService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000");
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.execute("CREATE TABLE product_details (id BIGINT PRIMARY KEY, quantity INT)");
+        this.jdbcTemplate.execute("CREATE TABLE flash_sale_ledger_offset (id TINYINT PRIMARY KEY, applied_seq BIGINT NOT NULL)");
+        this.jdbcTemplate.update("INSERT INTO product_details (id, quantity) VALUES (1, 20), (2, 20), (3, 20)");
+        this.jdbcTemplate.update("INSERT INTO flash_sale_ledger_offset (id, applied_seq) VALUES (1, 0)");
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        ProductStockRepository productStockRepository = new ProductStockRepository(this.jdbcTemplate);
+        this.flashSaleInventory = new FlashSaleInventory(this.redisTemplate, productStockRepository, mock(ProductDetailRepository.class),
+                mock(ProductListingService.class), this.transactionTemplate, true, 500);
+        this.inventoryService = new InventoryService(productStockRepository, this.flashSaleInventory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void concurrentTakesNeverOversellTheCounter() throws Exception {
+        assertEquals(20, this.flashSaleInventory.enable(1L));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> buyers = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            buyers.add(executor.submit(() -> {
+                start.await();
+                try {
+                    this.transactionTemplate.executeWithoutResult(status -> this.inventoryService.take(Map.of(1L, 1)));
+                    return true;
+                } catch (InsufficientStockException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int successes = 0;
+        for (Future<Boolean> buyer : buyers) {
+            successes += buyer.get(30, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(20, successes);
+        assertEquals("0", counter(1L));
+        // The sale never touched the row, the reconciler writes the ledger back
+        assertEquals(20, quantity(1L));
+        drain();
+        assertEquals(0, quantity(1L));
+        assertEquals(20, appliedSequence());
+    }
+
+    @Test
+    void aShortCounterTakesNothing() {
+        this.flashSaleInventory.enable(1L);
+        this.flashSaleInventory.enable(2L);
+
+        InsufficientStockException error = assertThrows(InsufficientStockException.class,
+                () -> this.inventoryService.take(Map.of(1L, 2, 2L, 21)));
+
+        assertEquals(List.of(2L), error.getProductDetailIds());
+        assertEquals("20", counter(1L));
+        assertEquals("20", counter(2L));
+        assertEquals(0, this.redisTemplate.opsForList().size(LEDGER));
+    }
+
+    @Test
+    void linesOffTheSaleGoToMySql() {
+        this.flashSaleInventory.enable(1L);
+
+        this.transactionTemplate.executeWithoutResult(status -> this.inventoryService.take(Map.of(1L, 2, 3L, 5)));
+
+        assertEquals("18", counter(1L));
+        assertEquals(15, quantity(3L));
+        drain();
+        assertEquals(18, quantity(1L));
+    }
+
+    @Test
+    void aRolledBackCheckoutPutsTheStockBack() {
+        this.flashSaleInventory.enable(1L);
+
+        assertThrows(IllegalStateException.class, () -> this.transactionTemplate.executeWithoutResult(status -> {
+            this.inventoryService.take(Map.of(1L, 5));
+            throw new IllegalStateException("payment failed");
+        }));
+
+        assertEquals("20", counter(1L));
+        drain();
+        assertEquals(20, quantity(1L));
+        assertEquals(2, appliedSequence());
+    }
+
+    @Test
+    void replaysABatchClaimedBeforeACrashExactlyOnce() {
+        this.flashSaleInventory.enable(1L);
+        for (int i = 0; i < 3; i++) {
+            this.inventoryService.take(Map.of(1L, 1));
+        }
+        List<String> batch = this.redisTemplate.opsForList().range(LEDGER, 0, -1);
+
+        // Crash after the batch was written back but before RELEASE: the batch is claimed again
+        assertEquals(3, this.flashSaleInventory.reconcile());
+        this.redisTemplate.opsForList().rightPushAll(PROCESSING, batch);
+        assertEquals(3, this.flashSaleInventory.reconcile());
+        assertEquals(17, quantity(1L));
+        assertEquals(3, appliedSequence());
+        assertEquals(0, this.redisTemplate.opsForList().size(PROCESSING));
+
+        // Crash after CLAIM but before the write back: the batch is applied on the next run
+        this.inventoryService.take(Map.of(1L, 2));
+        this.redisTemplate.opsForList().rightPushAll(PROCESSING, this.redisTemplate.opsForList().range(LEDGER, 0, -1));
+        this.redisTemplate.delete(LEDGER);
+        assertEquals(1, this.flashSaleInventory.reconcile());
+        assertEquals(15, quantity(1L));
+        assertEquals(4, appliedSequence());
+    }
+
+    @Test
+    void reseedsALostSequenceAboveTheAppliedOffset() {
+        this.jdbcTemplate.update("UPDATE flash_sale_ledger_offset SET applied_seq = 100 WHERE id = 1");
+
+        this.flashSaleInventory.enable(1L);
+        assertEquals("100", this.redisTemplate.opsForValue().get(SEQUENCE));
+        this.inventoryService.take(Map.of(1L, 1));
+
+        // Lost while entry 101 still waits in the ledger: the next entry must come after it
+        this.redisTemplate.delete(SEQUENCE);
+        this.inventoryService.take(Map.of(1L, 1));
+        assertEquals(List.of("101|1:-1", "102|1:-1"), this.redisTemplate.opsForList().range(LEDGER, 0, -1));
+
+        drain();
+        assertEquals(18, quantity(1L));
+        assertEquals(102, appliedSequence());
+
+        this.redisTemplate.delete(SEQUENCE);
+        this.flashSaleInventory.init();
+        assertEquals("102", this.redisTemplate.opsForValue().get(SEQUENCE));
+    }
+
+    private void drain() {
+        while (this.flashSaleInventory.reconcile() > 0) {
+            // Until the ledger is written back
+        }
+    }
+
+    private String counter(Long productDetailId) {
+        return this.redisTemplate.opsForValue().get("flash-sale:stock:" + productDetailId);
+    }
+
+    private int quantity(Long id) {
+        return this.jdbcTemplate.queryForObject("SELECT quantity FROM product_details WHERE id = ?", Integer.class, id);
+    }
+
+    private long appliedSequence() {
+        return this.jdbcTemplate.queryForObject("SELECT applied_seq FROM flash_sale_ledger_offset WHERE id = 1", Long.class);
+    }
+}
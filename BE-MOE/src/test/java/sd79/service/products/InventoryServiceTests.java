@@ -0,0 +1,114 @@
+package sd79.service.products;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import sd79.exception.InsufficientStockException;
+import sd79.repositories.products.ProductStockRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTests {
+
+    private static final int STOCK = 25;
+
+    private static final int BUYERS = 64;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000");
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.execute("CREATE TABLE product_details (id BIGINT PRIMARY KEY, quantity INT)");
+        this.jdbcTemplate.update("INSERT INTO product_details (id, quantity) VALUES (1, ?), (2, ?)", STOCK, STOCK);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        // No flash sale running: every line goes to the product_details row
+        FlashSaleInventory flashSaleInventory = mock(FlashSaleInventory.class);
+        when(flashSaleInventory.take(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(flashSaleInventory.restock(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        this.inventoryService = new InventoryService(new ProductStockRepository(this.jdbcTemplate), flashSaleInventory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void concurrentBuyersNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            buyers.add(executor.submit(() -> {
+                start.await();
+                try {
+                    this.transactionTemplate.executeWithoutResult(status -> this.inventoryService.take(Map.of(1L, 1)));
+                    return true;
+                } catch (InsufficientStockException e) {
+                    assertEquals(List.of(1L), e.getProductDetailIds());
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int successes = 0;
+        int shortages = 0;
+        for (Future<Boolean> buyer : buyers) {
+            if (buyer.get(30, TimeUnit.SECONDS)) {
+                successes++;
+            } else {
+                shortages++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(STOCK, successes);
+        assertEquals(BUYERS - STOCK, shortages);
+        assertEquals(0, quantity(1L));
+    }
+
+    @Test
+    void aShortLineRollsBackTheWholeOrder() {
+        InsufficientStockException error = assertThrows(InsufficientStockException.class, () ->
+                this.transactionTemplate.executeWithoutResult(status -> this.inventoryService.take(Map.of(1L, 3, 2L, STOCK + 1))));
+
+        assertEquals(List.of(2L), error.getProductDetailIds());
+        assertEquals(STOCK, quantity(1L));
+        assertEquals(STOCK, quantity(2L));
+    }
+
+    @Test
+    void restockPutsQuantitiesBack() {
+        this.inventoryService.take(Map.of(1L, 5));
+        this.inventoryService.restock(Map.of(1L, 2, 2L, 0));
+
+        assertEquals(STOCK - 3, quantity(1L));
+        assertEquals(STOCK, quantity(2L));
+    }
+
+    private int quantity(Long id) {
+        return this.jdbcTemplate.queryForObject("SELECT quantity FROM product_details WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,103 @@
+package sd79.service.products;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sd79.dto.requests.productRequests.ProductRequests;
+import sd79.dto.response.productResponse.ProductFacetVariant;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductListing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFacetIndexTests {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        this.index = new ProductFacetIndex(new long[]{0, 100, 200});
+        List<ProductListing> listings = List.of(
+                listing(1L, 1, 100L, new Date(1000)),
+                listing(2L, 1, null, new Date(5000)),
+                listing(3L, 1, 50L, null),
+                listing(4L, 1, 100L, new Date(3000)),
+                listing(5L, 1, 200L, new Date(3000)),
+                listing(6L, 2, 10L, new Date(9000)));
+        List<ProductFacetVariant> variants = listings.stream()
+                .map(listing -> new ProductFacetVariant(listing.getProductId(), 1, 1, listing.getMinPrice()))
+                .toList();
+        this.index.rebuild(listings, variants);
+    }
+
+    @Test
+    void pagesAscendingWithNullsFirst() {
+        assertEquals(List.of(List.of(2L, 3L), List.of(1L, 4L), List.of(5L)), walk(ProductRequests.SortBy.PRICE_ASC));
+    }
+
+    @Test
+    void pagesDescendingWithNullsLast() {
+        assertEquals(List.of(List.of(2L, 5L), List.of(4L, 1L), List.of(3L)), walk(ProductRequests.SortBy.DEFAULT));
+    }
+
+    @Test
+    void pagesByOffsetWithoutCursor() {
+        ProductRequests.ParamFilters param = filters(ProductRequests.SortBy.DEFAULT);
+        param.setPageNo(2);
+        ProductFacetIndex.Page page = this.index.page(param, null);
+        assertEquals(List.of(4L, 1L), page.getIds());
+        assertEquals(5, page.getTotal());
+        assertNotNull(page.getNextCursor());
+
+        param.setPageNo(4);
+        assertTrue(this.index.page(param, null).getIds().isEmpty());
+    }
+
+    @Test
+    void appliesKeywordIds() {
+        ProductFacetIndex.Page page = this.index.page(filters(ProductRequests.SortBy.PRICE_ASC), List.of(4L, 5L, 6L));
+        assertEquals(List.of(4L, 5L), page.getIds());
+        assertEquals(2, page.getTotal());
+        assertNull(page.getNextCursor());
+    }
+
+    private List<List<Long>> walk(ProductRequests.SortBy sortBy) {
+        ProductRequests.ParamFilters param = filters(sortBy);
+        List<List<Long>> pages = new ArrayList<>();
+        do {
+            ProductFacetIndex.Page page = this.index.page(param, null);
+            assertEquals(5, page.getTotal());
+            pages.add(page.getIds());
+            param.setCursor(page.getNextCursor());
+        } while (param.getCursor() != null);
+        return pages;
+    }
+
+    private static ProductRequests.ParamFilters filters(ProductRequests.SortBy sortBy) {
+        return ProductRequests.ParamFilters.builder()
+                .pageNo(1)
+                .pageSize(2)
+                .categoryIds(List.of(1))
+                .sortBy(sortBy)
+                .build();
+    }
+
+    private static ProductListing listing(Long id, Integer categoryId, Long price, Date updateAt) {
+        BigDecimal amount = price != null ? BigDecimal.valueOf(price) : null;
+        return ProductListing.builder()
+                .productId(id)
+                .name("Product " + id)
+                .status(ProductStatus.ACTIVE)
+                .isDeleted(false)
+                .totalStock(1L)
+                .categoryId(categoryId)
+                .minPrice(amount)
+                .maxPrice(amount)
+                .updateAt(updateAt)
+                .build();
+    }
+}
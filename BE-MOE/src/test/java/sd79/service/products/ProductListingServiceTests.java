@@ -0,0 +1,122 @@
+package sd79.service.products;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductListing;
+import sd79.repositories.products.*;
+import sd79.service.catalog.CatalogChangedEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductListingServiceTests {
+
+    private ProductListingRepository productListingRepository;
+
+    private ProductDetailRepository productDetailRepository;
+
+    private ProductSearchIndex productSearchIndex;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private ProductListingService service;
+
+    @BeforeEach
+    void setUp() {
+        this.productListingRepository = mock(ProductListingRepository.class);
+        this.productDetailRepository = mock(ProductDetailRepository.class);
+        this.productSearchIndex = new ProductSearchIndex();
+        this.productSearchIndex.rebuild(List.of());
+        this.eventPublisher = mock(ApplicationEventPublisher.class);
+        this.service = new ProductListingService(this.productListingRepository, mock(ProductRepository.class),
+                this.productDetailRepository, mock(ProductImageRepository.class), mock(ProductSaleRepository.class),
+                this.productSearchIndex, new ProductFacetIndex(new long[]{0, 100_000}), new ProductPageCache(100, 60_000),
+                this.eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void aRolledBackOrderQueuesNothing() {
+        complete(() -> this.service.refreshStock(List.of(1L)), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        complete(this.service::flushStock, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(this.productListingRepository, never()).refreshStock(anyCollection());
+    }
+
+    @Test
+    void updatesStockInPlaceWithoutInvalidatingTheCatalog() {
+        when(this.productListingRepository.findAllById(anyIterable())).thenReturn(List.of(listing(1L, 5L)), List.of(listing(1L, 3L)));
+        complete(() -> this.service.refreshStock(List.of(1L, 1L)), TransactionSynchronization.STATUS_COMMITTED);
+
+        complete(this.service::flushStock, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(this.productListingRepository).refreshStock(List.of(1L));
+        verify(this.eventPublisher, never()).publishEvent(any(CatalogChangedEvent.class));
+        assertEquals(List.of(1L), this.productSearchIndex.search("ao", 10));
+    }
+
+    @Test
+    void invalidatesTheCatalogWhenAProductSellsOut() {
+        when(this.productListingRepository.findAllById(anyIterable())).thenReturn(List.of(listing(1L, 2L)), List.of(listing(1L, 0L)));
+        this.service.refreshStock(1L);
+
+        complete(this.service::flushStock, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(this.eventPublisher).publishEvent(any(CatalogChangedEvent.class));
+        assertEquals(List.of(), this.productSearchIndex.search("ao", 10));
+    }
+
+    @Test
+    void requeuesAFailedFlush() {
+        when(this.productListingRepository.findAllById(anyIterable())).thenReturn(List.of(listing(1L, 2L)));
+        this.service.refreshStock(1L);
+        complete(this.service::flushStock, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        complete(this.service::flushStock, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(this.productListingRepository, times(2)).refreshStock(List.of(1L));
+    }
+
+    /**
+     * Runs the action as if inside a transaction that ends with the given status
+     */
+    private static void complete(Runnable action, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static ProductListing listing(Long productId, Long totalStock) {
+        return ProductListing.builder()
+                .productId(productId)
+                .name("Áo thun")
+                .status(ProductStatus.ACTIVE)
+                .isDeleted(false)
+                .totalStock(totalStock)
+                .soldCount(0L)
+                .build();
+    }
+}
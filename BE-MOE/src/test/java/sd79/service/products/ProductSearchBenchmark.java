@@ -0,0 +1,82 @@
+package sd79.service.products;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductListing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storefront keyword search: the in-memory name index against the LIKE query it replaces. The LIKE side runs on H2 in
+ * MySQL mode, a leading wildcard scans product_listing there as it does on MySQL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final String[] WORDS = {"áo", "quần", "thun", "polo", "sơ mi", "khoác", "jean", "kaki", "nam", "nữ",
+            "trắng", "đen", "xanh", "basic", "oversize", "cổ tròn", "dài tay", "ngắn", "thể thao", "len"};
+
+    @Param({"1000", "20000"})
+    private int products;
+
+    @Param({"thun", "so mi trang"})
+    private String keyword;
+
+    private ProductSearchIndex productSearchIndex;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private String like;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<ProductListing> listings = new ArrayList<>(this.products);
+        List<Object[]> rows = new ArrayList<>(this.products);
+        for (long id = 1; id <= this.products; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int word = 0; word < 4; word++) {
+                name.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            listings.add(ProductListing.builder().productId(id).name(name.toString().trim()).status(ProductStatus.ACTIVE)
+                    .isDeleted(false).totalStock(10L).build());
+            rows.add(new Object[]{id, name.toString().trim()});
+        }
+        this.productSearchIndex = new ProductSearchIndex();
+        this.productSearchIndex.rebuild(listings);
+
+        this.jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        this.jdbcTemplate.execute("CREATE TABLE product_listing (product_id BIGINT PRIMARY KEY, name VARCHAR(200), status VARCHAR(10) DEFAULT 'ACTIVE', " +
+                "is_deleted BOOLEAN DEFAULT FALSE, total_stock BIGINT DEFAULT 10, update_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        this.jdbcTemplate.batchUpdate("INSERT INTO product_listing (product_id, name) VALUES (?, ?)", rows);
+        // The LIKE path matches the keyword as typed, with its accents
+        this.like = "%" + (this.keyword.equals("thun") ? "thun" : "sơ mi trắng") + "%";
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return this.productSearchIndex.search(this.keyword, 20);
+    }
+
+    @Benchmark
+    public List<Long> like() {
+        return this.jdbcTemplate.queryForList("SELECT product_id FROM product_listing WHERE status = 'ACTIVE' AND is_deleted = false " +
+                "AND total_stock > 0 AND lower(name) LIKE lower(?) ORDER BY update_at DESC LIMIT 20", Long.class, this.like);
+    }
+}
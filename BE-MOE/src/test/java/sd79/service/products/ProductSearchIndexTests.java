@@ -0,0 +1,92 @@
+package sd79.service.products;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sd79.enums.ProductStatus;
+import sd79.model.ProductListing;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTests {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        this.index = new ProductSearchIndex();
+        this.index.rebuild(List.of(
+                listing(1L, "Áo phông nam cổ tròn", 10),
+                listing(2L, "Áo phông", 5),
+                listing(3L, "Quần đùi thể thao", 3),
+                listing(4L, "Áo khoác phồng", 8),
+                listing(5L, "Áo phông hết hàng", 0)));
+    }
+
+    @Test
+    void foldsDiacriticsAndCase() {
+        assertEquals("ao phong dui", ProductSearchIndex.fold("  ÁO Phông Đùi "));
+        assertEquals("", ProductSearchIndex.fold(null));
+    }
+
+    @Test
+    void matchesWithoutDiacritics() {
+        assertTrue(this.index.isReady());
+        assertEquals(List.of(2L, 4L, 1L), this.index.search("ao phong", 0));
+        assertEquals(List.of(3L), this.index.search("DUI", 0));
+    }
+
+    @Test
+    void ranksWholeWordsAbovePrefixesAndSubstrings() {
+        this.index.rebuild(List.of(
+                listing(10L, "Giày cathao", 1),
+                listing(11L, "Giày thaoly", 1),
+                listing(12L, "Giày thể thao", 1),
+                listing(13L, "Dép thao", 1)));
+        assertEquals(List.of(13L, 12L, 11L, 10L), this.index.search("thao", 0));
+        assertEquals(List.of(11L), this.index.search("thaol", 0));
+    }
+
+    @Test
+    void requiresEveryToken() {
+        assertEquals(List.of(1L), this.index.search("phong tron", 0));
+        assertTrue(this.index.search("phong xyz", 0).isEmpty());
+        assertTrue(this.index.search("  ", 0).isEmpty());
+    }
+
+    @Test
+    void appliesLimit() {
+        assertEquals(1, this.index.search("ao", 1).size());
+    }
+
+    @Test
+    void skipsHiddenListingsAndFollowsUpdates() {
+        assertFalse(this.index.search("het hang", 0).contains(5L));
+
+        this.index.update(listing(5L, "Áo phông hết hàng", 4));
+        assertEquals(List.of(5L), this.index.search("het hang", 0));
+
+        ProductListing archived = listing(2L, "Áo phông", 5);
+        archived.setStatus(ProductStatus.INACTIVE);
+        this.index.update(archived);
+        assertFalse(this.index.search("ao phong", 0).contains(2L));
+
+        this.index.update(listing(3L, "Quần jean", 3));
+        assertTrue(this.index.search("dui", 0).isEmpty());
+        assertEquals(List.of(3L), this.index.search("jean", 0));
+
+        this.index.remove(3L);
+        assertTrue(this.index.search("jean", 0).isEmpty());
+    }
+
+    private static ProductListing listing(Long id, String name, long stock) {
+        return ProductListing.builder()
+                .productId(id)
+                .name(name)
+                .status(ProductStatus.ACTIVE)
+                .isDeleted(false)
+                .totalStock(stock)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package sd79.service.products;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sd79.dto.response.productResponse.ProductSalesTotal;
+import sd79.model.Bill;
+import sd79.repositories.BillDetailRepo;
+import sd79.repositories.products.ProductSaleRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SalesRankingServiceTests {
+
+    private ProductSaleRepository productSaleRepository;
+
+    private SalesRankingService service;
+
+    @BeforeEach
+    void setUp() {
+        this.productSaleRepository = mock(ProductSaleRepository.class);
+        this.service = new SalesRankingService(this.productSaleRepository, mock(BillDetailRepo.class),
+                mock(ProductListingService.class), mock(CoPurchaseRecommender.class));
+    }
+
+    @Test
+    void ranksEachWindowFromTheLedger() {
+        when(this.productSaleRepository.sumQuantities()).thenReturn(List.of(
+                new ProductSalesTotal(1L, 5L), new ProductSalesTotal(2L, 9L), new ProductSalesTotal(3L, 5L), new ProductSalesTotal(4L, 0L)));
+        when(this.productSaleRepository.sumQuantitiesSince(any())).thenReturn(List.of(new ProductSalesTotal(1L, 2L)));
+
+        this.service.reload();
+
+        assertEquals(List.of(2L, 3L, 1L), this.service.top(SalesRankingService.Window.ALL_TIME, 10));
+        assertEquals(List.of(2L, 3L), this.service.top(SalesRankingService.Window.ALL_TIME, 2));
+        assertEquals(List.of(1L), this.service.top(SalesRankingService.Window.LAST_7_DAYS, 10));
+    }
+
+    @Test
+    void aRecordedSaleShowsAtTheNextReloadOnEveryNode() {
+        when(this.productSaleRepository.sumQuantities()).thenReturn(List.of(new ProductSalesTotal(1L, 1L)));
+        this.service.reload();
+        Bill bill = new Bill();
+        bill.setId(7L);
+
+        this.service.record(bill);
+        // No in-memory patch: this node ranks like a node that never saw the write until both reload
+        assertEquals(List.of(1L), this.service.top(SalesRankingService.Window.ALL_TIME, 10));
+
+        when(this.productSaleRepository.sumQuantities()).thenReturn(List.of(new ProductSalesTotal(1L, 1L), new ProductSalesTotal(2L, 3L)));
+        this.service.reload();
+        assertEquals(List.of(2L, 1L), this.service.top(SalesRankingService.Window.ALL_TIME, 10));
+    }
+}
@@ -0,0 +1,147 @@
+package sd79.service.promotions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+import sd79.dto.response.promotions.PromotionWindow;
+import sd79.repositories.promotions.PromotionDetailRepository;
+import sd79.service.catalog.CatalogCache;
+import sd79.service.catalog.CatalogChangedEvent;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ActivePromotionIndexTests {
+
+    private PromotionDetailRepository promotionDetailRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private List<Runnable> flips;
+
+    private List<Instant> flipAt;
+
+    private ActivePromotionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        this.promotionDetailRepository = mock(PromotionDetailRepository.class);
+        this.eventPublisher = mock(ApplicationEventPublisher.class);
+        this.flips = new ArrayList<>();
+        this.flipAt = new ArrayList<>();
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(invocation -> {
+            this.flips.add(invocation.getArgument(0));
+            this.flipAt.add(invocation.getArgument(1));
+            return mock(ScheduledFuture.class);
+        });
+        this.index = new ActivePromotionIndex(this.promotionDetailRepository, mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class), taskScheduler, this.eventPublisher);
+    }
+
+    @Test
+    void schedulesTheNextFlipAtAStartOrJustAfterAnEnd() {
+        long now = System.currentTimeMillis();
+        windows(new PromotionWindow(1L, 10, new Date(now - 60_000), new Date(now + 120_000)),
+                new PromotionWindow(2L, 20, new Date(now + 60_000), new Date(now + 180_000)));
+        assertEquals(Instant.ofEpochMilli(now + 60_000), this.flipAt.getLast());
+
+        windows(new PromotionWindow(1L, 10, new Date(now - 60_000), new Date(now + 30_000)),
+                new PromotionWindow(2L, 20, new Date(now + 60_000), new Date(now + 180_000)));
+        // BETWEEN is inclusive, the promotion is still on at its end instant
+        assertEquals(Instant.ofEpochMilli(now + 30_001), this.flipAt.getLast());
+    }
+
+    @Test
+    void startsBetweenTwoReads() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        windows(new PromotionWindow(1L, 25, new Date(now + 1_000), new Date(now + 60_000)));
+        assertFalse(this.index.lookup(1L).isActive());
+
+        Thread.sleep(1_200);
+        this.flips.getLast().run();
+
+        assertEquals(25, this.index.lookup(1L).getPercent());
+        assertEquals(new Date(now + 60_000), this.index.lookup(1L).getExpiredDate());
+        assertEquals(Instant.ofEpochMilli(now + 60_001), this.flipAt.getLast());
+        verify(this.eventPublisher).publishEvent(argThat((Object event) -> event instanceof CatalogChangedEvent changed
+                && changed.getRegions().contains(CatalogCache.Region.PRODUCTS)));
+    }
+
+    @Test
+    void expiresBetweenTwoReads() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        windows(new PromotionWindow(1L, 25, new Date(now - 60_000), new Date(now + 1_000)),
+                new PromotionWindow(1L, 40, new Date(now + 1_000), new Date(now + 60_000)));
+        assertEquals(25, this.index.lookup(1L).getPercent());
+
+        Thread.sleep(1_200);
+        // Until the flip runs, the expired entry is already gone and the next one not yet in
+        assertFalse(this.index.lookup(1L).isActive());
+
+        this.flips.getLast().run();
+        assertEquals(40, this.index.lookup(1L).getPercent());
+        assertEquals(1, this.index.getMetrics().getActiveProducts());
+    }
+
+    @Test
+    void rebuildsOnlyOnceThePromotionWriteCommits() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(PromotionDetailRepository.class, () -> this.promotionDetailRepository);
+            context.registerBean(StringRedisTemplate.class, () -> mock(StringRedisTemplate.class));
+            context.registerBean(RedisMessageListenerContainer.class, () -> mock(RedisMessageListenerContainer.class));
+            context.registerBean(TaskScheduler.class, () -> mock(TaskScheduler.class));
+            context.register(TransactionConfig.class, ActivePromotionIndex.class);
+            context.refresh();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+            transactionTemplate.executeWithoutResult(status -> {
+                context.publishEvent(CatalogChangedEvent.promotions());
+                status.setRollbackOnly();
+            });
+            verify(this.promotionDetailRepository, never()).findCurrentAndUpcomingWindows();
+            assertFalse(context.getBean(ActivePromotionIndex.class).isReady());
+
+            transactionTemplate.executeWithoutResult(status -> {
+                context.publishEvent(CatalogChangedEvent.promotions());
+                verify(this.promotionDetailRepository, never()).findCurrentAndUpcomingWindows();
+            });
+            verify(this.promotionDetailRepository, times(1)).findCurrentAndUpcomingWindows();
+            assertTrue(context.getBean(ActivePromotionIndex.class).isReady());
+        }
+    }
+
+    private void windows(PromotionWindow... windows) {
+        when(this.promotionDetailRepository.findCurrentAndUpcomingWindows()).thenReturn(List.of(windows));
+        this.index.rebuild();
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package sd79.service.promotions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import sd79.dto.response.promotions.PromotionPrice;
+import sd79.dto.response.promotions.PromotionWindow;
+import sd79.repositories.promotions.PromotionDetailRepository;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class PromotionPriceResolverTests {
+
+    private PromotionDetailRepository promotionDetailRepository;
+
+    private ActivePromotionIndex activePromotionIndex;
+
+    private PromotionPriceResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        this.promotionDetailRepository = mock(PromotionDetailRepository.class);
+        this.activePromotionIndex = new ActivePromotionIndex(this.promotionDetailRepository, mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class), mock(TaskScheduler.class), mock(ApplicationEventPublisher.class));
+        this.resolver = new PromotionPriceResolver(this.promotionDetailRepository, this.activePromotionIndex);
+    }
+
+    @Test
+    void queriesOnceUntilTheIndexIsBuilt() {
+        Date end = new Date(System.currentTimeMillis() + 60_000);
+        when(this.promotionDetailRepository.findActivePricesByProductIds(anyCollection())).thenReturn(List.of(
+                new PromotionPrice(1L, 20, end), new PromotionPrice(1L, 10, end)));
+
+        Map<Long, PromotionPrice> prices = this.resolver.resolve(Arrays.asList(1L, 2L, null, 1L));
+
+        assertEquals(2, prices.size());
+        assertEquals(20, prices.get(1L).getPercent());
+        assertFalse(prices.get(2L).isActive());
+        verify(this.promotionDetailRepository, times(1)).findActivePricesByProductIds(anyCollection());
+    }
+
+    @Test
+    void answersFromTheIndexOnceBuilt() {
+        long now = System.currentTimeMillis();
+        when(this.promotionDetailRepository.findCurrentAndUpcomingWindows()).thenReturn(List.of(
+                new PromotionWindow(1L, 30, new Date(now - 60_000), new Date(now + 60_000))));
+        this.activePromotionIndex.rebuild();
+
+        Map<Long, PromotionPrice> prices = this.resolver.resolve(List.of(1L, 2L));
+
+        assertEquals(30, prices.get(1L).getPercent());
+        assertFalse(prices.get(2L).isActive());
+        assertEquals(30, this.resolver.resolve(1L).getPercent());
+        verify(this.promotionDetailRepository, never()).findActivePricesByProductIds(anyCollection());
+    }
+
+    @Test
+    void stopsPricingAnExpiredPromotionBeforeTheIndexFlips() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        when(this.promotionDetailRepository.findCurrentAndUpcomingWindows()).thenReturn(List.of(
+                new PromotionWindow(1L, 30, new Date(now - 60_000), new Date(now + 1_000))));
+        this.activePromotionIndex.rebuild();
+        assertTrue(this.resolver.resolve(1L).isActive());
+
+        // The scheduler is a mock, so no flip runs in between: the end date check alone turns the price off
+        Thread.sleep(1_200);
+
+        assertFalse(this.resolver.resolve(1L).isActive());
+        assertFalse(this.resolver.resolve(List.of(1L)).get(1L).isActive());
+    }
+}
@@ -0,0 +1,146 @@
+package sd79.service.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import sd79.dto.requests.authRequests.SignInRequest;
+import sd79.exception.TooManyRequestsException;
+import sd79.repositories.CustomerAddressRepository;
+import sd79.repositories.CustomerRepository;
+import sd79.repositories.auth.RoleRepository;
+import sd79.repositories.auth.UserRepository;
+import sd79.service.AuthenticationService;
+import sd79.service.CustomerService;
+import sd79.service.JwtService;
+import sd79.service.TokenService;
+import sd79.service.images.ImageUploadPipeline;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BoundedPasswordEncoderTests {
+
+    private BoundedPasswordEncoder encoder;
+
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        this.encoder = new BoundedPasswordEncoder(4, 1, 1);
+        this.release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.release.countDown();
+        this.encoder.shutdown();
+    }
+
+    @Test
+    void rejectsRightAwayOnceTheQueueIsFull() throws Exception {
+        String hash = this.encoder.encode("secret");
+        fillQueue();
+
+        long start = System.nanoTime();
+        assertThrows(TooManyRequestsException.class, () -> this.encoder.matches("secret", hash));
+        assertThrows(TooManyRequestsException.class, () -> this.encoder.encode("secret"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        assertEquals(2, this.encoder.getMetrics().getRejected());
+        assertEquals(1, this.encoder.getMetrics().getQueueDepth());
+
+        release();
+        assertTrue(this.encoder.matches("secret", hash));
+    }
+
+    @Test
+    void signInAnswersTooManyRequestsWhenTheQueueIsFull() throws Exception {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(new InMemoryUserDetailsManager(User.withUsername("alice")
+                .password(this.encoder.encode("secret"))
+                .roles("USER")
+                .build()));
+        provider.setPasswordEncoder(this.encoder);
+        AuthenticationService authenticationService = authenticationService(new ProviderManager(provider));
+        fillQueue();
+
+        assertThrows(TooManyRequestsException.class, () -> authenticationService.authenticate(signIn("alice", "secret")));
+        assertThrows(TooManyRequestsException.class, () -> authenticationService.authenticate(signIn("bob", "secret")));
+
+        release();
+        assertThrows(BadCredentialsException.class, () -> authenticationService.authenticate(signIn("alice", "wrong")));
+    }
+
+    @Test
+    void signInUnwrapsARejectionRaisedDuringTheUserLookup() {
+        TooManyRequestsException rejection = new TooManyRequestsException("busy");
+        AuthenticationService authenticationService = authenticationService(authentication -> {
+            throw new InternalAuthenticationServiceException(rejection.getMessage(), rejection);
+        });
+
+        assertSame(rejection, assertThrows(TooManyRequestsException.class,
+                () -> authenticationService.authenticate(signIn("alice", "secret"))));
+
+        AuthenticationService failing = authenticationService(authentication -> {
+            throw new InternalAuthenticationServiceException("down", new IllegalStateException());
+        });
+        assertThrows(InternalAuthenticationServiceException.class, () -> failing.authenticate(signIn("alice", "secret")));
+    }
+
+    /**
+     * Occupies the only hashing thread and the only queue slot until the test releases them
+     */
+    private void fillQueue() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(this.encoder, "executor");
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            return this.release.await(10, TimeUnit.SECONDS);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(() -> this.release.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Lets the blocking tasks finish and waits until the queue has room again
+     */
+    private void release() throws InterruptedException {
+        this.release.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (this.encoder.getMetrics().getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AuthenticationService authenticationService(AuthenticationManager authenticationManager) {
+        return new AuthenticationService(mock(UserRepository.class), authenticationManager, mock(JwtService.class),
+                mock(TokenService.class), mock(BoundedPasswordEncoder.class), mock(RoleRepository.class),
+                mock(CustomerRepository.class), mock(CustomerAddressRepository.class), mock(CustomerService.class),
+                mock(ImageUploadPipeline.class),
+                new PrincipalCache(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), 100, 60_000),
+                new TokenVersionService(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), 60),
+                mock(KafkaTemplate.class), mock(SpringTemplateEngine.class));
+    }
+
+    private static SignInRequest signIn(String username, String password) {
+        SignInRequest request = new SignInRequest();
+        request.setUsername(username);
+        request.setPassword(password);
+        return request;
+    }
+}
@@ -0,0 +1,126 @@
+package sd79.service.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sd79.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PrincipalCacheTests {
+
+    private StringRedisTemplate redisTemplate;
+
+    private PrincipalCache cache;
+
+    private AtomicInteger loads;
+
+    private Function<String, UserDetails> loader;
+
+    @BeforeEach
+    void setUp() {
+        this.redisTemplate = mock(StringRedisTemplate.class);
+        this.cache = new PrincipalCache(this.redisTemplate, mock(RedisMessageListenerContainer.class), 2, 60_000);
+        this.loads = new AtomicInteger();
+        this.loader = username -> {
+            this.loads.incrementAndGet();
+            return user(username.length() * 10L, username);
+        };
+    }
+
+    @Test
+    void servesCachedPrincipalsWithinTheBound() {
+        UserDetails first = this.cache.get("alice", this.loader);
+        assertSame(first, this.cache.get("alice", this.loader));
+        assertEquals(1, this.loads.get());
+
+        this.cache.get("bob", this.loader);
+        this.cache.get("alice", this.loader);
+        this.cache.get("carol", this.loader);
+        assertEquals(2, this.cache.size());
+        // bob was the least recently used entry
+        this.cache.get("bob", this.loader);
+        assertEquals(4, this.loads.get());
+    }
+
+    @Test
+    void reloadsAfterTheTtl() {
+        PrincipalCache expiring = new PrincipalCache(this.redisTemplate, mock(RedisMessageListenerContainer.class), 10, 0);
+        expiring.get("alice", this.loader);
+        expiring.get("alice", this.loader);
+        assertEquals(2, this.loads.get());
+    }
+
+    @Test
+    void evictsByUsernameAndIdAndPublishes() {
+        this.cache.get("alice", this.loader);
+        this.cache.evict("alice");
+        this.cache.get("alice", this.loader);
+        assertEquals(2, this.loads.get());
+        verify(this.redisTemplate).convertAndSend(anyString(), eq("username:alice"));
+
+        // Evicting by id finds the entry even when the username it is cached under changed
+        this.cache.evict(50L);
+        this.cache.get("alice", this.loader);
+        assertEquals(3, this.loads.get());
+        verify(this.redisTemplate).convertAndSend(anyString(), eq("id:50"));
+    }
+
+    @Test
+    void doesNotCacheAPrincipalLoadedAcrossAnEviction() {
+        this.cache.get("alice", username -> {
+            this.cache.evict("alice");
+            return user(1L, username);
+        });
+        this.cache.get("alice", this.loader);
+        assertEquals(1, this.loads.get());
+    }
+
+    @Test
+    void repeatsTransactionalEvictionsAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.cache.evict("alice");
+            // A reader reloading the old row before the commit is dropped again once it commits
+            this.cache.get("alice", this.loader);
+            verify(this.redisTemplate, never()).convertAndSend(anyString(), anyString());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            this.cache.get("alice", this.loader);
+            assertEquals(2, this.loads.get());
+            verify(this.redisTemplate).convertAndSend(anyString(), eq("username:alice"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void followsInvalidationsFromOtherNodes() {
+        this.cache.get("alice", this.loader);
+        this.cache.get("bob", this.loader);
+
+        this.cache.onMessage(message("id:50"), null);
+        this.cache.onMessage(message("username:bob"), null);
+        this.cache.onMessage(message("id:not-a-number"), null);
+        assertEquals(0, this.cache.size());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("principal-invalidation".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static User user(Long id, String username) {
+        return User.builder().id(id).username(username).build();
+    }
+}
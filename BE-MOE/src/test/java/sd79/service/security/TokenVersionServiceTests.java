@@ -0,0 +1,76 @@
+package sd79.service.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenVersionServiceTests {
+
+    private StringRedisTemplate redisTemplate;
+
+    private ValueOperations<String, String> values;
+
+    private TokenVersionService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        this.redisTemplate = mock(StringRedisTemplate.class);
+        this.values = mock(ValueOperations.class);
+        when(this.redisTemplate.opsForValue()).thenReturn(this.values);
+        when(this.redisTemplate.opsForZSet()).thenReturn(mock(ZSetOperations.class));
+        this.service = new TokenVersionService(this.redisTemplate, mock(RedisMessageListenerContainer.class), 60);
+    }
+
+    @Test
+    void refusesOlderVersionsAfterARevocation() {
+        when(this.values.increment("token:version:alice")).thenReturn(3L);
+        Date issuedAt = new Date();
+
+        this.service.revoke("alice");
+
+        assertFalse(this.service.isCurrent("alice", 2, issuedAt));
+        assertTrue(this.service.isCurrent("alice", 3, issuedAt));
+        assertTrue(this.service.isCurrent("bob", 0, issuedAt));
+        verify(this.redisTemplate).convertAndSend(eq("token-version"), endsWith(":alice"));
+    }
+
+    @Test
+    void revokesLocallyAndRethrowsWhenRedisFails() {
+        when(this.values.increment(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        Date before = new Date(System.currentTimeMillis() - 1000);
+
+        assertThrows(RedisConnectionFailureException.class, () -> this.service.revoke("alice"));
+
+        assertFalse(this.service.isCurrent("alice", Long.MAX_VALUE, before));
+        assertFalse(this.service.isCurrent("alice", 5, null));
+        assertTrue(this.service.isCurrent("alice", 0, new Date(System.currentTimeMillis() + 1000)));
+        verify(this.redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void keepsTheLocalRevocationWhenAVersionArrives() {
+        when(this.values.increment(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        assertThrows(RedisConnectionFailureException.class, () -> this.service.revoke("alice"));
+
+        long now = System.currentTimeMillis();
+        this.service.onMessage(new DefaultMessage(
+                "token-version".getBytes(StandardCharsets.UTF_8), ("4:" + now + ":alice").getBytes(StandardCharsets.UTF_8)), null);
+
+        assertFalse(this.service.isCurrent("alice", 4, new Date(now - 1000)));
+        assertFalse(this.service.isCurrent("alice", 3, new Date(now + 1000)));
+        assertTrue(this.service.isCurrent("alice", 4, new Date(now + 1000)));
+    }
+}
@@ -0,0 +1,48 @@
+package sd79.utils;
+
+import org.junit.jupiter.api.Test;
+import sd79.exception.InvalidDataException;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTests {
+
+    @Test
+    void roundTripsValues() {
+        Date date = new Date(1700000000000L);
+        PageCursor cursor = PageCursor.decode(PageCursor.encode(date, 42));
+        assertTrue(cursor.hasValue());
+        assertEquals(date, cursor.getDateValue());
+        assertEquals(42, cursor.getId());
+
+        assertEquals(new BigDecimal("199000"), PageCursor.decode(PageCursor.encode(new BigDecimal("199000"), 7)).getDecimalValue());
+    }
+
+    @Test
+    void nullSortValueDecodes() {
+        PageCursor cursor = PageCursor.decode(PageCursor.encode(null, 9));
+        assertFalse(cursor.hasValue());
+        assertEquals(9, cursor.getId());
+    }
+
+    @Test
+    void seekFollowsMysqlNullOrdering() {
+        PageCursor value = PageCursor.decode(PageCursor.encode(new Date(), 5));
+        assertEquals(" AND (b.createAt < :cursorValue OR (b.createAt = :cursorValue AND b.id < :cursorId) OR b.createAt IS NULL)",
+                value.seek("b.createAt", "b.id", false));
+        assertEquals(" AND (b.createAt > :cursorValue OR (b.createAt = :cursorValue AND b.id > :cursorId))",
+                value.seek("b.createAt", "b.id", true));
+
+        PageCursor none = PageCursor.decode(PageCursor.encode(null, 5));
+        assertEquals(" AND (b.createAt IS NULL AND b.id < :cursorId)", none.seek("b.createAt", "b.id", false));
+        assertEquals(" AND ((b.createAt IS NULL AND b.id > :cursorId) OR b.createAt IS NOT NULL)", none.seek("b.createAt", "b.id", true));
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThrows(InvalidDataException.class, () -> PageCursor.decode("not a cursor"));
+    }
+}